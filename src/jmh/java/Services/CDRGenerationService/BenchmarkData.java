@@ -0,0 +1,54 @@
+package Services.CDRGenerationService;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Класс для подготовки CDR файлов для бенчмарков.
+ * Файлы генерируются с фиксированным зерном и синтетическими абонентами, без загрузки в базу данных.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+public final class BenchmarkData {
+    /** Поле с зерном генератора для всех бенчмарков */
+    public static final long SEED = 20240301L;
+
+    private BenchmarkData() {
+    }
+    /** Функция генерации одного CDR файла во временной папке.
+     * @param records количество записей
+     * @param subscribers количество абонентов
+     * @param ordered хронологический порядок записей
+     * @return Путь к CDR файлу
+     * */
+    public static @NotNull Path generate(int records, int subscribers, boolean ordered) throws IOException {
+        Path directory = Files.createTempDirectory("cdr-bench");
+        GenerationConfig config = GenerationConfig.builder()
+                .recordsPerMonth(records)
+                .subscriberCount(subscribers)
+                .monthCount(1)
+                .outputDirectory(directory.toString())
+                .seed(SEED)
+                .ordered(ordered)
+                .loadDatabase(false)
+                .build();
+        new CDRGenerationService(config).generate();
+        return Path.of(FileManager.getPath(directory.toString(), 1));
+    }
+    /** Процедура удаления папки с файлами бенчмарка.
+     * @param directory папка
+     * */
+    public static void delete(@NotNull Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) delete(file.toPath());
+                else file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+}
@@ -0,0 +1,59 @@
+package Services.CDRGenerationService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк генерации CDR файла: упорядоченная и неупорядоченная генерация
+ * в зависимости от размера файла и количества абонентов.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CDRGenerationBenchmark {
+    @Param({"100000", "1000000"})
+    public int records;
+
+    @Param({"1000", "1000000"})
+    public int subscribers;
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    private Path directory;
+    private CDRGenerationService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cdr-bench");
+        GenerationConfig config = GenerationConfig.builder()
+                .recordsPerMonth(records)
+                .subscriberCount(subscribers)
+                .monthCount(1)
+                .threads(1)
+                .outputDirectory(directory.toString())
+                .seed(BenchmarkData.SEED)
+                .ordered(ordered)
+                .loadDatabase(false)
+                .build();
+        service = new CDRGenerationService(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void generate() {
+        service.generate();
+    }
+}
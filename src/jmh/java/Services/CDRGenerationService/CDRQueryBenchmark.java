@@ -0,0 +1,159 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк запросов к таблице CDR: использование связи абонентом за месяц и самые активные абоненты за день
+ * в типизированной схеме с индексами и в прежней схеме со строковыми столбцами без индексов.
+ * Абонент и день меняются при каждом вызове, чтобы H2 не возвращала сохранённый результат прежнего запроса.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CDRQueryBenchmark {
+    /** Поле с длиной месяца в секундах */
+    private static final long MONTH = 30 * 24 * 60 * 60;
+    /** Поле с началом периода записей */
+    private static final long START = 1_677_628_800L;
+    /** Поле с запросом использования связи абонентом в прежней схеме */
+    private static final String LEGACY_USAGE = "SELECT TYPE, COUNT(*), " +
+            "SUM(CAST(TIMEOFEND AS BIGINT) - CAST(TIMEOFSTART AS BIGINT)) FROM CDR WHERE NUMBER = ? " +
+            "AND CAST(TIMEOFSTART AS BIGINT) >= ? AND CAST(TIMEOFSTART AS BIGINT) < ? GROUP BY TYPE";
+    /** Поле с запросом самых активных абонентов в прежней схеме */
+    private static final String LEGACY_TOP = "SELECT NUMBER, COUNT(*), " +
+            "SUM(CAST(TIMEOFEND AS BIGINT) - CAST(TIMEOFSTART AS BIGINT)) AS TOTAL FROM CDR " +
+            "WHERE CAST(TIMEOFSTART AS BIGINT) >= ? AND CAST(TIMEOFSTART AS BIGINT) < ? " +
+            "GROUP BY NUMBER ORDER BY TOTAL DESC, NUMBER LIMIT ?";
+
+    @Param({"200000"})
+    public int records;
+
+    @Param({"10000"})
+    public int subscribers;
+
+    private Connection typed;
+    private Connection legacy;
+    private CDRQueries queries;
+    private int call;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        typed = DriverManager.getConnection("jdbc:h2:mem:typed;DB_CLOSE_DELAY=-1", "sa", "sa");
+        legacy = DriverManager.getConnection("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1", "sa", "sa");
+        CDRSchema.reset(typed);
+        try (Statement stmt = legacy.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS CDR");
+            stmt.execute("CREATE TABLE CDR(ID INT PRIMARY KEY, TYPE VARCHAR(2), " +
+                    "NUMBER VARCHAR(15), TIMEOFSTART VARCHAR(255), TIMEOFEND VARCHAR(255))");
+        }
+        typed.setAutoCommit(false);
+        legacy.setAutoCommit(false);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        try (PreparedStatement typedInsert = typed.prepareStatement(CDRSchema.INSERT_QUERY);
+             PreparedStatement legacyInsert = legacy.prepareStatement("INSERT INTO CDR VALUES (?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= records; id++) {
+                int type = random.nextInt(1, 3);
+                long key = MsisdnCodec.pack(70_000_000_000L + random.nextInt(subscribers), 11);
+                long start = random.nextLong(START, START + 12 * MONTH);
+                long end = start + random.nextLong(30, 3600);
+                CDRSchema.bind(typedInsert, id, type, key, start, end);
+                typedInsert.addBatch();
+                legacyInsert.setInt(1, id);
+                legacyInsert.setString(2, "0" + type);
+                legacyInsert.setString(3, MsisdnCodec.decode(key));
+                legacyInsert.setString(4, String.valueOf(start));
+                legacyInsert.setString(5, String.valueOf(end));
+                legacyInsert.addBatch();
+                if (id % 10_000 == 0) {
+                    typedInsert.executeBatch();
+                    legacyInsert.executeBatch();
+                }
+            }
+            typedInsert.executeBatch();
+            legacyInsert.executeBatch();
+        }
+        typed.commit();
+        legacy.commit();
+        typed.setAutoCommit(true);
+        legacy.setAutoCommit(true);
+        queries = new CDRQueries(typed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement stmt = typed.createStatement()) {
+            stmt.execute("DROP TABLE CDR");
+        }
+        try (Statement stmt = legacy.createStatement()) {
+            stmt.execute("DROP TABLE CDR");
+        }
+        typed.close();
+        legacy.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void nextCall() {
+        call++;
+    }
+
+    private String msisdn() {
+        return MsisdnCodec.decode(MsisdnCodec.pack(70_000_000_000L + call % subscribers, 11));
+    }
+
+    private long day() {
+        return START + MONTH + (call % 300) * 24 * 60 * 60L;
+    }
+
+    @Benchmark
+    public CallUsage typedUsage() throws SQLException {
+        return queries.usage(msisdn(), START + MONTH, START + 2 * MONTH);
+    }
+
+    @Benchmark
+    public long legacyUsage() throws SQLException {
+        try (PreparedStatement stmt = legacy.prepareStatement(LEGACY_USAGE)) {
+            stmt.setString(1, msisdn());
+            stmt.setLong(2, START + MONTH);
+            stmt.setLong(3, START + 2 * MONTH);
+            long total = 0;
+            try (ResultSet result = stmt.executeQuery()) {
+                while (result.next()) total += result.getLong(3);
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public List<CallUsage> typedTopTalkers() throws SQLException {
+        return queries.topTalkers(day(), day() + 24 * 60 * 60, 10);
+    }
+
+    @Benchmark
+    public long legacyTopTalkers() throws SQLException {
+        try (PreparedStatement stmt = legacy.prepareStatement(LEGACY_TOP)) {
+            stmt.setLong(1, day());
+            stmt.setLong(2, day() + 24 * 60 * 60);
+            stmt.setInt(3, 10);
+            long total = 0;
+            try (ResultSet result = stmt.executeQuery()) {
+                while (result.next()) total += result.getLong(3);
+            }
+            return total;
+        }
+    }
+}
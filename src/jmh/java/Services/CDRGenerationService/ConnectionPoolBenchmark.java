@@ -0,0 +1,73 @@
+package Services.CDRGenerationService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк короткого обращения к файловой базе H2: открытие соединения через DriverManager
+ * на каждый запрос против соединения и подготовленного запроса из пула.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    private static final String QUERY = "SELECT COUNT(*) FROM CDR WHERE ID < ?";
+
+    private Path directory;
+    private String url;
+    private Connection holder;
+    private ConnectionPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("pool");
+        url = "jdbc:h2:" + directory.resolve("db").toAbsolutePath() + ";DB_CLOSE_DELAY=-1";
+        holder = DriverManager.getConnection(url, "sa", "sa");
+        holder.createStatement().execute("CREATE TABLE CDR(ID INT PRIMARY KEY)");
+        pool = new ConnectionPool(url, "sa", "sa", 4, 1000, 32);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        pool.close();
+        holder.createStatement().execute("SHUTDOWN");
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int driverManager() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "sa")) {
+            return query(connection);
+        }
+    }
+
+    @Benchmark
+    public int pooled() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            return query(connection);
+        }
+    }
+
+    private int query(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(QUERY)) {
+            stmt.setInt(1, 10);
+            try (ResultSet result = stmt.executeQuery()) {
+                result.next();
+                return result.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package Services.CDRGenerationService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк загрузки CDR файла в таблицу H2: параметризованный запрос с фиксацией частями
+ * и загрузка средствами базы данных через CSVREAD.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DBInsertBenchmark {
+    @Param({"10000", "100000"})
+    public int records;
+
+    @Param({"25", "100000"})
+    public int subscribers;
+
+    private Path file;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        file = BenchmarkData.generate(records, subscribers, true);
+        connection = DriverManager.getConnection("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", "sa");
+    }
+
+    @Setup(Level.Invocation)
+    public void resetTable() throws SQLException {
+        CDRSchema.reset(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        BenchmarkData.delete(file.getParent());
+    }
+
+    @Benchmark
+    public LoadStatistics preparedStatement() throws SQLException, IOException {
+        return new CDRBulkLoader().load(connection, List.of(file.toString()));
+    }
+
+    @Benchmark
+    public LoadStatistics csvRead() throws SQLException {
+        return new CDRBulkLoader().loadDirect(connection, List.of(file.toString()));
+    }
+}
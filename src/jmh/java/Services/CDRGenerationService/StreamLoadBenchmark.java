@@ -0,0 +1,54 @@
+package Services.CDRGenerationService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк генерации CDR файлов с загрузкой в базу данных: одновременно с генерацией
+ * и после создания всех файлов.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StreamLoadBenchmark {
+    @Param({"50000"})
+    public int recordsPerMonth;
+
+    @Param({"true", "false"})
+    public boolean streamLoad;
+
+    private Path directory;
+    private CDRGenerationService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cdr-bench");
+        GenerationConfig config = GenerationConfig.builder()
+                .recordsPerMonth(recordsPerMonth)
+                .subscriberCount(100_000)
+                .monthCount(4)
+                .outputDirectory(directory.toString())
+                .seed(BenchmarkData.SEED)
+                .streamLoad(streamLoad)
+                .build();
+        service = new CDRGenerationService(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void generate() {
+        service.generate();
+    }
+}
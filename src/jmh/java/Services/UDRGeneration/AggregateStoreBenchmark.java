@@ -0,0 +1,94 @@
+package Services.UDRGeneration;
+
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк агрегации года по абонентам с разбивкой по месяцам: таблицы абонентов в куче по одной на месяц
+ * в сравнении с хранилищем вне кучи, в которое таблица каждой части прибавляется и сразу освобождается.
+ * Записи разбираются заранее, поэтому измеряется только агрегация. Размер живой кучи виден с -prof gc.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see AggregateStore
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AggregateStoreBenchmark {
+    /** Поле с количеством записей в одной части месяца */
+    private static final int CHUNK = 100_000;
+
+    @Param({"100000"})
+    public int recordsPerMonth;
+
+    @Param({"10000", "100000"})
+    public int subscribers;
+
+    private int[] types;
+    private long[] msisdns;
+    private long[] durations;
+    private long[] fingerprint;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = BenchmarkData.generate(recordsPerMonth, subscribers, false);
+        types = new int[recordsPerMonth];
+        msisdns = new long[recordsPerMonth];
+        durations = new long[recordsPerMonth];
+        int[] count = {0};
+        CDRReader.read(file, (type, msisdn, callDuration) -> {
+            int i = count[0]++;
+            types[i] = type;
+            msisdns[i] = msisdn;
+            durations[i] = callDuration;
+        });
+        BenchmarkData.delete(file.getParent());
+        directory = Files.createTempDirectory("store-bench");
+        fingerprint = new long[2 * MonthlyAccumulator.MONTHS];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public List<SubscriberTable> heapTables() {
+        List<SubscriberTable> months = new ArrayList<>(MonthlyAccumulator.MONTHS);
+        for (int month = 1; month <= MonthlyAccumulator.MONTHS; month++) {
+            SubscriberTable table = new SubscriberTable(1024);
+            for (int i = 0; i < recordsPerMonth; i++) table.add(msisdns[i], types[i], durations[i]);
+            months.add(table);
+        }
+        return months;
+    }
+
+    @Benchmark
+    public long offHeapStore() throws IOException {
+        Path path = directory.resolve("aggregate.store");
+        try (AggregateStore store = AggregateStore.open(path, fingerprint, CDRValidation.strict(), 1024)) {
+            for (int month = 1; month <= MonthlyAccumulator.MONTHS; month++) {
+                for (int from = 0; from < recordsPerMonth; from += CHUNK) {
+                    SubscriberTable partial = new SubscriberTable(1024);
+                    int to = Math.min(recordsPerMonth, from + CHUNK);
+                    for (int i = from; i < to; i++) partial.add(msisdns[i], types[i], durations[i]);
+                    store.merge(partial, month);
+                }
+                store.complete(month);
+            }
+            return store.size();
+        } finally {
+            AggregateStore.delete(path);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк агрегации времени звонков по абонентам: таблица с открытой адресацией
+ * в сравнении с HashMap, ключом которой является номер абонента строкой.
+ * Записи разбираются заранее, поэтому измеряется только агрегация.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see SubscriberTable
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AggregationBenchmark {
+    @Param({"1000000"})
+    public int records;
+
+    @Param({"1000", "100000", "1000000"})
+    public int subscribers;
+
+    private int[] types;
+    private long[] msisdns;
+    private long[] durations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = BenchmarkData.generate(records, subscribers, false);
+        types = new int[records];
+        msisdns = new long[records];
+        durations = new long[records];
+        int[] count = {0};
+        CDRReader.read(file, (type, msisdn, callDuration) -> {
+            int i = count[0]++;
+            types[i] = type;
+            msisdns[i] = msisdn;
+            durations[i] = callDuration;
+        });
+        BenchmarkData.delete(file.getParent());
+    }
+
+    @Benchmark
+    public SubscriberTable subscriberTable() {
+        SubscriberTable table = new SubscriberTable(1024);
+        for (int i = 0; i < records; i++) table.add(msisdns[i], types[i], durations[i]);
+        return table;
+    }
+
+    @Benchmark
+    public Map<String, Subscriber> stringHashMap() {
+        Map<String, Subscriber> subscribers = new HashMap<>();
+        for (int i = 0; i < records; i++) {
+            Subscriber subscriber = subscribers.computeIfAbsent(MsisdnCodec.decode(msisdns[i]), Subscriber::new);
+            Call call = types[i] == 1 ? subscriber.getOutcomingCall() : subscriber.getIncomingCall();
+            call.addTime(durations[i]);
+        }
+        return subscribers;
+    }
+}
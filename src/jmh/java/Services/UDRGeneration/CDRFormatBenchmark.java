@@ -0,0 +1,64 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.BinaryCDRReader;
+import Services.CDRFormat.CDRConverter;
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк чтения CDR файла в текстовом и двоичном форматах.
+ * Размеры обоих файлов выводятся в консоль при подготовке.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see CDRReader
+ * @see BinaryCDRReader
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CDRFormatBenchmark {
+    @Param({"100000", "1000000"})
+    public int records;
+
+    private Path text;
+    private Path binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = BenchmarkData.generate(records, 100_000, true);
+        binary = text.resolveSibling("CDR.cdrb");
+        CDRConverter.toBinary(text, binary);
+        System.out.printf("%ntext: %d bytes, binary: %d bytes%n", Files.size(text), Files.size(binary));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(text.getParent());
+    }
+
+    @Benchmark
+    public void text(Blackhole bh) throws IOException {
+        CDRReader.read(text, (type, msisdn, callDuration) -> {
+            bh.consume(type);
+            bh.consume(msisdn);
+            bh.consume(callDuration);
+        });
+    }
+
+    @Benchmark
+    public void binary(Blackhole bh) throws IOException {
+        BinaryCDRReader.read(binary, (type, msisdn, startOfCall, callDuration) -> {
+            bh.consume(type);
+            bh.consume(msisdn);
+            bh.consume(callDuration);
+        });
+    }
+}
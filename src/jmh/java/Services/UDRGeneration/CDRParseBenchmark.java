@@ -0,0 +1,63 @@
+package Services.UDRGeneration;
+
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк разбора CDR файла: чтение через отображение в память в сравнении
+ * с построчным чтением и разбиением строки, как в исходной процедуре readFragment.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see CDRReader
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CDRParseBenchmark {
+    @Param({"100000", "1000000"})
+    public int records;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.generate(records, 1000, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(file.getParent());
+    }
+
+    @Benchmark
+    public void mapped(Blackhole bh) throws IOException {
+        CDRReader.read(file, (type, msisdn, callDuration) -> {
+            bh.consume(type);
+            bh.consume(msisdn);
+            bh.consume(callDuration);
+        });
+    }
+
+    @Benchmark
+    public void splitLines(Blackhole bh) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(file.toFile()))) {
+            for (String line; (line = br.readLine()) != null; ) {
+                String[] data = line.replace("\n", "").split(",");
+                long callDuration = Long.parseLong(data[3]) - Long.parseLong(data[2]);
+                if (callDuration < 0) throw new IllegalArgumentException("Call time period is invalid");
+                bh.consume(data[0]);
+                bh.consume(data[1]);
+                bh.consume(callDuration);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package Services.UDRGeneration;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк прибавления времени звонка: время в секундах в сравнении
+ * с исходным хранением времени строкой hh:mm:ss.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Call#addTime(long)
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CallBenchmark {
+    @Param({"1000"})
+    public int calls;
+
+    private long[] durations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        durations = new long[calls];
+        for (int i = 0; i < calls; i++) durations[i] = random.nextInt(3600);
+    }
+
+    @Benchmark
+    public Call seconds() {
+        Call call = new Call();
+        for (long duration : durations) call.addTime(duration);
+        return call;
+    }
+
+    @Benchmark
+    public String formatted() {
+        String totalTime = "00:00:00";
+        for (long duration : durations) {
+            String[] parts = totalTime.split(":");
+            long time = Long.parseLong(parts[2]) + 60 * Long.parseLong(parts[1])
+                    + 3600 * Long.parseLong(parts[0]) + duration;
+            totalTime = String.format("%02d:%02d:%02d", time / 3600, (time % 3600) / 60, time % 60);
+        }
+        return totalTime;
+    }
+}
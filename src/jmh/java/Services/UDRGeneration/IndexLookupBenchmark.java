@@ -0,0 +1,67 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк получения отчёта абонента за месяц из индекса итогового времени по месяцам.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see AggregateIndex
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexLookupBenchmark {
+    @Param({"1000", "1000000"})
+    public int subscribers;
+
+    private Path directory;
+    private AggregateIndex index;
+    private String[] msisdns;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("index-bench");
+        List<Path> sources = new ArrayList<>();
+        List<SubscriberTable> months = new ArrayList<>();
+        random = new SplittableRandom(BenchmarkData.SEED);
+        msisdns = new String[subscribers];
+        for (int i = 0; i < subscribers; i++) msisdns[i] = String.valueOf(70_000_000_000L + i);
+        for (int month = 1; month <= 12; month++) {
+            sources.add(Files.writeString(directory.resolve(month + ".txt"), String.valueOf(month)));
+            SubscriberTable table = new SubscriberTable(subscribers);
+            for (String msisdn : msisdns) table.add(MsisdnCodec.encode(msisdn), 1 + random.nextInt(2), random.nextInt(3600));
+            months.add(table);
+        }
+        index = AggregateIndex.build(directory.resolve("aggregate.idx"), sources,
+                AggregateIndex.fingerprint(sources), CDRValidation.strict(), months);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public Subscriber get() {
+        return index.get(msisdns[random.nextInt(subscribers)], 1 + random.nextInt(12));
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return index.isValid(CDRValidation.strict());
+    }
+}
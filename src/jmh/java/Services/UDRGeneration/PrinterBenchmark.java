@@ -0,0 +1,78 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк вывода итоговой таблицы: Printer с общим буфером в сравнении с исходным выводом
+ * через toString, split и два System.out.format на абонента, а также вывод первых 20 строк.
+ * Вывод идёт в поток с автоматическим сбросом, как System.out, но в /dev/null.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Printer
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrinterBenchmark {
+    @Param({"100000"})
+    public int subscribers;
+
+    private SubscriberTable table;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        table = new SubscriberTable(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            long msisdn = MsisdnCodec.encode(String.valueOf(70_000_000_000L + i));
+            table.add(msisdn, 1, random.nextInt(100_000));
+            table.add(msisdn, 2, random.nextInt(100_000));
+        }
+        OutputStream devNull = new FileOutputStream("/dev/null");
+        out = new PrintStream(new BufferedOutputStream(devNull, 8192), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        out.close();
+    }
+
+    @Benchmark
+    public void format() {
+        out.format("+--------------+----------------+-----------------+%n");
+        out.format("| Phone number | Incoming calls | Outcoming calls |%n");
+        out.format("+--------------+----------------+-----------------+%n");
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (!table.isOccupied(slot)) continue;
+            String[] data = table.toSubscriber(slot).toString().split(",");
+            out.format("| %-12s | %-14s | %-15s |%n", data[0], data[1], data[2]);
+            out.format("+--------------+----------------+-----------------+%n");
+        }
+    }
+
+    @Benchmark
+    public void printer() {
+        try (Printer printer = new Printer(out)) {
+            printer.printTotals(table, TableView.all());
+        }
+    }
+
+    @Benchmark
+    public void top() {
+        try (Printer printer = new Printer(out)) {
+            printer.printTotals(table, TableView.top(20));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Нагрузочный бенчмарк HTTP сервера отчётов на localhost.
+ * Несколько потоков JMH запрашивают отчёты за месяц случайных абонентов из горячего набора
+ * через сервер с кэшем и без кэша. Для сравнения тот же отчёт читается из отдельного файла на диске.
+ * Запуск: {@code java -jar target/benchmarks.jar ReportServerBenchmark -t 8}
+ * @author Никита Дюков
+ * @version 1.0
+ * @see ReportServer
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class ReportServerBenchmark {
+    @Param({"100000"})
+    public int subscribers;
+
+    @Param({"1000"})
+    public int hot;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private Path directory;
+    private ReportServer server;
+    private HttpClient client;
+    private String[] msisdns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("server-bench");
+        List<Path> sources = new ArrayList<>();
+        List<SubscriberTable> months = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        msisdns = new String[subscribers];
+        for (int i = 0; i < subscribers; i++) msisdns[i] = String.valueOf(70_000_000_000L + i);
+        for (int month = 1; month <= 12; month++) {
+            sources.add(Files.writeString(directory.resolve(month + ".txt"), String.valueOf(month)));
+            SubscriberTable table = new SubscriberTable(subscribers);
+            for (String msisdn : msisdns) table.add(MsisdnCodec.encode(msisdn), 1 + random.nextInt(2), random.nextInt(3600));
+            months.add(table);
+        }
+        AggregateIndex index = AggregateIndex.build(directory.resolve("aggregate.idx"), sources,
+                AggregateIndex.fingerprint(sources), CDRValidation.strict(), months);
+        Path reports = Files.createDirectories(directory.resolve("reports"));
+        try (ReportWriter writer = new ReportWriter(ReportFormat.FILES, reports, 1)) {
+            for (int i = 0; i < hot; i++) {
+                writer.write(index.get(msisdns[i], 1), 1);
+            }
+        }
+        server = new ReportServer(() -> index, new InetSocketAddress("localhost", 0), cacheSize,
+                Runtime.getRuntime().availableProcessors());
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public String server(Requests requests) throws IOException, InterruptedException {
+        String msisdn = msisdns[requests.random.nextInt(hot)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:"
+                + server.getAddress().getPort() + "/udr/" + msisdn + "/1")).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) throw new IllegalStateException("Status " + response.statusCode());
+        return response.body();
+    }
+
+    @Benchmark
+    public String file(Requests requests) throws IOException {
+        String msisdn = msisdns[requests.random.nextInt(hot)];
+        return Files.readString(directory.resolve("reports").resolve(FileManager.getNameUDR(msisdn, 1)));
+    }
+}
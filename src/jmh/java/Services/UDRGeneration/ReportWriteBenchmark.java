@@ -0,0 +1,88 @@
+package Services.UDRGeneration;
+
+import Services.CDRGenerationService.BenchmarkData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк записи отчётов: один JSON-файл на абонента через Gson, как в исходной процедуре fillJSON,
+ * в сравнении с записью ReportWriter во всех форматах.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see ReportWriter
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportWriteBenchmark {
+    @Param({"1000", "10000"})
+    public int subscribers;
+
+    private Path directory;
+    private Subscriber[] reports;
+    private Gson gson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("udr-bench");
+        gson = new GsonBuilder()
+                .registerTypeAdapter(Call.class, new CallAdapter())
+                .setPrettyPrinting()
+                .create();
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        reports = new Subscriber[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            reports[i] = new Subscriber(String.valueOf(70_000_000_000L + i));
+            reports[i].getIncomingCall().addTime(random.nextInt(100_000));
+            reports[i].getOutcomingCall().addTime(random.nextInt(100_000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void gsonPerFile() throws IOException {
+        for (Subscriber subscriber : reports) {
+            Path path = directory.resolve(subscriber.getMsisdn() + ".json");
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(path.toFile()), StandardCharsets.UTF_8)
+            )) {
+                gson.toJson(subscriber, writer);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writerFiles() throws IOException {
+        write(ReportFormat.FILES);
+    }
+
+    @Benchmark
+    public void writerNdjson() throws IOException {
+        write(ReportFormat.NDJSON);
+    }
+
+    @Benchmark
+    public void writerSharded() throws IOException {
+        write(ReportFormat.SHARDED);
+    }
+
+    private void write(ReportFormat format) throws IOException {
+        try (ReportWriter writer = new ReportWriter(format, directory, Runtime.getRuntime().availableProcessors())) {
+            for (Subscriber subscriber : reports) writer.write(subscriber, -1);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package Services.UDRGeneration;
+
+import Services.CDRGenerationService.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк итоговой агрегации 1 000 000 записей: одна таблица абонентов в куче
+ * в сравнении с агрегацией с бюджетом памяти, которая записывает абонентов в серии по разделам и сливает их.
+ * Записи разбираются заранее, поэтому измеряется только агрегация и проход по итогу. Размер кучи виден с -prof gc.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see SpillingAggregator
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpillingAggregatorBenchmark {
+    /** Поле с количеством записей */
+    private static final int RECORDS = 1_000_000;
+    /** Поле с количеством записей в одной части */
+    private static final int CHUNK = 100_000;
+
+    @Param({"100000", "500000"})
+    public int subscribers;
+
+    @Param({"20000"})
+    public int budget;
+
+    private int[] types;
+    private long[] msisdns;
+    private long[] durations;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = BenchmarkData.generate(RECORDS, subscribers, false);
+        types = new int[RECORDS];
+        msisdns = new long[RECORDS];
+        durations = new long[RECORDS];
+        int[] count = {0};
+        CDRReader.read(file, (type, msisdn, callDuration) -> {
+            int i = count[0]++;
+            types[i] = type;
+            msisdns[i] = msisdn;
+            durations[i] = callDuration;
+        });
+        BenchmarkData.delete(file.getParent());
+        directory = Files.createTempDirectory("spill-bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public long heapTable() {
+        SubscriberTable table = new SubscriberTable(1024);
+        for (int i = 0; i < RECORDS; i++) table.add(msisdns[i], types[i], durations[i]);
+        long total = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.isOccupied(slot)) total += table.incomingAt(slot) + table.outgoingAt(slot);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long spilling() throws IOException {
+        long total = 0;
+        try (SpillingAggregator aggregator = new SpillingAggregator(directory.resolve("runs"), budget, 16)) {
+            SubscriberTable partial = new SubscriberTable(1024);
+            for (int from = 0; from < RECORDS; from += CHUNK) {
+                int to = Math.min(RECORDS, from + CHUNK);
+                for (int i = from; i < to; i++) {
+                    partial.add(msisdns[i], types[i], durations[i]);
+                    if (partial.size() >= budget) {
+                        aggregator.add(partial);
+                        partial.clear();
+                    }
+                }
+                aggregator.add(partial);
+                partial.clear();
+            }
+            aggregator.finish();
+            for (int partition = 0; partition < aggregator.partitions(); partition++) {
+                aggregator.reduce(partition);
+                try (SpillingAggregator.Cursor rows = aggregator.open(partition)) {
+                    while (rows.next()) total += rows.incoming() + rows.outgoing();
+                }
+            }
+        }
+        return total;
+    }
+}
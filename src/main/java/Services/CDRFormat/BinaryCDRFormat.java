@@ -0,0 +1,47 @@
+package Services.CDRFormat;
+
+import java.nio.ByteOrder;
+
+/** Описание двоичного формата CDR файла.
+ * <pre>
+ * Заголовок, HEADER_SIZE байт:
+ *   int  MAGIC ("CDRB")
+ *   int  VERSION
+ *   long количество записей
+ *   int  количество блоков
+ *   int  максимальное количество записей в блоке
+ *   long смещение индекса блоков
+ * Блоки, по столбцам (n - количество записей в блоке):
+ *   long[n] номер абонента в виде MsisdnCodec
+ *   long[n] время начала звонка (Unix time)
+ *   int[n]  длительность звонка в секундах
+ *   byte[n] тип звонка
+ * Индекс блоков, INDEX_ENTRY_SIZE байт на блок:
+ *   long смещение блока
+ *   int  количество записей в блоке
+ *   long минимальное время начала звонка в блоке
+ *   long максимальное время начала звонка в блоке
+ * </pre>
+ * Все числа записываются в порядке байтов BYTE_ORDER. Запись занимает 21 байт вместо 38 в текстовом формате.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+final class BinaryCDRFormat {
+    /** Поле с сигнатурой файла */
+    static final int MAGIC = 0x43445242;
+    /** Поле с версией формата */
+    static final int VERSION = 1;
+    /** Поле с размером заголовка в байтах */
+    static final int HEADER_SIZE = 32;
+    /** Поле с размером записи индекса в байтах */
+    static final int INDEX_ENTRY_SIZE = 28;
+    /** Поле с размером одной записи в блоке в байтах */
+    static final int RECORD_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES + Byte.BYTES;
+    /** Поле с количеством записей в блоке по умолчанию */
+    static final int DEFAULT_BLOCK_RECORDS = 1 << 16;
+    /** Поле с порядком байтов */
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private BinaryCDRFormat() {
+    }
+}
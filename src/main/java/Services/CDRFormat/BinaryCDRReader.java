@@ -0,0 +1,115 @@
+package Services.CDRFormat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Класс для чтения двоичного CDR файла.
+ * Каждый блок отображается в память целиком, а поля записей читаются из столбцов блока по смещению,
+ * без разбора текста. Блоки независимы, поэтому диапазоны блоков можно читать в разных потоках.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see BinaryCDRFormat
+ * @see BinaryCDRWriter
+ * */
+public final class BinaryCDRReader {
+    /** Поле с размером одной записи в байтах */
+    public static final int RECORD_SIZE = BinaryCDRFormat.RECORD_SIZE;
+
+    private BinaryCDRReader() {
+    }
+    /** Процедура чтения двоичного CDR файла целиком.
+     * @param path путь к файлу
+     * @param handler обработчик записей
+     * @see BinaryCDRReader#read(FileChannel, long, long, BinaryRecordHandler)
+     * */
+    public static void read(@NotNull Path path, @NotNull BinaryRecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, 0, Long.MAX_VALUE, handler);
+        }
+    }
+    /** Функция получения количества блоков файла.
+     * @param channel канал файла
+     * @return Количество блоков
+     * */
+    public static int blockCount(@NotNull FileChannel channel) throws IOException {
+        return readHeader(channel).blocks();
+    }
+    /** Функция получения количества записей файла.
+     * @param channel канал файла
+     * @return Количество записей
+     * */
+    public static long recordCount(@NotNull FileChannel channel) throws IOException {
+        return readHeader(channel).records();
+    }
+    /** Процедура чтения диапазона блоков файла.
+     * @param channel канал файла
+     * @param fromBlock первый блок
+     * @param toBlock блок после последнего, Long.MAX_VALUE - до конца файла
+     * @param handler обработчик записей
+     * */
+    public static void read(@NotNull FileChannel channel, long fromBlock, long toBlock,
+                            @NotNull BinaryRecordHandler handler) throws IOException
+    {
+        Header header = readHeader(channel);
+        int to = (int) Math.min(toBlock, header.blocks());
+        if (fromBlock >= to) return;
+        MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, header.indexOffset(),
+                (long) header.blocks() * BinaryCDRFormat.INDEX_ENTRY_SIZE);
+        index.order(BinaryCDRFormat.BYTE_ORDER);
+        for (int b = (int) fromBlock; b < to; b++) {
+            int entry = b * BinaryCDRFormat.INDEX_ENTRY_SIZE;
+            long offset = index.getLong(entry);
+            int n = index.getInt(entry + Long.BYTES);
+            if (n < 0 || n > header.blockRecords()) throw new IOException("Invalid binary CDR block");
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    (long) n * BinaryCDRFormat.RECORD_SIZE);
+            block.order(BinaryCDRFormat.BYTE_ORDER);
+            readBlock(block, n, handler);
+        }
+    }
+    /** Процедура чтения записей одного блока по столбцам.
+     * @param block отображение блока
+     * @param n количество записей в блоке
+     * @param handler обработчик записей
+     * */
+    private static void readBlock(@NotNull ByteBuffer block, int n, @NotNull BinaryRecordHandler handler) {
+        int starts = n * Long.BYTES;
+        int durations = 2 * n * Long.BYTES;
+        int types = durations + n * Integer.BYTES;
+        for (int i = 0; i < n; i++) {
+            handler.accept(
+                    block.get(types + i),
+                    block.getLong(i * Long.BYTES),
+                    block.getLong(starts + i * Long.BYTES),
+                    block.getInt(durations + i * Integer.BYTES)
+            );
+        }
+    }
+    /** Функция чтения и проверки заголовка файла.
+     * @param channel канал файла
+     * @return Заголовок
+     * */
+    private static @NotNull Header readHeader(@NotNull FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryCDRFormat.HEADER_SIZE).order(BinaryCDRFormat.BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) throw new IOException("Invalid binary CDR file");
+        }
+        buffer.flip();
+        if (buffer.getInt() != BinaryCDRFormat.MAGIC) throw new IOException("Invalid binary CDR file");
+        if (buffer.getInt() != BinaryCDRFormat.VERSION) throw new IOException("Unsupported binary CDR version");
+        Header header = new Header(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+        long indexEnd = header.indexOffset() + (long) header.blocks() * BinaryCDRFormat.INDEX_ENTRY_SIZE;
+        if (header.blocks() < 0 || indexEnd > channel.size()) throw new IOException("Invalid binary CDR file");
+        return header;
+    }
+
+    /** Заголовок двоичного CDR файла. */
+    private record Header(long records, int blocks, int blockRecords, long indexOffset) {
+    }
+}
@@ -0,0 +1,156 @@
+package Services.CDRFormat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Класс для записи двоичного CDR файла.
+ * Записи копятся в массивах по столбцам и записываются в файл блоками. После последнего блока
+ * записывается индекс блоков, а в начало файла - заголовок.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see BinaryCDRFormat
+ * @see BinaryCDRReader
+ * */
+public final class BinaryCDRWriter implements Closeable {
+    /** Поле с каналом файла */
+    private final FileChannel channel;
+    /** Поле с максимальным количеством записей в блоке */
+    private final int blockRecords;
+    /** Поле с номерами абонентов текущего блока */
+    private final long[] msisdns;
+    /** Поле с временем начала звонков текущего блока */
+    private final long[] starts;
+    /** Поле с длительностью звонков текущего блока */
+    private final int[] durations;
+    /** Поле с типами звонков текущего блока */
+    private final byte[] types;
+    /** Поле с буфером записи блока */
+    private final ByteBuffer block;
+    /** Поле с индексом записанных блоков */
+    private ByteBuffer index;
+    /** Поле с количеством записей в текущем блоке */
+    private int count;
+    /** Поле с количеством записанных блоков */
+    private int blocks;
+    /** Поле с общим количеством записей */
+    private long records;
+    /** Конструктор - создание нового файла с блоками по умолчанию.
+     * Существующий файл перезаписывается.
+     * @param path путь к файлу
+     * */
+    public BinaryCDRWriter(@NotNull Path path) throws IOException {
+        this(path, BinaryCDRFormat.DEFAULT_BLOCK_RECORDS);
+    }
+    /** Конструктор - создание нового файла с заданным размером блока.
+     * @param path путь к файлу
+     * @param blockRecords максимальное количество записей в блоке
+     * */
+    public BinaryCDRWriter(@NotNull Path path, int blockRecords) throws IOException {
+        if (blockRecords < 1) throw new IllegalArgumentException("Invalid block size");
+        this.blockRecords = blockRecords;
+        this.msisdns = new long[blockRecords];
+        this.starts = new long[blockRecords];
+        this.durations = new int[blockRecords];
+        this.types = new byte[blockRecords];
+        this.block = ByteBuffer.allocateDirect(blockRecords * BinaryCDRFormat.RECORD_SIZE)
+                .order(BinaryCDRFormat.BYTE_ORDER);
+        this.index = ByteBuffer.allocate(BinaryCDRFormat.INDEX_ENTRY_SIZE * 16).order(BinaryCDRFormat.BYTE_ORDER);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(BinaryCDRFormat.HEADER_SIZE);
+    }
+    /** Процедура добавления записи.
+     * @param type тип звонка
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param startOfCall время начала звонка
+     * @param endOfCall время окончания звонка
+     * @see MsisdnCodec
+     * */
+    public void write(int type, long msisdn, long startOfCall, long endOfCall)
+            throws IOException, IllegalArgumentException
+    {
+        long callDuration = endOfCall - startOfCall;
+        if (callDuration < 0 || callDuration > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Call time period is invalid");
+        }
+        if (type < 0 || type > Byte.MAX_VALUE) throw new IllegalArgumentException("Call type is invalid");
+        msisdns[count] = msisdn;
+        starts[count] = startOfCall;
+        durations[count] = (int) callDuration;
+        types[count] = (byte) type;
+        if (++count == blockRecords) flushBlock();
+    }
+    /** Функция получения количества добавленных записей.
+     * @return Количество записей
+     * */
+    public long getRecords() {
+        return records + count;
+    }
+    /** Процедура завершения файла: записываются последний блок, индекс блоков и заголовок. */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (count > 0) flushBlock();
+            long indexOffset = channel.position();
+            index.flip();
+            writeFully(index, indexOffset);
+            ByteBuffer header = ByteBuffer.allocate(BinaryCDRFormat.HEADER_SIZE).order(BinaryCDRFormat.BYTE_ORDER);
+            header.putInt(BinaryCDRFormat.MAGIC)
+                    .putInt(BinaryCDRFormat.VERSION)
+                    .putLong(records)
+                    .putInt(blocks)
+                    .putInt(blockRecords)
+                    .putLong(indexOffset)
+                    .flip();
+            writeFully(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int n = count;
+        block.clear();
+        block.asLongBuffer().put(msisdns, 0, n);
+        block.position(n * Long.BYTES);
+        block.asLongBuffer().put(starts, 0, n);
+        block.position(2 * n * Long.BYTES);
+        block.asIntBuffer().put(durations, 0, n);
+        block.position(2 * n * Long.BYTES + n * Integer.BYTES);
+        block.put(types, 0, n);
+        block.flip();
+
+        long offset = channel.position();
+        writeFully(block, offset);
+        channel.position(offset + block.limit());
+
+        long minStart = Long.MAX_VALUE;
+        long maxStart = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minStart = Math.min(minStart, starts[i]);
+            maxStart = Math.max(maxStart, starts[i]);
+        }
+        if (index.remaining() < BinaryCDRFormat.INDEX_ENTRY_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(index.capacity() << 1).order(BinaryCDRFormat.BYTE_ORDER);
+            index.flip();
+            grown.put(index);
+            index = grown;
+        }
+        index.putLong(offset).putInt(n).putLong(minStart).putLong(maxStart);
+        blocks++;
+        records += n;
+        count = 0;
+    }
+
+    private void writeFully(@NotNull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package Services.CDRFormat;
+
+/** Обработчик записей двоичного CDR файла. Вызывается для каждой прочитанной записи.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see BinaryCDRReader
+ * */
+@FunctionalInterface
+public interface BinaryRecordHandler {
+    /** Процедура обработки одной записи CDR файла.
+     * @param type тип звонка
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param startOfCall время начала звонка
+     * @param callDuration продолжительность звонка в секундах
+     * @see MsisdnCodec
+     * */
+    void accept(int type, long msisdn, long startOfCall, long callDuration);
+}
@@ -0,0 +1,150 @@
+package Services.CDRFormat;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Утилита для перевода CDR файлов между текстовым и двоичным форматами.
+ * Перевод без потерь: текстовый файл, полученный из двоичного, совпадает с файлом генератора побайтово.
+ * Запуск: CDRConverter to-binary|to-text источник назначение. Если источник - папка,
+ * то переводятся все CDR файлы папки, а назначение - папка для новых файлов.
+ * Файл назначения сначала записывается во временный файл рядом с ним и заменяет его только после успешного перевода,
+ * поэтому неверная запись источника не оставляет обрезанный файл назначения.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see CDRFileFormat
+ * */
+public final class CDRConverter {
+    /** Поле с размером буфера чтения и записи текстового файла */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private CDRConverter() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-text"))) {
+            System.out.println("Usage: CDRConverter to-binary|to-text <source> <target>");
+            return;
+        }
+        CDRFileFormat target = args[0].equals("to-binary") ? CDRFileFormat.BINARY : CDRFileFormat.TEXT;
+        try {
+            long records = convert(Path.of(args[1]), Path.of(args[2]), target);
+            System.out.printf("Converted %d records%n", records);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /** Функция перевода файла или всех CDR файлов папки в заданный формат.
+     * @param source файл или папка
+     * @param target файл или папка назначения
+     * @param format формат назначения
+     * @return Количество переведённых записей
+     * */
+    public static long convert(@NotNull Path source, @NotNull Path target, @NotNull CDRFileFormat format)
+            throws IOException, IllegalArgumentException
+    {
+        if (!Files.isDirectory(source)) {
+            return format == CDRFileFormat.BINARY ? toBinary(source, target) : toText(source, target);
+        }
+        CDRFileFormat from = format == CDRFileFormat.BINARY ? CDRFileFormat.TEXT : CDRFileFormat.BINARY;
+        String fromSuffix = "." + from.getExtension();
+        String toSuffix = "." + format.getExtension();
+        Files.createDirectories(target);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(source)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(fromSuffix)).sorted().toList();
+        }
+        long records = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            name = name.substring(0, name.length() - fromSuffix.length()) + toSuffix;
+            records += convert(file, target.resolve(name), format);
+        }
+        return records;
+    }
+    /** Функция перевода текстового CDR файла в двоичный.
+     * @param text путь к текстовому файлу
+     * @param binary путь к двоичному файлу
+     * @return Количество записей
+     * */
+    public static long toBinary(@NotNull Path text, @NotNull Path binary) throws IOException, IllegalArgumentException {
+        return writeAtomically(binary, temp -> toBinaryFile(text, temp));
+    }
+    /** Функция перевода двоичного CDR файла в текстовый.
+     * @param binary путь к двоичному файлу
+     * @param text путь к текстовому файлу
+     * @return Количество записей
+     * */
+    public static long toText(@NotNull Path binary, @NotNull Path text) throws IOException {
+        return writeAtomically(text, temp -> toTextFile(binary, temp));
+    }
+
+    private static long toBinaryFile(@NotNull Path text, @NotNull Path binary)
+            throws IOException, IllegalArgumentException
+    {
+        try (BufferedReader br = new BufferedReader(new FileReader(text.toFile(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             BinaryCDRWriter writer = new BinaryCDRWriter(binary)) {
+            for (String line; (line = br.readLine()) != null; ) {
+                if (line.isBlank()) continue;
+                String[] data = line.split(",");
+                if (data.length != 4) throw new IllegalArgumentException("Invalid number of fields");
+                writer.write(Integer.parseInt(data[0].trim()), MsisdnCodec.encode(data[1].trim()),
+                        Long.parseLong(data[2].trim()), Long.parseLong(data[3].trim()));
+            }
+            return writer.getRecords();
+        }
+    }
+    private static long toTextFile(@NotNull Path binary, @NotNull Path text) throws IOException {
+        long[] records = {0};
+        StringBuilder line = new StringBuilder(64);
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(text.toFile()), StandardCharsets.UTF_8), BUFFER_SIZE
+        )) {
+            BinaryCDRReader.read(binary, (type, msisdn, startOfCall, callDuration) -> {
+                line.setLength(0);
+                if (type < 10) line.append('0');
+                line.append(type).append(',').append(MsisdnCodec.decode(msisdn)).append(',')
+                        .append(startOfCall).append(',').append(startOfCall + callDuration).append('\n');
+                try {
+                    writer.append(line);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                records[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records[0];
+    }
+    /** Функция записи файла назначения через временный файл в той же папке.
+     * Временный файл заменяет файл назначения только после успешной записи, а при ошибке удаляется.
+     * @param target путь к файлу назначения
+     * @param conversion запись временного файла
+     * @return Количество записей
+     * */
+    private static long writeAtomically(@NotNull Path target, @NotNull Conversion conversion) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "cdr", ".tmp");
+        try {
+            long records = conversion.write(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return records;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Запись переведённого файла. */
+    @FunctionalInterface
+    private interface Conversion {
+        long write(@NotNull Path target) throws IOException;
+    }
+}
@@ -0,0 +1,36 @@
+package Services.CDRFormat;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Формат CDR файлов.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see BinaryCDRWriter
+ * @see BinaryCDRReader
+ * */
+public enum CDRFileFormat {
+    /** Текстовый формат: строки вида 01,79996667755,1709899870,1709905806 */
+    TEXT("txt"),
+    /** Двоичный формат с хранением записей по столбцам в блоках */
+    BINARY("cdrb");
+
+    /** Поле с расширением файлов формата */
+    private final String extension;
+
+    CDRFileFormat(@NotNull String extension) {
+        this.extension = extension;
+    }
+    /** Функция получения расширения файлов формата, без точки.
+     * @return Расширение файлов
+     * */
+    public @NotNull String getExtension() {
+        return extension;
+    }
+    /** Функция получения названия CDR файла за месяц, например " 1_CDR.txt".
+     * @param numOfFile порядковый номер файла
+     * @return Название файла
+     * */
+    public @NotNull String getFileName(int numOfFile) {
+        return String.format("%2d_CDR.%s", numOfFile, extension);
+    }
+}
@@ -0,0 +1,91 @@
+package Services.CDRFormat;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Класс для представления номера мобильного абонента в виде числа long.
+ * В младших битах хранится значение номера, в битах с 56 по 59 - количество цифр,
+ * поэтому номера с ведущими нулями (01234567890) восстанавливаются без потерь.
+ * В таком же виде номер хранится в двоичном CDR файле.
+ * @author Никита Дюков
+ * @version 1.3
+ * @see BinaryCDRWriter
+ * */
+public final class MsisdnCodec {
+    /** Поле с максимальным количеством цифр в номере (E.164) */
+    public static final int MAX_DIGITS = 15;
+    /** Поле со сдвигом, под которым хранится количество цифр */
+    private static final int LENGTH_SHIFT = 56;
+    /** Поле с маской значения номера */
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+
+    private MsisdnCodec() {
+    }
+    /** Функция упаковки номера, уже разобранного в число.
+     * @param value значение номера
+     * @param digits количество цифр в номере
+     * @return Номер в виде числа
+     * */
+    public static long pack(long value, int digits) throws IllegalArgumentException {
+        if (digits < 1 || digits > MAX_DIGITS) throw new IllegalArgumentException("Invalid msisdn length");
+        return ((long) digits << LENGTH_SHIFT) | value;
+    }
+    /** Функция перевода строки с номером в число.
+     * @param msisdn номер мобильного абонента
+     * @return Номер в виде числа
+     * */
+    public static long encode(@NotNull String msisdn) throws IllegalArgumentException {
+        int digits = msisdn.length();
+        if (digits < 1 || digits > MAX_DIGITS) throw new IllegalArgumentException("Invalid msisdn length");
+        long value = 0;
+        for (int i = 0; i < digits; i++) {
+            char c = msisdn.charAt(i);
+            if (c < '0' || c > '9') throw new NumberFormatException("For input string: \"" + msisdn + "\"");
+            value = value * 10 + (c - '0');
+        }
+        return pack(value, digits);
+    }
+    /** Функция получения значения номера без количества цифр.
+     * @param key номер в виде числа
+     * @return Значение номера
+     * */
+    public static long valueOf(long key) {
+        return key & VALUE_MASK;
+    }
+    /** Функция получения количества цифр номера.
+     * @param key номер в виде числа
+     * @return Количество цифр
+     * */
+    public static int digitsOf(long key) {
+        return (int) (key >>> LENGTH_SHIFT);
+    }
+    /** Функция перевода числа обратно в строку с номером.
+     * @param key номер в виде числа
+     * @return Номер мобильного абонента
+     * */
+    public static @NotNull String decode(long key) {
+        int digits = (int) (key >>> LENGTH_SHIFT);
+        long value = key & VALUE_MASK;
+        char[] chars = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+    /** Процедура записи номера в строку без создания промежуточных объектов.
+     * @param builder строка, в конец которой записывается номер
+     * @param key номер в виде числа
+     * @return Количество записанных цифр
+     * */
+    public static int appendTo(@NotNull StringBuilder builder, long key) {
+        int digits = (int) (key >>> LENGTH_SHIFT);
+        long value = key & VALUE_MASK;
+        int start = builder.length();
+        builder.setLength(start + digits);
+        for (int i = start + digits - 1; i >= start; i--) {
+            builder.setCharAt(i, (char) ('0' + value % 10));
+            value /= 10;
+        }
+        return digits;
+    }
+}
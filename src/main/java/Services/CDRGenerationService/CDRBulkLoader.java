@@ -0,0 +1,180 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.BinaryCDRReader;
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/** Класс для пакетной загрузки CDR файлов в таблицу CDR.
+ * Записи добавляются одним параметризованным запросом, а транзакция фиксируется частями,
+ * поэтому в памяти драйвера никогда не копится больше одной части записей.
+ * Также доступна быстрая загрузка через функцию H2 CSVREAD, при которой файл читает сама база данных,
+ * и загрузка двоичных CDR файлов. Значения приводятся к типам столбцов CDRSchema при загрузке.
+ * @author Никита Дюков
+ * @version 1.2
+ * @see LoadStatistics
+ * @see CDRSchema
+ * */
+public class CDRBulkLoader {
+    /** Поле с размером части по умолчанию */
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+    /** Поле с запросом загрузки файла средствами базы данных */
+    private static final String CSV_QUERY =
+            "INSERT INTO CDR (ID, TYPE, NUMBER, DIGITS, TIMEOFSTART, TIMEOFEND) DIRECT " +
+            "SELECT ? + ROWNUM(), CAST(TYPE AS TINYINT), CAST(NUMBER AS BIGINT), CHAR_LENGTH(NUMBER), " +
+            "CAST(TIMEOFSTART AS BIGINT), CAST(TIMEOFEND AS BIGINT) FROM CSVREAD('%s', " +
+            "'TYPE,NUMBER,TIMEOFSTART,TIMEOFEND', 'charset=UTF-8 fieldSeparator=,')";
+    /** Поле с количеством записей, после которого фиксируется транзакция */
+    private final int chunkSize;
+    /** Конструктор - создание загрузчика с размером части по умолчанию. */
+    public CDRBulkLoader() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+    /** Конструктор - создание загрузчика с заданным размером части.
+     * @param chunkSize количество записей, после которого фиксируется транзакция
+     * */
+    public CDRBulkLoader(int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Invalid chunk size");
+        this.chunkSize = chunkSize;
+    }
+    /** Функция загрузки CDR файлов параметризованным запросом.
+     * Идентификаторы записей идут подряд, начиная с 1, в порядке файлов.
+     * Если при загрузке возникает ошибка, то незафиксированная часть откатывается.
+     * @param connection соединение с базой данных
+     * @param paths пути к CDR файлам
+     * @return Статистика загрузки
+     * */
+    public @NotNull LoadStatistics load(@NotNull Connection connection, @NotNull List<String> paths)
+            throws SQLException, IOException
+    {
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement stmt = connection.prepareStatement(CDRSchema.INSERT_QUERY)) {
+            int inBatch = 0;
+            for (String path : paths) {
+                try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+                    for (String line; (line = br.readLine()) != null; ) {
+                        if (line.isEmpty()) continue;
+                        bind(stmt, ++rows, line);
+                        stmt.addBatch();
+                        if (++inBatch == chunkSize) {
+                            stmt.executeBatch();
+                            connection.commit();
+                            inBatch = 0;
+                        }
+                    }
+                }
+            }
+            if (inBatch > 0) {
+                stmt.executeBatch();
+                connection.commit();
+            }
+        } catch (SQLException | IOException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return new LoadStatistics(rows, (System.nanoTime() - start) / 1_000_000);
+    }
+    /** Функция загрузки двоичных CDR файлов параметризованным запросом.
+     * Записи в таблице совпадают с записями, загруженными из текстовых файлов с теми же данными.
+     * @param connection соединение с базой данных
+     * @param paths пути к двоичным CDR файлам
+     * @return Статистика загрузки
+     * @see BinaryCDRReader
+     * */
+    public @NotNull LoadStatistics loadBinary(@NotNull Connection connection, @NotNull List<String> paths)
+            throws SQLException, IOException
+    {
+        long start = System.nanoTime();
+        long[] rows = {0};
+        int[] inBatch = {0};
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement stmt = connection.prepareStatement(CDRSchema.INSERT_QUERY)) {
+            for (String path : paths) {
+                BinaryCDRReader.read(Path.of(path), (type, msisdn, startOfCall, callDuration) -> {
+                    try {
+                        CDRSchema.bind(stmt, ++rows[0], type, msisdn, startOfCall, startOfCall + callDuration);
+                        stmt.addBatch();
+                        if (++inBatch[0] == chunkSize) {
+                            stmt.executeBatch();
+                            connection.commit();
+                            inBatch[0] = 0;
+                        }
+                    } catch (SQLException e) {
+                        throw new UncheckedIOException(new IOException(e));
+                    }
+                });
+            }
+            if (inBatch[0] > 0) {
+                stmt.executeBatch();
+                connection.commit();
+            }
+        } catch (UncheckedIOException e) {
+            connection.rollback();
+            if (e.getCause().getCause() instanceof SQLException cause) throw cause;
+            throw e.getCause();
+        } catch (SQLException | IOException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return new LoadStatistics(rows[0], (System.nanoTime() - start) / 1_000_000);
+    }
+    /** Функция загрузки CDR файлов через функцию H2 CSVREAD.
+     * Файлы читаются и разбираются самой базой данных, каждый файл загружается одним запросом.
+     * @param connection соединение с базой данных
+     * @param paths пути к CDR файлам
+     * @return Статистика загрузки
+     * */
+    public @NotNull LoadStatistics loadDirect(@NotNull Connection connection, @NotNull List<String> paths)
+            throws SQLException
+    {
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (String path : paths) {
+                String file = new File(path).getAbsolutePath().replace("'", "''");
+                try (PreparedStatement stmt = connection.prepareStatement(String.format(CSV_QUERY, file))) {
+                    stmt.setLong(1, rows);
+                    rows += stmt.executeUpdate();
+                }
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return new LoadStatistics(rows, (System.nanoTime() - start) / 1_000_000);
+    }
+    /** Процедура заполнения параметров запроса значениями из строки CDR файла.
+     * @param stmt параметризованный запрос
+     * @param id идентификатор записи
+     * @param line строка CDR файла
+     * */
+    private void bind(@NotNull PreparedStatement stmt, long id, @NotNull String line) throws SQLException {
+        String[] data = line.split(",");
+        if (data.length < 4) throw new SQLException("Invalid CDR line: " + line);
+        CDRSchema.bind(stmt, id, Integer.parseInt(data[0].trim()), MsisdnCodec.encode(data[1].trim()),
+                Long.parseLong(data[2].trim()), Long.parseLong(data[3].trim()));
+    }
+}
@@ -0,0 +1,214 @@
+package Services.CDRGenerationService;
+
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** Загрузка записей в таблицу CDR одновременно с их генерацией.
+ * Потоки генерации передают записи через объекты Producer, которые копят их частями по chunkSize.
+ * Готовые части попадают в очередь ограниченного размера, из которой отдельный поток добавляет их
+ * одним параметризованным запросом и фиксирует транзакцию после каждой части. Поэтому запись в базу данных
+ * идёт параллельно с записью файлов, а файлы не читаются повторно. Генерация ждёт базу данных, только если
+ * в очереди уже maxLag записей; кроме очереди каждый Producer держит не больше одной неполной части.
+ * Если запрос завершился ошибкой, то оставшиеся записи отбрасываются, генерация файлов продолжается,
+ * а ошибка выбрасывается из finish(). Время ожидания генерации учитывается в метриках.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see CDRBulkLoader
+ * @see LoadStatistics
+ * */
+public class CDRDatabaseSink implements Closeable {
+    /** Поле с длительностью ожидания генерации, когда очередь заполнена */
+    private static final Histogram STALL = Metrics.global().histogram("cdr.db.stall");
+    /** Поле с отметкой о завершении очереди */
+    private static final Batch END = new Batch(0);
+    /** Поле с соединением с базой данных */
+    private final Connection connection;
+    /** Поле с количеством записей в одной части */
+    private final int chunkSize;
+    /** Поле с очередью частей на загрузку */
+    private final BlockingQueue<Batch> queue;
+    /** Поле с потоком загрузки */
+    private final Thread thread;
+    /** Поле с режимом автофиксации соединения до загрузки */
+    private final boolean autoCommit;
+    /** Поле с моментом создания */
+    private final long start = System.nanoTime();
+    /** Поле с количеством загруженных записей. Изменяется только потоком загрузки. */
+    private volatile long rows;
+    /** Поле с первой ошибкой загрузки */
+    private volatile SQLException failure;
+    /** Поле с отметкой о завершении загрузки */
+    private boolean finished;
+    /** Конструктор - создание загрузки и запуск её потока.
+     * @param connection соединение с базой данных, используемое только потоком загрузки
+     * @param chunkSize количество записей, после которого часть передаётся в очередь и фиксируется транзакция
+     * @param maxLag количество записей, на которое загрузка может отставать от генерации
+     * */
+    public CDRDatabaseSink(@NotNull Connection connection, int chunkSize, int maxLag) throws SQLException {
+        if (chunkSize < 1) throw new IllegalArgumentException("Invalid chunk size");
+        if (maxLag < 0) throw new IllegalArgumentException("Invalid lag");
+        this.connection = connection;
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, maxLag / chunkSize));
+        this.autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        this.thread = new Thread(this::run, "cdr-db-sink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    /** Функция создания источника записей для одного потока генерации.
+     * Записи получают идентификаторы подряд, начиная с firstId.
+     * @param firstId идентификатор первой записи
+     * @return Источник записей
+     * */
+    public @NotNull Producer producer(long firstId) {
+        return new Producer(firstId);
+    }
+    /** Функция завершения загрузки. Процедура ждёт загрузки всех переданных частей.
+     * Неполные части источников нужно передать заранее через Producer#flush().
+     * @return Статистика загрузки
+     * */
+    public @NotNull LoadStatistics finish() throws SQLException {
+        close();
+        SQLException error = failure;
+        if (error != null) throw error;
+        return new LoadStatistics(rows, (System.nanoTime() - start) / 1_000_000);
+    }
+    /** Процедура остановки загрузки после загрузки уже переданных частей. Режим автофиксации восстанавливается. */
+    @Override
+    public synchronized void close() {
+        if (finished) return;
+        finished = true;
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+        }
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            if (failure == null) failure = e;
+        }
+    }
+
+    private void run() {
+        PreparedStatement stmt = null;
+        try {
+            stmt = connection.prepareStatement(CDRSchema.INSERT_QUERY);
+        } catch (SQLException e) {
+            failure = e;
+        }
+        try {
+            for (Batch batch; (batch = queue.take()) != END; ) {
+                if (failure != null) continue;
+                try {
+                    batch.bind(stmt);
+                    stmt.executeBatch();
+                    connection.commit();
+                    rows += batch.size;
+                } catch (SQLException e) {
+                    failure = e;
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ignored) {
+                        // ошибка уже сохранена
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException ignored) {
+                    // запрос больше не используется
+                }
+            }
+        }
+    }
+
+    /** Источник записей одного потока генерации. Не потокобезопасен. */
+    public final class Producer {
+        /** Поле с идентификатором следующей записи */
+        private long nextId;
+        /** Поле с накапливаемой частью */
+        private Batch batch = new Batch(chunkSize);
+
+        private Producer(long firstId) {
+            this.nextId = firstId;
+        }
+        /** Процедура добавления записи. Если часть заполнена, то она передаётся в очередь,
+         * а при заполненной очереди процедура ждёт, пока загрузка не догонит генерацию.
+         * @param type тип звонка
+         * @param msisdn номер абонента в виде MsisdnCodec
+         * @param startOfCall время начала звонка
+         * @param endOfCall время окончания звонка
+         * */
+        public void add(int type, long msisdn, long startOfCall, long endOfCall) throws IOException {
+            batch.add(nextId++, type, msisdn, startOfCall, endOfCall);
+            if (batch.size == chunkSize) flush();
+        }
+        /** Процедура передачи неполной части в очередь. */
+        public void flush() throws IOException {
+            if (batch.size == 0) return;
+            if (failure == null && !queue.offer(batch)) {
+                long stall = System.nanoTime();
+                try {
+                    queue.put(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the database");
+                }
+                STALL.recordSince(stall);
+            }
+            batch = new Batch(chunkSize);
+        }
+    }
+
+    /** Часть записей для одного пакетного запроса. */
+    private static final class Batch {
+        private final long[] ids;
+        private final int[] types;
+        private final long[] numbers;
+        private final long[] starts;
+        private final long[] ends;
+        private int size;
+
+        private Batch(int capacity) {
+            this.ids = new long[capacity];
+            this.types = new int[capacity];
+            this.numbers = new long[capacity];
+            this.starts = new long[capacity];
+            this.ends = new long[capacity];
+        }
+
+        private void add(long id, int type, long msisdn, long startOfCall, long endOfCall) {
+            ids[size] = id;
+            types[size] = type;
+            numbers[size] = msisdn;
+            starts[size] = startOfCall;
+            ends[size] = endOfCall;
+            size++;
+        }
+
+        private void bind(@NotNull PreparedStatement stmt) throws SQLException {
+            for (int i = 0; i < size; i++) {
+                CDRSchema.bind(stmt, ids[i], types[i], numbers[i], starts[i], ends[i]);
+                stmt.addBatch();
+            }
+        }
+    }
+}
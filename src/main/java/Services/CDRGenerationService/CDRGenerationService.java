@@ -1,26 +1,37 @@
 package Services.CDRGenerationService;
 
+import Services.CDRFormat.BinaryCDRWriter;
+import Services.CDRFormat.CDRFileFormat;
+import Services.CDRFormat.MsisdnCodec;
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
 
 /**
  * Сервис, генерирующий Call Data Record (CDR) файлы. Все записи из файлов дублируютя в таблицу локальной базы данных.
- * Один файл - месяц записей. Всего генерируется 12 файлов, т.е. год записей.
+ * Один файл - месяц записей. По умолчанию генерируется 12 файлов, т.е. год записей.
+ * Объём, количество абонентов и месяцев задаются параметрами генерации.
  * @author Никита Дюков
- * @version 1.0
+ * @version 1.5
  */
 public class CDRGenerationService {
     /** Поле с длиной месяца в секундах */
     private static final long monthInSeconds = 30*24*60*60;
-    /** После с максимальным количеством записей, которое будет генерироваться в одном файле */
-    private static final int BATCH_SIZE = 150;
     /** Поле с нижней границей начала тарификации, равно Mon Jan 01 2018 00:00:00 GMT+0000 */
     private static final int MIN_TIME_OF_GENERATION = 1514764800;
     /** Поле с верхней границей начала тарификации, равно Wed Mar 22 2023 00:00:00 GMT+0000 */
@@ -29,30 +40,75 @@ public class CDRGenerationService {
     private static final int MIN_TIME_OF_CALL = 30;
     /** Поле с максимальной длительностью возможного звонка в секундах */
     private static final int MAX_TIME_OF_CALL = 3600;
+    /** Поле с размером буфера записи одного файла в байтах */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    /** Поле с количеством сгенерированных записей */
+    private static final Counter GENERATED_RECORDS = Metrics.global().counter("cdr.generate.records");
+    /** Поле с количеством записанных байтов CDR файлов */
+    private static final Counter GENERATED_BYTES = Metrics.global().counter("cdr.generate.bytes");
+    /** Поле с длительностью создания одного CDR файла */
+    private static final Histogram GENERATE_FILE = Metrics.global().histogram("cdr.generate.file");
+    /** Поле с количеством загруженных в базу данных записей */
+    private static final Counter INSERTED_RECORDS = Metrics.global().counter("cdr.db.records");
+    /** Поле с длительностью загрузки CDR файлов в базу данных */
+    private static final Histogram INSERT = Metrics.global().histogram("cdr.db.insert");
+    /** Поле с параметрами генерации */
+    private final GenerationConfig config;
+    /** Поле с загрузчиком записей в базу данных */
+    private final CDRBulkLoader loader;
+    /** Поле с пулом номеров абонентов */
+    private final MSISDNPool pool;
+    /** Конструктор - создание нового сервиса с параметрами генерации по умолчанию.
+     * @see GenerationConfig#defaults()
+     * */
+    public CDRGenerationService() {
+        this(GenerationConfig.defaults());
+    }
+    /** Конструктор - создание нового сервиса с заданными параметрами генерации.
+     * @param config параметры генерации
+     * @see GenerationConfig
+     * @see CDRBulkLoader
+     * @see MSISDNPool
+     * */
+    public CDRGenerationService(@NotNull GenerationConfig config) {
+        this.config = config;
+        this.loader = new CDRBulkLoader(config.getLoadChunkSize());
+        this.pool = config.getSubscriberCount() > 0
+                ? MSISDNPool.synthetic(config.getSubscriberCount(), config.getDistribution())
+                : new MSISDNPool(config.getDistribution());
+    }
     /** Процедура генерации CDR файла и заполнения таблицы в базе данных.
      * Таблица очищается перед заполнением, чтобы избежать повторения уникальных идентификаторов.
+     * Если загрузка в базу данных отключена, то создаются только файлы.
+     * Если включена загрузка одновременно с генерацией, то записи попадают в базу данных по мере генерации,
+     * иначе файлы загружаются после создания всех файлов.
      * @see CDRGenerationService#resetCDRTable()
-     * @see CDRGenerationService#generateSetOfCDRs()
+     * @see CDRGenerationService#generateSetOfCDRs(CDRDatabaseSink)
+     * @see CDRGenerationService#generateAndLoad()
      * @see CDRGenerationService#createDBofCDRs()
+     * @see GenerationConfig#isLoadDatabase()
+     * @see GenerationConfig#isStreamLoad()
      * */
     public void generate() {
+        if (!config.isLoadDatabase()) {
+            generateSetOfCDRs(null);
+            return;
+        }
         resetCDRTable();
-        generateSetOfCDRs();
-        createDBofCDRs();
+        if (config.isStreamLoad() && !config.isDirectLoad()) {
+            generateAndLoad();
+        } else {
+            generateSetOfCDRs(null);
+            createDBofCDRs();
+        }
     }
     /** Процедура очистки базы данных.
-     * @see Connection
+     * @see CDRSchema#reset(Connection)
      * @see ConnectionUtil
      * */
     public void resetCDRTable() {
-        String query_delete = "DROP TABLE IF EXISTS CDR;";
-        String query_create = "CREATE TABLE CDR(ID INT PRIMARY KEY, TYPE VARCHAR(2), " +
-                "NUMBER VARCHAR(15), TIMEOFSTART VARCHAR(255), TIMEOFEND VARCHAR(255))";
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            connection.createStatement().execute(query_delete);
-            connection.createStatement().execute(query_create);
-            connection.close();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            CDRSchema.reset(connection);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -60,190 +116,257 @@ public class CDRGenerationService {
     }
     /** Процедура заполнения таблицы в базе данных.
      * Таблица содержит все те же записи, что и файлы.
-     * @see CDRGenerationService#insertFile(int, Statement, AtomicInteger)
+     * Выводит в консоль количество загруженных записей и скорость загрузки.
+     * Двоичные файлы загружаются параметризованным запросом, так как CSVREAD читает только текст.
+     * @see CDRBulkLoader#load(Connection, List)
+     * @see CDRBulkLoader#loadDirect(Connection, List)
+     * @see CDRBulkLoader#loadBinary(Connection, List)
      * @see Connection
      * */
     private void createDBofCDRs() {
-        Connection connection = ConnectionUtil.getConnection();
-        try (Statement stmt = connection.createStatement()){
-            AtomicInteger currentRow = new AtomicInteger(0);
-            for (int i = 1; i <= 12; i++) {
-                insertFile(i, stmt, currentRow);
-            }
-            try {
-                int[] result = stmt.executeBatch();
-                connection.commit();
-            } catch (BatchUpdateException e) {
-                connection.rollback();
-                System.out.println(e.getMessage());
-            }
-            connection.close();
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+        List<String> paths = new ArrayList<>(config.getMonthCount());
+        for (int i = 1; i <= config.getMonthCount(); i++) {
+            paths.add(FileManager.getPath(config.getOutputDirectory(), i, config.getFormat()));
         }
-
-    }
-    /** Процедура обработки CDR файла для добавления его записей в таблицу.
-     *  Файл обрабатывается построчно процедурой insertFragment.
-     * @param numOfFile номер файла для обработки
-     * @param stmt sql оператор
-     * @param currentRow номер строки, на которой остановилась запись
-     * @see CDRGenerationService#insertFragment(String, Statement, AtomicInteger)
-     * @see FileManager#getPath(int) 
-     * @see Statement
-     *  */
-    private void insertFile(int numOfFile, Statement stmt, AtomicInteger currentRow) {
-        String path = FileManager.getPath(numOfFile);
-        FileReader fr = null;
-
-        try {
-            fr = new FileReader(path);
-        } catch (FileNotFoundException e) {
-            System.out.println(e.getMessage());
-        }
-
-        try (BufferedReader br = new BufferedReader(fr)) {
-            for(String line; (line = br.readLine()) != null; ) {
-                currentRow.addAndGet(1);
-                insertFragment(line, stmt, currentRow);
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            LoadStatistics statistics;
+            if (config.getFormat() == CDRFileFormat.BINARY) {
+                statistics = loader.loadBinary(connection, paths);
+            } else if (config.isDirectLoad()) {
+                statistics = loader.loadDirect(connection, paths);
+            } else {
+                statistics = loader.load(connection, paths);
             }
-        } catch (IOException e) {
+            INSERT.recordSince(start);
+            INSERTED_RECORDS.add(statistics.getRows());
+            System.out.println(statistics);
+        } catch (SQLException | IOException | IllegalArgumentException e) {
             System.out.println(e.getMessage());
         }
     }
-    /** Процедура обработки строки CDR файла.
-     *  На основе данных из строки формируется SQL запрос, который добавляется в пакет для обработки.
-     *  @param line обрабатываемая строка из файла
-     *  @param stmt sql оператор
-     *  @param currentRow номер строки, на которой остановилась запись
-     *  @see Connection
-     *  @see Statement
-     *  @see CDRGenerationService#addToBatch(Statement, String)
-     *  */
-    private void insertFragment(@NotNull String line, @NotNull Statement stmt, @NotNull AtomicInteger currentRow) {
-        String[] data = line.replace("\n", "").split(",");
-        String query = "INSERT INTO CDR (ID, TYPE, NUMBER, TIMEOFSTART, TIMEOFEND) VALUES\n" +
-                "(" +
-                currentRow.get() + "," +
-                data[0] + "," +
-                data[1] + "," +
-                data[2] + "," +
-                data[3] +
-                ");";
-        addToBatch(stmt, query);
-    }
-    /** Процедура добавления запроса в пакет для обрадотки.
-     * @param stmt sql оператор
-     * @param query sql запрос
-     * @see Statement
+    /** Процедура создания CDR файлов и одновременного заполнения таблицы в базе данных.
+     * Выводит в консоль количество загруженных записей и скорость загрузки.
+     * Идентификаторы записей те же, что и при загрузке после создания файлов.
+     * @see CDRDatabaseSink
+     * @see GenerationConfig#getMaxLoadLag()
      * */
-    private void addToBatch(@NotNull Statement stmt, @NotNull String query) {
-        try {
-            stmt.addBatch(query);
+    private void generateAndLoad() {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection();
+             CDRDatabaseSink sink = new CDRDatabaseSink(connection, config.getLoadChunkSize(), config.getMaxLoadLag())) {
+            generateSetOfCDRs(sink);
+            LoadStatistics statistics = sink.finish();
+            INSERT.recordSince(start);
+            INSERTED_RECORDS.add(statistics.getRows());
+            System.out.println(statistics);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
-    /** Процедура создания 12-и CDR файлов.
+    /** Процедура создания CDR файлов, по одному на каждый месяц.
      * Unix-дата начала тарификации определяется случайным образом.
+     * Каждый месяц генерируется отдельной задачей со своим потоком случайных чисел. Потоки выделяются
+     * из генератора с заданным зерном по порядку месяцев, поэтому содержимое файлов зависит только
+     * от зерна и не зависит от количества потоков. Количество записей каждого месяца определяется заранее,
+     * чтобы записи месяца получили в базе данных те же идентификаторы, что и при загрузке готовых файлов.
+     * @param sink загрузка записей в базу данных или null, если записи только пишутся в файлы
      * @see CDRGenerationService#MIN_TIME_OF_GENERATION
      * @see CDRGenerationService#MAX_TIME_OF_GENERATION
-     * @see CDRGenerationService#generateCDR(Long, int)
+     * @see CDRGenerationService#generateCDR(long, int, int, SplittableRandom, CDRDatabaseSink.Producer)
+     * @see GenerationConfig#getSeed()
      * */
-    private void generateSetOfCDRs() {
-        Random rand = new Random();
+    private void generateSetOfCDRs(@Nullable CDRDatabaseSink sink) {
+        Long seed = config.getSeed();
+        SplittableRandom rand = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
         long startTime = rand.nextLong(MIN_TIME_OF_GENERATION, MAX_TIME_OF_GENERATION);
-        for (int i = 1; i <= 12; i++) {
-            try {
-                generateCDR(startTime, i);
-            } catch (RuntimeException e) {
-                System.out.println("Cannot create a CDR file");
+        int months = config.getMonthCount();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(config.getThreads(), months));
+        try {
+            List<Future<?>> futures = new ArrayList<>(months);
+            long firstId = 1;
+            for (int i = 1; i <= months; i++) {
+                long monthStart = startTime + (i - 1) * monthInSeconds;
+                int numOfFile = i;
+                SplittableRandom monthRandom = rand.split();
+                int amountToGenerate = amountToGenerate(monthRandom);
+                CDRDatabaseSink.Producer producer = sink == null ? null : sink.producer(firstId);
+                firstId += amountToGenerate;
+                futures.add(executor.submit(
+                        () -> generateCDR(monthStart, numOfFile, amountToGenerate, monthRandom, producer)));
             }
-            startTime += monthInSeconds;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    System.out.println("Cannot create a CDR file");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("CDR generation was interrupted");
+        } finally {
+            executor.shutdownNow();
         }
     }
+    /** Функция определения количества записей одного месяца.
+     * Количество определяется случайным образом в пределах, заданных в параметрах генерации.
+     * @param random поток случайных чисел месяца
+     * @return Количество записей
+     * */
+    private int amountToGenerate(@NotNull SplittableRandom random) {
+        int min = config.getMinRecordsPerMonth();
+        int max = config.getMaxRecordsPerMonth();
+        return min == max ? min : random.nextInt(min, max);
+    }
     /** Процедура создания одного CDR файла.
-     *  Количество записей определяется случайным образом
+     *  Время создания файла, количество записей и байтов учитываются в метриках.
+     *  Если включён хронологический порядок, то время начала звонков генерируется сразу по возрастанию,
+     *  поэтому месяц не хранится в памяти и не сортируется.
+     *  В двоичном формате записи те же, что и в текстовом при том же зерне.
+     * @see CDRGenerationService#nextOrderedPosition(double, int, SplittableRandom)
      * @param startTime начало периода времени для генерации
-     * @param numOfFile конец периода времени для генерации
-     * @see CDRGenerationService#getRandomMSISDNs(int) 
-     * @see FileManager#getPath(int) 
-     * @see FileManager#createFile(int) 
-     * @see CDRGenerationService#generateFragment(Long, Long, String)
+     * @param numOfFile порядковый номер файла
+     * @param amountToGenerate количество записей
+     * @param random поток случайных чисел месяца
+     * @param producer источник записей для базы данных или null
+     * @see FileManager#getPath(String, int)
+     * @see FileManager#createFile(String, int)
+     * @see CDRGenerationService#generateTextCDR(String, long, int, SplittableRandom, CDRDatabaseSink.Producer)
+     * @see CDRGenerationService#generateBinaryCDR(String, long, int, SplittableRandom, CDRDatabaseSink.Producer)
+     * @see Metrics
      *  */
-    private void generateCDR(Long startTime, int numOfFile) throws  RuntimeException{
-        Random rand = new Random();
-        int amountToGenerate = rand.nextInt(50, BATCH_SIZE);
-        List<String> msisdNs = getRandomMSISDNs(amountToGenerate);
-        String path = FileManager.getPath(numOfFile);
-        FileManager.createFile(numOfFile);
+    private void generateCDR(long startTime, int numOfFile, int amountToGenerate, @NotNull SplittableRandom random,
+                             @Nullable CDRDatabaseSink.Producer producer) throws RuntimeException
+    {
+        String path = FileManager.getPath(config.getOutputDirectory(), numOfFile, config.getFormat());
+        FileManager.createFile(config.getOutputDirectory(), numOfFile, config.getFormat());
+        long start = System.nanoTime();
+        if (config.getFormat() == CDRFileFormat.BINARY) {
+            generateBinaryCDR(path, startTime, amountToGenerate, random, producer);
+        } else {
+            generateTextCDR(path, startTime, amountToGenerate, random, producer);
+        }
+        GENERATE_FILE.recordSince(start);
+        GENERATED_RECORDS.add(amountToGenerate);
+        GENERATED_BYTES.add(new File(path).length());
+    }
+    /** Процедура создания одного текстового CDR файла.
+     *  Записи формируются в одной переиспользуемой строке и сразу пишутся в файл.
+     * @param path путь к файлу
+     * @param startTime начало периода времени для генерации
+     * @param amountToGenerate количество записей
+     * @param random поток случайных чисел месяца
+     * @param producer источник записей для базы данных или null
+     * @see CDRGenerationService#generateFragment(StringBuilder, long, SplittableRandom, CDRDatabaseSink.Producer)
+     *  */
+    private void generateTextCDR(@NotNull String path, long startTime, int amountToGenerate,
+                                 @NotNull SplittableRandom random, @Nullable CDRDatabaseSink.Producer producer)
+            throws RuntimeException
+    {
 
+        StringBuilder fragment = new StringBuilder(64);
+        char[] chars = new char[64];
         try (Writer writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8)
+                new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE
         )) {
+            long endTime = startTime + monthInSeconds;
+            double position = 0;
             for (int i = 0; i < amountToGenerate; i++) {
-                writer.write(generateFragment(startTime, startTime + monthInSeconds, msisdNs.get(i)));
+                long startOfCall;
+                if (config.isOrdered()) {
+                    position = nextOrderedPosition(position, amountToGenerate - i, random);
+                    startOfCall = Math.min(startTime + (long) (position * monthInSeconds), endTime - 1);
+                } else {
+                    startOfCall = random.nextLong(startTime, endTime);
+                }
+                fragment.setLength(0);
+                generateFragment(fragment, startOfCall, random, producer);
+                fragment.getChars(0, fragment.length(), chars, 0);
+                writer.write(chars, 0, fragment.length());
             }
+            if (producer != null) producer.flush();
         }
         catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
-    /** Функция генерации одной строки файла.
-     * @param timeOfBeginning время начала звонка
-     * @param timeOfEnding время конца звонка
-     * @param msisdn номер мобильного абонента
-     * @return Строка файла
-     * */
-    private @NotNull String generateFragment(Long timeOfBeginning, Long timeOfEnding, String msisdn) {
-        String type = generateRandomType();
-
-        Random rand = new Random();
-        long startOfCall = rand.nextLong(timeOfBeginning, timeOfEnding);
-        long endOfCall = startOfCall + rand.nextLong(MIN_TIME_OF_CALL, MAX_TIME_OF_CALL);
-
-        return type + "," +
-                msisdn + "," +
-                startOfCall + "," +
-                endOfCall + "\n";
-    }
-    /** Функция получения списка случайных номеров телефонов из локальной базы данных.
-     * @param amount необходиммое количество номеров
-     * @see CDRGenerationService#getOneMSISDN(Connection, List)
-     * @return Список заданной размерности случайных номеров
+    /** Процедура создания одного двоичного CDR файла.
+     *  Случайные числа потребляются в том же порядке, что и при создании текстового файла.
+     * @param path путь к файлу
+     * @param startTime начало периода времени для генерации
+     * @param amountToGenerate количество записей
+     * @param random поток случайных чисел месяца
+     * @param producer источник записей для базы данных или null
+     * @see BinaryCDRWriter
+     * @see MSISDNPool#nextKey(RandomGenerator)
      * */
-    private @NotNull List<String> getRandomMSISDNs(int amount) throws RuntimeException{
-        List<String> numbers = new ArrayList<>(amount);
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            for (int i = 1; i <= amount; i++) {
-                getOneMSISDN(connection, numbers);
+    private void generateBinaryCDR(@NotNull String path, long startTime, int amountToGenerate,
+                                   @NotNull SplittableRandom random, @Nullable CDRDatabaseSink.Producer producer)
+            throws RuntimeException
+    {
+        try (BinaryCDRWriter writer = new BinaryCDRWriter(Path.of(path))) {
+            long endTime = startTime + monthInSeconds;
+            double position = 0;
+            for (int i = 0; i < amountToGenerate; i++) {
+                long startOfCall;
+                if (config.isOrdered()) {
+                    position = nextOrderedPosition(position, amountToGenerate - i, random);
+                    startOfCall = Math.min(startTime + (long) (position * monthInSeconds), endTime - 1);
+                } else {
+                    startOfCall = random.nextLong(startTime, endTime);
+                }
+                int type = generateRandomType(random);
+                long endOfCall = startOfCall + random.nextLong(MIN_TIME_OF_CALL, MAX_TIME_OF_CALL);
+                long key = pool.nextKey(random);
+                writer.write(type, key, startOfCall, endOfCall);
+                if (producer != null) producer.add(type, key, startOfCall, endOfCall);
             }
-        }  catch (SQLException e) {
-            System.out.println("Cannot generate random numbers");
+            if (producer != null) producer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return numbers;
     }
-    /** Процедура получения одного случайного номера телефона из локальной базы данных.
-     * @param connection соединение с базой данных
-     * @param numbers список номеров
+    /** Функция получения следующей точки возрастающей последовательности случайных точек на отрезке [0, 1).
+     * Следующая точка - минимум из оставшихся равномерно распределённых точек на отрезке [position, 1),
+     * поэтому последовательность распределена так же, как отсортированные независимые равномерные точки.
+     * @param position предыдущая точка
+     * @param remaining количество оставшихся точек, включая следующую
+     * @param random поток случайных чисел месяца
+     * @return Следующая точка
      * */
-    private void getOneMSISDN(@NotNull Connection connection, List<String> numbers) throws SQLException {
-        Random rand = new Random();
-        int ranNum = rand.nextInt(1, 26);
-        String query = String.format("SELECT number FROM pNumbers WHERE id=%2d;", ranNum);
-        ResultSet result = connection.createStatement().executeQuery(query);
-        if (result.next()) {
-            numbers.add(result.getString(1));
+    private double nextOrderedPosition(double position, int remaining, @NotNull SplittableRandom random) {
+        return position + (1 - position) * (1 - Math.pow(random.nextDouble(), 1.0 / remaining));
+    }
+    /** Процедура генерации одной строки файла.
+     * @param fragment строка, в которую записывается строка файла
+     * @param startOfCall время начала звонка
+     * @param random поток случайных чисел месяца
+     * @param producer источник записей для базы данных или null
+     * @see MSISDNPool#appendNext(StringBuilder, RandomGenerator)
+     * @see MSISDNPool#nextKey(RandomGenerator)
+     * */
+    private void generateFragment(@NotNull StringBuilder fragment, long startOfCall, @NotNull SplittableRandom random,
+                                  @Nullable CDRDatabaseSink.Producer producer) throws IOException
+    {
+        int type = generateRandomType(random);
+        long endOfCall = startOfCall + random.nextLong(MIN_TIME_OF_CALL, MAX_TIME_OF_CALL);
+
+        fragment.append('0').append(type).append(',');
+        if (producer == null) {
+            pool.appendNext(fragment, random);
+        } else {
+            long key = pool.nextKey(random);
+            MsisdnCodec.appendTo(fragment, key);
+            producer.add(type, key, startOfCall, endOfCall);
         }
-        else connection.close();
+        fragment.append(',').append(startOfCall).append(',').append(endOfCall).append('\n');
     }
     /** Функция генерации случайного типа звонка.
-     * @return Тип звонка
+     * @param random поток случайных чисел месяца
+     * @return Тип звонка: 1 - исходящий, 2 - входящий
      * */
-    private @NotNull String generateRandomType() {
-        Random rand = new Random();
-        int ranNum = rand.nextInt(1, 3);
-        return "0" + ranNum;
+    private int generateRandomType(@NotNull SplittableRandom random) {
+        return random.nextInt(1, 3);
     }
 }
@@ -0,0 +1,88 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Запросы к таблице CDR для анализа использования связи.
+ * Период задаётся в Unix-времени начала звонка, нижняя граница включается, верхняя - нет.
+ * Запрос по абоненту выбирает записи по индексу (NUMBER, TIMEOFSTART), а запрос самых активных абонентов -
+ * по индексу TIMEOFSTART, поэтому ни один из них не просматривает всю таблицу, если период короче неё.
+ * Длительность берётся из вычисляемого столбца DURATION.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see CDRSchema
+ * @see CallUsage
+ * */
+public class CDRQueries {
+    /** Поле с запросом использования связи абонентом за период */
+    static final String USAGE_QUERY = "SELECT TYPE, COUNT(*), SUM(DURATION) FROM CDR " +
+            "WHERE NUMBER = ? AND TIMEOFSTART >= ? AND TIMEOFSTART < ? AND DIGITS = ? GROUP BY TYPE";
+    /** Поле с запросом абонентов с наибольшей длительностью звонков за период */
+    static final String TOP_QUERY = "SELECT NUMBER, DIGITS, COUNT(*), " +
+            "SUM(CASE WHEN TYPE = 2 THEN DURATION ELSE 0 END), SUM(CASE WHEN TYPE = 1 THEN DURATION ELSE 0 END) " +
+            "FROM CDR WHERE TIMEOFSTART >= ? AND TIMEOFSTART < ? " +
+            "GROUP BY NUMBER, DIGITS ORDER BY SUM(DURATION) DESC, NUMBER, DIGITS LIMIT ?";
+    /** Поле с соединением с базой данных */
+    private final Connection connection;
+    /** Конструктор - создание запросов к базе данных.
+     * @param connection соединение с базой данных
+     * */
+    public CDRQueries(@NotNull Connection connection) {
+        this.connection = connection;
+    }
+    /** Функция получения использования связи абонентом за период.
+     * @param msisdn номер мобильного абонента
+     * @param from начало периода, включительно
+     * @param to конец периода, не включительно
+     * @return Количество и длительность звонков абонента, нулевые, если звонков не было
+     * */
+    public @NotNull CallUsage usage(@NotNull String msisdn, long from, long to) throws SQLException {
+        long key = MsisdnCodec.encode(msisdn);
+        long calls = 0;
+        long incoming = 0;
+        long outgoing = 0;
+        try (PreparedStatement stmt = connection.prepareStatement(USAGE_QUERY)) {
+            stmt.setLong(1, MsisdnCodec.valueOf(key));
+            stmt.setLong(2, from);
+            stmt.setLong(3, to);
+            stmt.setByte(4, (byte) MsisdnCodec.digitsOf(key));
+            try (ResultSet result = stmt.executeQuery()) {
+                while (result.next()) {
+                    calls += result.getLong(2);
+                    if (result.getInt(1) == 2) incoming += result.getLong(3);
+                    else if (result.getInt(1) == 1) outgoing += result.getLong(3);
+                }
+            }
+        }
+        return new CallUsage(msisdn, calls, incoming, outgoing);
+    }
+    /** Функция получения абонентов с наибольшей длительностью звонков за период.
+     * @param from начало периода, включительно
+     * @param to конец периода, не включительно
+     * @param limit количество абонентов
+     * @return Абоненты по убыванию общей длительности звонков, при равной длительности - по номеру
+     * */
+    public @NotNull List<CallUsage> topTalkers(long from, long to, int limit) throws SQLException {
+        if (limit < 1) throw new IllegalArgumentException("Invalid limit");
+        List<CallUsage> top = new ArrayList<>(Math.min(limit, 1024));
+        try (PreparedStatement stmt = connection.prepareStatement(TOP_QUERY)) {
+            stmt.setLong(1, from);
+            stmt.setLong(2, to);
+            stmt.setInt(3, limit);
+            try (ResultSet result = stmt.executeQuery()) {
+                while (result.next()) {
+                    String msisdn = MsisdnCodec.decode(MsisdnCodec.pack(result.getLong(1), result.getInt(2)));
+                    top.add(new CallUsage(msisdn, result.getLong(3), result.getLong(4), result.getLong(5)));
+                }
+            }
+        }
+        return top;
+    }
+}
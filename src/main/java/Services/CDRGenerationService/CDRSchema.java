@@ -0,0 +1,72 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Схема таблицы CDR в базе данных.
+ * Все значения хранятся числами: тип звонка - TINYINT, время начала и окончания - BIGINT в Unix-времени,
+ * номер абонента - BIGINT и количество его цифр, чтобы номера с ведущими нулями восстанавливались без потерь.
+ * Длительность звонка вычисляется базой данных. Индекс по (NUMBER, TIMEOFSTART) позволяет выбирать звонки абонента
+ * за период без просмотра всей таблицы, индекс по TIMEOFSTART - звонки всех абонентов за период.
+ * <pre>
+ * CDR(ID BIGINT PRIMARY KEY, TYPE TINYINT, NUMBER BIGINT, DIGITS TINYINT,
+ *     TIMEOFSTART BIGINT, TIMEOFEND BIGINT, DURATION INT = TIMEOFEND - TIMEOFSTART)
+ * </pre>
+ * @author Никита Дюков
+ * @version 1.0
+ * @see CDRQueries
+ * */
+public final class CDRSchema {
+    /** Поле с запросом удаления таблицы */
+    private static final String DROP_QUERY = "DROP TABLE IF EXISTS CDR";
+    /** Поле с запросом создания таблицы */
+    private static final String CREATE_QUERY = "CREATE TABLE CDR(ID BIGINT PRIMARY KEY, TYPE TINYINT NOT NULL, " +
+            "NUMBER BIGINT NOT NULL, DIGITS TINYINT NOT NULL, TIMEOFSTART BIGINT NOT NULL, TIMEOFEND BIGINT NOT NULL, " +
+            "DURATION INT GENERATED ALWAYS AS (TIMEOFEND - TIMEOFSTART))";
+    /** Поле с запросами создания индексов */
+    private static final String[] INDEX_QUERIES = {
+            "CREATE INDEX CDR_NUMBER_START ON CDR(NUMBER, TIMEOFSTART)",
+            "CREATE INDEX CDR_START ON CDR(TIMEOFSTART)"
+    };
+    /** Поле с запросом добавления одной записи */
+    static final String INSERT_QUERY =
+            "INSERT INTO CDR (ID, TYPE, NUMBER, DIGITS, TIMEOFSTART, TIMEOFEND) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private CDRSchema() {
+    }
+    /** Процедура создания пустой таблицы CDR с индексами. Существующая таблица удаляется.
+     * @param connection соединение с базой данных
+     * */
+    public static void reset(@NotNull Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(DROP_QUERY);
+            stmt.execute(CREATE_QUERY);
+            for (String query : INDEX_QUERIES) {
+                stmt.execute(query);
+            }
+        }
+    }
+    /** Процедура заполнения параметров запроса INSERT_QUERY.
+     * @param stmt параметризованный запрос
+     * @param id идентификатор записи
+     * @param type тип звонка
+     * @param msisdn номер абонента в виде MsisdnCodec
+     * @param startOfCall время начала звонка
+     * @param endOfCall время окончания звонка
+     * */
+    static void bind(@NotNull PreparedStatement stmt, long id, int type, long msisdn, long startOfCall, long endOfCall)
+            throws SQLException
+    {
+        stmt.setLong(1, id);
+        stmt.setByte(2, (byte) type);
+        stmt.setLong(3, MsisdnCodec.valueOf(msisdn));
+        stmt.setByte(4, (byte) MsisdnCodec.digitsOf(msisdn));
+        stmt.setLong(5, startOfCall);
+        stmt.setLong(6, endOfCall);
+    }
+}
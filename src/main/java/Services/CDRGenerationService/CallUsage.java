@@ -0,0 +1,21 @@
+package Services.CDRGenerationService;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Использование связи одним абонентом за период.
+ * @param msisdn номер мобильного абонента
+ * @param calls количество звонков
+ * @param incomingSeconds длительность входящих звонков в секундах
+ * @param outgoingSeconds длительность исходящих звонков в секундах
+ * @author Никита Дюков
+ * @version 1.0
+ * @see CDRQueries
+ * */
+public record CallUsage(@NotNull String msisdn, long calls, long incomingSeconds, long outgoingSeconds) {
+    /** Функция получения общей длительности звонков.
+     * @return Длительность входящих и исходящих звонков в секундах
+     * */
+    public long totalSeconds() {
+        return incomingSeconds + outgoingSeconds;
+    }
+}
@@ -0,0 +1,348 @@
+package Services.CDRGenerationService;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/** Пул соединений с базой данных фиксированного размера.
+ * Физические соединения открываются по мере надобности, но не больше size, и переиспользуются.
+ * Выданное соединение - обёртка, закрытие которой возвращает физическое соединение в пул:
+ * незафиксированная транзакция откатывается, а режим автофиксации восстанавливается.
+ * Перед выдачей соединение проверяется, и закрытое или неработающее соединение заменяется новым.
+ * Каждое соединение хранит подготовленные запросы по тексту, поэтому повторный prepareStatement
+ * с тем же текстом не разбирает запрос заново, а закрытие такого запроса только очищает его параметры.
+ * Если соединение не удаётся получить за время ожидания, то в консоль выводятся места,
+ * где были взяты все выданные соединения, и выбрасывается SQLException.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see ConnectionUtil
+ * */
+public class ConnectionPool implements Closeable {
+    /** Поле со временем проверки соединения перед выдачей в секундах */
+    private static final int VALIDATION_TIMEOUT = 1;
+    /** Поле с адресом базы данных */
+    private final String url;
+    /** Поле с именем пользователя */
+    private final String username;
+    /** Поле с паролем */
+    private final String password;
+    /** Поле с временем ожидания свободного соединения в миллисекундах */
+    private final long borrowTimeout;
+    /** Поле с количеством подготовленных запросов, которые хранит одно соединение */
+    private final int statementCacheSize;
+    /** Поле с разрешениями на выдачу соединений, по одному на соединение */
+    private final Semaphore permits;
+    /** Поле со свободными соединениями */
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    /** Поле с выданными соединениями */
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    /** Поле с отметкой о закрытии пула */
+    private volatile boolean closed;
+    /** Конструктор - создание пула без открытия соединений.
+     * @param url адрес базы данных
+     * @param username имя пользователя
+     * @param password пароль
+     * @param size максимальное количество соединений
+     * @param borrowTimeout время ожидания свободного соединения в миллисекундах
+     * @param statementCacheSize количество подготовленных запросов, которые хранит одно соединение
+     * */
+    public ConnectionPool(@NotNull String url, @NotNull String username, @NotNull String password,
+                          int size, long borrowTimeout, int statementCacheSize)
+    {
+        if (size < 1) throw new IllegalArgumentException("Invalid pool size");
+        if (borrowTimeout < 0) throw new IllegalArgumentException("Invalid borrow timeout");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("Invalid statement cache size");
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.borrowTimeout = borrowTimeout;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(size, true);
+    }
+    /** Функция получения соединения из пула. Соединение нужно закрыть, чтобы вернуть его в пул.
+     * @return Соединение
+     * */
+    public @NotNull Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                reportLeaks();
+                throw new SQLException("Connection pool is exhausted: " + leased.size() + " connections are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        try {
+            PooledConnection pooled = takeValid();
+            Lease lease = new Lease(pooled);
+            leased.add(lease);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, lease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    /** Функция получения количества выданных соединений.
+     * @return Количество соединений, которые ещё не возвращены в пул
+     * */
+    public int getActive() {
+        return leased.size();
+    }
+    /** Функция получения количества свободных открытых соединений.
+     * @return Количество соединений в пуле
+     * */
+    public int getIdle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+    /** Процедура закрытия пула. Свободные соединения закрываются сразу,
+     * выданные - при возвращении в пул.
+     * */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (PooledConnection pooled : idle) {
+                pooled.closeQuietly();
+            }
+            idle.clear();
+        }
+    }
+
+    /** Функция получения проверенного свободного соединения или открытия нового.
+     * @return Физическое соединение
+     * */
+    private @NotNull PooledConnection takeValid() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) return new PooledConnection(DriverManager.getConnection(url, username, password));
+            if (pooled.isValid()) return pooled;
+            pooled.closeQuietly();
+        }
+    }
+    /** Процедура возвращения соединения в пул. Если состояние соединения не удаётся сбросить, то оно закрывается.
+     * @param lease выданное соединение
+     * */
+    private void release(@NotNull Lease lease) {
+        leased.remove(lease);
+        PooledConnection pooled = lease.pooled;
+        try {
+            if (closed || !pooled.reset()) {
+                pooled.closeQuietly();
+            } else {
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+    /** Процедура вывода в консоль мест, где были взяты выданные соединения. */
+    private void reportLeaks() {
+        long now = System.nanoTime();
+        for (Lease lease : leased) {
+            long held = TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt);
+            System.out.println("Connection is held for " + held + " ms, borrowed at:");
+            for (StackTraceElement element : lease.borrowedBy.getStackTrace()) {
+                System.out.println("\tat " + element);
+            }
+        }
+    }
+
+    /** Физическое соединение с подготовленными запросами. */
+    private final class PooledConnection {
+        private final Connection connection;
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) return false;
+                eldest.getValue().closeQuietly();
+                return true;
+            }
+        };
+
+        private PooledConnection(@NotNull Connection connection) {
+            this.connection = connection;
+        }
+
+        private boolean isValid() {
+            try {
+                return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private @NotNull PreparedStatement prepare(@NotNull String sql) throws SQLException {
+            if (statementCacheSize == 0) return connection.prepareStatement(sql);
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse && cached.statement.isClosed()) {
+                statements.remove(sql);
+                cached = null;
+            }
+            if (cached == null) {
+                cached = new CachedStatement(connection.prepareStatement(sql));
+                statements.put(sql, cached);
+            } else if (cached.inUse) {
+                return connection.prepareStatement(sql);
+            }
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        private boolean reset() {
+            try {
+                for (Iterator<CachedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                    CachedStatement cached = it.next();
+                    if (cached.inUse && !cached.release()) it.remove();
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                return !connection.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // соединение больше не используется
+            }
+        }
+    }
+
+    /** Подготовленный запрос, закрытие которого возвращает его в соединение. */
+    private static final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+
+        private CachedStatement(@NotNull PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (inUse && !release()) statement.close();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (!inUse) throw new SQLException("Statement is closed");
+                    return invokeTarget(statement, method, args);
+                }
+            }
+        }
+
+        private boolean release() {
+            inUse = false;
+            try {
+                statement.clearBatch();
+                statement.clearParameters();
+                return !statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // запрос больше не используется
+            }
+        }
+    }
+
+    /** Выданное соединение. После закрытия все вызовы, кроме close и isClosed, выбрасывают SQLException. */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final long borrowedAt = System.nanoTime();
+        private final Throwable borrowedBy = new Throwable();
+        private boolean returned;
+
+        private Lease(@NotNull PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.connection;
+                }
+                default -> {
+                    if (returned) throw new SQLException("Connection is closed");
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return pooled.prepare((String) args[0]);
+                    }
+                    return invokeTarget(pooled.connection, method, args);
+                }
+            }
+        }
+    }
+
+    private static Object invokeTarget(@NotNull Object target, @NotNull Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
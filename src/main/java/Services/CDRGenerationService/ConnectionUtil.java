@@ -1,24 +1,53 @@
 package Services.CDRGenerationService;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
-/** Сервис, устанавливающий соединение с локальной базой данных
+/** Сервис, выдающий соединения с локальной базой данных из общего пула
  *  @author Никита Дюков
- *  @version 1.0
+ *  @version 1.1
+ *  @see ConnectionPool
  *  */
 public class ConnectionUtil {
     public static final String DB_URL = "jdbc:h2:~/nexignTask/db/db;DB_CLOSE_DELAY=-1;";
     public static final String USERNAME = "sa";
     public static final String PASSWORD = "sa";
     public static final String DB_Driver = "org.h2.Driver";
+    /** Поле с количеством соединений пула */
+    public static final int POOL_SIZE = 4;
+    /** Поле со временем ожидания свободного соединения в миллисекундах */
+    public static final long BORROW_TIMEOUT = 30_000;
+    /** Поле с количеством подготовленных запросов, которые хранит одно соединение */
+    public static final int STATEMENT_CACHE_SIZE = 32;
+    /** Поле с общим пулом соединений */
+    private static volatile ConnectionPool pool;
+    /** Функция получения соединения из общего пула. Закрытие соединения возвращает его в пул.
+     * @return Соединение
+     * @see ConnectionUtil#getPool()
+     * */
     public static Connection getConnection() {
         try {
-            Class.forName(DB_Driver);
-            return DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-        } catch (ClassNotFoundException | SQLException e) {
+            return getPool().getConnection();
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
+    /** Функция получения общего пула соединений. Драйвер загружается один раз при создании пула.
+     * @return Пул соединений
+     * */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current != null) return current;
+        synchronized (ConnectionUtil.class) {
+            if (pool == null) {
+                try {
+                    Class.forName(DB_Driver);
+                } catch (ClassNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+                pool = new ConnectionPool(DB_URL, USERNAME, PASSWORD, POOL_SIZE, BORROW_TIMEOUT, STATEMENT_CACHE_SIZE);
+            }
+            return pool;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package Services.CDRGenerationService;
 
+import Services.CDRFormat.CDRFileFormat;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
@@ -7,14 +8,31 @@ import java.io.IOException;
 
 /** Класс, преднозначенный для работы с файловой системой для CDRGenerationService
  * @author Никита Дюков
- * @version 1.0
+ * @version 1.2
  * */
 class FileManager {
     /** Процедура создания нового файла для записи данных.
      * @param numOfFile порядковый номер файла
      * */
     public static void createFile(int numOfFile) throws RuntimeException {
-        File file = new File(getPath(numOfFile));
+        createFile(GenerationConfig.DEFAULT_DIRECTORY, numOfFile);
+    }
+    /** Процедура создания нового файла для записи данных в заданной папке.
+     * @param directory папка для CDR файлов
+     * @param numOfFile порядковый номер файла
+     * */
+    public static void createFile(@NotNull String directory, int numOfFile) throws RuntimeException {
+        createFile(directory, numOfFile, CDRFileFormat.TEXT);
+    }
+    /** Процедура создания нового файла заданного формата для записи данных в заданной папке.
+     * @param directory папка для CDR файлов
+     * @param numOfFile порядковый номер файла
+     * @param format формат CDR файла
+     * */
+    public static void createFile(@NotNull String directory, int numOfFile, @NotNull CDRFileFormat format)
+            throws RuntimeException
+    {
+        File file = new File(getPath(directory, numOfFile, format));
         file.getParentFile().mkdirs();
         try {
             file.createNewFile();
@@ -27,9 +45,24 @@ class FileManager {
      * @return Путь к CDR-файлу с заданным порядковым номмером
      * */
     public static @NotNull String getPath(int numOfFile){
-        String filename = String.format("%2d_CDR.txt", numOfFile);
-        return "src" + File.separator + "main" + File.separator
-                + "resources" + File.separator + "CDRs" + File.separator + filename;
+        return getPath(GenerationConfig.DEFAULT_DIRECTORY, numOfFile);
+    }
+    /** Функция получения пути до файла в заданной папке.
+     * @param directory папка для CDR файлов
+     * @param numOfFile порядковый номер файла
+     * @return Путь к CDR-файлу с заданным порядковым номмером
+     * */
+    public static @NotNull String getPath(@NotNull String directory, int numOfFile){
+        return getPath(directory, numOfFile, CDRFileFormat.TEXT);
+    }
+    /** Функция получения пути до файла заданного формата в заданной папке.
+     * @param directory папка для CDR файлов
+     * @param numOfFile порядковый номер файла
+     * @param format формат CDR файла
+     * @return Путь к CDR-файлу с заданным порядковым номмером
+     * */
+    public static @NotNull String getPath(@NotNull String directory, int numOfFile, @NotNull CDRFileFormat format){
+        return directory + File.separator + format.getFileName(numOfFile);
     }
 
 }
@@ -0,0 +1,274 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.CDRFileFormat;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+
+/** Параметры генерации CDR файлов.
+ * По умолчанию параметры соответствуют заданию: 12 файлов по 50-150 записей, абоненты из таблицы PNUMBERS,
+ * файлы в папке resources/CDRs и загрузка записей в базу данных.
+ * Для создания нагрузочных наборов данных можно задать количество записей, абонентов, месяцев,
+ * папку, количество потоков и зерно генератора случайных чисел.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see CDRGenerationService#CDRGenerationService(GenerationConfig)
+ * */
+public class GenerationConfig {
+    /** Поле с папкой для CDR файлов по умолчанию */
+    public static final String DEFAULT_DIRECTORY = "src" + File.separator + "main" + File.separator
+            + "resources" + File.separator + "CDRs";
+    /** Поле с минимальным количеством записей в одном файле */
+    private final int minRecordsPerMonth;
+    /** Поле с максимальным количеством записей в одном файле, не включительно */
+    private final int maxRecordsPerMonth;
+    /** Поле с количеством абонентов. 0 - абоненты из таблицы PNUMBERS. */
+    private final int subscriberCount;
+    /** Поле с количеством месяцев */
+    private final int monthCount;
+    /** Поле с папкой для CDR файлов */
+    private final String outputDirectory;
+    /** Поле с количеством потоков генерации */
+    private final int threads;
+    /** Поле с зерном генератора случайных чисел. null - случайное зерно. */
+    private final Long seed;
+    /** Поле с признаком загрузки записей в базу данных */
+    private final boolean loadDatabase;
+    /** Поле с количеством записей, после которого фиксируется транзакция */
+    private final int loadChunkSize;
+    /** Поле с признаком быстрой загрузки файлов средствами базы данных */
+    private final boolean directLoad;
+    /** Поле с признаком загрузки записей в базу данных одновременно с генерацией */
+    private final boolean streamLoad;
+    /** Поле с количеством записей, на которое загрузка может отставать от генерации */
+    private final int maxLoadLag;
+    /** Поле с распределением выбора абонентов */
+    private final MSISDNDistribution distribution;
+    /** Поле с признаком хронологического порядка записей */
+    private final boolean ordered;
+    /** Поле с форматом CDR файлов */
+    private final CDRFileFormat format;
+
+    private GenerationConfig(@NotNull Builder builder) {
+        this.minRecordsPerMonth = builder.minRecordsPerMonth;
+        this.maxRecordsPerMonth = builder.maxRecordsPerMonth;
+        this.subscriberCount = builder.subscriberCount;
+        this.monthCount = builder.monthCount;
+        this.outputDirectory = builder.outputDirectory;
+        this.threads = builder.threads;
+        this.seed = builder.seed;
+        this.loadDatabase = builder.loadDatabase;
+        this.loadChunkSize = builder.loadChunkSize;
+        this.directLoad = builder.directLoad;
+        this.streamLoad = builder.streamLoad;
+        this.maxLoadLag = builder.maxLoadLag;
+        this.distribution = builder.distribution;
+        this.ordered = builder.ordered;
+        this.format = builder.format;
+    }
+    /** Функция получения построителя параметров со значениями по умолчанию.
+     * @return Построитель параметров
+     * */
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+    /** Функция получения параметров по умолчанию.
+     * @return Параметры генерации
+     * */
+    public static @NotNull GenerationConfig defaults() {
+        return builder().build();
+    }
+    /** Функция получения минимального количества записей в одном файле. */
+    public int getMinRecordsPerMonth() {
+        return minRecordsPerMonth;
+    }
+    /** Функция получения максимального количества записей в одном файле. */
+    public int getMaxRecordsPerMonth() {
+        return maxRecordsPerMonth;
+    }
+    /** Функция получения количества абонентов, 0 - таблица PNUMBERS. */
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+    /** Функция получения количества месяцев. */
+    public int getMonthCount() {
+        return monthCount;
+    }
+    /** Функция получения папки для CDR файлов. */
+    public @NotNull String getOutputDirectory() {
+        return outputDirectory;
+    }
+    /** Функция получения количества потоков генерации. */
+    public int getThreads() {
+        return threads;
+    }
+    /** Функция получения зерна генератора случайных чисел, null - случайное зерно. */
+    public @Nullable Long getSeed() {
+        return seed;
+    }
+    /** Функция проверки, загружаются ли записи в базу данных. */
+    public boolean isLoadDatabase() {
+        return loadDatabase;
+    }
+    /** Функция получения количества записей, после которого фиксируется транзакция. */
+    public int getLoadChunkSize() {
+        return loadChunkSize;
+    }
+    /** Функция проверки, загружаются ли файлы через функцию H2 CSVREAD. */
+    public boolean isDirectLoad() {
+        return directLoad;
+    }
+    /** Функция проверки, загружаются ли записи в базу данных одновременно с генерацией. */
+    public boolean isStreamLoad() {
+        return streamLoad;
+    }
+    /** Функция получения количества записей, на которое загрузка может отставать от генерации. */
+    public int getMaxLoadLag() {
+        return maxLoadLag;
+    }
+    /** Функция получения распределения выбора абонентов. */
+    public @NotNull MSISDNDistribution getDistribution() {
+        return distribution;
+    }
+    /** Функция проверки, идут ли записи в файле в хронологическом порядке. */
+    public boolean isOrdered() {
+        return ordered;
+    }
+    /** Функция получения формата CDR файлов. */
+    public @NotNull CDRFileFormat getFormat() {
+        return format;
+    }
+
+    /** Построитель параметров генерации. */
+    public static class Builder {
+        private int minRecordsPerMonth = 50;
+        private int maxRecordsPerMonth = 150;
+        private int subscriberCount = 0;
+        private int monthCount = 12;
+        private String outputDirectory = DEFAULT_DIRECTORY;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Long seed = null;
+        private boolean loadDatabase = true;
+        private int loadChunkSize = CDRBulkLoader.DEFAULT_CHUNK_SIZE;
+        private boolean directLoad = false;
+        private boolean streamLoad = true;
+        private int maxLoadLag = 100_000;
+        private MSISDNDistribution distribution = MSISDNDistribution.uniform();
+        private boolean ordered = true;
+        private CDRFileFormat format = CDRFileFormat.TEXT;
+
+        private Builder() {
+        }
+        /** Процедура задания точного количества записей в одном файле.
+         * @param records количество записей
+         * */
+        public @NotNull Builder recordsPerMonth(int records) {
+            return recordsPerMonth(records, records);
+        }
+        /** Процедура задания диапазона количества записей в одном файле.
+         * @param min минимальное количество записей
+         * @param max максимальное количество записей, не включительно, если не равно минимальному
+         * */
+        public @NotNull Builder recordsPerMonth(int min, int max) {
+            if (min < 0 || max < min) throw new IllegalArgumentException("Invalid number of records");
+            this.minRecordsPerMonth = min;
+            this.maxRecordsPerMonth = max;
+            return this;
+        }
+        /** Процедура задания количества абонентов.
+         * Если количество задано, то используются синтетические номера вместо таблицы PNUMBERS.
+         * @param subscriberCount количество абонентов, 0 - таблица PNUMBERS
+         * @see MSISDNPool#synthetic(int, MSISDNDistribution)
+         * */
+        public @NotNull Builder subscriberCount(int subscriberCount) {
+            if (subscriberCount < 0) throw new IllegalArgumentException("Invalid number of subscribers");
+            this.subscriberCount = subscriberCount;
+            return this;
+        }
+        /** Процедура задания количества месяцев (файлов). */
+        public @NotNull Builder monthCount(int monthCount) {
+            if (monthCount < 1) throw new IllegalArgumentException("Invalid number of months");
+            this.monthCount = monthCount;
+            return this;
+        }
+        /** Процедура задания папки для CDR файлов. */
+        public @NotNull Builder outputDirectory(@NotNull String outputDirectory) {
+            this.outputDirectory = outputDirectory;
+            return this;
+        }
+        /** Процедура задания количества потоков генерации. Каждый месяц генерируется отдельной задачей. */
+        public @NotNull Builder threads(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("Invalid number of threads");
+            this.threads = threads;
+            return this;
+        }
+        /** Процедура задания зерна генератора случайных чисел.
+         * При одном и том же зерне файлы совпадают побайтово при любом количестве потоков.
+         * @param seed зерно, null - случайное зерно
+         * */
+        public @NotNull Builder seed(@Nullable Long seed) {
+            this.seed = seed;
+            return this;
+        }
+        /** Процедура задания признака загрузки записей в базу данных. */
+        public @NotNull Builder loadDatabase(boolean loadDatabase) {
+            this.loadDatabase = loadDatabase;
+            return this;
+        }
+        /** Процедура задания количества записей, после которого фиксируется транзакция. */
+        public @NotNull Builder loadChunkSize(int loadChunkSize) {
+            if (loadChunkSize < 1) throw new IllegalArgumentException("Invalid chunk size");
+            this.loadChunkSize = loadChunkSize;
+            return this;
+        }
+        /** Процедура задания признака загрузки файлов через функцию H2 CSVREAD. */
+        public @NotNull Builder directLoad(boolean directLoad) {
+            this.directLoad = directLoad;
+            return this;
+        }
+        /** Процедура задания признака загрузки записей в базу данных одновременно с генерацией.
+         * Каждая запись передаётся в файл и в базу данных сразу, поэтому файлы не читаются повторно.
+         * Не используется при загрузке через CSVREAD.
+         * @param streamLoad true - одновременно с генерацией (по умолчанию), false - после создания всех файлов
+         * @see CDRDatabaseSink
+         * */
+        public @NotNull Builder streamLoad(boolean streamLoad) {
+            this.streamLoad = streamLoad;
+            return this;
+        }
+        /** Процедура задания количества записей, на которое загрузка в базу данных может отставать от генерации.
+         * Когда отставание больше, генерация ждёт загрузку.
+         * @param maxLoadLag количество записей, по умолчанию 100 000
+         * */
+        public @NotNull Builder maxLoadLag(int maxLoadLag) {
+            if (maxLoadLag < 0) throw new IllegalArgumentException("Invalid load lag");
+            this.maxLoadLag = maxLoadLag;
+            return this;
+        }
+        /** Процедура задания распределения выбора абонентов. */
+        public @NotNull Builder distribution(@NotNull MSISDNDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+        /** Процедура задания порядка записей.
+         * @param ordered true - по возрастанию времени начала звонка (по умолчанию), false - в случайном порядке
+         * */
+        public @NotNull Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+        /** Процедура задания формата CDR файлов.
+         * @param format TEXT - текстовые файлы (по умолчанию), BINARY - двоичные файлы
+         * @see Services.CDRFormat.BinaryCDRWriter
+         * */
+        public @NotNull Builder format(@NotNull CDRFileFormat format) {
+            this.format = format;
+            return this;
+        }
+        /** Функция создания параметров генерации. */
+        public @NotNull GenerationConfig build() {
+            return new GenerationConfig(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Services.CDRGenerationService;
+
+/** Класс со статистикой загрузки записей в базу данных.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+public class LoadStatistics {
+    /** Поле с количеством загруженных записей */
+    private final long rows;
+    /** Поле с длительностью загрузки в миллисекундах */
+    private final long millis;
+    /** Конструктор - создание нового объекта.
+     * @param rows количество загруженных записей
+     * @param millis длительность загрузки в миллисекундах
+     * */
+    public LoadStatistics(long rows, long millis) {
+        this.rows = rows;
+        this.millis = millis;
+    }
+    /** Функция получения количества загруженных записей.
+     * @return Количество записей
+     * */
+    public long getRows() {
+        return rows;
+    }
+    /** Функция получения длительности загрузки.
+     * @return Длительность в миллисекундах
+     * */
+    public long getMillis() {
+        return millis;
+    }
+    /** Функция получения скорости загрузки.
+     * @return Количество записей в секунду
+     * */
+    public double getRowsPerSecond() {
+        return millis == 0 ? rows * 1000.0 : rows * 1000.0 / millis;
+    }
+    /** Функция получения статистики в формате строки.
+     * @return Строка со статистикой
+     * */
+    public String toString() {
+        return String.format("Loaded %d rows in %d ms (%.0f rows/sec)", rows, millis, getRowsPerSecond());
+    }
+}
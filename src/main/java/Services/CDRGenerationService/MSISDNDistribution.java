@@ -0,0 +1,34 @@
+package Services.CDRGenerationService;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.random.RandomGenerator;
+
+/** Распределение, по которому выбираются абоненты из пула номеров при генерации CDR.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see MSISDNPool
+ * */
+@FunctionalInterface
+public interface MSISDNDistribution {
+    /** Функция выбора случайного индекса номера в пуле.
+     * @param size количество номеров в пуле
+     * @param random генератор случайных чисел
+     * @return Индекс номера от 0 до size - 1
+     * */
+    int nextIndex(int size, @NotNull RandomGenerator random);
+    /** Функция получения равномерного распределения: все абоненты звонят одинаково часто.
+     * @return Равномерное распределение
+     * */
+    static @NotNull MSISDNDistribution uniform() {
+        return (size, random) -> random.nextInt(size);
+    }
+    /** Функция получения распределения Ципфа: небольшое количество абонентов звонит намного чаще остальных.
+     * @param exponent показатель распределения, чем он больше, тем сильнее перекос
+     * @return Распределение Ципфа
+     * @see ZipfDistribution
+     * */
+    static @NotNull MSISDNDistribution zipf(double exponent) {
+        return new ZipfDistribution(exponent);
+    }
+}
@@ -0,0 +1,176 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/** Пул номеров абонентов для генерации CDR.
+ * Номера из таблицы PNUMBERS загружаются один раз при первом обращении и хранятся в массиве,
+ * поэтому при генерации записей к базе данных не выполняется ни одного запроса.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see MSISDNDistribution
+ * */
+public class MSISDNPool {
+    /** Поле с запросом получения всех номеров */
+    private static final String QUERY = "SELECT number FROM pNumbers ORDER BY id";
+    /** Поле с распределением, по которому выбираются абоненты */
+    private final MSISDNDistribution distribution;
+    /** Поле с номерами абонентов */
+    private volatile String[] numbers;
+    /** Поле с номерами абонентов в виде чисел, заполняется при первом обращении */
+    private volatile long[] keys;
+    /** Поле с количеством синтетических номеров. 0 - номера хранятся в массиве. */
+    private final int syntheticCount;
+    /** Конструктор - создание пула с равномерным выбором абонентов. */
+    public MSISDNPool() {
+        this(MSISDNDistribution.uniform());
+    }
+    /** Конструктор - создание пула с заданным распределением выбора абонентов.
+     * @param distribution распределение
+     * */
+    public MSISDNPool(@NotNull MSISDNDistribution distribution) {
+        this.distribution = distribution;
+        this.syntheticCount = 0;
+    }
+    /** Конструктор - создание пула с заранее известными номерами.
+     * @param numbers номера абонентов
+     * @param distribution распределение
+     * */
+    public MSISDNPool(@NotNull List<String> numbers, @NotNull MSISDNDistribution distribution) {
+        this.distribution = distribution;
+        this.syntheticCount = 0;
+        this.numbers = numbers.toArray(new String[0]);
+    }
+
+    private MSISDNPool(int syntheticCount, @NotNull MSISDNDistribution distribution) {
+        this.distribution = distribution;
+        this.syntheticCount = syntheticCount;
+    }
+    /** Функция создания пула синтетических номеров для нагрузочных наборов данных.
+     * Номера не хранятся в памяти: номер с индексом i имеет вид 7 и десять цифр индекса (70000000042).
+     * @param count количество абонентов
+     * @param distribution распределение
+     * @return Пул номеров
+     * */
+    public static @NotNull MSISDNPool synthetic(int count, @NotNull MSISDNDistribution distribution) {
+        if (count < 1) throw new IllegalArgumentException("Invalid number of subscribers");
+        return new MSISDNPool(count, distribution);
+    }
+    /** Процедура повторной загрузки номеров из базы данных.
+     * @see ConnectionUtil
+     * */
+    public void refresh() throws RuntimeException {
+        if (syntheticCount > 0) return;
+        List<String> loaded = new ArrayList<>();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(QUERY);
+             ResultSet result = stmt.executeQuery()) {
+            while (result.next()) {
+                loaded.add(result.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        if (loaded.isEmpty()) throw new RuntimeException("Table pNumbers is empty");
+        numbers = loaded.toArray(new String[0]);
+        keys = null;
+    }
+    /** Функция получения количества номеров в пуле.
+     * @return Количество номеров
+     * */
+    public int size() {
+        return syntheticCount > 0 ? syntheticCount : getNumbers().length;
+    }
+    /** Функция выбора одного случайного номера.
+     * @param random генератор случайных чисел
+     * @return Номер абонента
+     * */
+    public @NotNull String next(@NotNull RandomGenerator random) {
+        if (syntheticCount == 0) {
+            String[] pool = getNumbers();
+            return pool[distribution.nextIndex(pool.length, random)];
+        }
+        StringBuilder sb = new StringBuilder(11);
+        appendNext(sb, random);
+        return sb.toString();
+    }
+    /** Процедура выбора одного случайного номера с дописыванием его в строку.
+     * Для синтетических номеров не создаёт ни одного объекта.
+     * @param sb строка, в которую дописывается номер
+     * @param random генератор случайных чисел
+     * */
+    public void appendNext(@NotNull StringBuilder sb, @NotNull RandomGenerator random) {
+        if (syntheticCount > 0) {
+            long number = distribution.nextIndex(syntheticCount, random);
+            sb.append('7');
+            for (long divisor = 1_000_000_000L; divisor > 0; divisor /= 10) {
+                sb.append((char) ('0' + number / divisor % 10));
+            }
+            return;
+        }
+        String[] pool = getNumbers();
+        sb.append(pool[distribution.nextIndex(pool.length, random)]);
+    }
+    /** Функция выбора одного случайного номера в виде числа для двоичных CDR файлов.
+     * Потребляет те же случайные числа, что и appendNext, поэтому при одном зерне
+     * двоичный и текстовый файлы содержат одни и те же записи.
+     * @param random генератор случайных чисел
+     * @return Номер абонента в виде числа
+     * @see MsisdnCodec
+     * */
+    public long nextKey(@NotNull RandomGenerator random) {
+        if (syntheticCount > 0) {
+            return MsisdnCodec.pack(70_000_000_000L + distribution.nextIndex(syntheticCount, random), 11);
+        }
+        long[] pool = getKeys();
+        return pool[distribution.nextIndex(pool.length, random)];
+    }
+    /** Функция выбора списка случайных номеров.
+     * @param amount необходимое количество номеров
+     * @param random генератор случайных чисел
+     * @return Список номеров
+     * */
+    public @NotNull List<String> sample(int amount, @NotNull RandomGenerator random) {
+        List<String> sample = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            sample.add(next(random));
+        }
+        return sample;
+    }
+    /** Функция получения номеров с загрузкой при первом обращении.
+     * @return Номера абонентов
+     * */
+    private String @NotNull [] getNumbers() {
+        String[] pool = numbers;
+        if (pool == null) {
+            synchronized (this) {
+                if (numbers == null) refresh();
+                pool = numbers;
+            }
+        }
+        return pool;
+    }
+    /** Функция получения номеров в виде чисел с переводом при первом обращении.
+     * @return Номера абонентов в виде чисел
+     * */
+    private long @NotNull [] getKeys() {
+        long[] pool = keys;
+        if (pool == null) {
+            String[] strings = getNumbers();
+            pool = new long[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                pool[i] = MsisdnCodec.encode(strings[i]);
+            }
+            keys = pool;
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,52 @@
+package Services.CDRGenerationService;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/** Распределение Ципфа для выбора абонентов: вероятность выбора абонента с рангом k пропорциональна 1 / k^s.
+ * Функция распределения считается один раз для размера пула, выбор выполняется двоичным поиском.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+class ZipfDistribution implements MSISDNDistribution {
+    /** Поле с показателем распределения */
+    private final double exponent;
+    /** Поле с функцией распределения для текущего размера пула */
+    private volatile double[] cdf = new double[0];
+    /** Конструктор - создание нового распределения.
+     * @param exponent показатель распределения
+     * */
+    public ZipfDistribution(double exponent) {
+        if (exponent <= 0) throw new IllegalArgumentException("Invalid exponent");
+        this.exponent = exponent;
+    }
+
+    @Override
+    public int nextIndex(int size, @NotNull RandomGenerator random) {
+        double[] table = cdf;
+        if (table.length != size) {
+            table = buildCdf(size);
+            cdf = table;
+        }
+        int index = Arrays.binarySearch(table, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, size - 1);
+    }
+    /** Функция построения функции распределения.
+     * @param size количество номеров в пуле
+     * @return Накопленные вероятности по рангам
+     * */
+    private double @NotNull [] buildCdf(int size) {
+        double[] table = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            table[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            table[k] /= sum;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,33 @@
+package Services.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Счётчик метрики. Прибавление не блокирует потоки: значение хранится в LongAdder,
+ * поэтому счётчик можно увеличивать из многих потоков на горячем пути.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Metrics
+ * */
+public final class Counter {
+    /** Поле со значением счётчика */
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+    /** Процедура увеличения счётчика на единицу. */
+    public void increment() {
+        value.increment();
+    }
+    /** Процедура увеличения счётчика.
+     * @param delta прибавляемое значение
+     * */
+    public void add(long delta) {
+        value.add(delta);
+    }
+    /** Функция получения значения счётчика.
+     * @return Сумма всех прибавлений
+     * */
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,90 @@
+package Services.Metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Гистограмма длительностей в наносекундах.
+ * Значения раскладываются по корзинам степеней двойки: корзина i содержит значения из [2^i, 2^(i+1)),
+ * поэтому процентили оцениваются с точностью до двух раз. Корзины, сумма и максимум хранятся
+ * в LongAdder и LongAccumulator, поэтому запись не блокирует потоки.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Metrics
+ * */
+public final class Histogram {
+    /** Поле с количеством корзин */
+    private static final int BUCKETS = 64;
+    /** Поле с количеством значений в каждой корзине */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    /** Поле с количеством значений */
+    private final LongAdder count = new LongAdder();
+    /** Поле с суммой значений */
+    private final LongAdder sum = new LongAdder();
+    /** Поле с максимальным значением */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    /** Процедура записи длительности.
+     * @param nanos длительность в наносекундах, отрицательные значения считаются нулём
+     * */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[BUCKETS - 1 - Long.numberOfLeadingZeros(value | 1)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+    /** Процедура записи длительности от заданного момента до текущего.
+     * @param startNanos момент начала, полученный из System.nanoTime()
+     * */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+    /** Функция получения количества записанных значений.
+     * @return Количество значений
+     * */
+    public long getCount() {
+        return count.sum();
+    }
+    /** Функция получения среднего значения.
+     * @return Среднее значение в наносекундах или 0, если значений нет
+     * */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+    /** Функция получения максимального значения.
+     * @return Максимальное значение в наносекундах
+     * */
+    public long getMax() {
+        return max.get();
+    }
+    /** Функция оценки процентиля по корзинам.
+     * @param percentile процентиль от 0 до 100
+     * @return Верхняя граница корзины, в которую попадает процентиль, но не больше максимума
+     * */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Invalid percentile");
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i >= BUCKETS - 2 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                return Math.min(upper, getMax());
+            }
+        }
+        return getMax();
+    }
+}
@@ -0,0 +1,177 @@
+package Services.Metrics;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/** Реестр метрик: счётчики и гистограммы длительностей по названиям.
+ * Счётчики и гистограммы создаются один раз и сохраняются вызывающим кодом в статических полях,
+ * поэтому на горячем пути нет ни поиска по названию, ни блокировок.
+ * Общий реестр доступен через JMX, а также выводится периодически в текстовом виде или в JSON.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Counter
+ * @see Histogram
+ * @see MetricsReporter
+ * */
+public final class Metrics implements MetricsMXBean {
+    /** Поле с названием объекта JMX */
+    public static final String OBJECT_NAME = "Services.Metrics:type=Metrics";
+    /** Поле с количеством наносекунд в миллисекунде */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Поле с общим реестром */
+    private static final Metrics GLOBAL = new Metrics();
+    /** Поле с отметкой о регистрации общего реестра в JMX */
+    private static boolean registered;
+    /** Поле со счётчиками по названиям */
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    /** Поле с гистограммами по названиям */
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    /** Конструктор - создание пустого реестра. */
+    public Metrics() {
+    }
+    /** Функция получения общего реестра. При первом вызове реестр регистрируется в JMX.
+     * @return Общий реестр
+     * */
+    public static @NotNull Metrics global() {
+        synchronized (Metrics.class) {
+            if (!registered) {
+                registered = true;
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+                } catch (JMException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+        return GLOBAL;
+    }
+    /** Функция получения счётчика по названию. Если счётчика нет, то он создаётся.
+     * @param name название счётчика
+     * @return Счётчик
+     * */
+    public @NotNull Counter counter(@NotNull String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+    /** Функция получения гистограммы по названию. Если гистограммы нет, то она создаётся.
+     * @param name название гистограммы
+     * @return Гистограмма
+     * */
+    public @NotNull Histogram histogram(@NotNull String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+    /** Функция запуска периодического вывода метрик.
+     * @param intervalMillis интервал вывода в миллисекундах
+     * @param jsonFile файл, в который записываются метрики в JSON, или null - вывод в консоль текстом
+     * @return Запущенный вывод, который нужно закрыть
+     * */
+    public @NotNull MetricsReporter startReporter(long intervalMillis, @Nullable Path jsonFile) {
+        return new MetricsReporter(this, intervalMillis, jsonFile);
+    }
+    @Override
+    public @NotNull Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+    @Override
+    public @NotNull Map<String, Double> getHistograms() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            summary(entry.getValue()).forEach((key, value) -> values.put(entry.getKey() + "." + key, value));
+        }
+        return values;
+    }
+    @Override
+    public @NotNull Map<String, Long> getJvm() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("uptime_ms", ManagementFactory.getRuntimeMXBean().getUptime());
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        values.put("heap.used_bytes", heap.getUsed());
+        values.put("heap.committed_bytes", heap.getCommitted());
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = "gc." + gc.getName().replace(' ', '_');
+            values.put(name + ".count", gc.getCollectionCount());
+            values.put(name + ".time_ms", gc.getCollectionTime());
+        }
+        values.put("allocated_bytes", allocatedBytes());
+        return values;
+    }
+    @Override
+    public @NotNull String getJson() {
+        return toJson(null);
+    }
+    /** Функция получения метрик в формате JSON.
+     * @param rates скорость роста счётчиков в секунду или null
+     * @return Строка JSON
+     * */
+    public @NotNull String toJson(@Nullable Map<String, Double> rates) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("counters", getCounters());
+        if (rates != null) root.put("rates", rates);
+        Map<String, Map<String, Double>> summaries = new TreeMap<>();
+        histograms.forEach((name, histogram) -> summaries.put(name, summary(histogram)));
+        root.put("histograms", summaries);
+        root.put("jvm", getJvm());
+        return new Gson().toJson(root);
+    }
+    /** Функция получения метрик в текстовом виде, по одной метрике в строке.
+     * @param rates скорость роста счётчиков в секунду или null
+     * @return Текст метрик
+     * */
+    public @NotNull String toText(@Nullable Map<String, Double> rates) {
+        StringBuilder text = new StringBuilder(1024);
+        counters.forEach((name, counter) -> {
+            text.append(name).append(' ').append(counter.get());
+            Double rate = rates == null ? null : rates.get(name);
+            if (rate != null) text.append(String.format(" (%.0f/s)", rate));
+            text.append('\n');
+        });
+        histograms.forEach((name, histogram) -> {
+            if (histogram.getCount() == 0) return;
+            text.append(String.format("%s count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n", name,
+                    histogram.getCount(), histogram.getMean() / NANOS_PER_MILLI,
+                    histogram.getPercentile(50) / NANOS_PER_MILLI, histogram.getPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getMax() / NANOS_PER_MILLI));
+        });
+        getJvm().forEach((name, value) -> text.append("jvm.").append(name).append(' ').append(value).append('\n'));
+        return text.toString();
+    }
+
+    private static @NotNull Map<String, Double> summary(@NotNull Histogram histogram) {
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("count", (double) histogram.getCount());
+        summary.put("mean_ms", histogram.getMean() / NANOS_PER_MILLI);
+        summary.put("p50_ms", histogram.getPercentile(50) / NANOS_PER_MILLI);
+        summary.put("p99_ms", histogram.getPercentile(99) / NANOS_PER_MILLI);
+        summary.put("max_ms", histogram.getMax() / NANOS_PER_MILLI);
+        return summary;
+    }
+    /** Функция получения объёма памяти, выделенной живыми потоками.
+     * @return Объём в байтах или -1, если JVM не поддерживает подсчёт
+     * */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean bean) || !bean.isThreadAllocatedMemorySupported()
+                || !bean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,27 @@
+package Services.Metrics;
+
+import java.util.Map;
+
+/** Интерфейс метрик для JMX. Доступен под именем Services.Metrics:type=Metrics.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Metrics
+ * */
+public interface MetricsMXBean {
+    /** Функция получения значений счётчиков.
+     * @return Значения по названиям счётчиков
+     * */
+    Map<String, Long> getCounters();
+    /** Функция получения сводки гистограмм в миллисекундах.
+     * @return Количество, среднее, p50, p99 и максимум по названиям вида гистограмма.показатель
+     * */
+    Map<String, Double> getHistograms();
+    /** Функция получения сведений о сборке мусора и памяти.
+     * @return Значения по названиям
+     * */
+    Map<String, Long> getJvm();
+    /** Функция получения всех метрик в формате JSON.
+     * @return Строка JSON
+     * */
+    String getJson();
+}
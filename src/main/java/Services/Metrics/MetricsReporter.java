@@ -0,0 +1,82 @@
+package Services.Metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Периодический вывод метрик в консоль текстом или в файл в формате JSON.
+ * Вместе со значениями счётчиков выводится скорость их роста с прошлого вывода.
+ * Файл JSON заменяется атомарно, поэтому его можно читать в любой момент.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Metrics#startReporter(long, Path)
+ * */
+public final class MetricsReporter implements Closeable {
+    /** Поле с реестром метрик */
+    private final Metrics metrics;
+    /** Поле с файлом JSON или null для вывода в консоль */
+    private final Path jsonFile;
+    /** Поле с потоком вывода */
+    private final ScheduledExecutorService executor;
+    /** Поле со значениями счётчиков на момент прошлого вывода */
+    private Map<String, Long> previous = new HashMap<>();
+    /** Поле с моментом прошлого вывода */
+    private long previousTime = System.nanoTime();
+
+    MetricsReporter(@NotNull Metrics metrics, long intervalMillis, @Nullable Path jsonFile) {
+        if (intervalMillis < 1) throw new IllegalArgumentException("Invalid interval");
+        this.metrics = metrics;
+        this.jsonFile = jsonFile;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    /** Процедура вывода метрик. Вызывается по расписанию и при закрытии. */
+    public synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - previousTime) / 1e9);
+        Map<String, Long> counters = metrics.getCounters();
+        Map<String, Double> rates = new TreeMap<>();
+        counters.forEach((name, value) -> rates.put(name, (value - previous.getOrDefault(name, 0L)) / seconds));
+        previous = counters;
+        previousTime = now;
+        if (jsonFile == null) {
+            System.out.print(metrics.toText(rates));
+            return;
+        }
+        try {
+            Path directory = jsonFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "metrics", ".tmp");
+            try {
+                Files.writeString(temp, metrics.toJson(rates), StandardCharsets.UTF_8);
+                Files.move(temp, jsonFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /** Процедура остановки вывода. Перед остановкой метрики выводятся последний раз. */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        report();
+    }
+}
@@ -0,0 +1,334 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/** Индекс с итоговым временем звонков каждого абонента за каждый месяц, сохраняемый на диск.
+ * Индекс строится один раз по набору CDR файлов и хранит записи (номер, месяц) - время входящих и исходящих звонков,
+ * отсортированные по номеру абонента. Записи хранятся по столбцам, файл индекса отображается в память,
+ * а записи абонента находятся двоичным поиском, поэтому отчёт по абоненту не требует чтения CDR файлов.
+ * <pre>
+ * Заголовок:
+ *   int  MAGIC ("UDRI")
+ *   int  VERSION
+ *   int  количество CDR файлов
+ *   long количество записей
+ *   int  режим проверки записей (CDRValidation.Mode)
+ *   long[2] начало и конец тарифицируемого периода
+ *   long[2] размер и время изменения каждого CDR файла
+ * Столбцы, E - количество записей:
+ *   long[E] номер абонента в виде MsisdnCodec
+ *   long[E] время входящих звонков
+ *   long[E] время исходящих звонков
+ *   byte[E] номер месяца
+ * </pre>
+ * Индекс считается устаревшим, если размер или время изменения любого CDR файла отличается от записанного
+ * или индекс построен с другими параметрами проверки записей.
+ * Размер файла индекса ограничен одним отображением, то есть 2 ГБ (около 85 миллионов записей).
+ * @author Никита Дюков
+ * @version 1.2
+ * @see SubscriberTable
+ * @see AggregateStore
+ * */
+final class AggregateIndex {
+    /** Поле с сигнатурой файла индекса */
+    private static final int MAGIC = 0x55445249;
+    /** Поле с версией формата индекса */
+    private static final int VERSION = 2;
+    /** Поле с размером постоянной части заголовка в байтах */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 3 * Long.BYTES;
+    /** Поле с CDR файлами, по которым построен индекс */
+    private final List<Path> sources;
+    /** Поле с размером и временем изменения CDR файлов на момент построения индекса */
+    private final long[] fingerprint;
+    /** Поле с параметрами проверки записей, с которыми построен индекс */
+    private final CDRValidation validation;
+    /** Поле с отображением файла индекса */
+    private final MappedByteBuffer buffer;
+    /** Поле с количеством записей */
+    private final int entries;
+    /** Поле со смещением столбца номеров */
+    private final int keys;
+
+    private AggregateIndex(@NotNull List<Path> sources, long @NotNull [] fingerprint, @NotNull CDRValidation validation,
+                           @NotNull MappedByteBuffer buffer, int entries, int keys) {
+        this.sources = sources;
+        this.fingerprint = fingerprint;
+        this.validation = validation;
+        this.buffer = buffer;
+        this.entries = entries;
+        this.keys = keys;
+    }
+    /** Функция открытия индекса.
+     * @param path путь к файлу индекса
+     * @param sources CDR файлы в порядке месяцев
+     * @param validation параметры проверки записей
+     * @return Индекс или null, если индекса нет, он повреждён, CDR файлы изменились
+     * или индекс построен с другими параметрами проверки
+     * */
+    public static @Nullable AggregateIndex open(@NotNull Path path, @NotNull List<Path> sources,
+                                                @NotNull CDRValidation validation) {
+        if (!Files.exists(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != sources.size()) {
+                return null;
+            }
+            long entries = buffer.getLong(12);
+            if (buffer.getInt(20) != validation.getMode().ordinal() || buffer.getLong(24) != validation.getPeriodStart()
+                    || buffer.getLong(32) != validation.getPeriodEnd()) {
+                return null;
+            }
+            long[] fingerprint = new long[2 * sources.size()];
+            for (int i = 0; i < fingerprint.length; i++) {
+                fingerprint[i] = buffer.getLong(HEADER_SIZE + i * Long.BYTES);
+            }
+            int keys = HEADER_SIZE + fingerprint.length * Long.BYTES;
+            if (entries < 0 || keys + entries * (3L * Long.BYTES + 1) != size) return null;
+            if (!Arrays.equals(fingerprint, fingerprint(sources))) return null;
+            return new AggregateIndex(sources, fingerprint, validation, buffer, (int) entries, keys);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    /** Функция построения индекса по таблицам абонентов за каждый месяц.
+     * Индекс записывается во временный файл, который затем заменяет старый индекс,
+     * поэтому параллельно открытые индексы не повреждаются.
+     * @param path путь к файлу индекса
+     * @param sources CDR файлы в порядке месяцев
+     * @param fingerprint размер и время изменения CDR файлов до их чтения
+     * @param validation параметры проверки, с которыми прочитаны CDR файлы
+     * @param months таблицы абонентов в порядке месяцев
+     * @return Индекс
+     * @see AggregateIndex#fingerprint(List)
+     * */
+    public static @NotNull AggregateIndex build(@NotNull Path path, @NotNull List<Path> sources,
+                                                long @NotNull [] fingerprint, @NotNull CDRValidation validation,
+                                                @NotNull List<SubscriberTable> months)
+            throws IOException
+    {
+        long[] msisdns = sortedKeys(months);
+        int entries = 0;
+        for (long msisdn : msisdns) {
+            for (SubscriberTable table : months) {
+                if (table.find(msisdn) >= 0) entries++;
+            }
+        }
+        long[] incoming = new long[entries];
+        long[] outgoing = new long[entries];
+        long[] keys = new long[entries];
+        byte[] monthNumbers = new byte[entries];
+        int entry = 0;
+        for (long msisdn : msisdns) {
+            for (int month = 1; month <= months.size(); month++) {
+                int slot = months.get(month - 1).find(msisdn);
+                if (slot < 0) continue;
+                keys[entry] = msisdn;
+                incoming[entry] = months.get(month - 1).incomingAt(slot);
+                outgoing[entry] = months.get(month - 1).outgoingAt(slot);
+                monthNumbers[entry] = (byte) month;
+                entry++;
+            }
+        }
+
+        return write(path, sources, fingerprint, validation, entries, out -> {
+            for (long value : keys) out.writeLong(value);
+            for (long value : incoming) out.writeLong(value);
+            for (long value : outgoing) out.writeLong(value);
+            out.write(monthNumbers);
+        });
+    }
+    /** Функция построения индекса по хранилищу итогового времени вне кучи.
+     * Записи не собираются в памяти: каждый столбец записывается отдельным проходом по отсортированным номерам,
+     * поэтому в куче находятся только номера абонентов.
+     * @param path путь к файлу индекса
+     * @param sources CDR файлы в порядке месяцев
+     * @param fingerprint размер и время изменения CDR файлов до их чтения
+     * @param validation параметры проверки, с которыми прочитаны CDR файлы
+     * @param store хранилище со всеми месяцами
+     * @return Индекс
+     * @see AggregateStore
+     * */
+    public static @NotNull AggregateIndex build(@NotNull Path path, @NotNull List<Path> sources,
+                                                long @NotNull [] fingerprint, @NotNull CDRValidation validation,
+                                                @NotNull AggregateStore store)
+            throws IOException
+    {
+        long[] msisdns = store.sortedKeys();
+        int months = sources.size();
+        long entries = 0;
+        for (long msisdn : msisdns) {
+            long slot = store.find(msisdn);
+            for (int month = 1; month <= months; month++) {
+                if (store.hasCalls(slot, month)) entries++;
+            }
+        }
+        return write(path, sources, fingerprint, validation, entries, out -> {
+            for (int column = 0; column < 4; column++) {
+                for (long msisdn : msisdns) {
+                    long slot = store.find(msisdn);
+                    for (int month = 1; month <= months; month++) {
+                        if (!store.hasCalls(slot, month)) continue;
+                        switch (column) {
+                            case 0 -> out.writeLong(msisdn);
+                            case 1 -> out.writeLong(store.incomingAt(slot, month));
+                            case 2 -> out.writeLong(store.outgoingAt(slot, month));
+                            default -> out.writeByte(month);
+                        }
+                    }
+                }
+            }
+        });
+    }
+    /** Функция записи файла индекса и его открытия.
+     * Индекс записывается во временный файл, который затем заменяет старый индекс.
+     * @param path путь к файлу индекса
+     * @param sources CDR файлы в порядке месяцев
+     * @param fingerprint размер и время изменения CDR файлов до их чтения
+     * @param validation параметры проверки, с которыми прочитаны CDR файлы
+     * @param entries количество записей
+     * @param columns запись столбцов после заголовка
+     * @return Индекс
+     * */
+    private static @NotNull AggregateIndex write(@NotNull Path path, @NotNull List<Path> sources,
+                                                 long @NotNull [] fingerprint, @NotNull CDRValidation validation,
+                                                 long entries, @NotNull ColumnWriter columns) throws IOException
+    {
+        long size = HEADER_SIZE + fingerprint.length * (long) Long.BYTES + entries * (3L * Long.BYTES + 1);
+        if (size > Integer.MAX_VALUE) throw new IOException("Aggregate index is too large");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "index", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sources.size());
+                out.writeLong(entries);
+                out.writeInt(validation.getMode().ordinal());
+                out.writeLong(validation.getPeriodStart());
+                out.writeLong(validation.getPeriodEnd());
+                for (long value : fingerprint) out.writeLong(value);
+                columns.write(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        AggregateIndex index = open(path, sources, validation);
+        if (index == null) throw new IOException("CDR files were changed while the index was built");
+        return index;
+    }
+    /** Функция получения размера и времени изменения CDR файлов.
+     * Отсутствующий файл имеет размер и время изменения -1.
+     * @param sources CDR файлы в порядке месяцев
+     * @return Размер и время изменения каждого файла
+     * */
+    public static long @NotNull [] fingerprint(@NotNull List<Path> sources) throws IOException {
+        long[] fingerprint = new long[2 * sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(sources.get(i), BasicFileAttributes.class);
+                fingerprint[2 * i] = attributes.size();
+                fingerprint[2 * i + 1] = attributes.lastModifiedTime().toMillis();
+            } catch (NoSuchFileException e) {
+                fingerprint[2 * i] = -1;
+                fingerprint[2 * i + 1] = -1;
+            }
+        }
+        return fingerprint;
+    }
+    /** Функция проверки, что CDR файлы не изменились после построения индекса,
+     * а индекс построен с заданными параметрами проверки записей.
+     * @param validation параметры проверки записей
+     * @return true, если индекс актуален
+     * */
+    public boolean isValid(@NotNull CDRValidation validation) {
+        if (!this.validation.equals(validation)) return false;
+        try {
+            return Arrays.equals(fingerprint, fingerprint(sources));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    /** Функция получения количества записей индекса.
+     * @return Количество пар (номер, месяц) со звонками
+     * */
+    public int size() {
+        return entries;
+    }
+    /** Функция получения данных абонента за месяц.
+     * @param msisdn номер мобильного абонента
+     * @param month номер месяца
+     * @return Абонент за месяц или null, если звонков не было
+     * */
+    public @Nullable Subscriber get(@NotNull String msisdn, int month) {
+        if (msisdn.isEmpty() || msisdn.length() > MsisdnCodec.MAX_DIGITS) return null;
+        long key = MsisdnCodec.encode(msisdn);
+        for (int entry = lowerBound(key); entry < entries && keyAt(entry) == key; entry++) {
+            int entryMonth = buffer.get(keys + 3 * entries * Long.BYTES + entry);
+            if (entryMonth < month) continue;
+            if (entryMonth > month) break;
+            Subscriber subscriber = new Subscriber(msisdn);
+            subscriber.getIncomingCall().addTime(buffer.getLong(keys + (entries + entry) * Long.BYTES));
+            subscriber.getOutcomingCall().addTime(buffer.getLong(keys + (2 * entries + entry) * Long.BYTES));
+            return subscriber;
+        }
+        return null;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private long keyAt(int entry) {
+        return buffer.getLong(keys + entry * Long.BYTES);
+    }
+
+    private static long @NotNull [] sortedKeys(@NotNull List<SubscriberTable> months) {
+        int total = 0;
+        for (SubscriberTable table : months) total += table.size();
+        long[] all = new long[total];
+        int count = 0;
+        for (SubscriberTable table : months) {
+            for (int slot = 0; slot < table.capacity(); slot++) {
+                if (table.isOccupied(slot)) all[count++] = table.keyAt(slot);
+            }
+        }
+        Arrays.sort(all);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || all[i] != all[i - 1]) all[unique++] = all[i];
+        }
+        return Arrays.copyOf(all, unique);
+    }
+
+    /** Запись столбцов индекса. */
+    @FunctionalInterface
+    private interface ColumnWriter {
+        void write(@NotNull DataOutputStream out) throws IOException;
+    }
+}
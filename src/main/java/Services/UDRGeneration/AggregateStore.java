@@ -0,0 +1,404 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Хранилище итогового времени звонков каждого абонента за каждый месяц вне кучи Java.
+ * Ячейки абонентов фиксированного размера лежат в файле, отображённом в память частями по SEGMENT_SLOTS ячеек,
+ * а сама таблица ячеек - хэш-таблица с открытой адресацией по номеру абонента в виде MsisdnCodec.
+ * Поэтому агрегация по любому количеству абонентов не увеличивает кучу и не нагружает сборщик мусора.
+ * <pre>
+ * Заголовок (HEADER_SIZE байт):
+ *   int  MAGIC ("UDRO")
+ *   int  VERSION
+ *   int  количество CDR файлов
+ *   int  маска полностью обработанных месяцев
+ *   long количество ячеек C (степень двойки)
+ *   long количество абонентов
+ *   long[2] начало и конец тарифицируемого периода
+ *   int  режим проверки записей (CDRValidation.Mode)
+ *   int  не используется
+ *   long[2] размер и время изменения каждого CDR файла
+ * Ячейки, C штук по SLOT_SIZE байт:
+ *   long номер абонента, 0 - пустая ячейка
+ *   int  маска месяцев со звонками
+ *   int  не используется
+ *   long[2] время входящих и исходящих звонков за каждый месяц
+ * </pre>
+ * Файл служит контрольной точкой: после обработки месяца данные сбрасываются на диск и месяц отмечается
+ * в заголовке. Прерванный запуск продолжается с первого неотмеченного месяца, данные которого сначала очищаются.
+ * Если CDR файлы или параметры проверки записей изменились, то хранилище создаётся заново. Хранилище не потокобезопасно.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see AggregateIndex#build(Path, java.util.List, long[], CDRValidation, AggregateStore)
+ * */
+final class AggregateStore implements Closeable {
+    /** Поле с сигнатурой файла хранилища */
+    private static final int MAGIC = 0x5544524F;
+    /** Поле с версией формата хранилища */
+    private static final int VERSION = 2;
+    /** Поле с размером заголовка в байтах, кратным размеру страницы */
+    private static final int HEADER_SIZE = 4096;
+    /** Поле со смещением размера и времени изменения CDR файлов в заголовке */
+    private static final int FINGERPRINT_OFFSET = 56;
+    /** Поле с размером ячейки абонента в байтах */
+    private static final int SLOT_SIZE = 2 * Long.BYTES + MonthlyAccumulator.MONTHS * 2 * Long.BYTES;
+    /** Поле со смещением времени звонков в ячейке */
+    private static final int MONTHS_OFFSET = 2 * Long.BYTES;
+    /** Поле с двоичным логарифмом количества ячеек в одном отображении */
+    private static final int SEGMENT_SHIFT = 20;
+    /** Поле с количеством ячеек в одном отображении */
+    private static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+    /** Поле с максимальной заполненностью таблицы */
+    private static final double LOAD_FACTOR = 0.6;
+    /** Поле с путём к файлу хранилища */
+    private final Path path;
+    /** Поле с параметрами проверки, с которыми читаются CDR файлы */
+    private final CDRValidation validation;
+    /** Поле с каналом файла хранилища */
+    private FileChannel channel;
+    /** Поле с отображением заголовка */
+    private MappedByteBuffer header;
+    /** Поле с отображениями ячеек */
+    private MappedByteBuffer[] segments;
+    /** Поле с количеством ячеек */
+    private long capacity;
+    /** Поле с количеством абонентов */
+    private long size;
+
+    private AggregateStore(@NotNull Path path, @NotNull CDRValidation validation) {
+        this.path = path;
+        this.validation = validation;
+    }
+    /** Функция открытия хранилища. Если файла нет, он повреждён, CDR файлы изменились
+     * или хранилище заполнялось с другими параметрами проверки, то создаётся пустое хранилище.
+     * @param path путь к файлу хранилища
+     * @param fingerprint размер и время изменения CDR файлов
+     * @param validation параметры проверки, с которыми читаются CDR файлы
+     * @param expected ожидаемое количество абонентов для пустого хранилища
+     * @return Хранилище
+     * @see AggregateIndex#fingerprint(java.util.List)
+     * */
+    public static @NotNull AggregateStore open(@NotNull Path path, long @NotNull [] fingerprint,
+                                               @NotNull CDRValidation validation, int expected) throws IOException
+    {
+        AggregateStore store = new AggregateStore(path, validation);
+        if (!store.reopen(fingerprint)) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "store", ".tmp");
+            try {
+                create(temp, fingerprint, validation, capacityFor(expected)).close();
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            if (!store.reopen(fingerprint)) throw new IOException("Cannot open aggregate store " + path);
+        }
+        return store;
+    }
+    /** Функция проверки, обработан ли месяц полностью.
+     * @param month номер месяца
+     * @return true, если месяц отмечен в контрольной точке
+     * */
+    public boolean isComplete(int month) {
+        return (header.getInt(12) & (1 << (month - 1))) != 0;
+    }
+    /** Процедура сброса данных на диск и отметки месяца как полностью обработанного.
+     * @param month номер месяца
+     * */
+    public void complete(int month) {
+        header.putLong(24, size);
+        for (MappedByteBuffer segment : segments) segment.force();
+        header.putInt(12, header.getInt(12) | (1 << (month - 1)));
+        header.force();
+    }
+    /** Процедура очистки данных месяца, например, оставшихся от прерванного запуска.
+     * @param month номер месяца
+     * */
+    public void clearMonth(int month) {
+        int bit = 1 << (month - 1);
+        int offset = MONTHS_OFFSET + (month - 1) * 2 * Long.BYTES;
+        for (long slot = 0; slot < capacity; slot++) {
+            MappedByteBuffer segment = segment(slot);
+            int base = base(slot);
+            int mask = segment.getInt(base + Long.BYTES);
+            if ((mask & bit) == 0) continue;
+            segment.putInt(base + Long.BYTES, mask & ~bit);
+            segment.putLong(base + offset, 0);
+            segment.putLong(base + offset + Long.BYTES, 0);
+        }
+    }
+    /** Процедура прибавления итогового времени абонентов из таблицы к времени за месяц.
+     * @param table таблица абонентов без разбивки по месяцам
+     * @param month номер месяца
+     * */
+    public void merge(@NotNull SubscriberTable table, int month) throws IOException {
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.isOccupied(slot)) add(table.keyAt(slot), month, table.incomingAt(slot), table.outgoingAt(slot));
+        }
+    }
+    /** Процедура прибавления времени звонков абонента за месяц. Если абонента нет, то он добавляется.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param month номер месяца
+     * @param incoming время входящих звонков
+     * @param outgoing время исходящих звонков
+     * */
+    public void add(long msisdn, int month, long incoming, long outgoing) throws IOException {
+        long slot = probe(msisdn);
+        MappedByteBuffer segment = segment(slot);
+        int base = base(slot);
+        if (segment.getLong(base) == 0) {
+            if (size >= (long) (capacity * LOAD_FACTOR)) {
+                grow();
+                slot = probe(msisdn);
+                segment = segment(slot);
+                base = base(slot);
+            }
+            segment.putLong(base, msisdn);
+            size++;
+        }
+        int offset = base + MONTHS_OFFSET + (month - 1) * 2 * Long.BYTES;
+        segment.putInt(base + Long.BYTES, segment.getInt(base + Long.BYTES) | (1 << (month - 1)));
+        segment.putLong(offset, segment.getLong(offset) + incoming);
+        segment.putLong(offset + Long.BYTES, segment.getLong(offset + Long.BYTES) + outgoing);
+    }
+    /** Функция поиска абонента.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @return Ячейка абонента или -1, если абонента нет
+     * */
+    public long find(long msisdn) {
+        long slot = probe(msisdn);
+        return segment(slot).getLong(base(slot)) == 0 ? -1 : slot;
+    }
+    /** Функция проверки, были ли у абонента звонки в месяце.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return true, если звонки были
+     * */
+    public boolean hasCalls(long slot, int month) {
+        return (segment(slot).getInt(base(slot) + Long.BYTES) & (1 << (month - 1))) != 0;
+    }
+    /** Функция получения времени входящих звонков за месяц.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return Время в секундах
+     * */
+    public long incomingAt(long slot, int month) {
+        return segment(slot).getLong(base(slot) + MONTHS_OFFSET + (month - 1) * 2 * Long.BYTES);
+    }
+    /** Функция получения времени исходящих звонков за месяц.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return Время в секундах
+     * */
+    public long outgoingAt(long slot, int month) {
+        return segment(slot).getLong(base(slot) + MONTHS_OFFSET + (month - 1) * 2 * Long.BYTES + Long.BYTES);
+    }
+    /** Функция получения количества абонентов.
+     * @return Количество абонентов, включая абонентов без звонков после очистки месяца
+     * */
+    public long size() {
+        return size;
+    }
+    /** Функция получения отсортированных номеров абонентов, у которых есть звонки.
+     * Номера - единственные данные хранилища, которые копируются в кучу.
+     * @return Номера абонентов в виде чисел по возрастанию
+     * */
+    public long @NotNull [] sortedKeys() {
+        if (size > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many subscribers");
+        long[] keys = new long[(int) size];
+        int count = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            MappedByteBuffer segment = segment(slot);
+            int base = base(slot);
+            if (segment.getLong(base) != 0 && segment.getInt(base + Long.BYTES) != 0) keys[count++] = segment.getLong(base);
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+        return keys;
+    }
+    /** Процедура закрытия хранилища. Данные, не отмеченные контрольной точкой, тоже сбрасываются на диск. */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        header.putLong(24, size);
+        channel.close();
+        channel = null;
+    }
+    /** Процедура удаления файла хранилища.
+     * @param path путь к файлу хранилища
+     * */
+    public static void delete(@NotNull Path path) throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /** Функция открытия существующего файла хранилища.
+     * @param fingerprint размер и время изменения CDR файлов
+     * @return true, если файл открыт, false - если файла нет, он повреждён, CDR файлы или параметры проверки изменились
+     * */
+    private boolean reopen(long @NotNull [] fingerprint) throws IOException {
+        if (!Files.exists(path)) return false;
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (opened.size() < HEADER_SIZE) return false;
+            MappedByteBuffer mapped = opened.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) * 2 != fingerprint.length) {
+                return false;
+            }
+            if (mapped.getLong(32) != validation.getPeriodStart() || mapped.getLong(40) != validation.getPeriodEnd()
+                    || mapped.getInt(48) != validation.getMode().ordinal()) {
+                return false;
+            }
+            for (int i = 0; i < fingerprint.length; i++) {
+                if (mapped.getLong(FINGERPRINT_OFFSET + i * Long.BYTES) != fingerprint[i]) return false;
+            }
+            long slots = mapped.getLong(16);
+            if (slots < 1 || Long.bitCount(slots) != 1 || opened.size() != HEADER_SIZE + slots * SLOT_SIZE) return false;
+            map(opened, mapped, slots);
+            size = count();
+            opened = null;
+            return true;
+        } finally {
+            if (opened != null) opened.close();
+        }
+    }
+    /** Функция создания пустого файла хранилища без отмеченных месяцев.
+     * @param file путь к файлу
+     * @param fingerprint размер и время изменения CDR файлов
+     * @param validation параметры проверки, с которыми читаются CDR файлы
+     * @param slots количество ячеек
+     * @return Канал файла
+     * */
+    private static @NotNull FileChannel create(@NotNull Path file, long @NotNull [] fingerprint,
+                                               @NotNull CDRValidation validation, long slots) throws IOException
+    {
+        FileChannel created = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer mapped = created.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.putInt(8, fingerprint.length / 2);
+            mapped.putInt(12, 0);
+            mapped.putLong(16, slots);
+            mapped.putLong(24, 0);
+            mapped.putLong(32, validation.getPeriodStart());
+            mapped.putLong(40, validation.getPeriodEnd());
+            mapped.putInt(48, validation.getMode().ordinal());
+            for (int i = 0; i < fingerprint.length; i++) {
+                mapped.putLong(FINGERPRINT_OFFSET + i * Long.BYTES, fingerprint[i]);
+            }
+            mapped.force();
+            created.write(ByteBuffer.allocate(1), HEADER_SIZE + slots * SLOT_SIZE - 1);
+            return created;
+        } catch (IOException e) {
+            created.close();
+            throw e;
+        }
+    }
+    /** Процедура отображения ячеек открытого файла.
+     * @param opened канал файла
+     * @param mapped отображение заголовка
+     * @param slots количество ячеек
+     * */
+    private void map(@NotNull FileChannel opened, @NotNull MappedByteBuffer mapped, long slots) throws IOException {
+        int perSegment = (int) Math.min(slots, SEGMENT_SLOTS);
+        MappedByteBuffer[] mappings = new MappedByteBuffer[(int) (slots / perSegment)];
+        for (int i = 0; i < mappings.length; i++) {
+            mappings[i] = opened.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + (long) i * perSegment * SLOT_SIZE, (long) perSegment * SLOT_SIZE);
+        }
+        this.channel = opened;
+        this.header = mapped;
+        this.segments = mappings;
+        this.capacity = slots;
+    }
+    /** Функция подсчёта занятых ячеек. Количество в заголовке не используется, так как после
+     * прерванного запуска в ячейках могут быть абоненты, добавленные после последней контрольной точки.
+     * @return Количество абонентов
+     * */
+    private long count() {
+        long occupied = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            if (segment(slot).getLong(base(slot)) != 0) occupied++;
+        }
+        return occupied;
+    }
+    /** Процедура расширения хранилища вдвое.
+     * Ячейки переносятся в новый файл, который затем заменяет старый, поэтому прерванное расширение
+     * оставляет прежний файл целым.
+     * */
+    private void grow() throws IOException {
+        long[] fingerprint = new long[header.getInt(8) * 2];
+        for (int i = 0; i < fingerprint.length; i++) {
+            fingerprint[i] = header.getLong(FINGERPRINT_OFFSET + i * Long.BYTES);
+        }
+        int completed = header.getInt(12);
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "store", ".tmp");
+        try {
+            AggregateStore grown = new AggregateStore(temp, validation);
+            FileChannel created = create(temp, fingerprint, validation, capacity << 1);
+            grown.map(created, created.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE), capacity << 1);
+            byte[] cell = new byte[SLOT_SIZE];
+            for (long slot = 0; slot < capacity; slot++) {
+                MappedByteBuffer segment = segment(slot);
+                int base = base(slot);
+                long key = segment.getLong(base);
+                if (key == 0) continue;
+                long target = grown.probe(key);
+                segment.get(base, cell);
+                grown.segment(target).put(grown.base(target), cell);
+            }
+            grown.size = size;
+            grown.header.putInt(12, completed);
+            for (MappedByteBuffer segment : grown.segments) segment.force();
+            grown.header.putLong(24, size);
+            grown.header.force();
+            channel.close();
+            created.close();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (!reopen(fingerprint)) throw new IOException("Cannot reopen aggregate store " + path);
+    }
+
+    private long probe(long msisdn) {
+        long mask = capacity - 1;
+        long slot = mix(msisdn) & mask;
+        while (true) {
+            long key = segment(slot).getLong(base(slot));
+            if (key == 0 || key == msisdn) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private @NotNull MappedByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+
+    private int base(long slot) {
+        return (int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_SIZE;
+    }
+
+    private static long capacityFor(int expected) {
+        return Long.highestOneBit((long) Math.max(16, expected / LOAD_FACTOR) - 1) << 1;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,34 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Причина, по которой запись CDR файла не принята к обработке.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Quarantine
+ * */
+public enum CDRError {
+    /** В строке не четыре поля */
+    FIELD_COUNT("Invalid number of fields"),
+    /** Поле пустое, содержит не цифру или слишком длинное число, в том числе номер длиннее 15 цифр */
+    NON_NUMERIC("Field is not a number"),
+    /** Звонок закончился раньше, чем начался */
+    NEGATIVE_DURATION("Call time period is invalid"),
+    /** Тип звонка не 01 и не 02 */
+    UNKNOWN_TYPE("Call type is invalid"),
+    /** Звонок начался вне тарифицируемого периода */
+    OUT_OF_PERIOD("Call is out of the billing period");
+
+    /** Поле с сообщением об ошибке */
+    private final String message;
+
+    CDRError(@NotNull String message) {
+        this.message = message;
+    }
+    /** Функция получения сообщения об ошибке.
+     * @return Сообщение
+     * */
+    public @NotNull String getMessage() {
+        return message;
+    }
+}
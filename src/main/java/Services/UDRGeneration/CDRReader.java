@@ -0,0 +1,286 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.Metrics.Counter;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Класс для чтения CDR файлов через отображение файла в память.
+ * Поля записи разбираются прямо из байтов в примитивы, без декодирования в строки,
+ * и передаются обработчику записей.
+ * Файл отображается окнами, поэтому размер файла не ограничен размером одного отображения.
+ * @author Никита Дюков
+ * @version 1.3
+ * @see CDRRecordHandler
+ * */
+final class CDRReader {
+    /** Поле с размером окна отображения файла в байтах */
+    private static final long WINDOW = 1L << 28;
+    /** Поле с количеством полей в записи CDR файла */
+    private static final int FIELDS = 4;
+    /** Поле с количеством строк, которые не удалось разобрать */
+    private static final Counter MALFORMED = Metrics.global().counter("udr.parse.malformed");
+
+    private CDRReader() {
+    }
+    /** Процедура чтения CDR файла целиком.
+     * @param path путь к CDR файлу
+     * @param handler обработчик записей
+     * @see CDRReader#read(FileChannel, long, long, CDRRecordHandler)
+     * */
+    public static void read(@NotNull Path path, @NotNull CDRRecordHandler handler)
+            throws IOException, IllegalArgumentException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, 0, channel.size(), handler);
+        }
+    }
+    /** Функция чтения части CDR файла.
+     * Обрабатываются все строки, первый байт которых лежит в диапазоне [from, to).
+     * Строка, начавшаяся до from, пропускается: её обрабатывает предыдущий диапазон.
+     * @param channel канал CDR файла
+     * @param from начало диапазона в байтах
+     * @param to конец диапазона в байтах
+     * @param handler обработчик записей
+     * @return Позиция сразу после последней обработанной строки
+     * */
+    public static long read(@NotNull FileChannel channel, long from, long to, @NotNull CDRRecordHandler handler)
+            throws IOException, IllegalArgumentException
+    {
+        return read(channel, from, to, handler, false);
+    }
+    /** Функция чтения части CDR файла, в который продолжают дописываться записи.
+     * Если completeLinesOnly, то последняя строка без перевода строки считается недописанной и не обрабатывается,
+     * а возвращённая позиция указывает на её начало, поэтому следующее чтение с этой позиции её не пропустит.
+     * @param channel канал CDR файла
+     * @param from начало диапазона в байтах
+     * @param to конец диапазона в байтах
+     * @param handler обработчик записей
+     * @param completeLinesOnly true - обрабатывать только строки, завершённые переводом строки
+     * @return Позиция сразу после последней обработанной строки
+     * */
+    public static long read(@NotNull FileChannel channel, long from, long to, @NotNull CDRRecordHandler handler,
+                            boolean completeLinesOnly)
+            throws IOException, IllegalArgumentException
+    {
+        return read(channel, from, to, handler, completeLinesOnly, Quarantine.STRICT, 0);
+    }
+    /** Функция чтения части CDR файла с проверкой записей.
+     * Неверные строки не передаются обработчику, а передаются карантину вместе с позицией строки в файле:
+     * в строгом режиме карантин выбрасывает исключение, в мягком - чтение продолжается со следующей строки.
+     * @param channel канал CDR файла
+     * @param from начало диапазона в байтах
+     * @param to конец диапазона в байтах
+     * @param handler обработчик записей
+     * @param completeLinesOnly true - обрабатывать только строки, завершённые переводом строки
+     * @param quarantine карантин неверных записей
+     * @param month номер месяца CDR файла для карантина
+     * @return Позиция сразу после последней обработанной строки
+     * @see Quarantine
+     * */
+    public static long read(@NotNull FileChannel channel, long from, long to, @NotNull CDRRecordHandler handler,
+                            boolean completeLinesOnly, @NotNull Quarantine quarantine, int month)
+            throws IOException, IllegalArgumentException
+    {
+        long size = channel.size();
+        to = Math.min(to, size);
+        long pos = alignToLineStart(channel, from, size);
+        while (pos < to) {
+            long length = Math.min(WINDOW, size - pos);
+            boolean last = pos + length == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+            int limit = (int) length;
+            int i = 0;
+            while (pos + i < to) {
+                int end = indexOfNewLine(buffer, i, limit);
+                if (end < 0) {
+                    if (!last) break;
+                    if (completeLinesOnly) return pos + i;
+                    parseLine(buffer, i, limit, handler, quarantine, month, pos);
+                    i = limit;
+                    break;
+                }
+                parseLine(buffer, i, end, handler, quarantine, month, pos);
+                i = end + 1;
+            }
+            if (i == 0) throw new IOException("CDR line is longer than mapping window");
+            pos += i;
+        }
+        return pos;
+    }
+    /** Процедура разбора строк, уже прочитанных в буфер.
+     * Последняя строка может не заканчиваться переводом строки.
+     * @param buffer буфер со строками CDR файла
+     * @param length количество байтов строк с начала буфера
+     * @param handler обработчик записей
+     * */
+    public static void parse(@NotNull ByteBuffer buffer, int length, @NotNull CDRRecordHandler handler)
+            throws IllegalArgumentException
+    {
+        parse(buffer, length, handler, Quarantine.STRICT, 0, 0);
+    }
+    /** Процедура разбора строк, уже прочитанных в буфер, с проверкой записей.
+     * Неверные строки не передаются обработчику, а передаются карантину вместе с позицией строки в файле.
+     * @param buffer буфер со строками CDR файла
+     * @param length количество байтов строк с начала буфера
+     * @param handler обработчик записей
+     * @param quarantine карантин неверных записей
+     * @param month номер месяца CDR файла для карантина
+     * @param position позиция начала буфера в CDR файле
+     * @see Quarantine
+     * */
+    public static void parse(@NotNull ByteBuffer buffer, int length, @NotNull CDRRecordHandler handler,
+                             @NotNull Quarantine quarantine, int month, long position)
+            throws IllegalArgumentException
+    {
+        int i = 0;
+        while (i < length) {
+            int end = indexOfNewLine(buffer, i, length);
+            if (end < 0) end = length;
+            parseLine(buffer, i, end, handler, quarantine, month, position);
+            i = end + 1;
+        }
+    }
+    /** Функция разбиения файла на диапазоны примерно одинакового размера.
+     * Границы выравниваются по строкам при чтении.
+     * @param size размер файла в байтах
+     * @param parts количество диапазонов
+     * @return Границы диапазонов, parts + 1 значение
+     * @see CDRReader#read(FileChannel, long, long, CDRRecordHandler)
+     * */
+    public static long @NotNull [] split(long size, int parts) {
+        long[] bounds = new long[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            bounds[i] = size * i / parts;
+        }
+        return bounds;
+    }
+    /** Функция поиска начала первой строки, которая начинается не раньше заданной позиции.
+     * @param channel канал CDR файла
+     * @param from позиция в файле
+     * @param size размер файла
+     * @return Позиция начала строки
+     * */
+    private static long alignToLineStart(@NotNull FileChannel channel, long from, long size) throws IOException {
+        if (from <= 0) return 0;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long pos = from - 1;
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return pos + i + 1;
+            }
+            pos += read;
+        }
+        return size;
+    }
+    /** Функция поиска конца строки.
+     * @return Позиция символа переноса строки или -1, если его нет в окне
+     * */
+    private static int indexOfNewLine(@NotNull ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+    /** Процедура разбора одной строки CDR файла.
+     * Пустые строки пропускаются. Пробелы вокруг полей допускаются.
+     * Строки, которые не удалось разобрать, учитываются в метриках и передаются карантину.
+     * @param buffer отображение файла
+     * @param start начало строки
+     * @param end конец строки, не включая перенос
+     * @param handler обработчик записей
+     * @param quarantine карантин неверных записей
+     * @param month номер месяца CDR файла
+     * @param base позиция начала буфера в файле
+     * */
+    private static void parseLine(@NotNull ByteBuffer buffer, int start, int end, @NotNull CDRRecordHandler handler,
+                                  @NotNull Quarantine quarantine, int month, long base)
+            throws IllegalArgumentException
+    {
+        CDRError error = parseFields(buffer, start, end, handler, quarantine);
+        if (error != null) {
+            MALFORMED.increment();
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+            quarantine.reject(error, month, base + start, buffer, start, end);
+        }
+    }
+    /** Функция разбора полей одной строки CDR файла.
+     * Верная запись передаётся обработчику, для неверной возвращается причина без создания исключения.
+     * @param buffer отображение файла
+     * @param start начало строки
+     * @param end конец строки, не включая перенос
+     * @param handler обработчик записей
+     * @param quarantine карантин с тарифицируемым периодом
+     * @return Причина ошибки или null, если запись верна или строка пустая
+     * */
+    private static @Nullable CDRError parseFields(@NotNull ByteBuffer buffer, int start, int end,
+                                                  @NotNull CDRRecordHandler handler, @NotNull Quarantine quarantine)
+    {
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        if (end == start) return null;
+
+        int type = 0;
+        long msisdn = 0;
+        long timeStart = 0;
+        long timeEnd = 0;
+        int field = 0;
+        int pos = start;
+        boolean last = false;
+        while (field < FIELDS) {
+            int fieldStart = pos;
+            while (pos < end && buffer.get(pos) == ' ') pos++;
+            long value = 0;
+            int digits = 0;
+            while (pos < end) {
+                byte b = buffer.get(pos);
+                if (b < '0' || b > '9') break;
+                if (digits == 18) return CDRError.NON_NUMERIC;
+                value = value * 10 + (b - '0');
+                digits++;
+                pos++;
+            }
+            while (pos < end && buffer.get(pos) == ' ') pos++;
+            if (digits == 0 || (pos < end && buffer.get(pos) != ',')) {
+                if (pos == end && fieldStart == end) break;
+                return CDRError.NON_NUMERIC;
+            }
+            switch (field) {
+                case 0 -> {
+                    if (value > Integer.MAX_VALUE) return CDRError.UNKNOWN_TYPE;
+                    type = (int) value;
+                }
+                case 1 -> {
+                    if (digits > MsisdnCodec.MAX_DIGITS) return CDRError.NON_NUMERIC;
+                    msisdn = MsisdnCodec.pack(value, digits);
+                }
+                case 2 -> timeStart = value;
+                default -> timeEnd = value;
+            }
+            field++;
+            if (pos == end) {
+                last = true;
+                break;
+            }
+            pos++;
+        }
+        if (field < FIELDS || !last) return CDRError.FIELD_COUNT;
+
+        long callDuration = timeEnd - timeStart;
+        CDRError error = quarantine.check(type, timeStart, callDuration);
+        if (error != null) return error;
+
+        handler.accept(type, msisdn, callDuration);
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+
+/** Обработчик записей CDR файла. Вызывается для каждой прочитанной строки файла.
+ * Все поля записи передаются примитивами, без промежуточных строк.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see CDRReader
+ * */
+@FunctionalInterface
+interface CDRRecordHandler {
+    /** Процедура обработки одной записи CDR файла.
+     * @param type тип звонка
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param callDuration продолжительность звонка в секундах
+     * @see MsisdnCodec
+     * */
+    void accept(int type, long msisdn, long callDuration);
+}
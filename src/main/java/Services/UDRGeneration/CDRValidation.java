@@ -0,0 +1,112 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/** Параметры проверки записей CDR файлов при чтении.
+ * В строгом режиме первая неверная запись прерывает построение отчётов, как и раньше.
+ * В мягком режиме неверные записи пропускаются, учитываются по причинам и записываются в файл карантина,
+ * а остальные записи обрабатываются без остановки. Отсутствующий CDR файл в мягком режиме считается пустым.
+ * Тарифицируемый период задаётся Unix-временем начала звонка; по умолчанию он не ограничен.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see Quarantine
+ * @see UDRGenerationService#setValidation(CDRValidation)
+ * */
+public final class CDRValidation {
+    /** Режим обработки неверных записей. */
+    public enum Mode {
+        /** Первая неверная запись прерывает построение отчётов */
+        STRICT,
+        /** Неверные записи отправляются в карантин */
+        LENIENT
+    }
+    /** Поле с параметрами по умолчанию */
+    private static final CDRValidation STRICT = builder().build();
+    /** Поле с режимом обработки неверных записей */
+    private final Mode mode;
+    /** Поле с началом тарифицируемого периода включительно */
+    private final long periodStart;
+    /** Поле с концом тарифицируемого периода не включительно */
+    private final long periodEnd;
+
+    private CDRValidation(@NotNull Builder builder) {
+        this.mode = builder.mode;
+        this.periodStart = builder.periodStart;
+        this.periodEnd = builder.periodEnd;
+    }
+    /** Функция получения построителя параметров со значениями по умолчанию.
+     * @return Построитель параметров
+     * */
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+    /** Функция получения параметров по умолчанию: строгий режим без ограничения периода.
+     * @return Параметры проверки
+     * */
+    public static @NotNull CDRValidation strict() {
+        return STRICT;
+    }
+    /** Функция получения мягкого режима без ограничения периода.
+     * @return Параметры проверки
+     * */
+    public static @NotNull CDRValidation lenient() {
+        return builder().mode(Mode.LENIENT).build();
+    }
+    /** Функция получения режима обработки неверных записей. */
+    public @NotNull Mode getMode() {
+        return mode;
+    }
+    /** Функция получения начала тарифицируемого периода в секундах Unix-времени. */
+    public long getPeriodStart() {
+        return periodStart;
+    }
+    /** Функция получения конца тарифицируемого периода в секундах Unix-времени, не включительно. */
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CDRValidation other)) return false;
+        return mode == other.mode && periodStart == other.periodStart && periodEnd == other.periodEnd;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, periodStart, periodEnd);
+    }
+
+    /** Построитель параметров проверки. */
+    public static class Builder {
+        private Mode mode = Mode.STRICT;
+        private long periodStart = 0;
+        private long periodEnd = Long.MAX_VALUE;
+
+        private Builder() {
+        }
+        /** Процедура задания режима обработки неверных записей. */
+        public @NotNull Builder mode(@NotNull Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+        /** Процедура задания тарифицируемого периода. Звонки, начавшиеся вне периода, считаются неверными.
+         * @param start начало периода в секундах Unix-времени включительно
+         * @param end конец периода в секундах Unix-времени не включительно
+         * */
+        public @NotNull Builder period(long start, long end) {
+            if (start < 0 || end <= start) throw new IllegalArgumentException("Invalid billing period");
+            this.periodStart = start;
+            this.periodEnd = end;
+            return this;
+        }
+        /** Функция создания параметров.
+         * @return Параметры проверки
+         * */
+        public @NotNull CDRValidation build() {
+            return new CDRValidation(this);
+        }
+    }
+}
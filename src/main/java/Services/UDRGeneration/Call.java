@@ -2,42 +2,44 @@ package Services.UDRGeneration;
 
 /** Класс звонка со свойством "totalTime".
  * @author Никита Дюков
- * @version 1.0
+ * @version 1.1
  * */
 class Call {
-    /** Поле с итоговым временем звноков абонента. Имеет формат hh:mm:ss. */
-    private String totalTime;
+    /** Поле с итоговым временем звноков абонента в секундах.
+     * В формат hh:mm:ss переводится только при выводе отчёта. */
+    private long totalTime;
     /** Конструктор - создание нового объекта. */
     public Call() {
-        this.totalTime = "00:00:00";
+        this.totalTime = 0;
     }
     /** Функция получения итогового времени.
-     * @return Итоговое время
+     * @return Итоговое время в формате hh:mm:ss
+     * @see Call#format(long)
      * */
     public String getTotalTime() {
-        return totalTime;
+        return format(totalTime);
     }
-    /** Функция получения итогового времени в целочисленном формате.
+    /** Функция получения итогового времени в секундах.
      * @return Итоговое время, выражающееся в секундах
      * */
-    public int getTotalTimeAsInt() {
-        String[] h1= totalTime.split(":");
-
-        int hour=Integer.parseInt(h1[0]);
-        int minute=Integer.parseInt(h1[1]);
-        int second=Integer.parseInt(h1[2]);
-
-        return second + (60 * minute) + (3600 * hour);
+    public long getTotalSeconds() {
+        return totalTime;
     }
     /** Процедура прибавления разницы времени к итоговому времени.
-     * @param time разница во времени
+     * @param time разница во времени в секундах
      * */
-    public void addTime(int time) {
-        int timeToSet = getTotalTimeAsInt() + time;
-        int hours = (timeToSet / 3600);
-        int minutes = (timeToSet % 3600) / 60;
-        int seconds = timeToSet % 60;
-        totalTime = String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    public void addTime(long time) {
+        totalTime += time;
+    }
+    /** Функция перевода времени в секундах в формат hh:mm:ss.
+     * Количество часов не ограничено сутками и может занимать больше двух разрядов.
+     * @param seconds время в секундах
+     * @return Время в формате hh:mm:ss
+     * */
+    public static String format(long seconds) {
+        long hours = seconds / 3600;
+        long minutes = (seconds % 3600) / 60;
+        long rest = seconds % 60;
+        return String.format("%02d:%02d:%02d", hours, minutes, rest);
     }
-
 }
@@ -0,0 +1,44 @@
+package Services.UDRGeneration;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/** Адаптер Gson для звонка. Итоговое время записывается в отчёт в формате hh:mm:ss,
+ * как и раньше, хотя внутри звонка хранится в секундах.
+ * @author Никита Дюков
+ * @version 1.0
+ * */
+class CallAdapter extends TypeAdapter<Call> {
+    @Override
+    public void write(JsonWriter out, Call call) throws IOException {
+        if (call == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("totalTime").value(call.getTotalTime());
+        out.endObject();
+    }
+
+    @Override
+    public Call read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Call call = new Call();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("totalTime")) {
+                String[] h1 = in.nextString().split(":");
+                call.addTime(Long.parseLong(h1[2]) + 60 * Long.parseLong(h1[1]) + 3600 * Long.parseLong(h1[0]));
+            } else in.skipValue();
+        }
+        in.endObject();
+        return call;
+    }
+}
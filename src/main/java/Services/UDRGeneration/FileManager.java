@@ -1,5 +1,6 @@
 package Services.UDRGeneration;
 
+import Services.CDRFormat.CDRFileFormat;
 import org.jetbrains.annotations.NotNull;
 import java.io.*;
 
@@ -13,38 +14,87 @@ class FileManager {
      * @return Путь до CDR-файла
      * */
     public static @NotNull String getPathCDR(@NotNull Integer numOfFile){
-        String filename = String.format("%2d_CDR.txt", numOfFile);
+        return getPathCDR(numOfFile, CDRFileFormat.TEXT);
+    }
+    /** Функция получения пути до CDR-файла заданного формата с заданным порядковым номером.
+     * @param numOfFile порядковый номер
+     * @param format формат CDR файла
+     * @return Путь до CDR-файла
+     * */
+    public static @NotNull String getPathCDR(@NotNull Integer numOfFile, @NotNull CDRFileFormat format){
+        return getDirectoryCDR() + File.separator + format.getFileName(numOfFile);
+    }
+    /** Функция получения пути до папки с CDR-файлами.
+     * @return Путь до папки с CDR-файлами
+     * */
+    public static @NotNull String getDirectoryCDR() {
         return "src" + File.separator + "main" + File.separator
-                + "resources" + File.separator + "CDRs" + File.separator + filename;
+                + "resources" + File.separator + "CDRs";
     }
-    /** Функция получения пути до UDR-файла формата JSON с заданным номер мобильного абонента и номером месяца.
+    /** Функция получения пути до файла индекса итогового времени по месяцам для CDR файлов заданного формата.
+     * @param format формат CDR файлов
+     * @return Путь до файла индекса
+     * */
+    public static @NotNull String getPathIndex(@NotNull CDRFileFormat format) {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "index" + File.separator + "aggregate_" + format.getExtension() + ".idx";
+    }
+    /** Функция получения пути до файла хранилища итогового времени вне кучи для CDR файлов заданного формата.
+     * @param format формат CDR файлов
+     * @return Путь до файла хранилища
+     * */
+    public static @NotNull String getPathStore(@NotNull CDRFileFormat format) {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "index" + File.separator + "aggregate_" + format.getExtension() + ".store";
+    }
+    /** Функция получения пути до файла состояния инкрементального обновления отчётов для CDR файлов заданного формата.
+     * @param format формат CDR файлов
+     * @return Путь до файла состояния
+     * */
+    public static @NotNull String getPathState(@NotNull CDRFileFormat format) {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "index" + File.separator + "incremental_" + format.getExtension() + ".state";
+    }
+    /** Функция получения пути до файла карантина неверных записей CDR файлов заданного формата.
+     * @param format формат CDR файлов
+     * @return Путь до файла карантина
+     * */
+    public static @NotNull String getPathQuarantine(@NotNull CDRFileFormat format) {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "quarantine" + File.separator + "quarantine_" + format.getExtension() + ".tsv";
+    }
+    /** Функция получения пути до папки, в которую записываются серии агрегации с ограниченным объёмом памяти.
+     * @return Путь до папки серий
+     * */
+    public static @NotNull String getDirectorySpill() {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "index" + File.separator + "spill";
+    }
+    /** Функция получения пути до папки с UDR-файлами.
+     * @return Путь до папки с отчётами
+     * */
+    public static @NotNull String getDirectoryUDR() {
+        return "src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "reports";
+    }
+    /** Функция получения названия UDR-файла формата JSON с заданным номер мобильного абонента и номером месяца.
      * @param msisdn номер мобильного абонента
-     * @param month номер месяца
-     * @return Путь до UDR-файла
+     * @param month номер месяца, -1 - отчёт за весь период
+     * @return Название UDR-файла
      * */
-    public static @NotNull String getPathUDR(String msisdn, @NotNull Integer month) throws IllegalArgumentException {
+    public static @NotNull String getNameUDR(String msisdn, @NotNull Integer month) throws IllegalArgumentException {
         if (month == -1) {
-            String filename = String.format("%s.json", msisdn);
-            return "src" + File.separator + "main" + File.separator
-                    + "resources" + File.separator + "reports" + File.separator + filename;
+            return String.format("%s.json", msisdn);
         } else if (month > 0 && month <= 12) {
-            String filename = String.format("%s_%d.json", msisdn, month);
-            return "src" + File.separator + "main" + File.separator
-                    + "resources" + File.separator + "reports" + File.separator + filename;
+            return String.format("%s_%d.json", msisdn, month);
         } else throw new IllegalArgumentException("Invalid number of month");
     }
-    /** Процедура создания пустого файла. Файл имеет название формата "номер_месяц.json"
+    /** Функция получения пути до UDR-файла формата JSON с заданным номер мобильного абонента и номером месяца.
      * @param msisdn номер мобильного абонента
      * @param month номер месяца
+     * @return Путь до UDR-файла
      * */
-    public static void createFile(String msisdn, @NotNull Integer month) throws RuntimeException {
-        try {
-            File file = new File(FileManager.getPathUDR(msisdn, month));
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-        } catch (IOException e) {
-            System.out.println(e.getMessage());
-            throw new RuntimeException(e);
-        }
+    public static @NotNull String getPathUDR(String msisdn, @NotNull Integer month) throws IllegalArgumentException {
+        return getDirectoryUDR() + File.separator + getNameUDR(msisdn, month);
     }
 }
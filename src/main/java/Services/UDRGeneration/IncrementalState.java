@@ -0,0 +1,181 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/** Состояние инкрементального обновления отчётов, сохраняемое на диск между запусками.
+ * Хранит для каждого CDR файла позицию после последней обработанной строки и контрольную сумму начала файла,
+ * а также итоговое время звонков всех абонентов по уже обработанным строкам.
+ * <pre>
+ *   int  MAGIC ("UDRS")
+ *   int  VERSION
+ *   int  количество CDR файлов
+ *   long[2] позиция и контрольная сумма начала каждого CDR файла
+ *   int  количество абонентов N
+ *   long[N] номер абонента в виде MsisdnCodec
+ *   long[N] время входящих звонков
+ *   long[N] время исходящих звонков
+ * </pre>
+ * CDR файлы считаются дописываемыми только в конец. Если файл стал короче обработанной части
+ * или его начало изменилось, то состояние не совпадает с файлами и отчёты строятся заново.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see SubscriberTable
+ * */
+final class IncrementalState {
+    /** Поле с сигнатурой файла состояния */
+    private static final int MAGIC = 0x55445253;
+    /** Поле с версией формата состояния */
+    private static final int VERSION = 1;
+    /** Поле с количеством первых байтов CDR файла, по которым считается контрольная сумма */
+    private static final int HEAD_SIZE = 4096;
+    /** Поле с позициями после последней обработанной строки каждого CDR файла */
+    private final long[] offsets;
+    /** Поле с контрольными суммами обработанного начала каждого CDR файла */
+    private final long[] heads;
+    /** Поле с итоговым временем звонков абонентов */
+    private final SubscriberTable totals;
+    /** Конструктор - создание пустого состояния, в котором ни один файл ещё не обработан.
+     * @param files количество CDR файлов
+     * @param expected ожидаемое количество абонентов
+     * */
+    public IncrementalState(int files, int expected) {
+        this(new long[files], new long[files], new SubscriberTable(expected));
+    }
+
+    private IncrementalState(long @NotNull [] offsets, long @NotNull [] heads, @NotNull SubscriberTable totals) {
+        this.offsets = offsets;
+        this.heads = heads;
+        this.totals = totals;
+    }
+    /** Функция загрузки состояния.
+     * @param path путь к файлу состояния
+     * @param files количество CDR файлов
+     * @param expected ожидаемое количество абонентов для пустого состояния
+     * @return Сохранённое состояние или пустое, если файла нет или он повреждён
+     * */
+    public static @NotNull IncrementalState load(@NotNull Path path, int files, int expected) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != files) {
+                return new IncrementalState(files, expected);
+            }
+            long[] offsets = new long[files];
+            long[] heads = new long[files];
+            for (int i = 0; i < files; i++) {
+                offsets[i] = in.readLong();
+                heads[i] = in.readLong();
+            }
+            int count = in.readInt();
+            if (count < 0) return new IncrementalState(files, expected);
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) keys[i] = in.readLong();
+            SubscriberTable totals = new SubscriberTable(Math.max(count, expected));
+            for (long key : keys) totals.add(key, 2, in.readLong());
+            for (long key : keys) totals.add(key, 1, in.readLong());
+            if (in.read() >= 0) return new IncrementalState(files, expected);
+            return new IncrementalState(offsets, heads, totals);
+        } catch (IOException | IllegalArgumentException e) {
+            return new IncrementalState(files, expected);
+        }
+    }
+    /** Процедура сохранения состояния.
+     * Состояние записывается во временный файл, который затем заменяет старый,
+     * поэтому прерванная запись оставляет предыдущее состояние целым.
+     * @param path путь к файлу состояния
+     * */
+    public void save(@NotNull Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "state", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(offsets.length);
+                for (int i = 0; i < offsets.length; i++) {
+                    out.writeLong(offsets[i]);
+                    out.writeLong(heads[i]);
+                }
+                out.writeInt(totals.size());
+                for (int slot = 0; slot < totals.capacity(); slot++) {
+                    if (totals.isOccupied(slot)) out.writeLong(totals.keyAt(slot));
+                }
+                for (int slot = 0; slot < totals.capacity(); slot++) {
+                    if (totals.isOccupied(slot)) out.writeLong(totals.incomingAt(slot));
+                }
+                for (int slot = 0; slot < totals.capacity(); slot++) {
+                    if (totals.isOccupied(slot)) out.writeLong(totals.outgoingAt(slot));
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    /** Функция проверки, что CDR файлы являются продолжением обработанных.
+     * @param sources CDR файлы в порядке месяцев
+     * @return true, если каждый файл не короче обработанной части и её начало не изменилось
+     * */
+    public boolean matches(@NotNull List<Path> sources) throws IOException {
+        if (sources.size() != offsets.length) return false;
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] == 0) continue;
+            long size;
+            try {
+                size = Files.size(sources.get(i));
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            if (size < offsets[i] || head(sources.get(i), offsets[i]) != heads[i]) return false;
+        }
+        return true;
+    }
+    /** Функция получения позиции после последней обработанной строки CDR файла.
+     * @param file индекс CDR файла, начиная с 0
+     * @return Позиция в байтах
+     * */
+    public long getOffset(int file) {
+        return offsets[file];
+    }
+    /** Процедура запоминания новой позиции CDR файла после обработки дописанных строк.
+     * @param file индекс CDR файла, начиная с 0
+     * @param source путь к CDR файлу
+     * @param offset позиция после последней обработанной строки
+     * */
+    public void setOffset(int file, @NotNull Path source, long offset) throws IOException {
+        if (offsets[file] < HEAD_SIZE && offset != offsets[file]) heads[file] = head(source, offset);
+        offsets[file] = offset;
+    }
+    /** Функция получения итогового времени звонков абонентов по обработанным строкам.
+     * @return Таблица абонентов
+     * */
+    public @NotNull SubscriberTable getTotals() {
+        return totals;
+    }
+    /** Функция подсчёта контрольной суммы обработанного начала CDR файла.
+     * @param source путь к CDR файлу
+     * @param offset позиция после последней обработанной строки
+     * @return Контрольная сумма первых min(offset, HEAD_SIZE) байтов
+     * */
+    private static long head(@NotNull Path source, long offset) throws IOException {
+        byte[] bytes = new byte[(int) Math.min(offset, HEAD_SIZE)];
+        try (InputStream in = Files.newInputStream(source)) {
+            int read = in.readNBytes(bytes, 0, bytes.length);
+            if (read != bytes.length) return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
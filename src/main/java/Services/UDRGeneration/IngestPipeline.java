@@ -0,0 +1,569 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.CDRFileFormat;
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Конвейер непрерывной обработки CDR файлов, которые появляются, дописываются или заменяются в папке CDR файлов.
+ * Папка отслеживается WatchService, а изменённые файлы проходят четыре стадии, каждая в своём потоке:
+ * чтение дописанных строк - разбор записей - прибавление к итоговому времени абонентов - запись отчётов.
+ * Стадии связаны очередями ограниченного размера: если следующая стадия не успевает, то предыдущая ждёт
+ * освобождения места, поэтому память конвейера ограничена размером очередей, а не скоростью поступления CDR.
+ * Позиции файлов и итоговое время хранятся в том же состоянии, что и у UDRGenerationService#updateReports(),
+ * и сохраняются только после записи отчётов по всем прочитанным строкам.
+ * Если файл заменён или стал короче, то итоговое время строится заново по всем файлам.
+ * Отчёты записываются отдельными файлами, по одному на абонента.
+ * Неверные строки по умолчанию дописываются в файл карантина, а позиция файла всё равно сдвигается за них,
+ * поэтому одна неверная запись не останавливает конвейер и не читается повторно после перезапуска.
+ * @author Никита Дюков
+ * @version 1.2
+ * @see IncrementalState
+ * @see UDRGenerationService#updateReports()
+ * @see Quarantine
+ * */
+public final class IngestPipeline implements Closeable {
+    /** Поле с количеством CDR файлов */
+    private static final int MONTHS = 12;
+    /** Поле с максимальным размером части файла, которая передаётся на разбор */
+    private static final int CHUNK_SIZE = 1 << 20;
+    /** Поле с количеством абонентов, после которого отчёты передаются на запись, не дожидаясь простоя */
+    private static final int BATCH_SIZE = 4096;
+    /** Поле с начальным размером таблиц абонентов */
+    private static final int EXPECTED_SUBSCRIBERS = 1024;
+    /** Поле с размером очередей между стадиями по умолчанию */
+    private static final int DEFAULT_CAPACITY = 8;
+    /** Поле с интервалом вывода статистики по умолчанию в миллисекундах */
+    private static final long DEFAULT_STATUS_INTERVAL = 10_000;
+    /** Поле с интервалом сохранения состояния под нагрузкой в миллисекундах */
+    private static final long CHECKPOINT_INTERVAL = 5_000;
+    /** Поле со временем ожидания записей, после которого стадия агрегации считает конвейер простаивающим */
+    private static final long IDLE_MILLIS = 100;
+    /** Поле с отметкой в очереди файлов о завершении работы */
+    private static final int END_OF_FILES = -1;
+    /** Поле с общим количеством разобранных записей CDR файлов */
+    private static final Counter PARSED_RECORDS = Metrics.global().counter("udr.parse.records");
+    /** Поле с общим количеством прочитанных байтов CDR файлов */
+    private static final Counter READ_BYTES = Metrics.global().counter("udr.read.bytes");
+    /** Поле с длительностью разбора одной части файла */
+    private static final Histogram PARSE_CHUNK = Metrics.global().histogram("udr.parse.chunk");
+    /** Поле с длительностью прибавления записей одной части файла к итоговому времени */
+    private static final Histogram AGGREGATE = Metrics.global().histogram("udr.aggregate.batch");
+    /** Поле с отметкой о замене файла: итоговое время строится заново */
+    private static final Chunk RESET = new Chunk(0, 0, null, 0);
+    /** Поле с отметкой о завершении работы */
+    private static final Chunk END = new Chunk(-1, 0, null, 0);
+    /** Поле с отметкой в очереди отчётов о завершении работы */
+    private static final List<Subscriber> END_OF_REPORTS = new ArrayList<>();
+    /** Поле с папкой CDR файлов */
+    private final Path directory;
+    /** Поле с путём к файлу состояния */
+    private final Path statePath;
+    /** Поле с папкой отчётов */
+    private final Path reportDirectory;
+    /** Поле с карантином неверных записей. Используется стадией разбора. */
+    private final Quarantine quarantine;
+    /** Поле с количеством потоков записи отчётов */
+    private final int writers;
+    /** Поле с интервалом вывода статистики в миллисекундах, 0 - без вывода */
+    private final long statusInterval;
+    /** Поле с номерами месяцев по названию CDR файла */
+    private final Map<String, Integer> months = new HashMap<>();
+    /** Поле с отметками о том, что файл уже стоит в очереди на чтение */
+    private final AtomicBoolean[] queued = new AtomicBoolean[MONTHS + 1];
+    /** Поле с очередью изменённых файлов. Каждый месяц стоит в очереди не больше одного раза. */
+    private final BlockingQueue<Integer> files = new LinkedBlockingQueue<>();
+    /** Поле с очередью прочитанных частей файлов */
+    private final BlockingQueue<Chunk> chunks;
+    /** Поле с очередью разобранных записей */
+    private final BlockingQueue<Records> records;
+    /** Поле с очередью отчётов на запись */
+    private final BlockingQueue<List<Subscriber>> reports;
+    /** Поле с позициями после последней прочитанной строки. Используется только стадией чтения. */
+    private final long[] offsets = new long[MONTHS + 1];
+    /** Поле с идентификаторами прочитанных файлов для обнаружения замены. Используется только стадией чтения. */
+    private final Object[] fileKeys = new Object[MONTHS + 1];
+    /** Поле с состоянием обновления. Используется только стадией агрегации. */
+    private IncrementalState state;
+    /** Поле с абонентами, отчёты которых ещё не переданы на запись. Используется только стадией агрегации. */
+    private SubscriberTable dirty = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+    /** Поле с отметкой о том, что состояние изменилось после последнего сохранения */
+    private boolean stateChanged;
+    /** Поле с количеством переданных на запись пакетов отчётов. Используется только стадией агрегации. */
+    private long emitted;
+    /** Поле с количеством записанных пакетов отчётов */
+    private long written;
+    /** Поле с монитором, по которому стадия агрегации ждёт записи отчётов */
+    private final Object progress = new Object();
+    /** Поле с количеством прочитанных байтов */
+    private final LongAdder bytesRead = new LongAdder();
+    /** Поле с количеством разобранных записей */
+    private final LongAdder recordsParsed = new LongAdder();
+    /** Поле с количеством записанных отчётов */
+    private final LongAdder reportsWritten = new LongAdder();
+    /** Поле с первой ошибкой стадии */
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    /** Поле с потоками стадий */
+    private final List<Thread> threads = new ArrayList<>();
+    /** Поле с отслеживанием папки CDR файлов */
+    private WatchService watchService;
+    /** Поле с потоком вывода статистики */
+    private ScheduledExecutorService reporter;
+    /** Поле с отметкой о завершении работы */
+    private boolean closed;
+    /** Поле с количеством записей на момент прошлого вывода статистики */
+    private long lastRecords;
+    /** Поле с количеством байтов на момент прошлого вывода статистики */
+    private long lastBytes;
+    /** Поле с количеством отчётов на момент прошлого вывода статистики */
+    private long lastReports;
+    /** Конструктор - создание конвейера для папки CDR файлов и папки отчётов сервиса.
+     * Неверные записи дописываются в файл карантина сервиса.
+     * @see FileManager#getPathQuarantine(CDRFileFormat)
+     * */
+    public IngestPipeline() {
+        this(Path.of(FileManager.getDirectoryCDR()), Path.of(FileManager.getPathState(CDRFileFormat.TEXT)),
+                Path.of(FileManager.getDirectoryUDR()), DEFAULT_CAPACITY,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_STATUS_INTERVAL,
+                CDRValidation.lenient(), Path.of(FileManager.getPathQuarantine(CDRFileFormat.TEXT)));
+    }
+    /** Конструктор - создание конвейера.
+     * @param directory папка CDR файлов
+     * @param statePath путь к файлу состояния
+     * @param reportDirectory папка отчётов
+     * @param capacity размер очередей между стадиями
+     * @param writers количество потоков записи отчётов
+     * @param statusInterval интервал вывода статистики в миллисекундах, 0 - без вывода
+     * @param validation параметры проверки записей; в строгом режиме неверная запись останавливает конвейер
+     * @param quarantinePath путь к файлу карантина, в который дописываются неверные записи, или null
+     * */
+    IngestPipeline(@NotNull Path directory, @NotNull Path statePath, @NotNull Path reportDirectory,
+                   int capacity, int writers, long statusInterval,
+                   @NotNull CDRValidation validation, @Nullable Path quarantinePath)
+    {
+        if (capacity < 1) throw new IllegalArgumentException("Invalid queue capacity");
+        if (writers < 1) throw new IllegalArgumentException("Invalid number of threads");
+        this.directory = directory;
+        this.statePath = statePath;
+        this.reportDirectory = reportDirectory;
+        this.writers = writers;
+        this.statusInterval = statusInterval;
+        this.quarantine = new Quarantine(validation, quarantinePath, true);
+        this.chunks = new ArrayBlockingQueue<>(capacity);
+        this.records = new ArrayBlockingQueue<>(capacity);
+        this.reports = new ArrayBlockingQueue<>(capacity);
+        for (int month = 1; month <= MONTHS; month++) {
+            months.put(CDRFileFormat.TEXT.getFileName(month), month);
+            queued[month] = new AtomicBoolean();
+        }
+    }
+    /** Процедура запуска конвейера. Сначала дочитываются строки, дописанные с прошлого запуска,
+     * затем обрабатываются изменения папки CDR файлов.
+     * */
+    public synchronized void start() throws IOException {
+        if (watchService != null) throw new IllegalStateException("Pipeline is already started");
+        Files.createDirectories(directory);
+        List<Path> sources = new ArrayList<>(MONTHS);
+        for (int month = 1; month <= MONTHS; month++) {
+            sources.add(source(month));
+        }
+        IncrementalState loaded = IncrementalState.load(statePath, MONTHS, EXPECTED_SUBSCRIBERS);
+        state = loaded.matches(sources) ? loaded : new IncrementalState(MONTHS, EXPECTED_SUBSCRIBERS);
+        for (int month = 1; month <= MONTHS; month++) {
+            offsets[month] = state.getOffset(month - 1);
+        }
+
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        for (int month = 1; month <= MONTHS; month++) {
+            schedule(month);
+        }
+        threads.add(new Thread(this::watch, "cdr-watch"));
+        threads.add(new Thread(this::read, "cdr-read"));
+        threads.add(new Thread(this::parse, "cdr-parse"));
+        threads.add(new Thread(this::aggregate, "cdr-aggregate"));
+        threads.add(new Thread(this::write, "udr-write"));
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        if (statusInterval > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cdr-status");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(this::printStatus, statusInterval, statusInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+    /** Процедура ожидания завершения конвейера после close() или ошибки стадии. */
+    public void awaitTermination() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+    /** Процедура остановки конвейера. Уже поставленные в очередь файлы дочитываются,
+     * отчёты по ним записываются, а состояние сохраняется. Если в стадии возникла ошибка, то она выбрасывается здесь.
+     * */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed || watchService == null) return;
+        closed = true;
+        files.add(END_OF_FILES);
+        watchService.close();
+        try {
+            awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            if (reporter != null) reporter.shutdownNow();
+        }
+        if (statusInterval > 0) printStatus();
+        quarantine.close();
+        Exception error = failure.get();
+        if (error instanceof IOException e) throw e;
+        if (error != null) throw new IOException(error.getMessage(), error);
+    }
+    /** Функция получения количества разобранных записей.
+     * @return Количество записей с момента запуска
+     * */
+    public long getRecords() {
+        return recordsParsed.sum();
+    }
+    /** Функция получения количества записанных отчётов.
+     * @return Количество отчётов с момента запуска
+     * */
+    public long getReports() {
+        return reportsWritten.sum();
+    }
+    /** Функция получения итога проверки записей с момента запуска.
+     * @return Итог проверки
+     * */
+    public @NotNull ValidationSummary getValidationSummary() {
+        return quarantine.summary();
+    }
+    /** Функция получения строки с количеством обработанных данных и заполненностью очередей.
+     * @return Строка статистики
+     * */
+    public @NotNull String status() {
+        return String.format("Ingest: %d records, %d rejected, %.1f MB, %d reports | "
+                        + "queues: files %d, chunks %d, records %d, reports %d",
+                recordsParsed.sum(), quarantine.summary().totalRejected(), bytesRead.sum() / 1e6, reportsWritten.sum(),
+                files.size(), chunks.size(), records.size(), reports.size());
+    }
+
+    /** Процедура вывода в консоль скорости обработки с прошлого вывода и заполненности очередей. */
+    private void printStatus() {
+        long recordsNow = recordsParsed.sum();
+        long bytesNow = bytesRead.sum();
+        long reportsNow = reportsWritten.sum();
+        double seconds = statusInterval / 1000.0;
+        System.out.printf("%s | %.0f records/s, %.2f MB/s, %.0f reports/s%n", status(),
+                (recordsNow - lastRecords) / seconds, (bytesNow - lastBytes) / 1e6 / seconds,
+                (reportsNow - lastReports) / seconds);
+        lastRecords = recordsNow;
+        lastBytes = bytesNow;
+        lastReports = reportsNow;
+    }
+    /** Процедура стадии отслеживания: изменённые CDR файлы ставятся в очередь на чтение.
+     * При переполнении очереди событий на чтение ставятся все файлы.
+     * */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        for (int month = 1; month <= MONTHS; month++) schedule(month);
+                        continue;
+                    }
+                    Integer month = months.get(event.context().toString());
+                    if (month != null) schedule(month);
+                }
+                if (!key.reset()) throw new IOException("CDR directory is no longer accessible");
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // конвейер остановлен
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+    /** Процедура стадии чтения: из файла читаются строки, дописанные после последней прочитанной.
+     * */
+    private void read() {
+        try {
+            while (true) {
+                int month = files.take();
+                if (month == END_OF_FILES) {
+                    chunks.put(END);
+                    return;
+                }
+                queued[month].set(false);
+                readAppended(month);
+            }
+        } catch (InterruptedException e) {
+            // конвейер остановлен
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+    /** Процедура чтения дописанных строк файла частями не больше CHUNK_SIZE байт.
+     * Недописанная последняя строка откладывается до следующего изменения файла.
+     * Если файл заменён, удалён или стал короче, то все файлы ставятся в очередь на чтение с начала.
+     * @param month номер месяца
+     * */
+    private void readAppended(int month) throws IOException, InterruptedException {
+        Path path = source(month);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            if (offsets[month] > 0) reset();
+            return;
+        }
+        Object fileKey = attributes.fileKey();
+        if (attributes.size() < offsets[month]
+                || fileKeys[month] != null && fileKey != null && !fileKeys[month].equals(fileKey)) {
+            reset();
+            return;
+        }
+        fileKeys[month] = fileKey;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                long pos = offsets[month];
+                int capacity = (int) Math.min(CHUNK_SIZE, channel.size() - pos);
+                if (capacity <= 0) return;
+                byte[] bytes = new byte[capacity];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining() && channel.read(buffer, pos + buffer.position()) > 0) {
+                    // читаем до заполнения буфера
+                }
+                int length = buffer.position();
+                while (length > 0 && bytes[length - 1] != '\n') length--;
+                if (length == 0) {
+                    if (capacity == CHUNK_SIZE) throw new IOException("CDR line is longer than read chunk");
+                    return;
+                }
+                chunks.put(new Chunk(month, pos + length, bytes, length));
+                bytesRead.add(length);
+                READ_BYTES.add(length);
+                offsets[month] = pos + length;
+            }
+        }
+    }
+    /** Процедура перехода к построению итогового времени заново после замены файла. */
+    private void reset() throws InterruptedException {
+        for (int month = 1; month <= MONTHS; month++) {
+            offsets[month] = 0;
+            fileKeys[month] = null;
+        }
+        chunks.put(RESET);
+        for (int month = 1; month <= MONTHS; month++) {
+            schedule(month);
+        }
+    }
+    /** Процедура стадии разбора: строки части файла разбираются в столбцы записей.
+     * Неверные строки передаются карантину, а позиция части файла передаётся дальше целиком.
+     * */
+    private void parse() {
+        try {
+            while (true) {
+                Chunk chunk = chunks.take();
+                if (chunk.bytes() == null) {
+                    records.put(new Records(chunk.month(), 0, null, null, null, 0));
+                    if (chunk == END) return;
+                    continue;
+                }
+                long start = System.nanoTime();
+                int lines = 0;
+                for (int i = 0; i < chunk.length(); i++) {
+                    if (chunk.bytes()[i] == '\n') lines++;
+                }
+                long[] keys = new long[lines];
+                byte[] types = new byte[lines];
+                long[] durations = new long[lines];
+                int[] count = {0};
+                CDRReader.parse(ByteBuffer.wrap(chunk.bytes()), chunk.length(), (type, msisdn, callDuration) -> {
+                    keys[count[0]] = msisdn;
+                    types[count[0]] = (byte) type;
+                    durations[count[0]] = callDuration;
+                    count[0]++;
+                }, quarantine, chunk.month(), chunk.to() - chunk.length());
+                quarantine.accept(count[0]);
+                recordsParsed.add(count[0]);
+                PARSED_RECORDS.add(count[0]);
+                PARSE_CHUNK.recordSince(start);
+                records.put(new Records(chunk.month(), chunk.to(), keys, types, durations, count[0]));
+            }
+        } catch (InterruptedException e) {
+            // конвейер остановлен
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+    /** Процедура стадии агрегации: время записей прибавляется к итоговому времени абонентов.
+     * Отчёты изменившихся абонентов передаются на запись, когда записи кончаются или набирается BATCH_SIZE абонентов.
+     * Состояние сохраняется при простое и не реже CHECKPOINT_INTERVAL под нагрузкой.
+     * */
+    private void aggregate() {
+        try {
+            long lastCheckpoint = System.currentTimeMillis();
+            while (true) {
+                Records batch = records.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    checkpoint();
+                    lastCheckpoint = System.currentTimeMillis();
+                    continue;
+                }
+                if (batch.month() == END.month()) {
+                    checkpoint();
+                    reports.put(END_OF_REPORTS);
+                    return;
+                }
+                if (batch.month() == RESET.month()) {
+                    state = new IncrementalState(MONTHS, EXPECTED_SUBSCRIBERS);
+                    dirty = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+                    stateChanged = true;
+                    continue;
+                }
+                long start = System.nanoTime();
+                SubscriberTable totals = state.getTotals();
+                for (int i = 0; i < batch.size(); i++) {
+                    totals.add(batch.keys()[i], batch.types()[i], batch.durations()[i]);
+                    dirty.insert(batch.keys()[i]);
+                }
+                AGGREGATE.recordSince(start);
+                state.setOffset(batch.month() - 1, source(batch.month()), batch.to());
+                stateChanged = true;
+                if (dirty.size() >= BATCH_SIZE || records.isEmpty()) flush();
+                if (System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                    checkpoint();
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            // конвейер остановлен
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+    /** Процедура передачи отчётов изменившихся абонентов на запись. */
+    private void flush() throws InterruptedException {
+        if (dirty.size() == 0) return;
+        SubscriberTable totals = state.getTotals();
+        List<Subscriber> batch = new ArrayList<>(dirty.size());
+        for (int slot = 0; slot < dirty.capacity(); slot++) {
+            if (dirty.isOccupied(slot)) batch.add(totals.toSubscriber(totals.find(dirty.keyAt(slot))));
+        }
+        reports.put(batch);
+        emitted++;
+        dirty = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+    }
+    /** Процедура сохранения состояния. Перед сохранением стадия ждёт записи всех переданных отчётов,
+     * а строки карантина передаются в файл, поэтому сохранённые позиции никогда не опережают
+     * записанные отчёты и карантин.
+     * */
+    private void checkpoint() throws InterruptedException, IOException {
+        flush();
+        if (!stateChanged) return;
+        synchronized (progress) {
+            while (written < emitted) {
+                progress.wait();
+            }
+        }
+        quarantine.flush();
+        state.save(statePath);
+        stateChanged = false;
+    }
+    /** Процедура стадии записи: каждый пакет отчётов записывается отдельными файлами одним ReportWriter
+     * на всё время работы стадии, а пакет считается записанным после ожидания всех его отчётов.
+     * */
+    private void write() {
+        try (ReportWriter writer = new ReportWriter(ReportFormat.FILES, reportDirectory, writers)) {
+            while (true) {
+                List<Subscriber> batch = reports.take();
+                if (batch == END_OF_REPORTS) return;
+                for (Subscriber subscriber : batch) {
+                    writer.write(subscriber, -1);
+                }
+                writer.flush();
+                reportsWritten.add(batch.size());
+                synchronized (progress) {
+                    written++;
+                    progress.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // конвейер остановлен
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+    /** Процедура остановки всех стадий после ошибки. Состояние не сохраняется,
+     * поэтому при следующем запуске необработанные строки будут прочитаны снова.
+     * @param e ошибка стадии
+     * */
+    private void fail(@NotNull Exception e) {
+        if (!failure.compareAndSet(null, e)) return;
+        System.out.println(e.getMessage());
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // ошибка уже сохранена
+        }
+    }
+    /** Функция получения пути к CDR файлу месяца.
+     * @param month номер месяца
+     * @return Путь к CDR файлу
+     * */
+    private @NotNull Path source(int month) {
+        return directory.resolve(CDRFileFormat.TEXT.getFileName(month));
+    }
+    /** Процедура постановки файла в очередь на чтение, если его ещё нет в очереди.
+     * @param month номер месяца
+     * */
+    private void schedule(int month) {
+        if (!queued[month].getAndSet(true)) files.add(month);
+    }
+
+    /** Часть CDR файла из целых строк, month 0 - отметка о замене файла, -1 - о завершении работы. */
+    private record Chunk(int month, long to, byte[] bytes, int length) {
+    }
+
+    /** Разобранные записи части CDR файла по столбцам. */
+    private record Records(int month, long to, long[] keys, byte[] types, long[] durations, int size) {
+    }
+}
@@ -0,0 +1,71 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** Накопитель данных по заданному набору абонентов с разбивкой по месяцам.
+ * Данные копятся только для отслеживаемых номеров, записи остальных абонентов пропускаются,
+ * поэтому отчёты по любому количеству абонентов строятся за один проход по CDR файлам.
+ * Все отслеживаемые номера добавляются в таблицу заранее, поэтому при чтении структура таблицы
+ * не меняется и разные месяцы можно заполнять параллельно.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see SubscriberTable
+ * */
+class MonthlyAccumulator {
+    /** Поле с количеством месяцев в периоде тарификации */
+    public static final int MONTHS = 12;
+    /** Поле с таблицей отслеживаемых абонентов с разбивкой по месяцам */
+    private final SubscriberTable table;
+    /** Поле с отслеживаемыми номерами в порядке добавления */
+    private final List<String> msisdns = new ArrayList<>();
+    /** Конструктор - создание нового накопителя для заданного набора номеров.
+     * Номера длиннее MsisdnCodec.MAX_DIGITS не могут встретиться в CDR файле и пропускаются.
+     * @param msisdns номера отслеживаемых абонентов
+     * @see MsisdnCodec
+     * */
+    public MonthlyAccumulator(@NotNull Collection<String> msisdns) {
+        this.table = new SubscriberTable(msisdns.size(), true);
+        for (String msisdn : msisdns) {
+            if (msisdn.length() > MsisdnCodec.MAX_DIGITS) continue;
+            long key = MsisdnCodec.encode(msisdn);
+            if (table.find(key) < 0) {
+                table.insert(key);
+                this.msisdns.add(msisdn);
+            }
+        }
+    }
+    /** Процедура прибавления времени звонка абоненту за месяц.
+     * Записи неотслеживаемых абонентов пропускаются.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param month номер месяца
+     * @param type тип звонка
+     * @param callDuration продолжительность звонка
+     * */
+    public void add(long msisdn, int month, int type, long callDuration) throws IllegalArgumentException {
+        int slot = table.find(msisdn);
+        if (slot >= 0) table.addAt(slot, month, type, callDuration);
+    }
+    /** Функция получения накопленных данных абонента за месяц.
+     * @param msisdn номер мобильного абонента
+     * @param month номер месяца
+     * @return Абонент за месяц или null, если звонков не было
+     * */
+    public @Nullable Subscriber get(String msisdn, int month) {
+        if (msisdn.length() > MsisdnCodec.MAX_DIGITS) return null;
+        int slot = table.find(MsisdnCodec.encode(msisdn));
+        if (slot < 0 || !table.hasCalls(slot, month)) return null;
+        return table.toSubscriber(slot, month);
+    }
+    /** Функция получения отслеживаемых номеров в порядке добавления.
+     * @return Номера отслеживаемых абонентов
+     * */
+    public @NotNull Collection<String> getMsisdns() {
+        return msisdns;
+    }
+}
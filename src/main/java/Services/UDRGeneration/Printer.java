@@ -1,41 +1,358 @@
 package Services.UDRGeneration;
 
+import Services.CDRFormat.MsisdnCodec;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+
 /** Сервис для вывода данных UDR файлов в консоль в виде таблиц.
+ *  Строки таблицы записываются прямо из номера и времени в секундах в один переиспользуемый StringBuilder
+ *  без String.format и передаются в консоль частями по FLUSH_SIZE символов, а не по строке.
+ *  Поэтому вывод нужно завершить вызовом close() или flush(), а другие сообщения в ту же таблицу
+ *  выводить через printMessage, чтобы не нарушить порядок строк.
+ *  Итоговая таблица может выводиться не целиком, а в режиме TableView: первые N, по порядку или страницей.
  *  @author Никита Дюков
- *  @version 1.0
+ *  @version 2.2
+ *  @see TableView
  */
-class Printer {
-    public static void printHeaderTotal() {
-        System.out.format("+--------------+----------------+-----------------+%n");
-        System.out.format("| Phone number | Incoming calls | Outcoming calls |%n");
-        System.out.format("+--------------+----------------+-----------------+%n");
+final class Printer implements Flushable, Closeable {
+    /** Поле с количеством символов, после которого буфер передаётся в консоль */
+    private static final int FLUSH_SIZE = 64 << 10;
+    /** Поле с разделителем строк */
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final String BORDER_TOTAL = "+--------------+----------------+-----------------+";
+    private static final String BORDER_PER_MONTH = "+-------+--------------+----------------+-----------------+";
+    private static final String BORDER_MESSAGE = "+---------------------------------------------------------+";
+    private static final String BORDER_SUMMARY = "+-------------------------------------------------+";
+    /** Поле с консолью или другим потоком вывода */
+    private final PrintStream out;
+    /** Поле с буфером ещё не выведенных строк */
+    private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 256);
+    /** Конструктор - создание вывода в консоль. */
+    public Printer() {
+        this(System.out);
+    }
+    /** Конструктор - создание вывода в заданный поток.
+     * @param out поток вывода
+     * */
+    public Printer(@NotNull PrintStream out) {
+        this.out = out;
+    }
+
+    public void printHeaderTotal() {
+        line(BORDER_TOTAL);
+        line("| Phone number | Incoming calls | Outcoming calls |");
+        line(BORDER_TOTAL);
+    }
+
+    public void printHeaderPerMonth() {
+        line(BORDER_PER_MONTH);
+        line("| Month | Phone number | Incoming calls | Outcoming calls |");
+        line(BORDER_PER_MONTH);
+    }
+
+    public void printSubscriberTotal(@NotNull Subscriber subscriber) {
+        buffer.append("| ");
+        cell(subscriber.getMsisdn(), 12);
+        rowTotal(subscriber.getIncomingCall().getTotalSeconds(), subscriber.getOutcomingCall().getTotalSeconds());
+    }
+    /** Процедура вывода строки итоговой таблицы прямо из полей таблицы абонентов.
+     * @param msisdn номер абонента в виде MsisdnCodec
+     * @param incoming время входящих звонков в секундах
+     * @param outgoing время исходящих звонков в секундах
+     * */
+    public void printSubscriberTotal(long msisdn, long incoming, long outgoing) {
+        buffer.append("| ");
+        pad(MsisdnCodec.appendTo(buffer, msisdn), 12);
+        rowTotal(incoming, outgoing);
+    }
+
+    public void printSubscriberPerMonth(@NotNull Subscriber subscriber, int month) {
+        buffer.append("| ");
+        int start = buffer.length();
+        buffer.append(month);
+        pad(buffer.length() - start, 5);
+        buffer.append(" | ");
+        cell(subscriber.getMsisdn(), 12);
+        buffer.append(" | ");
+        time(subscriber.getIncomingCall().getTotalSeconds(), 14);
+        buffer.append(" | ");
+        time(subscriber.getOutcomingCall().getTotalSeconds(), 15);
+        buffer.append(" |").append(NEW_LINE);
+        line(BORDER_PER_MONTH);
+    }
+
+    public void printNoCalls() {
+        buffer.append("| ");
+        cell("No calls were made", 55);
+        buffer.append(" |").append(NEW_LINE);
+        line(BORDER_MESSAGE);
+    }
+    /** Процедура вывода итога проверки CDR файлов: количество неверных записей по причинам,
+     * отсутствующие файлы и название файла карантина.
+     * @param summary итог проверки
+     * */
+    public void printValidation(@NotNull ValidationSummary summary) {
+        line(BORDER_MESSAGE);
+        long rejected = summary.totalRejected();
+        messageRow("Rejected CDR records: " + rejected + " of " + (summary.accepted() + rejected));
+        for (Map.Entry<CDRError, Long> entry : summary.rejected().entrySet()) {
+            messageRow("  " + entry.getKey().name() + ": " + entry.getValue());
+        }
+        if (!summary.missingMonths().isEmpty()) {
+            StringBuilder months = new StringBuilder("Missing CDR files for months:");
+            for (int month : summary.missingMonths()) months.append(' ').append(month);
+            messageRow(months.toString());
+        }
+        if (summary.quarantine() != null) {
+            messageRow("Quarantine: " + summary.quarantine().getFileName());
+        }
+        line(BORDER_MESSAGE);
+    }
+    /** Процедура вывода сообщения между строками таблицы, например об ошибке.
+     * @param message сообщение
+     * */
+    public void printMessage(@NotNull String message) {
+        line(message);
+    }
+    /** Процедура вывода итоговой таблицы по таблице абонентов в заданном режиме.
+     * Для режима с сортировкой выбираются только offset + limit лучших строк кучей ограниченного размера,
+     * поэтому вывод первых N из миллионов абонентов не сортирует всю таблицу.
+     * Если выведены не все строки, то после таблицы выводится, какие строки показаны.
+     * @param table таблица абонентов
+     * @param view режим вывода
+     * */
+    public void printTotals(@NotNull SubscriberTable table, @NotNull TableView view) {
+        printHeaderTotal();
+        int size = table.size();
+        long end = Math.min((long) view.getOffset() + view.getLimit(), size);
+        int shown = 0;
+        if (view.getOffset() < end) {
+            if (view.getOrder() == TableView.Order.NATURAL) {
+                int row = 0;
+                for (int slot = 0; slot < table.capacity() && row < end; slot++) {
+                    if (!table.isOccupied(slot)) continue;
+                    if (row++ < view.getOffset()) continue;
+                    printSubscriberTotal(table.keyAt(slot), table.incomingAt(slot), table.outgoingAt(slot));
+                    shown++;
+                }
+            } else {
+                int[] slots = select(table, view.getOrder(), (int) end);
+                for (int i = view.getOffset(); i < slots.length; i++) {
+                    printSubscriberTotal(table.keyAt(slots[i]), table.incomingAt(slots[i]), table.outgoingAt(slots[i]));
+                    shown++;
+                }
+            }
+        }
+        printSummary(view, shown, size);
+    }
+    /** Процедура вывода итоговой таблицы по абонентам, которые идут по возрастанию номера, в заданном режиме.
+     * Используется, когда абоненты не помещаются в память: строки в режимах NATURAL и MSISDN выводятся
+     * по мере чтения, а для режима TOTAL_TIME в памяти хранится не больше 2 * (offset + limit) строк-кандидатов.
+     * @param rows абоненты по возрастанию номера
+     * @param size количество абонентов
+     * @param view режим вывода
+     * @see SpillingAggregator#openAll()
+     * */
+    public void printTotals(@NotNull SpillingAggregator.Cursor rows, int size, @NotNull TableView view)
+            throws IOException
+    {
+        printHeaderTotal();
+        long end = Math.min((long) view.getOffset() + view.getLimit(), size);
+        int shown = 0;
+        if (view.getOffset() < end) {
+            if (view.getOrder() != TableView.Order.TOTAL_TIME) {
+                int row = 0;
+                while (row < end && rows.next()) {
+                    if (row++ < view.getOffset()) continue;
+                    printSubscriberTotal(rows.key(), rows.incoming(), rows.outgoing());
+                    shown++;
+                }
+            } else {
+                SubscriberTable candidates = new SubscriberTable((int) Math.min(2 * end, 1024));
+                while (rows.next()) {
+                    int slot = candidates.insert(rows.key());
+                    candidates.addAt(slot, 1, 2, rows.incoming());
+                    candidates.addAt(slot, 1, 1, rows.outgoing());
+                    if (candidates.size() >= 2 * end) candidates = keep(candidates, view.getOrder(), (int) end);
+                }
+                int[] slots = select(candidates, view.getOrder(), (int) end);
+                for (int i = view.getOffset(); i < slots.length; i++) {
+                    printSubscriberTotal(candidates.keyAt(slots[i]), candidates.incomingAt(slots[i]),
+                            candidates.outgoingAt(slots[i]));
+                    shown++;
+                }
+            }
+        }
+        printSummary(view, shown, size);
+    }
+    /** Процедура передачи накопленных строк в консоль. */
+    @Override
+    public void flush() {
+        if (buffer.length() > 0) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+    /** Процедура завершения вывода. Консоль не закрывается. */
+    @Override
+    public void close() {
+        flush();
     }
 
-    public static void printHeaderPerMonth() {
-        System.out.format("+-------+--------------+----------------+-----------------+%n");
-        System.out.format("| Month | Phone number | Incoming calls | Outcoming calls |%n");
-        System.out.format("+-------+--------------+----------------+-----------------+%n");
+    private void rowTotal(long incoming, long outgoing) {
+        buffer.append(" | ");
+        time(incoming, 14);
+        buffer.append(" | ");
+        time(outgoing, 15);
+        buffer.append(" |").append(NEW_LINE);
+        line(BORDER_TOTAL);
+    }
+
+    private void line(@NotNull String text) {
+        buffer.append(text).append(NEW_LINE);
+        if (buffer.length() >= FLUSH_SIZE) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    private void messageRow(@NotNull String text) {
+        buffer.append("| ");
+        cell(text, 55);
+        buffer.append(" |").append(NEW_LINE);
+    }
+
+    private void cell(@NotNull String text, int width) {
+        buffer.append(text);
+        pad(text.length(), width);
+    }
+    /** Процедура записи времени в формате hh:mm:ss, как в Call.format(long), с выравниванием по левому краю.
+     * @param seconds время в секундах
+     * @param width ширина столбца
+     * @see Call#format(long)
+     * */
+    private void time(long seconds, int width) {
+        int start = buffer.length();
+        twoDigits(seconds / 3600);
+        buffer.append(':');
+        twoDigits((seconds % 3600) / 60);
+        buffer.append(':');
+        twoDigits(seconds % 60);
+        pad(buffer.length() - start, width);
+    }
+
+    private void twoDigits(long value) {
+        if (value < 10) buffer.append('0');
+        buffer.append(value);
+    }
+
+    private void pad(int length, int width) {
+        for (int i = length; i < width; i++) buffer.append(' ');
+    }
+    /** Процедура вывода после таблицы, какие строки показаны, если выведены не все строки.
+     * @param view режим вывода
+     * @param shown количество выведенных строк
+     * @param size количество абонентов
+     * */
+    private void printSummary(@NotNull TableView view, int shown, int size) {
+        if (view.isComplete()) return;
+        buffer.append("| ");
+        int start = buffer.length();
+        if (shown == 0) buffer.append("Rows 0");
+        else buffer.append("Rows ").append(view.getOffset() + 1).append('-').append(view.getOffset() + shown);
+        buffer.append(" of ").append(size);
+        pad(buffer.length() - start, BORDER_SUMMARY.length() - 4);
+        buffer.append(" |").append(NEW_LINE);
+        line(BORDER_SUMMARY);
+    }
+    /** Функция получения таблицы только с первыми строками таблицы в заданном порядке.
+     * @param table таблица абонентов
+     * @param order порядок строк
+     * @param count количество строк
+     * @return Новая таблица с первыми count абонентами
+     * */
+    private static @NotNull SubscriberTable keep(@NotNull SubscriberTable table, @NotNull TableView.Order order,
+                                                 int count)
+    {
+        SubscriberTable kept = new SubscriberTable(2 * count);
+        for (int slot : select(table, order, count)) {
+            int target = kept.insert(table.keyAt(slot));
+            kept.addAt(target, 1, 2, table.incomingAt(slot));
+            kept.addAt(target, 1, 1, table.outgoingAt(slot));
+        }
+        return kept;
+    }
+    /** Функция выбора первых строк таблицы в заданном порядке.
+     * @param table таблица абонентов
+     * @param order порядок строк
+     * @param count количество строк
+     * @return Ячейки первых count абонентов в заданном порядке
+     * */
+    private static int @NotNull [] select(@NotNull SubscriberTable table, @NotNull TableView.Order order, int count) {
+        int[] heap = new int[count];
+        int size = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (!table.isOccupied(slot)) continue;
+            if (size < count) {
+                heap[size] = slot;
+                siftUp(table, order, heap, size++);
+            } else if (count > 0 && before(table, order, slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(table, order, heap, size);
+            }
+        }
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(table, order, heap, i);
+        }
+        return sorted;
+    }
+    /** Функция сравнения строк: в корне кучи хранится строка, которая выводится последней. */
+    private static boolean before(@NotNull SubscriberTable table, @NotNull TableView.Order order, int first, int second) {
+        if (order == TableView.Order.TOTAL_TIME) {
+            long firstTotal = table.incomingAt(first) + table.outgoingAt(first);
+            long secondTotal = table.incomingAt(second) + table.outgoingAt(second);
+            if (firstTotal != secondTotal) return firstTotal > secondTotal;
+        }
+        return table.keyAt(first) < table.keyAt(second);
     }
 
-    public static void printSubscriberTotal(@NotNull Subscriber subscriber) {
-        String[] data = subscriber.toString().split(",");
-        String alignFormat = "| %-12s | %-14s | %-15s |%n";
-        System.out.format(alignFormat, data[0], data[1], data[2]);
-        System.out.format("+--------------+----------------+-----------------+%n");
+    private static void siftUp(@NotNull SubscriberTable table, @NotNull TableView.Order order, int @NotNull [] heap,
+                               int index)
+    {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(table, order, heap[parent], heap[index])) return;
+            swap(heap, parent, index);
+            index = parent;
+        }
     }
 
-    public static void printSubscriberPerMonth(@NotNull Subscriber subscriber, @NotNull Integer month) {
-        String[] data = subscriber.toString().split(",");
-        String alignFormat = "| %-5s | %-12s | %-14s | %-15s |%n";
-        System.out.format(alignFormat, month, data[0], data[1], data[2]);
-        System.out.format("+-------+--------------+----------------+-----------------+%n");
+    private static void siftDown(@NotNull SubscriberTable table, @NotNull TableView.Order order, int @NotNull [] heap,
+                                 int size)
+    {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) return;
+            if (child + 1 < size && before(table, order, heap[child], heap[child + 1])) child++;
+            if (!before(table, order, heap[index], heap[child])) return;
+            swap(heap, index, child);
+            index = child;
+        }
     }
 
-    public static void printNoCalls() {
-        String alignFormat = "| %-55s |%n";
-        System.out.format(alignFormat, "No calls were made");
-        System.out.format("+---------------------------------------------------------+%n");
+    private static void swap(int @NotNull [] heap, int first, int second) {
+        int value = heap[first];
+        heap[first] = heap[second];
+        heap[second] = value;
     }
 }
@@ -0,0 +1,212 @@
+package Services.UDRGeneration;
+
+import Services.Metrics.Counter;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Карантин неверных записей CDR файлов.
+ * Разбор строки сам определяет причину ошибки, поэтому верные записи проверяются только сравнениями примитивов,
+ * а строка декодируется в текст только для неверной записи.
+ * Неверные записи считаются по причинам в LongAdder без блокировок. В строгом режиме неверная запись
+ * выбрасывает исключение, в мягком - дописывается в файл карантина строкой
+ * <pre>
+ *   месяц TAB позиция строки в файле TAB причина TAB исходная строка
+ * </pre>
+ * Файл открывается при первой неверной записи и перезаписывается для нового карантина, если карантин
+ * не создан для дописывания; после закрытия следующая неверная запись дописывается в конец файла.
+ * Карантин используется из нескольких потоков чтения одновременно.
+ * @author Никита Дюков
+ * @version 1.2
+ * @see CDRValidation
+ * @see CDRError
+ * @see FileManager#getPathQuarantine(Services.CDRFormat.CDRFileFormat)
+ * */
+final class Quarantine implements Flushable, Closeable {
+    /** Поле со строгим карантином без ограничения периода и без файла */
+    static final Quarantine STRICT = new Quarantine(CDRValidation.strict(), null);
+    /** Поле с количеством неверных записей по причинам во всех карантинах */
+    private static final Counter[] REJECTED = new Counter[CDRError.values().length];
+
+    static {
+        for (CDRError error : CDRError.values()) {
+            REJECTED[error.ordinal()] = Metrics.global().counter("udr.validate." + error.name().toLowerCase());
+        }
+    }
+
+    /** Поле с параметрами проверки */
+    private final CDRValidation validation;
+    /** Поле с признаком мягкого режима */
+    private final boolean lenient;
+    /** Поле с началом тарифицируемого периода */
+    private final long periodStart;
+    /** Поле с концом тарифицируемого периода */
+    private final long periodEnd;
+    /** Поле с путём к файлу карантина или null */
+    private final Path path;
+    /** Поле с признаком дописывания в существующий файл карантина */
+    private final boolean append;
+    /** Поле с количеством принятых записей */
+    private final LongAdder accepted = new LongAdder();
+    /** Поле с количеством неверных записей по причинам */
+    private final LongAdder[] rejected = new LongAdder[CDRError.values().length];
+    /** Поле с номерами месяцев, CDR файлов которых нет */
+    private final Set<Integer> missing = new ConcurrentSkipListSet<>();
+    /** Поле с записью файла карантина, открывается при первой неверной записи */
+    private BufferedWriter writer;
+    /** Поле с отметкой о том, что файл карантина уже создан */
+    private boolean opened;
+    /** Конструктор - создание карантина.
+     * @param validation параметры проверки
+     * @param path путь к файлу карантина, null - неверные записи только считаются
+     * */
+    public Quarantine(@NotNull CDRValidation validation, @Nullable Path path) {
+        this(validation, path, false);
+    }
+    /** Конструктор - создание карантина.
+     * @param validation параметры проверки
+     * @param path путь к файлу карантина, null - неверные записи только считаются
+     * @param append true - неверные записи дописываются к существующему файлу, false - файл перезаписывается
+     * */
+    public Quarantine(@NotNull CDRValidation validation, @Nullable Path path, boolean append) {
+        this.validation = validation;
+        this.lenient = validation.getMode() == CDRValidation.Mode.LENIENT;
+        this.periodStart = validation.getPeriodStart();
+        this.periodEnd = validation.getPeriodEnd();
+        this.path = path;
+        this.append = append;
+        for (int i = 0; i < rejected.length; i++) rejected[i] = new LongAdder();
+    }
+    /** Функция получения параметров проверки.
+     * @return Параметры проверки
+     * */
+    public @NotNull CDRValidation getValidation() {
+        return validation;
+    }
+    /** Функция проверки полей разобранной записи.
+     * @param type тип звонка
+     * @param startOfCall время начала звонка
+     * @param callDuration продолжительность звонка
+     * @return Причина ошибки или null, если запись верна
+     * */
+    public @Nullable CDRError check(int type, long startOfCall, long callDuration) {
+        if (type != 1 && type != 2) return CDRError.UNKNOWN_TYPE;
+        if (callDuration < 0) return CDRError.NEGATIVE_DURATION;
+        if (startOfCall < periodStart || startOfCall >= periodEnd) return CDRError.OUT_OF_PERIOD;
+        return null;
+    }
+    /** Процедура учёта принятых записей.
+     * @param records количество записей
+     * */
+    public void accept(long records) {
+        accepted.add(records);
+    }
+    /** Процедура обработки неверной строки текстового CDR файла.
+     * @param error причина
+     * @param month номер месяца
+     * @param position позиция строки в файле
+     * @param buffer буфер со строкой
+     * @param start начало строки
+     * @param end конец строки, не включая перенос
+     * @see Quarantine#reject(CDRError, int, long, String)
+     * */
+    public void reject(@NotNull CDRError error, int month, long position, @NotNull ByteBuffer buffer,
+                       int start, int end) throws IllegalArgumentException, UncheckedIOException
+    {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        reject(error, month, position, new String(bytes, StandardCharsets.US_ASCII));
+    }
+    /** Процедура обработки неверной записи. Запись учитывается, после чего в строгом режиме
+     * выбрасывается исключение, а в мягком - запись дописывается в файл карантина.
+     * @param error причина
+     * @param month номер месяца
+     * @param position позиция записи в файле, -1 - неизвестна
+     * @param line запись в виде строки CDR файла
+     * */
+    public void reject(@NotNull CDRError error, int month, long position, @NotNull String line)
+            throws IllegalArgumentException, UncheckedIOException
+    {
+        rejected[error.ordinal()].increment();
+        REJECTED[error.ordinal()].increment();
+        if (!lenient) {
+            if (error == CDRError.NON_NUMERIC) throw new NumberFormatException("For input string: \"" + line + "\"");
+            throw new IllegalArgumentException(error.getMessage());
+        }
+        if (path == null) return;
+        synchronized (this) {
+            try {
+                if (writer == null) {
+                    Files.createDirectories(path.toAbsolutePath().getParent());
+                    writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, opened || append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+                    opened = true;
+                }
+                writer.append(String.valueOf(month)).append('\t')
+                        .append(position < 0 ? "-" : String.valueOf(position)).append('\t')
+                        .append(error.name()).append('\t')
+                        .append(line).append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    /** Функция обработки отсутствующего CDR файла.
+     * @param month номер месяца
+     * @return true, если файл считается пустым (мягкий режим), false - если это ошибка
+     * */
+    public boolean missing(int month) {
+        if (!lenient) return false;
+        missing.add(month);
+        return true;
+    }
+    /** Функция получения итога проверки.
+     * @return Итог проверки
+     * */
+    public @NotNull ValidationSummary summary() {
+        Map<CDRError, Long> counts = new EnumMap<>(CDRError.class);
+        for (CDRError error : CDRError.values()) {
+            long count = rejected[error.ordinal()].sum();
+            if (count > 0) counts.put(error, count);
+        }
+        boolean written;
+        synchronized (this) {
+            written = opened;
+        }
+        List<Integer> months = Collections.unmodifiableList(new ArrayList<>(missing));
+        return new ValidationSummary(accepted.sum(), Collections.unmodifiableMap(counts), months,
+                written ? path : null);
+    }
+    /** Процедура передачи записанных строк карантина в файл. */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (writer != null) writer.flush();
+    }
+    /** Процедура закрытия файла карантина. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
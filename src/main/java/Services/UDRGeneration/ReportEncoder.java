@@ -0,0 +1,133 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Буфер для записи UDR отчётов в формате JSON без рефлексии.
+ * Отчёт записывается сразу в байты: номер абонента состоит только из цифр, а время звонков
+ * из цифр и двоеточий, поэтому кодировать строки и экранировать символы не нужно.
+ * Поля идут в том же порядке, что и при записи через Gson, но без отступов.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see ReportWriter
+ * */
+final class ReportEncoder {
+    private static final byte[] MSISDN = bytes("{\"msisdn\":\"");
+    private static final byte[] MONTH = bytes("\",\"month\":");
+    private static final byte[] INCOMING = bytes(",\"incomingCall\":{\"totalTime\":\"");
+    private static final byte[] INCOMING_AFTER_MSISDN = bytes("\",\"incomingCall\":{\"totalTime\":\"");
+    private static final byte[] OUTCOMING = bytes("\"},\"outcomingCall\":{\"totalTime\":\"");
+    private static final byte[] END = bytes("\"}}");
+    /** Поле с байтами буфера */
+    private byte[] buffer;
+    /** Поле с количеством записанных байтов */
+    private int length;
+    /** Конструктор - создание пустого буфера.
+     * @param capacity начальный размер буфера в байтах
+     * */
+    public ReportEncoder(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 128)];
+    }
+    /** Процедура записи отчёта в буфер.
+     * @param subscriber абонент
+     * @param month номер месяца, записывается в отчёт, если больше 0
+     * */
+    public void append(@NotNull Subscriber subscriber, int month) {
+        String msisdn = subscriber.getMsisdn();
+        ensure(msisdn.length() + 192);
+        put(MSISDN);
+        for (int i = 0; i < msisdn.length(); i++) buffer[length++] = (byte) msisdn.charAt(i);
+        if (month > 0) {
+            put(MONTH);
+            putLong(month, 1);
+            put(INCOMING);
+        } else {
+            put(INCOMING_AFTER_MSISDN);
+        }
+        putTime(subscriber.getIncomingCall().getTotalSeconds());
+        put(OUTCOMING);
+        putTime(subscriber.getOutcomingCall().getTotalSeconds());
+        put(END);
+    }
+    /** Процедура записи перевода строки в буфер. */
+    public void appendNewLine() {
+        ensure(1);
+        buffer[length++] = '\n';
+    }
+    /** Процедура записи одного символа ASCII в буфер, например скобки или запятой массива JSON.
+     * @param symbol символ
+     * */
+    public void appendByte(char symbol) {
+        ensure(1);
+        buffer[length++] = (byte) symbol;
+    }
+    /** Процедура очистки буфера. Выделенная память сохраняется для следующих отчётов. */
+    public void reset() {
+        length = 0;
+    }
+    /** Функция получения количества записанных байтов.
+     * @return Количество байтов
+     * */
+    public int length() {
+        return length;
+    }
+    /** Процедура записи содержимого буфера в поток.
+     * @param out поток
+     * */
+    public void writeTo(@NotNull OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+    /** Функция получения копии содержимого буфера.
+     * @return Записанные байты
+     * */
+    public byte @NotNull [] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+    /** Функция получения содержимого буфера в формате строки.
+     * @return Строка с отчётами
+     * */
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+    /** Процедура записи времени в формате hh:mm:ss, как в Call.format(long).
+     * @param seconds время в секундах
+     * @see Call#format(long)
+     * */
+    private void putTime(long seconds) {
+        putLong(seconds / 3600, 2);
+        buffer[length++] = ':';
+        putLong((seconds % 3600) / 60, 2);
+        buffer[length++] = ':';
+        putLong(seconds % 60, 2);
+    }
+
+    private void putLong(long value, int minDigits) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        digits = Math.max(digits, minDigits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void put(byte @NotNull [] bytes) {
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + extra));
+        }
+    }
+
+    private static byte @NotNull [] bytes(@NotNull String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,15 @@
+package Services.UDRGeneration;
+
+/** Формат вывода UDR отчётов.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see ReportWriter
+ * */
+public enum ReportFormat {
+    /** Отдельный JSON-файл на каждый отчёт: номер.json или номер_месяц.json */
+    FILES,
+    /** Один файл reports.ndjson, в котором каждый отчёт записан отдельной строкой */
+    NDJSON,
+    /** Файлы reports_префикс.ndjson, в которые отчёты распределяются по первым цифрам номера */
+    SHARDED
+}
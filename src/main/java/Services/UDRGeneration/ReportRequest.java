@@ -0,0 +1,30 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Запрос отчёта по одному абоненту для пакетной генерации отчётов.
+ * @param msisdn номер мобильного абонента
+ * @param month номер месяца от 1 до 12 или ALL_MONTHS - отчёты за каждый месяц
+ * @author Никита Дюков
+ * @version 1.0
+ * @see UDRGenerationService#generateBatch(java.util.Collection)
+ * */
+public record ReportRequest(@NotNull String msisdn, int month) {
+    /** Поле с номером месяца, означающим отчёты за каждый месяц */
+    public static final int ALL_MONTHS = 0;
+    /** Функция создания запроса отчётов по абоненту за каждый месяц.
+     * @param msisdn номер мобильного абонента
+     * @return Запрос
+     * */
+    public static @NotNull ReportRequest of(@NotNull String msisdn) {
+        return new ReportRequest(msisdn, ALL_MONTHS);
+    }
+    /** Функция создания запроса отчёта по абоненту за месяц.
+     * @param msisdn номер мобильного абонента
+     * @param month номер месяца
+     * @return Запрос
+     * */
+    public static @NotNull ReportRequest of(@NotNull String msisdn, int month) {
+        return new ReportRequest(msisdn, month);
+    }
+}
@@ -0,0 +1,24 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SortedMap;
+
+/** Результат обработки одного запроса пакетной генерации отчётов.
+ * @param request запрос
+ * @param reports отчёты в формате JSON по номеру месяца, только за месяцы со звонками
+ * @param error сообщение об ошибке или null, если запрос обработан
+ * @author Никита Дюков
+ * @version 1.0
+ * @see UDRGenerationService#generateBatch(java.util.Collection)
+ * */
+public record ReportResult(@NotNull ReportRequest request, @NotNull SortedMap<Integer, String> reports,
+                           @Nullable String error) {
+    /** Функция проверки, что запрос обработан без ошибок.
+     * @return true, если ошибки не было
+     * */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
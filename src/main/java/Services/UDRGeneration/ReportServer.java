@@ -0,0 +1,319 @@
+package Services.UDRGeneration;
+
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/** Встроенный HTTP сервер отчётов на com.sun.net.httpserver.
+ * <pre>
+ *   GET /udr/{msisdn}          - массив отчётов абонента за месяцы со звонками
+ *   GET /udr/{msisdn}/{month}  - отчёт абонента за месяц
+ * </pre>
+ * Данные берутся из индекса итогового времени по месяцам, а не из файлов отчётов.
+ * Готовые ответы в формате JSON хранятся в кэше LRU ограниченного размера. Каждый ответ имеет ETag,
+ * поэтому повторный запрос с If-None-Match получает 304 без тела. Актуальность индекса проверяется
+ * не чаще раза в REFRESH_INTERVAL; если CDR файлы изменились, то индекс строится заново, а кэш очищается.
+ * Сокеты работают с TCP_NODELAY, если свойство sun.net.httpserver.nodelay не задано явно.
+ * Количество запросов, попаданий в кэш и время ответа учитываются в метриках.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see AggregateIndex
+ * @see UDRGenerationService#obtainIndex()
+ * */
+public final class ReportServer implements Closeable {
+    /** Поле с путём, по которому отвечает сервер */
+    private static final String CONTEXT = "/udr/";
+    /** Поле с шаблоном пути запроса: номер и необязательный месяц */
+    private static final Pattern PATH = Pattern.compile("/udr/([0-9]+)(?:/([0-9]{1,2}))?/?");
+    /** Поле с интервалом проверки актуальности индекса в миллисекундах */
+    private static final long REFRESH_INTERVAL = 1_000;
+    /** Поле с размером кэша ответов по умолчанию */
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    /** Поле с количеством запросов */
+    private static final Counter REQUESTS = Metrics.global().counter("udr.http.requests");
+    /** Поле с количеством ответов из кэша */
+    private static final Counter CACHE_HITS = Metrics.global().counter("udr.http.cache.hits");
+    /** Поле с количеством ответов 304 */
+    private static final Counter NOT_MODIFIED = Metrics.global().counter("udr.http.not_modified");
+    /** Поле с длительностью обработки запроса */
+    private static final Histogram REQUEST = Metrics.global().histogram("udr.http.request");
+    static {
+        // без TCP_NODELAY заголовки и тело ответа уходят разными пакетами и ждут задержанного подтверждения ~40 мс
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    /** Поле с источником актуального индекса */
+    private final Supplier<AggregateIndex> source;
+    /** Поле с размером кэша ответов */
+    private final int cacheSize;
+    /** Поле с HTTP сервером */
+    private final HttpServer server;
+    /** Поле с потоками обработки запросов */
+    private final ExecutorService executor;
+    /** Поле с текущим индексом и кэшем ответов по нему */
+    private volatile Snapshot snapshot;
+    /** Конструктор - создание сервера для сервиса отчётов.
+     * @param service сервис, индекс которого используется
+     * @param port порт, 0 - любой свободный
+     * */
+    public ReportServer(@NotNull UDRGenerationService service, int port) throws IOException {
+        this(service::obtainIndex, new InetSocketAddress(port), DEFAULT_CACHE_SIZE,
+                Runtime.getRuntime().availableProcessors());
+    }
+    /** Конструктор - создание сервера.
+     * @param source источник актуального индекса, возвращающий null, если индекс недоступен
+     * @param address адрес сервера
+     * @param cacheSize количество ответов в кэше, 0 - без кэша
+     * @param threads количество потоков обработки запросов
+     * */
+    ReportServer(@NotNull Supplier<AggregateIndex> source, @NotNull InetSocketAddress address,
+                 int cacheSize, int threads) throws IOException
+    {
+        if (cacheSize < 0) throw new IllegalArgumentException("Invalid cache size");
+        if (threads < 1) throw new IllegalArgumentException("Invalid number of threads");
+        this.source = source;
+        this.cacheSize = cacheSize;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "udr-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+    }
+    /** Процедура запуска сервера. */
+    public void start() {
+        server.start();
+    }
+    /** Функция получения адреса, на котором сервер принимает запросы.
+     * @return Адрес с фактическим портом
+     * */
+    public @NotNull InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+    /** Процедура остановки сервера. Начатые запросы дообрабатываются не дольше секунды. */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Процедура обработки запроса.
+     * @param exchange запрос и ответ
+     * */
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        REQUESTS.increment();
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            Matcher matcher = PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                sendError(exchange, 404, "Unknown path");
+                return;
+            }
+            String msisdn = matcher.group(1);
+            int month = ReportRequest.ALL_MONTHS;
+            if (matcher.group(2) != null) {
+                month = Integer.parseInt(matcher.group(2));
+                if (month < 1 || month > 12) {
+                    sendError(exchange, 400, "Invalid month");
+                    return;
+                }
+            }
+            Snapshot current = snapshot();
+            if (current == null) {
+                sendError(exchange, 503, "Aggregate index is unavailable");
+                return;
+            }
+            Response response = current.get(msisdn, month);
+            if (response == null) {
+                sendError(exchange, 404, "No calls");
+                return;
+            }
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "application/json");
+            headers.set("ETag", response.etag);
+            headers.set("Cache-Control", "no-cache");
+            if (matchesETag(exchange.getRequestHeaders().getFirst("If-None-Match"), response.etag)) {
+                NOT_MODIFIED.increment();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            if (head) {
+                headers.set("Content-Length", String.valueOf(response.body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        } finally {
+            REQUEST.recordSince(start);
+        }
+    }
+    /** Функция получения текущего индекса и кэша ответов.
+     * Актуальность индекса проверяется не чаще раза в REFRESH_INTERVAL.
+     * @return Снимок или null, если индекс недоступен
+     * */
+    private @Nullable Snapshot snapshot() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.checkedAt < REFRESH_INTERVAL) return current;
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && now - current.checkedAt < REFRESH_INTERVAL) return current;
+            AggregateIndex index = source.get();
+            if (index == null) {
+                snapshot = null;
+                return null;
+            }
+            current = current != null && current.index == index
+                    ? new Snapshot(index, current.cache, now) : new Snapshot(index, newCache(), now);
+            snapshot = current;
+            return current;
+        }
+    }
+    /** Функция создания пустого кэша ответов.
+     * @return Кэш LRU на cacheSize ответов
+     * */
+    private @NotNull Map<String, Response> newCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    private static boolean matchesETag(@Nullable String header, @NotNull String etag) {
+        if (header == null) return false;
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) value = value.substring(2);
+            if (value.equals(etag) || value.equals("*")) return true;
+        }
+        return false;
+    }
+
+    private static void sendError(@NotNull HttpExchange exchange, int status, @NotNull String message)
+            throws IOException
+    {
+        byte[] body = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Индекс, момент последней проверки его актуальности и кэш ответов по нему. */
+    private final class Snapshot {
+        private final AggregateIndex index;
+        private final Map<String, Response> cache;
+        private final long checkedAt;
+
+        private Snapshot(@NotNull AggregateIndex index, @NotNull Map<String, Response> cache, long checkedAt) {
+            this.index = index;
+            this.cache = cache;
+            this.checkedAt = checkedAt;
+        }
+
+        private @Nullable Response get(@NotNull String msisdn, int month) {
+            String key = msisdn + "/" + month;
+            if (cacheSize > 0) {
+                synchronized (cache) {
+                    Response cached = cache.get(key);
+                    if (cached != null) {
+                        CACHE_HITS.increment();
+                        return cached;
+                    }
+                }
+            }
+            Response response = render(msisdn, month);
+            if (response != null && cacheSize > 0) {
+                synchronized (cache) {
+                    cache.put(key, response);
+                }
+            }
+            return response;
+        }
+
+        /** Функция построения ответа из индекса.
+         * @param msisdn номер мобильного абонента
+         * @param month номер месяца или ReportRequest.ALL_MONTHS
+         * @return Ответ или null, если звонков не было
+         * */
+        private @Nullable Response render(@NotNull String msisdn, int month) {
+            ReportEncoder encoder = new ReportEncoder(256);
+            if (month != ReportRequest.ALL_MONTHS) {
+                Subscriber subscriber = index.get(msisdn, month);
+                if (subscriber == null) return null;
+                encoder.append(subscriber, month);
+            } else {
+                boolean found = false;
+                encoder.appendByte('[');
+                for (int numOfMonth = 1; numOfMonth <= 12; numOfMonth++) {
+                    Subscriber subscriber = index.get(msisdn, numOfMonth);
+                    if (subscriber == null) continue;
+                    if (found) encoder.appendByte(',');
+                    encoder.append(subscriber, numOfMonth);
+                    found = true;
+                }
+                if (!found) return null;
+                encoder.appendByte(']');
+            }
+            return new Response(encoder.toByteArray());
+        }
+    }
+
+    /** Готовый ответ: тело в формате JSON и его ETag по контрольной сумме тела. */
+    private static final class Response {
+        private final byte[] body;
+        private final String etag;
+
+        private Response(byte @NotNull [] body) {
+            this.body = body;
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length) + "\"";
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package Services.UDRGeneration;
+
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Класс для записи UDR отчётов в папку отчётов пулом потоков.
+ * Отчёты записываются ReportEncoder без рефлексии. В формате FILES каждый файл записывается
+ * отдельной задачей пула за одно открытие файла. В форматах NDJSON и SHARDED строки копятся в буфере
+ * файла и передаются пулу частями по FLUSH_SIZE байт, при этом части одного файла записываются строго по порядку.
+ * Очередь пула ограничена: если потоки записи не успевают, то задачу выполняет поток, добавляющий отчёты.
+ * Отчёты добавляются из одного потока. Количество отчётов и время записи учитываются в метриках.
+ * Один объект можно использовать для нескольких пакетов отчётов: flush() ждёт записи уже добавленных отчётов,
+ * не останавливая пул.
+ * @author Никита Дюков
+ * @version 1.2
+ * @see ReportFormat
+ * @see ReportEncoder
+ * */
+final class ReportWriter implements Flushable, Closeable {
+    /** Поле с размером части файла NDJSON, которая передаётся пулу */
+    private static final int FLUSH_SIZE = 64 << 10;
+    /** Поле с количеством задач в очереди пула на один поток */
+    private static final int QUEUE_PER_THREAD = 4;
+    /** Поле с количеством первых цифр номера, по которым отчёты распределяются по файлам */
+    private static final int SHARD_DIGITS = 2;
+    /** Поле с количеством добавленных отчётов */
+    private static final Counter REPORTS = Metrics.global().counter("udr.write.reports");
+    /** Поле с длительностью записи одного файла отчёта */
+    private static final Histogram WRITE_FILE = Metrics.global().histogram("udr.write.file");
+    /** Поле с длительностью записи одной части файла NDJSON */
+    private static final Histogram WRITE_CHUNK = Metrics.global().histogram("udr.write.chunk");
+    /** Поле с наибольшим количеством файлов, одновременно открытых задачами через writeReport */
+    private static final int MAX_OPEN_FILES = 256;
+    /** Поле с разрешениями на открытие файлов задачами через writeReport */
+    private static final Semaphore OPEN_FILES = new Semaphore(MAX_OPEN_FILES);
+    /** Поле с буфером отчёта для каждого потока записи */
+    private static final ThreadLocal<ReportEncoder> ENCODER = ThreadLocal.withInitial(() -> new ReportEncoder(256));
+    /** Поле с форматом отчётов */
+    private final ReportFormat format;
+    /** Поле с папкой отчётов */
+    private final Path directory;
+    /** Поле с пулом потоков записи */
+    private final ThreadPoolExecutor pool;
+    /** Поле с открытыми файлами NDJSON по названию файла */
+    private final Map<String, Shard> shards = new HashMap<>();
+    /** Поле с первой ошибкой записи */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    /** Поле с количеством незавершённых задач записи файлов формата FILES */
+    private final AtomicInteger running = new AtomicInteger();
+    /** Конструктор - создание нового объекта. Папка отчётов создаётся один раз.
+     * @param format формат отчётов
+     * @param directory папка отчётов
+     * @param threads количество потоков записи
+     * */
+    public ReportWriter(@NotNull ReportFormat format, @NotNull Path directory, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Invalid number of threads");
+        this.format = format;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    /** Процедура добавления отчёта.
+     * @param subscriber абонент
+     * @param month номер месяца, -1 - отчёт за весь период
+     * @see FileManager#getNameUDR(String, Integer)
+     * */
+    public void write(@NotNull Subscriber subscriber, int month) throws IOException {
+        IOException error = failure.get();
+        if (error != null) throw error;
+        REPORTS.increment();
+        switch (format) {
+            case FILES -> {
+                Path path = directory.resolve(FileManager.getNameUDR(subscriber.getMsisdn(), month));
+                running.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        writeFile(path, subscriber);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        if (running.decrementAndGet() == 0) {
+                            synchronized (running) {
+                                running.notifyAll();
+                            }
+                        }
+                    }
+                });
+            }
+            case NDJSON -> append("reports.ndjson", subscriber, month);
+            case SHARDED -> {
+                String msisdn = subscriber.getMsisdn();
+                String prefix = msisdn.substring(0, Math.min(SHARD_DIGITS, msisdn.length()));
+                append("reports_" + prefix + ".ndjson", subscriber, month);
+            }
+        }
+    }
+    /** Процедура ожидания записи всех добавленных отчётов. Оставшиеся части файлов передаются пулу,
+     * а пул продолжает работать, поэтому после неё можно добавлять следующие отчёты.
+     * Если при записи возникла ошибка, то она выбрасывается здесь.
+     * */
+    @Override
+    public void flush() throws IOException {
+        for (Shard shard : shards.values()) {
+            shard.flush();
+        }
+        for (Shard shard : shards.values()) {
+            shard.pending.join();
+        }
+        synchronized (running) {
+            try {
+                while (running.get() > 0) {
+                    running.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for report writers");
+            }
+        }
+        IOException error = failure.get();
+        if (error != null) throw error;
+    }
+    /** Процедура завершения записи. Оставшиеся части файлов передаются пулу,
+     * после чего процедура ждёт окончания всех задач и закрывает файлы.
+     * Если при записи возникла ошибка, то она выбрасывается здесь.
+     * */
+    @Override
+    public void close() throws IOException {
+        for (Shard shard : shards.values()) {
+            shard.flush();
+        }
+        for (Shard shard : shards.values()) {
+            shard.pending.join();
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Waiting for report writers");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            throw new IOException(e);
+        }
+        for (Shard shard : shards.values()) {
+            shard.close();
+        }
+        IOException error = failure.get();
+        if (error != null) throw error;
+    }
+
+    private void append(@NotNull String name, @NotNull Subscriber subscriber, int month) {
+        Shard shard = shards.computeIfAbsent(name, key -> new Shard(directory.resolve(key)));
+        shard.buffer.append(subscriber, month);
+        shard.buffer.appendNewLine();
+        if (shard.buffer.length() >= FLUSH_SIZE) shard.flush();
+    }
+
+    /** Процедура записи отчёта в отдельный файл формата FILES в текущем потоке.
+     * Используется задачами, которые сами распределяют отчёты по потокам, поэтому объект записи не нужен.
+     * Количество одновременно открытых файлов ограничено MAX_OPEN_FILES.
+     * @param directory папка отчётов
+     * @param subscriber абонент
+     * @param month номер месяца, -1 - отчёт за весь период
+     * @see FileManager#getNameUDR(String, Integer)
+     * */
+    static void writeReport(@NotNull Path directory, @NotNull Subscriber subscriber, int month) throws IOException {
+        REPORTS.increment();
+        Path path = directory.resolve(FileManager.getNameUDR(subscriber.getMsisdn(), month));
+        try {
+            OPEN_FILES.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to write " + path);
+        }
+        try {
+            writeFile(path, subscriber);
+        } finally {
+            OPEN_FILES.release();
+        }
+    }
+
+    /** Процедура записи отчёта в отдельный файл. Как и раньше, месяц отчёта указывается только в названии файла.
+     * @param path путь к файлу отчёта
+     * @param subscriber абонент
+     * */
+    private static void writeFile(@NotNull Path path, @NotNull Subscriber subscriber) throws IOException {
+        long start = System.nanoTime();
+        ReportEncoder encoder = ENCODER.get();
+        encoder.reset();
+        encoder.append(subscriber, -1);
+        try (OutputStream out = new FileOutputStream(path.toFile())) {
+            encoder.writeTo(out);
+        } finally {
+            WRITE_FILE.recordSince(start);
+        }
+    }
+
+    /** Файл NDJSON с буфером добавляемых строк и цепочкой задач записи. */
+    private final class Shard {
+        private final Path path;
+        private ReportEncoder buffer = new ReportEncoder(FLUSH_SIZE + 256);
+        private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        private OutputStream out;
+
+        private Shard(@NotNull Path path) {
+            this.path = path;
+        }
+
+        private void flush() {
+            if (buffer.length() == 0) return;
+            ReportEncoder part = buffer;
+            buffer = new ReportEncoder(FLUSH_SIZE + 256);
+            pending = pending.thenRunAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    if (out == null) out = new FileOutputStream(path.toFile());
+                    part.writeTo(out);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+                WRITE_CHUNK.recordSince(start);
+            }, pool);
+        }
+
+        private void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+}
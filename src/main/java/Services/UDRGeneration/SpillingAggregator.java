@@ -0,0 +1,428 @@
+package Services.UDRGeneration;
+
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Агрегация итогового времени звонков абонентов с ограниченным объёмом памяти.
+ * Частичные таблицы абонентов прибавляются к таблице в памяти, пока в ней не больше budget абонентов.
+ * Когда бюджет превышен, таблица делится по хэшу номера на разделы, абоненты каждого раздела
+ * сортируются по номеру и записываются в отдельный файл - серию, после чего таблица начинается заново.
+ * Затем каждый раздел сливается независимо: серии раздела читаются одновременно, а время одного номера
+ * из разных серий складывается. Если серий больше MAX_FAN_IN, то они сливаются в несколько проходов.
+ * Формат серии:
+ * <pre>
+ *   long количество абонентов N
+ *   long[3] номер абонента в виде MsisdnCodec, время входящих и исходящих звонков - N раз по возрастанию номера
+ * </pre>
+ * Если бюджет ни разу не превышен, то файлы не создаются, а итог остаётся в таблице в памяти.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see SubscriberTable
+ * @see FileManager#getDirectorySpill()
+ * */
+final class SpillingAggregator implements Closeable {
+    /** Поле с максимальным количеством серий, которые сливаются за один проход */
+    static final int MAX_FAN_IN = 64;
+    /** Поле с размером буфера чтения одной серии */
+    private static final int READ_BUFFER = 8 << 10;
+    /** Поле с размером буфера записи серии */
+    private static final int WRITE_BUFFER = 64 << 10;
+    /** Поле с размером записи абонента в серии в байтах */
+    private static final int ENTRY_SIZE = 3 * Long.BYTES;
+    /** Поле с количеством абонентов, записанных в серии */
+    private static final Counter SPILLED = Metrics.global().counter("udr.spill.subscribers");
+    /** Поле с длительностью записи таблицы в серии */
+    private static final Histogram SPILL = Metrics.global().histogram("udr.spill.write");
+    /** Поле с длительностью слияния серий одного раздела */
+    private static final Histogram REDUCE = Metrics.global().histogram("udr.spill.reduce");
+    /** Поле с папкой серий */
+    private final Path directory;
+    /** Поле с максимальным количеством абонентов в таблице в памяти */
+    private final int budget;
+    /** Поле с сериями каждого раздела */
+    private final List<List<Path>> runs;
+    /** Поле с буфером записи серий, общим для всех серий */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER);
+    /** Поле с таблицей абонентов в памяти */
+    private SubscriberTable table;
+    /** Поле с количеством записанных серий */
+    private int files;
+    /** Поле с отметкой о превышении бюджета */
+    private boolean spilled;
+    /** Конструктор - создание агрегации. Папка серий создаётся при первом превышении бюджета.
+     * @param directory папка серий, удаляется при закрытии
+     * @param budget максимальное количество абонентов в таблице в памяти
+     * @param partitions количество разделов
+     * */
+    public SpillingAggregator(@NotNull Path directory, int budget, int partitions) {
+        if (budget < 1) throw new IllegalArgumentException("Invalid memory budget");
+        if (partitions < 1) throw new IllegalArgumentException("Invalid number of partitions");
+        this.directory = directory;
+        this.budget = budget;
+        this.runs = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) runs.add(new ArrayList<>());
+        this.table = new SubscriberTable(Math.min(budget, 1024));
+    }
+    /** Процедура прибавления частичной таблицы абонентов.
+     * Если после этого в таблице в памяти больше budget абонентов, то она записывается в серии.
+     * @param partial частичная таблица абонентов
+     * */
+    public synchronized void add(@NotNull SubscriberTable partial) throws IOException {
+        table.merge(partial);
+        if (table.size() > budget) spill();
+    }
+    /** Функция проверки, превышался ли бюджет.
+     * @return true, если итог записан в серии, false - если он целиком в таблице в памяти
+     * */
+    public synchronized boolean isSpilled() {
+        return spilled;
+    }
+    /** Функция получения таблицы в памяти, если бюджет не превышался.
+     * @return Таблица абонентов
+     * */
+    public synchronized @NotNull SubscriberTable getTable() {
+        if (spilled) throw new IllegalStateException("Aggregates are spilled to disk");
+        return table;
+    }
+    /** Функция получения количества разделов.
+     * @return Количество разделов
+     * */
+    public int partitions() {
+        return runs.size();
+    }
+    /** Процедура завершения агрегации: оставшаяся таблица в памяти записывается в серии.
+     * Вызывается после прибавления всех частичных таблиц, если бюджет превышался.
+     * */
+    public synchronized void finish() throws IOException {
+        if (spilled && table.size() > 0) spill();
+        if (spilled) table = new SubscriberTable(16);
+    }
+    /** Функция слияния серий раздела в одну.
+     * @param partition номер раздела
+     * @return Количество абонентов раздела
+     * */
+    public synchronized int reduce(int partition) throws IOException {
+        long start = System.nanoTime();
+        List<Path> partitionRuns = runs.get(partition);
+        while (partitionRuns.size() > 1) {
+            int count = Math.min(partitionRuns.size(), MAX_FAN_IN);
+            List<Path> group = new ArrayList<>(partitionRuns.subList(0, count));
+            Path merged = nextRun(partition);
+            try (Cursor rows = merge(group); RunWriter out = new RunWriter(merged, writeBuffer)) {
+                while (rows.next()) out.write(rows.key(), rows.incoming(), rows.outgoing());
+            }
+            for (Path path : group) Files.delete(path);
+            partitionRuns.subList(0, count).clear();
+            partitionRuns.add(merged);
+        }
+        REDUCE.recordSince(start);
+        if (partitionRuns.isEmpty()) return 0;
+        try (RunReader reader = new RunReader(partitionRuns.get(0))) {
+            return (int) reader.remaining;
+        }
+    }
+    /** Функция открытия абонентов раздела по возрастанию номера.
+     * @param partition номер раздела
+     * @return Абоненты раздела
+     * */
+    public synchronized @NotNull Cursor open(int partition) throws IOException {
+        return merge(runs.get(partition));
+    }
+    /** Функция открытия абонентов всех разделов по возрастанию номера.
+     * Номер попадает только в один раздел, поэтому после reduce каждый номер встречается один раз.
+     * @return Абоненты
+     * */
+    public synchronized @NotNull Cursor openAll() throws IOException {
+        List<Path> all = new ArrayList<>();
+        for (List<Path> partitionRuns : runs) all.addAll(partitionRuns);
+        return merge(all);
+    }
+    /** Процедура удаления серий и их папки. */
+    @Override
+    public synchronized void close() throws IOException {
+        for (List<Path> partitionRuns : runs) {
+            for (Path path : partitionRuns) Files.deleteIfExists(path);
+            partitionRuns.clear();
+        }
+        if (files > 0) Files.deleteIfExists(directory);
+    }
+    /** Функция получения раздела номера абонента. Берутся старшие биты хэша,
+     * поэтому разбиение не связано с ячейками таблицы абонентов.
+     * @param key номер абонента в виде MsisdnCodec
+     * @param partitions количество разделов
+     * @return Номер раздела
+     * */
+    static int partitionOf(long key, int partitions) {
+        return (int) (((SubscriberTable.mix(key) >>> 32) * partitions) >>> 32);
+    }
+    /** Процедура записи таблицы в памяти в серии: по одной серии на каждый непустой раздел.
+     * Номера раскладываются по разделам подсчётом и сортируются внутри раздела.
+     * */
+    private void spill() throws IOException {
+        long start = System.nanoTime();
+        if (files == 0) Files.createDirectories(directory);
+        int partitions = runs.size();
+        int[] bounds = new int[partitions + 1];
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.isOccupied(slot)) bounds[partitionOf(table.keyAt(slot), partitions) + 1]++;
+        }
+        for (int i = 0; i < partitions; i++) bounds[i + 1] += bounds[i];
+        int[] next = Arrays.copyOf(bounds, partitions);
+        long[] keys = new long[table.size()];
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.isOccupied(slot)) keys[next[partitionOf(table.keyAt(slot), partitions)]++] = table.keyAt(slot);
+        }
+        for (int partition = 0; partition < partitions; partition++) {
+            if (bounds[partition] == bounds[partition + 1]) continue;
+            Arrays.sort(keys, bounds[partition], bounds[partition + 1]);
+            Path path = nextRun(partition);
+            try (RunWriter out = new RunWriter(path, writeBuffer)) {
+                for (int i = bounds[partition]; i < bounds[partition + 1]; i++) {
+                    int slot = table.find(keys[i]);
+                    out.write(keys[i], table.incomingAt(slot), table.outgoingAt(slot));
+                }
+            }
+            runs.get(partition).add(path);
+        }
+        SPILLED.add(keys.length);
+        spilled = true;
+        table.clear();
+        SPILL.recordSince(start);
+    }
+
+    private @NotNull Path nextRun(int partition) {
+        return directory.resolve(String.format("p%d_%d.run", partition, files++));
+    }
+    /** Функция слияния серий в одну последовательность по возрастанию номера со сложением времени одного номера.
+     * @param paths серии
+     * @return Абоненты
+     * */
+    private static @NotNull Cursor merge(@NotNull List<Path> paths) throws IOException {
+        List<RunReader> readers = new ArrayList<>(paths.size());
+        try {
+            for (Path path : paths) readers.add(new RunReader(path));
+        } catch (IOException e) {
+            for (RunReader reader : readers) reader.close();
+            throw e;
+        }
+        return new MergeCursor(readers);
+    }
+
+    /** Абоненты по возрастанию номера. */
+    interface Cursor extends Closeable {
+        /** Функция перехода к следующему абоненту.
+         * @return false, если абоненты закончились
+         * */
+        boolean next() throws IOException;
+
+        long key();
+
+        long incoming();
+
+        long outgoing();
+    }
+
+    /** Запись одной серии. Количество абонентов записывается в начало файла при закрытии. */
+    private static final class RunWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long count;
+
+        private RunWriter(@NotNull Path path, @NotNull ByteBuffer buffer) throws IOException {
+            this.buffer = buffer.clear();
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            buffer.putLong(0);
+        }
+
+        private void write(long key, long incoming, long outgoing) throws IOException {
+            if (buffer.remaining() < ENTRY_SIZE) drain();
+            buffer.putLong(key).putLong(incoming).putLong(outgoing);
+            count++;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                drain();
+                channel.write(buffer.putLong(0, count).limit(Long.BYTES), 0);
+            }
+        }
+    }
+
+    /** Чтение одной серии. */
+    private static final class RunReader implements Cursor {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER).limit(0);
+        private long remaining;
+        private long key;
+        private long incoming;
+        private long outgoing;
+
+        private RunReader(@NotNull Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                fill(Long.BYTES);
+                this.remaining = buffer.getLong();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            if (buffer.remaining() < ENTRY_SIZE) fill(ENTRY_SIZE);
+            key = buffer.getLong();
+            incoming = buffer.getLong();
+            outgoing = buffer.getLong();
+            return true;
+        }
+
+        private void fill(int needed) throws IOException {
+            buffer.compact();
+            while (buffer.position() < needed) {
+                if (channel.read(buffer) < 0) throw new EOFException("Spill run is truncated");
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public long key() {
+            return key;
+        }
+
+        @Override
+        public long incoming() {
+            return incoming;
+        }
+
+        @Override
+        public long outgoing() {
+            return outgoing;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Слияние серий: куча серий по текущему номеру, в корне - серия с наименьшим номером. */
+    private static final class MergeCursor implements Cursor {
+        private final List<RunReader> readers;
+        private final RunReader[] heap;
+        private int size;
+        private long key;
+        private long incoming;
+        private long outgoing;
+
+        private MergeCursor(@NotNull List<RunReader> readers) throws IOException {
+            this.readers = readers;
+            this.heap = new RunReader[readers.size()];
+            try {
+                for (RunReader reader : readers) {
+                    if (reader.next()) {
+                        heap[size] = reader;
+                        siftUp(size++);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (size == 0) return false;
+            key = heap[0].key();
+            incoming = 0;
+            outgoing = 0;
+            while (size > 0 && heap[0].key() == key) {
+                incoming += heap[0].incoming();
+                outgoing += heap[0].outgoing();
+                if (!heap[0].next()) heap[0] = heap[--size];
+                siftDown();
+            }
+            return true;
+        }
+
+        @Override
+        public long key() {
+            return key;
+        }
+
+        @Override
+        public long incoming() {
+            return incoming;
+        }
+
+        @Override
+        public long outgoing() {
+            return outgoing;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    if (error == null) error = e;
+                }
+            }
+            if (error != null) throw error;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].key() <= heap[index].key()) return;
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown() {
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) return;
+                if (child + 1 < size && heap[child + 1].key() < heap[child].key()) child++;
+                if (heap[index].key() <= heap[child].key()) return;
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int first, int second) {
+            RunReader reader = heap[first];
+            heap[first] = heap[second];
+            heap[second] = reader;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/** Таблица абонентов с открытой адресацией для агрегации времени звонков.
+ * Ключом является номер абонента в виде числа, время входящих и исходящих звонков хранится
+ * в параллельных массивах long, поэтому на абонента не создаётся ни одного объекта.
+ * Таблица может хранить время по каждому месяцу отдельно: тогда на абонента отводится 12 ячеек,
+ * а итоговое время считается как сумма по месяцам.
+ * @author Никита Дюков
+ * @version 1.1
+ * @see MsisdnCodec
+ * */
+final class SubscriberTable {
+    /** Поле с пустым ключом. Упакованный номер всегда содержит количество цифр, поэтому не равен нулю. */
+    private static final long EMPTY = 0;
+    /** Поле с максимальной заполненностью таблицы */
+    private static final double LOAD_FACTOR = 0.6;
+    /** Поле с количеством ячеек времени на одного абонента: 1 или 12 */
+    private final int stride;
+    /** Поле с ключами таблицы */
+    private long[] keys;
+    /** Поле со временем входящих звонков */
+    private long[] incoming;
+    /** Поле со временем исходящих звонков */
+    private long[] outgoing;
+    /** Поле с отметками о наличии звонков в месяце. Используется только при хранении по месяцам. */
+    private boolean[] present;
+    /** Поле с количеством абонентов */
+    private int size;
+    /** Поле с количеством абонентов, при котором таблица расширяется */
+    private int threshold;
+    /** Конструктор - создание таблицы без разбивки по месяцам.
+     * @param expected ожидаемое количество абонентов
+     * */
+    public SubscriberTable(int expected) {
+        this(expected, false);
+    }
+    /** Конструктор - создание таблицы.
+     * @param expected ожидаемое количество абонентов
+     * @param perMonth хранить ли время по каждому месяцу отдельно
+     * */
+    public SubscriberTable(int expected, boolean perMonth) {
+        this.stride = perMonth ? MonthlyAccumulator.MONTHS : 1;
+        int capacity = Integer.highestOneBit((int) Math.max(16, expected / LOAD_FACTOR) - 1) << 1;
+        allocate(capacity);
+    }
+    /** Процедура прибавления времени звонка к итоговому времени абонента.
+     * Если абонента нет в таблице, то он добавляется.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param type тип звонка
+     * @param callDuration продолжительность звонка
+     * */
+    public void add(long msisdn, int type, long callDuration) throws IllegalArgumentException {
+        addAt(insert(msisdn), 1, type, callDuration);
+    }
+    /** Процедура прибавления времени звонка к времени абонента за месяц.
+     * Если абонента нет в таблице, то он добавляется.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @param month номер месяца
+     * @param type тип звонка
+     * @param callDuration продолжительность звонка
+     * */
+    public void add(long msisdn, int month, int type, long callDuration) throws IllegalArgumentException {
+        addAt(insert(msisdn), month, type, callDuration);
+    }
+    /** Процедура прибавления времени звонка в заданную ячейку таблицы.
+     * Не изменяет структуру таблицы, поэтому разные месяцы одного абонента можно заполнять из разных потоков.
+     * @param slot ячейка абонента
+     * @param month номер месяца, не учитывается без разбивки по месяцам
+     * @param type тип звонка
+     * @param callDuration продолжительность звонка
+     * */
+    public void addAt(int slot, int month, int type, long callDuration) throws IllegalArgumentException {
+        int index = index(slot, month);
+        if (type == 1) {
+            outgoing[index] += callDuration;
+        } else if (type == 2) {
+            incoming[index] += callDuration;
+        } else throw new IllegalArgumentException("Call type is invalid");
+        if (present != null) present[index] = true;
+    }
+    /** Функция добавления абонента в таблицу без звонков.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @return Ячейка абонента
+     * */
+    public int insert(long msisdn) {
+        int slot = probe(msisdn);
+        if (keys[slot] == EMPTY) {
+            if (size >= threshold) {
+                rehash(keys.length << 1);
+                slot = probe(msisdn);
+            }
+            keys[slot] = msisdn;
+            size++;
+        }
+        return slot;
+    }
+    /** Функция поиска абонента в таблице.
+     * @param msisdn номер мобильного абонента в виде числа
+     * @return Ячейка абонента или -1, если абонента нет
+     * */
+    public int find(long msisdn) {
+        int slot = probe(msisdn);
+        return keys[slot] == EMPTY ? -1 : slot;
+    }
+    /** Процедура слияния с другой таблицей. Время звонков другой таблицы прибавляется к этой.
+     * @param other таблица с тем же способом хранения
+     * */
+    public void merge(@NotNull SubscriberTable other) {
+        if (other.stride != stride) throw new IllegalArgumentException("Tables have different layouts");
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            long key = other.keys[slot];
+            if (key == EMPTY) continue;
+            int target = insert(key);
+            for (int i = 0; i < stride; i++) {
+                int from = slot * stride + i;
+                int to = target * stride + i;
+                incoming[to] += other.incoming[from];
+                outgoing[to] += other.outgoing[from];
+                if (present != null) present[to] |= other.present[from];
+            }
+        }
+    }
+    /** Процедура удаления всех абонентов. Массивы таблицы сохраняются, поэтому её можно заполнять заново без выделения памяти. */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(incoming, 0);
+        Arrays.fill(outgoing, 0);
+        if (present != null) Arrays.fill(present, false);
+        size = 0;
+    }
+    /** Функция получения количества абонентов.
+     * @return Количество абонентов
+     * */
+    public int size() {
+        return size;
+    }
+    /** Функция получения количества ячеек таблицы. Используется для обхода таблицы.
+     * @return Количество ячеек
+     * */
+    public int capacity() {
+        return keys.length;
+    }
+    /** Функция проверки, занята ли ячейка.
+     * @param slot ячейка
+     * @return true, если в ячейке есть абонент
+     * */
+    public boolean isOccupied(int slot) {
+        return keys[slot] != EMPTY;
+    }
+    /** Функция получения номера абонента в ячейке.
+     * @param slot ячейка
+     * @return Номер мобильного абонента в виде числа
+     * */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+    /** Функция получения итогового времени входящих звонков.
+     * @param slot ячейка
+     * @return Время в секундах
+     * */
+    public long incomingAt(int slot) {
+        long total = 0;
+        for (int i = 0; i < stride; i++) total += incoming[slot * stride + i];
+        return total;
+    }
+    /** Функция получения итогового времени исходящих звонков.
+     * @param slot ячейка
+     * @return Время в секундах
+     * */
+    public long outgoingAt(int slot) {
+        long total = 0;
+        for (int i = 0; i < stride; i++) total += outgoing[slot * stride + i];
+        return total;
+    }
+    /** Функция получения времени входящих звонков за месяц.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return Время в секундах
+     * */
+    public long incomingAt(int slot, int month) {
+        return incoming[index(slot, month)];
+    }
+    /** Функция получения времени исходящих звонков за месяц.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return Время в секундах
+     * */
+    public long outgoingAt(int slot, int month) {
+        return outgoing[index(slot, month)];
+    }
+    /** Функция проверки, были ли у абонента звонки в месяце.
+     * Без разбивки по месяцам звонки есть у любого абонента таблицы.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return true, если звонки были
+     * */
+    public boolean hasCalls(int slot, int month) {
+        return present == null ? isOccupied(slot) : present[index(slot, month)];
+    }
+    /** Функция получения абонента с итоговым временем звонков для вывода отчёта.
+     * @param slot ячейка
+     * @return Абонент
+     * */
+    public @NotNull Subscriber toSubscriber(int slot) {
+        Subscriber subscriber = new Subscriber(MsisdnCodec.decode(keys[slot]));
+        subscriber.getIncomingCall().addTime(incomingAt(slot));
+        subscriber.getOutcomingCall().addTime(outgoingAt(slot));
+        return subscriber;
+    }
+    /** Функция получения абонента со временем звонков за месяц для вывода отчёта.
+     * @param slot ячейка
+     * @param month номер месяца
+     * @return Абонент
+     * */
+    public @NotNull Subscriber toSubscriber(int slot, int month) {
+        Subscriber subscriber = new Subscriber(MsisdnCodec.decode(keys[slot]));
+        subscriber.getIncomingCall().addTime(incomingAt(slot, month));
+        subscriber.getOutcomingCall().addTime(outgoingAt(slot, month));
+        return subscriber;
+    }
+
+    private int index(int slot, int month) {
+        return stride == 1 ? slot : slot * stride + (month - 1);
+    }
+
+    private int probe(long msisdn) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(msisdn) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != msisdn) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        incoming = new long[capacity * stride];
+        outgoing = new long[capacity * stride];
+        present = stride == 1 ? null : new boolean[capacity * stride];
+        threshold = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldIncoming = incoming;
+        long[] oldOutgoing = outgoing;
+        boolean[] oldPresent = present;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] == EMPTY) continue;
+            int target = probe(oldKeys[slot]);
+            keys[target] = oldKeys[slot];
+            size++;
+            System.arraycopy(oldIncoming, slot * stride, incoming, target * stride, stride);
+            System.arraycopy(oldOutgoing, slot * stride, outgoing, target * stride, stride);
+            if (present != null) System.arraycopy(oldPresent, slot * stride, present, target * stride, stride);
+        }
+    }
+}
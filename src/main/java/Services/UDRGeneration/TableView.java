@@ -0,0 +1,120 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Режим вывода итоговой таблицы абонентов в консоль.
+ * Позволяет выводить только первые N абонентов по итоговому времени звонков, сортировать строки
+ * или выводить их страницами, чтобы не выводить в консоль миллионы строк. Отчёты при этом записываются полностью.
+ * @author Никита Дюков
+ * @version 1.0
+ * @see UDRGenerationService#setTableView(TableView)
+ * */
+public final class TableView {
+    /** Порядок строк таблицы. */
+    public enum Order {
+        /** Порядок хранения абонентов, без сортировки */
+        NATURAL,
+        /** По возрастанию номера: сначала короткие номера, затем по значению */
+        MSISDN,
+        /** По убыванию суммы входящих и исходящих звонков */
+        TOTAL_TIME
+    }
+    /** Поле с режимом вывода всех строк в порядке хранения */
+    private static final TableView ALL = new TableView(Order.NATURAL, 0, Integer.MAX_VALUE);
+    /** Поле с порядком строк */
+    private final Order order;
+    /** Поле с количеством пропускаемых строк */
+    private final int offset;
+    /** Поле с наибольшим количеством выводимых строк */
+    private final int limit;
+
+    private TableView(@NotNull Order order, int offset, int limit) {
+        if (offset < 0) throw new IllegalArgumentException("Invalid offset");
+        if (limit < 0) throw new IllegalArgumentException("Invalid limit");
+        this.order = order;
+        this.offset = offset;
+        this.limit = limit;
+    }
+    /** Функция получения режима вывода всех строк в порядке хранения.
+     * @return Режим вывода
+     * */
+    public static @NotNull TableView all() {
+        return ALL;
+    }
+    /** Функция получения режима вывода всех строк в заданном порядке.
+     * @param order порядок строк
+     * @return Режим вывода
+     * */
+    public static @NotNull TableView sorted(@NotNull Order order) {
+        return new TableView(order, 0, Integer.MAX_VALUE);
+    }
+    /** Функция получения режима вывода первых абонентов по итоговому времени звонков.
+     * @param count количество строк, 0 - только количество абонентов
+     * @return Режим вывода
+     * */
+    public static @NotNull TableView top(int count) {
+        return new TableView(Order.TOTAL_TIME, 0, count);
+    }
+    /** Функция получения режима вывода одной страницы строк.
+     * @param order порядок строк
+     * @param page номер страницы, начиная с 1
+     * @param pageSize количество строк на странице
+     * @return Режим вывода
+     * */
+    public static @NotNull TableView page(@NotNull Order order, int page, int pageSize) {
+        if (page < 1 || pageSize < 1) throw new IllegalArgumentException("Invalid page");
+        return new TableView(order, (int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * pageSize), pageSize);
+    }
+    /** Функция разбора режима вывода из строки: all, sorted, top:N или page:P:S (страница P по S строк по номеру).
+     * @param spec строка с режимом вывода
+     * @return Режим вывода
+     * */
+    public static @NotNull TableView parse(@NotNull String spec) throws IllegalArgumentException {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "all" -> {
+                    if (parts.length == 1) return all();
+                }
+                case "sorted" -> {
+                    if (parts.length == 1) return sorted(Order.MSISDN);
+                }
+                case "top" -> {
+                    if (parts.length == 2) return top(Integer.parseInt(parts[1]));
+                }
+                case "page" -> {
+                    if (parts.length == 3) return page(Order.MSISDN, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                }
+                default -> {
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid table view: " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid table view: " + spec);
+    }
+    /** Функция получения порядка строк.
+     * @return Порядок строк
+     * */
+    public @NotNull Order getOrder() {
+        return order;
+    }
+    /** Функция получения количества пропускаемых строк.
+     * @return Количество строк
+     * */
+    public int getOffset() {
+        return offset;
+    }
+    /** Функция получения наибольшего количества выводимых строк.
+     * @return Количество строк, Integer.MAX_VALUE - без ограничения
+     * */
+    public int getLimit() {
+        return limit;
+    }
+    /** Функция проверки, что выводятся все строки.
+     * @return true, если строки не пропускаются и не ограничиваются
+     * */
+    public boolean isComplete() {
+        return offset == 0 && limit == Integer.MAX_VALUE;
+    }
+}
@@ -1,58 +1,405 @@
 package Services.UDRGeneration;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import Services.CDRFormat.BinaryCDRReader;
+import Services.CDRFormat.CDRFileFormat;
+import Services.CDRFormat.MsisdnCodec;
+import Services.Metrics.Counter;
+import Services.Metrics.Histogram;
+import Services.Metrics.Metrics;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
 import java.util.regex.Pattern;
 
 /**
  * Сервис, генерирующий Usage Data Report (UDR) файлы.
  * @author Никита Дюков
- * @version 1.0
+ * @version 2.3
  */
 public class UDRGenerationService {
-    /** Поле со списком абонентов. */
-    private static final Map<String, Subscriber>  subscribers = new HashMap<>();
+    /** Поле с количеством потоков, в которых параллельно читаются CDR файлы. */
+    private final int threads;
+    /** Поле с форматом отчётов. */
+    private final ReportFormat reportFormat;
+    /** Поле с форматом CDR файлов. */
+    private final CDRFileFormat inputFormat;
+    /** Поле с режимом вывода итоговой таблицы в консоль. */
+    private volatile TableView tableView = TableView.all();
+    /** Поле с признаком агрегации вне кучи при построении индекса. */
+    private volatile boolean offHeapAggregation;
+    /** Поле с максимальным количеством абонентов в памяти для generateReport(), 0 - без ограничения. */
+    private volatile int memoryBudget;
+    /** Поле с карантином неверных записей CDR файлов. */
+    private volatile Quarantine quarantine = new Quarantine(CDRValidation.strict(), null);
+    /** Поле с последним открытым индексом итогового времени по месяцам. */
+    private volatile AggregateIndex index;
+    /** Поле с минимальным размером части CDR файла, которая читается отдельным потоком. */
+    private static final long MIN_CHUNK_SIZE = 16L << 20;
+    /** Поле с начальным размером таблицы абонентов одной части файла. */
+    private static final int EXPECTED_SUBSCRIBERS = 1024;
+    /** Поле с количеством разделов, на которые делятся абоненты при превышении бюджета памяти. */
+    private static final int SPILL_PARTITIONS = 16;
+    /** Поле с количеством разобранных записей CDR файлов. */
+    private static final Counter PARSED_RECORDS = Metrics.global().counter("udr.parse.records");
+    /** Поле с количеством прочитанных байтов CDR файлов. */
+    private static final Counter READ_BYTES = Metrics.global().counter("udr.read.bytes");
+    /** Поле с длительностью чтения и разбора одной части CDR файла. */
+    private static final Histogram PARSE_CHUNK = Metrics.global().histogram("udr.parse.chunk");
+    /** Поле с длительностью слияния частичных таблиц абонентов. */
+    private static final Histogram AGGREGATE = Metrics.global().histogram("udr.aggregate.merge");
+    /** Поле с длительностью построения индекса итогового времени по месяцам. */
+    private static final Histogram INDEX_BUILD = Metrics.global().histogram("udr.index.build");
+    /** Поле с фабрикой исполнителя с виртуальным потоком на каждую задачу или null, если их нет. */
+    private static final MethodHandle VIRTUAL_EXECUTOR = findVirtualExecutor();
+    /** Конструктор - создание нового сервиса, читающего файлы во всех доступных потоках. */
+    public UDRGenerationService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    /** Конструктор - создание нового сервиса с заданным количеством потоков чтения.
+     * Каждый вызов generateReport хранит данные абонентов в собственных локальных структурах,
+     * поэтому отдельные экземпляры сервиса можно использовать одновременно.
+     * @param threads количество потоков, 1 - последовательное чтение
+     * */
+    public UDRGenerationService(int threads) {
+        this(threads, ReportFormat.FILES);
+    }
+    /** Конструктор - создание нового сервиса с заданным количеством потоков и форматом отчётов.
+     * Отчёты записываются тем же количеством потоков, что и читаются CDR файлы.
+     * @param threads количество потоков, 1 - последовательное чтение
+     * @param reportFormat формат отчётов
+     * @see ReportWriter
+     * */
+    public UDRGenerationService(int threads, @NotNull ReportFormat reportFormat) {
+        this(threads, reportFormat, CDRFileFormat.TEXT);
+    }
+    /** Конструктор - создание нового сервиса с заданным количеством потоков, форматом отчётов и форматом CDR файлов.
+     * @param threads количество потоков, 1 - последовательное чтение
+     * @param reportFormat формат отчётов
+     * @param inputFormat формат CDR файлов
+     * @see BinaryCDRReader
+     * */
+    public UDRGenerationService(int threads, @NotNull ReportFormat reportFormat, @NotNull CDRFileFormat inputFormat) {
+        if (threads < 1) throw new IllegalArgumentException("Invalid number of threads");
+        this.threads = threads;
+        this.reportFormat = reportFormat;
+        this.inputFormat = inputFormat;
+    }
+    /** Процедура задания режима вывода итоговой таблицы в консоль для generateReport() и updateReports().
+     * Отчёты записываются полностью независимо от режима.
+     * @param tableView режим вывода: все строки, первые N, по порядку или страница
+     * @see TableView
+     * */
+    public void setTableView(@NotNull TableView tableView) {
+        this.tableView = tableView;
+    }
+    /** Процедура включения агрегации вне кучи при построении индекса итогового времени по месяцам.
+     * Время звонков копится в отображённом в память файле, а не в таблицах абонентов по месяцам,
+     * поэтому размер кучи не зависит от количества абонентов. Файл служит контрольной точкой:
+     * если построение индекса прервано, то следующий запуск не читает заново уже обработанные месяцы.
+     * @param offHeapAggregation true - агрегация вне кучи, false - в куче (по умолчанию)
+     * @see AggregateStore
+     * */
+    public void setOffHeapAggregation(boolean offHeapAggregation) {
+        this.offHeapAggregation = offHeapAggregation;
+    }
+    /** Процедура задания бюджета памяти для generateReport().
+     * Если абонентов больше бюджета, то частичные итоги делятся по хэшу номера на разделы и записываются
+     * на диск отсортированными сериями, а затем каждый раздел сливается и записывается в отчёты отдельно,
+     * поэтому размер кучи не зависит от количества абонентов.
+     * @param memoryBudget максимальное количество абонентов в памяти, 0 - без ограничения (по умолчанию)
+     * @see SpillingAggregator
+     * */
+    public void setMemoryBudget(int memoryBudget) {
+        if (memoryBudget < 0) throw new IllegalArgumentException("Invalid memory budget");
+        this.memoryBudget = memoryBudget;
+    }
+    /** Процедура задания параметров проверки записей CDR файлов.
+     * В мягком режиме неверные записи пропускаются и записываются в файл карантина, отсутствующий CDR файл
+     * считается пустым, а после таблицы в консоль выводится итог проверки. Итог копится с момента задания параметров.
+     * Индекс итогового времени строится и открывается только с теми же параметрами проверки, а отчёты по отдельным
+     * абонентам в мягком режиме читают CDR файлы, чтобы неверные записи попали в карантин и итог проверки.
+     * @param validation параметры проверки, по умолчанию строгий режим без ограничения периода
+     * @see Quarantine
+     * @see FileManager#getPathQuarantine(CDRFileFormat)
+     * */
+    public void setValidation(@NotNull CDRValidation validation) {
+        Path path = validation.getMode() == CDRValidation.Mode.LENIENT
+                ? Path.of(FileManager.getPathQuarantine(inputFormat)) : null;
+        Quarantine previous = quarantine;
+        quarantine = new Quarantine(validation, path);
+        index = null;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /** Функция получения итога проверки записей CDR файлов с момента задания параметров проверки.
+     * @return Итог проверки
+     * @see UDRGenerationService#setValidation(CDRValidation)
+     * */
+    public @NotNull ValidationSummary getValidationSummary() {
+        Quarantine current = quarantine;
+        try {
+            current.flush();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return current.summary();
+    }
     /** Процедура генерации отчётов по всем абонентам.
      * Отчёты содержат итоговое время звонков по всему тарифицируемому периоду каждого абонента.
      * Выводит в консоль таблицу, содержащую данные отчётов.
      * @see UDRGenerationService#generateReport(String)
      * @see UDRGenerationService#generateReport(String, Integer)
-     * @see UDRGenerationService#readFile(int)
-     * @see UDRGenerationService#createJSONsTotal()
+     * @see UDRGenerationService#readChunks(ChunkTask)
+     * @see SubscriberTable
+     * @see UDRGenerationService#createJSONsTotal(SubscriberTable)
+     * @see UDRGenerationService#setMemoryBudget(int)
      * */
     public void generateReport(){
+        if (memoryBudget > 0) {
+            generateReportBounded(memoryBudget);
+            return;
+        }
         try {
-            for (int month = 1; month <= 12; month++) {
-                readFile(month);
+            List<SubscriberTable> partials = readChunks((month, from, to) -> {
+                SubscriberTable partial = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+                readFile(month, from, to, (type, msisdn, callDuration) ->
+                        partial.add(msisdn, type, callDuration));
+                return partial;
+            });
+            long start = System.nanoTime();
+            SubscriberTable subscribers = partials.get(0);
+            for (int i = 1; i < partials.size(); i++) {
+                subscribers.merge(partials.get(i));
             }
-            createJSONsTotal();
-            subscribers.clear();
+            AGGREGATE.recordSince(start);
+            createJSONsTotal(subscribers);
         } catch (RuntimeException e) {
             System.out.println(e.getMessage());
         }
     }
+    /** Процедура генерации отчётов по всем абонентам с ограниченным объёмом памяти.
+     * Каждая часть файла копит абонентов в собственной таблице, которая при заполнении на долю бюджета потока
+     * прибавляется к общей агрегации и очищается. Общая агрегация при превышении бюджета
+     * записывает абонентов в серии по разделам. Если бюджет не превышен, то отчёты строятся как в generateReport(),
+     * иначе разделы по очереди сливаются и их абоненты сразу записываются в отчёты, а таблица выводится
+     * в консоль слиянием разделов по возрастанию номера. В памяти находится не больше двух бюджетов абонентов.
+     * @param budget максимальное количество абонентов в общей агрегации
+     * @see SpillingAggregator
+     * @see FileManager#getDirectorySpill()
+     * @see Printer#printTotals(SpillingAggregator.Cursor, int, TableView)
+     * */
+    private void generateReportBounded(int budget) {
+        int perTask = Math.max(1, budget / threads);
+        Path directory = Path.of(FileManager.getDirectorySpill(), "spill_" + System.nanoTime());
+        try (SpillingAggregator aggregator = new SpillingAggregator(directory, budget, SPILL_PARTITIONS)) {
+            readChunks((month, from, to) -> {
+                SubscriberTable partial = new SubscriberTable(Math.min(perTask, EXPECTED_SUBSCRIBERS));
+                readFile(month, from, to, (type, msisdn, callDuration) -> {
+                    partial.add(msisdn, type, callDuration);
+                    if (partial.size() >= perTask) {
+                        absorb(aggregator, partial);
+                        partial.clear();
+                    }
+                });
+                absorb(aggregator, partial);
+                return null;
+            });
+            if (!aggregator.isSpilled()) {
+                createJSONsTotal(aggregator.getTable());
+                return;
+            }
+            aggregator.finish();
+            int size = 0;
+            try (ReportWriter writer = openWriter()) {
+                for (int partition = 0; partition < aggregator.partitions(); partition++) {
+                    size += aggregator.reduce(partition);
+                    try (SpillingAggregator.Cursor rows = aggregator.open(partition)) {
+                        while (rows.next()) {
+                            createJSON(writer, toSubscriber(rows), -1);
+                        }
+                    }
+                }
+            }
+            try (Printer printer = new Printer(); SpillingAggregator.Cursor rows = aggregator.openAll()) {
+                printer.printTotals(rows, size, tableView);
+                printValidation(printer);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /** Процедура прибавления частичной таблицы абонентов к агрегации с ограниченным объёмом памяти.
+     * @param aggregator агрегация
+     * @param partial частичная таблица абонентов
+     * */
+    private static void absorb(@NotNull SpillingAggregator aggregator, @NotNull SubscriberTable partial) {
+        long start = System.nanoTime();
+        try {
+            aggregator.add(partial);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AGGREGATE.recordSince(start);
+    }
+    /** Функция получения абонента с итоговым временем звонков из слитых серий для вывода отчёта.
+     * @param rows текущий абонент серий
+     * @return Абонент
+     * */
+    private static @NotNull Subscriber toSubscriber(@NotNull SpillingAggregator.Cursor rows) {
+        Subscriber subscriber = new Subscriber(MsisdnCodec.decode(rows.key()));
+        subscriber.getIncomingCall().addTime(rows.incoming());
+        subscriber.getOutcomingCall().addTime(rows.outgoing());
+        return subscriber;
+    }
+    /** Процедура инкрементального обновления отчётов по всем абонентам.
+     * Из каждого CDR файла читаются только строки, дописанные после предыдущего обновления,
+     * их время прибавляется к сохранённому итоговому времени абонентов, а отчёты перезаписываются
+     * только для абонентов, у которых появились новые звонки. Недописанная последняя строка
+     * откладывается до следующего обновления. В форматах NDJSON и SHARDED файл нельзя изменить частично,
+     * поэтому он перезаписывается целиком из сохранённого итогового времени без чтения старых строк.
+     * Если CDR файл стал короче или его начало изменилось, то отчёты строятся заново.
+     * Выводит в консоль таблицу, содержащую данные обновлённых отчётов.
+     * @see IncrementalState
+     * @see CDRReader#read(FileChannel, long, long, CDRRecordHandler, boolean)
+     * @see FileManager#getPathState(CDRFileFormat)
+     * */
+    public synchronized void updateReports() {
+        try {
+            if (inputFormat != CDRFileFormat.TEXT) {
+                throw new IllegalStateException("Incremental update supports only text CDR files");
+            }
+            List<Path> sources = new ArrayList<>(12);
+            for (int month = 1; month <= 12; month++) {
+                sources.add(Path.of(FileManager.getPathCDR(month, inputFormat)));
+            }
+            Path statePath = Path.of(FileManager.getPathState(inputFormat));
+            IncrementalState loaded = IncrementalState.load(statePath, sources.size(), EXPECTED_SUBSCRIBERS);
+            IncrementalState state = loaded.matches(sources)
+                    ? loaded : new IncrementalState(sources.size(), EXPECTED_SUBSCRIBERS);
+
+            long[] offsets = new long[sources.size()];
+            List<SubscriberTable> partials = readMonths(month -> {
+                SubscriberTable partial = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+                offsets[month - 1] = readAppended(month, state.getOffset(month - 1), (type, msisdn, callDuration) ->
+                        partial.add(msisdn, type, callDuration));
+                return partial;
+            });
+            long start = System.nanoTime();
+            SubscriberTable changed = partials.get(0);
+            for (int i = 1; i < partials.size(); i++) {
+                changed.merge(partials.get(i));
+            }
+            SubscriberTable totals = state.getTotals();
+            totals.merge(changed);
+            AGGREGATE.recordSince(start);
+
+            SubscriberTable reported = reportFormat == ReportFormat.FILES ? changed : totals;
+            SubscriberTable printed = new SubscriberTable(Math.max(changed.size(), 1));
+            try (ReportWriter writer = openWriter()) {
+                for (int slot = 0; slot < reported.capacity(); slot++) {
+                    if (!reported.isOccupied(slot)) continue;
+                    long msisdn = reported.keyAt(slot);
+                    int total = totals.find(msisdn);
+                    createJSON(writer, totals.toSubscriber(total), -1);
+                    if (changed.find(msisdn) >= 0) {
+                        printed.add(msisdn, 2, totals.incomingAt(total));
+                        printed.add(msisdn, 1, totals.outgoingAt(total));
+                    }
+                }
+            }
+            try (Printer printer = new Printer()) {
+                printer.printTotals(printed, tableView);
+                printValidation(printer);
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                state.setOffset(i, sources.get(i), offsets[i]);
+            }
+            state.save(statePath);
+        } catch (IOException | RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
     /** Процедура генерации отчётов по одномму абоненту.
      *  Отчёты содержат итоговое время звонков в каждом месяце.
      *  Выводит в консоль таблицу, содержащую данные отчётов.
-     * @see UDRGenerationService#createJSONPerMonth(String, Integer)
+     * @see UDRGenerationService#generateReports(Collection)
      * @see Printer
      * @param msisdn номер мобильного абонента
      *  */
     public void generateReport(String msisdn){
         try {
-            Printer.printHeaderPerMonth();
             if (Pattern.matches("[0-9]+", msisdn)) {
-                for (int month = 1; month <= 12; month++) {
-                    createJSONPerMonth(msisdn, month);
-                    subscribers.clear();
+                generateReports(List.of(msisdn));
+            } else {
+                try (Printer printer = new Printer()) {
+                    printer.printHeaderPerMonth();
+                    printer.printMessage("Invalid msisdn");
                 }
-            } else System.out.println("Invalid msisdn");
+            }
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /** Процедура генерации отчётов по набору абонентов.
+     *  Данные берутся из индекса итогового времени по месяцам, который строится один раз на набор CDR файлов.
+     *  Если индекс недоступен, то каждый CDR файл читается один раз и данные копятся только для заданных номеров,
+     *  поэтому отчёты по любому количеству абонентов стоят одного прохода по году.
+     *  Отчёты содержат итоговое время звонков в каждом месяце.
+     *  Выводит в консоль таблицу, содержащую данные отчётов.
+     * @see UDRGenerationService#snapshot(Collection)
+     * @see UDRGenerationService#createJSONPerMonth(Subscriber, Integer, ReportWriter, Printer)
+     * @param msisdns номера мобильных абонентов
+     *  */
+    public void generateReports(@NotNull Collection<String> msisdns) {
+        try (Printer printer = new Printer()) {
+            printer.printHeaderPerMonth();
+            List<String> valid = new ArrayList<>(msisdns.size());
+            for (String msisdn : msisdns) {
+                if (Pattern.matches("[0-9]+", msisdn)) valid.add(msisdn);
+                else printer.printMessage("Invalid msisdn: " + msisdn);
+            }
+            if (valid.isEmpty()) return;
+
+            BiFunction<String, Integer, Subscriber> lookup = snapshot(valid);
+            try (ReportWriter writer = openWriter()) {
+                for (String msisdn : new LinkedHashSet<>(valid)) {
+                    for (int month = 1; month <= 12; month++) {
+                        createJSONPerMonth(lookup.apply(msisdn, month), month, writer, printer);
+                    }
+                }
+            } catch (IOException e) {
+                printer.printMessage(e.getMessage());
+                throw new RuntimeException(e);
+            }
+            printValidation(printer);
         } catch (RuntimeException e) {
             System.out.println(e.getMessage());
         }
@@ -60,162 +407,606 @@ public class UDRGenerationService {
     /** Процедура генерации отчёта по одномму абоненту за заданный месяц.
      *  Отчёт содержат итоговое время звонков за месяц.
      *  Выводит в консоль таблицу, содержащую данные отчёа.
-     * @see UDRGenerationService#createJSONPerMonth(String, Integer)
+     *  Данные берутся из индекса, а если он недоступен - из CDR файла за месяц.
+     * @see UDRGenerationService#reportIndex()
+     * @see UDRGenerationService#createJSONPerMonth(Subscriber, Integer, ReportWriter, Printer)
      * @see Printer
      * @param msisdn номер мобильного абонента
      * @param month номер месяца
      *  */
     public void generateReport(String msisdn, @NotNull Integer month) throws RuntimeException {
-        try {
-            Printer.printHeaderPerMonth();
+        try (Printer printer = new Printer()) {
+            printer.printHeaderPerMonth();
             if (Pattern.matches("[0-9]+", msisdn) && month > 0 && month <= 12) {
-                createJSONPerMonth(msisdn, month);
+                Subscriber subscriber;
+                AggregateIndex aggregates = reportIndex();
+                if (aggregates != null) {
+                    subscriber = aggregates.get(msisdn, month);
+                } else {
+                    MonthlyAccumulator accumulator = new MonthlyAccumulator(List.of(msisdn));
+                    readFile(month, 0, Long.MAX_VALUE, (type, number, callDuration) ->
+                            accumulator.add(number, month, type, callDuration));
+                    subscriber = accumulator.get(msisdn, month);
+                }
+                try (ReportWriter writer = openWriter()) {
+                    createJSONPerMonth(subscriber, month, writer, printer);
+                } catch (IOException e) {
+                    printer.printMessage(e.getMessage());
+                    throw new RuntimeException(e);
+                }
+                printValidation(printer);
             } else throw new IllegalArgumentException("Invalid msisdn or month");
-            subscribers.clear();
         } catch (RuntimeException e) {
             System.out.println(e.getMessage());
         }
     }
+    /** Функция пакетной генерации отчётов по запросам отдельных абонентов.
+     *  Снимок итогового времени по месяцам получается один раз на весь пакет и только читается,
+     *  поэтому запросы выполняются одновременно без блокировок и не влияют друг на друга.
+     *  Каждый запрос выполняется отдельной задачей в виртуальном потоке, если среда выполнения их поддерживает,
+     *  иначе в пуле из threads потоков. Проект собирается под Java 17, в которой виртуальных потоков нет,
+     *  поэтому на этой версии пакет всегда выполняется в пуле из threads потоков ОС. В формате FILES задача сама записывает файлы своих отчётов,
+     *  а в форматах NDJSON и SHARDED отчёты записываются в общие файлы после выполнения всех задач.
+     *  Ошибка одного запроса возвращается в его результате и не прерывает остальные.
+     *  Выводит в консоль таблицу, содержащую данные отчётов, в порядке запросов.
+     * @see UDRGenerationService#snapshot(Collection)
+     * @see UDRGenerationService#newRequestExecutor()
+     * @see ReportWriter#writeReport(Path, Subscriber, int)
+     * @param requests запросы отчётов
+     * @return Результаты в порядке запросов
+     *  */
+    public @NotNull List<ReportResult> generateBatch(@NotNull Collection<ReportRequest> requests) {
+        List<ReportRequest> list = List.copyOf(requests);
+        List<Served> served = new ArrayList<>(list.size());
+        try {
+            List<String> valid = new ArrayList<>(list.size());
+            for (ReportRequest request : list) {
+                if (isValid(request)) valid.add(request.msisdn());
+            }
+            BiFunction<String, Integer, Subscriber> lookup = snapshot(valid);
+            Path directory = Path.of(FileManager.getDirectoryUDR());
+            Files.createDirectories(directory);
+            Path target = reportFormat == ReportFormat.FILES ? directory : null;
+            ExecutorService executor = newRequestExecutor();
+            try {
+                List<Future<Served>> futures = new ArrayList<>(list.size());
+                for (ReportRequest request : list) {
+                    futures.add(executor.submit(() -> serve(request, lookup, target)));
+                }
+                for (Future<Served> future : futures) {
+                    served.add(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (target == null) {
+                try (ReportWriter writer = openWriter()) {
+                    for (Served request : served) {
+                        for (Map.Entry<Integer, Subscriber> entry : request.subscribers().entrySet()) {
+                            createJSON(writer, entry.getValue(), entry.getKey());
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(list, "Interrupted");
+        } catch (ExecutionException e) {
+            System.out.println(e.getCause().getMessage());
+            return failed(list, String.valueOf(e.getCause().getMessage()));
+        } catch (IOException | RuntimeException e) {
+            System.out.println(e.getMessage());
+            return failed(list, String.valueOf(e.getMessage()));
+        }
+        List<ReportResult> results = new ArrayList<>(served.size());
+        try (Printer printer = new Printer()) {
+            printer.printHeaderPerMonth();
+            for (Served request : served) {
+                ReportResult result = request.result();
+                results.add(result);
+                if (!result.isSuccessful()) {
+                    printer.printMessage(result.error());
+                    continue;
+                }
+                for (int month : months(result.request())) {
+                    Subscriber subscriber = request.subscribers().get(month);
+                    if (subscriber != null) printer.printSubscriberPerMonth(subscriber, month);
+                    else printer.printNoCalls();
+                }
+            }
+        }
+        return results;
+    }
     /** Процедура создания отчётов по всем абонентам, находящимся в списке.
-     * Выводит в консоль таблицу, содержащую данные отчётов.
-     * @see UDRGenerationService#subscribers
-     * @see UDRGenerationService#createJSON(Subscriber, String, Integer, Gson)
-     * @see Subscriber
+     * Выводит в консоль таблицу, содержащую данные отчётов, в режиме вывода сервиса.
+     * @param subscribers таблица абонентов
+     * @see UDRGenerationService#createJSON(ReportWriter, Subscriber, Integer)
+     * @see SubscriberTable#toSubscriber(int)
+     * @see Printer#printTotals(SubscriberTable, TableView)
      * */
-    private void createJSONsTotal() throws RuntimeException{
-        Printer.printHeaderTotal();
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        subscribers.forEach((msisdn, subscriber) -> {
-            createJSON(subscriber, msisdn, -1, gson);
-            Printer.printSubscriberTotal(subscriber);
-        });
+    private void createJSONsTotal(@NotNull SubscriberTable subscribers) throws RuntimeException{
+        try (ReportWriter writer = openWriter()) {
+            for (int slot = 0; slot < subscribers.capacity(); slot++) {
+                if (!subscribers.isOccupied(slot)) continue;
+                createJSON(writer, subscribers.toSubscriber(slot), -1);
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            throw new RuntimeException(e);
+        }
+        try (Printer printer = new Printer()) {
+            printer.printTotals(subscribers, tableView);
+            printValidation(printer);
+        }
     }
-    /** Процедура создания отчёта по одному абоненту в заданный месяц.
+    /** Процедура создания отчёта по одному абоненту в заданный месяц из накопленных данных.
      * Выводит в консоль строку, содержащую данные отчёта.
-     * @param msisdn номер мобильного абонента
+     * @param subscriber абонент за месяц или null, если звонков не было
      * @param month номер месяца
-     * @see UDRGenerationService#createJSON(Subscriber, String, Integer, Gson)
-     * @see Subscriber
+     * @param writer запись отчётов
+     * @param printer вывод таблицы в консоль
+     * @see UDRGenerationService#createJSON(ReportWriter, Subscriber, Integer)
      * */
-    private void createJSONPerMonth(String msisdn, @NotNull Integer month)
-            throws RuntimeException
+    private void createJSONPerMonth(@Nullable Subscriber subscriber, @NotNull Integer month,
+                                    @NotNull ReportWriter writer, @NotNull Printer printer)
+            throws RuntimeException, IOException
     {
-        readFile(month);
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
-        if (subscribers.get(msisdn) != null) {
-            Subscriber subscriber = subscribers.get(msisdn);
-            createJSON(subscriber, msisdn, month, gson);
-            Printer.printSubscriberPerMonth(subscriber, month);
+        if (subscriber != null) {
+            createJSON(writer, subscriber, month);
+            printer.printSubscriberPerMonth(subscriber, month);
         } else {
-            Printer.printNoCalls();
+            printer.printNoCalls();
         }
     }
-    /** Процедура создания JSON-файла.
-     *  Название файла имеет формат номер_месяц.json.
-     * @param subscriber абонент
-     * @param msisdn номер мобильного абонента
-     * @param month номер месяца
-     * @see FileManager#createFile(String, Integer)
-     * @see UDRGenerationService#fillJSON(Subscriber, String, Gson)
-     * @see FileManager#getPathUDR(String, Integer)
-     * @see Subscriber
+    /** Функция получения актуального индекса итогового времени по месяцам.
+     * Индекс открывается с диска, а если его нет, CDR файлы изменились или он построен с другими параметрами проверки
+     * записей - строится заново за один проход по году. Открытый индекс переиспользуется, пока CDR файлы
+     * и параметры проверки не изменятся.
+     * @return Индекс или null, если его не удалось записать
+     * @see AggregateIndex
+     * @see FileManager#getPathIndex(CDRFileFormat)
+     * @see UDRGenerationService#buildIndexOffHeap(Path, List, long[], CDRValidation)
+     * */
+    @Nullable AggregateIndex obtainIndex() throws RuntimeException {
+        CDRValidation validation = quarantine.getValidation();
+        AggregateIndex current = index;
+        if (current != null && current.isValid(validation)) return current;
+        synchronized (this) {
+            current = index;
+            if (current != null && current.isValid(validation)) return current;
+            List<Path> sources = new ArrayList<>(12);
+            for (int month = 1; month <= 12; month++) {
+                sources.add(Path.of(FileManager.getPathCDR(month, inputFormat)));
+            }
+            Path path = Path.of(FileManager.getPathIndex(inputFormat));
+            current = AggregateIndex.open(path, sources, validation);
+            if (current == null) {
+                try {
+                    long start = System.nanoTime();
+                    long[] fingerprint = AggregateIndex.fingerprint(sources);
+                    if (offHeapAggregation) {
+                        current = buildIndexOffHeap(path, sources, fingerprint, validation);
+                    } else {
+                        List<SubscriberTable> months = readMonths(month -> {
+                            SubscriberTable table = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+                            readFile(month, 0, Long.MAX_VALUE, (type, msisdn, callDuration) ->
+                                    table.add(msisdn, type, callDuration));
+                            return table;
+                        });
+                        current = AggregateIndex.build(path, sources, fingerprint, validation, months);
+                    }
+                    INDEX_BUILD.recordSince(start);
+                } catch (IOException | UncheckedIOException e) {
+                    System.out.println(e.getMessage());
+                    return null;
+                }
+            }
+            index = current;
+            return current;
+        }
+    }
+    /** Функция получения индекса для отчётов по отдельным абонентам.
+     * В мягком режиме индекс не используется: итог проверки и файл карантина заполняются только при чтении
+     * CDR файлов, а готовый индекс их не читает.
+     * @return Индекс или null, если отчёт нужно строить по CDR файлам
+     * @see UDRGenerationService#obtainIndex()
+     * */
+    private @Nullable AggregateIndex reportIndex() throws RuntimeException {
+        if (quarantine.getValidation().getMode() == CDRValidation.Mode.LENIENT) return null;
+        return obtainIndex();
+    }
+    /** Функция построения индекса с агрегацией вне кучи.
+     * Месяцы обрабатываются по очереди, а каждый месяц читается частями не больше MIN_CHUNK_SIZE байт
+     * параллельно; таблица абонентов части сразу прибавляется к хранилищу, поэтому в куче одновременно находится
+     * не больше одной небольшой таблицы на поток. После каждого месяца хранилище сохраняет контрольную точку,
+     * а уже отмеченные месяцы пропускаются. После построения индекса файл хранилища удаляется.
+     * @param path путь к файлу индекса
+     * @param sources CDR файлы в порядке месяцев
+     * @param fingerprint размер и время изменения CDR файлов до их чтения
+     * @param validation параметры проверки записей
+     * @return Индекс
+     * @see AggregateStore
+     * @see FileManager#getPathStore(CDRFileFormat)
+     * */
+    private @NotNull AggregateIndex buildIndexOffHeap(@NotNull Path path, @NotNull List<Path> sources,
+                                                      long @NotNull [] fingerprint,
+                                                      @NotNull CDRValidation validation) throws IOException
+    {
+        Path storePath = Path.of(FileManager.getPathStore(inputFormat));
+        AggregateIndex built;
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, validation, EXPECTED_SUBSCRIBERS)) {
+            for (int month = 1; month <= sources.size(); month++) {
+                if (store.isComplete(month)) continue;
+                store.clearMonth(month);
+                List<Callable<Void>> tasks = new ArrayList<>();
+                addChunks(tasks, month, Long.MAX_VALUE, (numOfMonth, from, to) -> {
+                    SubscriberTable partial = new SubscriberTable(EXPECTED_SUBSCRIBERS);
+                    readFile(numOfMonth, from, to, (type, msisdn, callDuration) ->
+                            partial.add(msisdn, type, callDuration));
+                    long start = System.nanoTime();
+                    synchronized (store) {
+                        try {
+                            store.merge(partial, numOfMonth);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    AGGREGATE.recordSince(start);
+                    return null;
+                });
+                runTasks(tasks);
+                store.complete(month);
+            }
+            built = AggregateIndex.build(path, sources, fingerprint, validation, store);
+        }
+        AggregateStore.delete(storePath);
+        return built;
+    }
+    /** Функция получения снимка итогового времени по месяцам для набора абонентов.
+     * Данные берутся из индекса, а если он недоступен - каждый CDR файл читается один раз
+     * и данные копятся только для заданных номеров. Снимок после создания не изменяется,
+     * поэтому его можно читать из нескольких потоков одновременно.
+     * @param msisdns номера мобильных абонентов
+     * @return Функция получения абонента за месяц, возвращающая null, если звонков не было
+     * @see UDRGenerationService#reportIndex()
+     * @see MonthlyAccumulator
      * */
-    private void createJSON(Subscriber subscriber, String msisdn, @NotNull Integer month, @NotNull Gson gson)
+    private @NotNull BiFunction<String, Integer, Subscriber> snapshot(@NotNull Collection<String> msisdns)
             throws RuntimeException
     {
-        FileManager.createFile(msisdn, month);
-        String path = FileManager.getPathUDR(msisdn, month);
-        fillJSON(subscriber, path, gson);
+        AggregateIndex aggregates = reportIndex();
+        if (aggregates != null) return aggregates::get;
+        MonthlyAccumulator accumulator = new MonthlyAccumulator(msisdns);
+        if (!msisdns.isEmpty()) {
+            readMonths(month -> {
+                readFile(month, 0, Long.MAX_VALUE, (type, msisdn, callDuration) ->
+                        accumulator.add(msisdn, month, type, callDuration));
+                return null;
+            });
+        }
+        return accumulator::get;
+    }
+    /** Функция выполнения одного запроса пакета.
+     * @param request запрос отчёта
+     * @param lookup снимок итогового времени по месяцам
+     * @param directory папка, в которую задача записывает отчёты, или null, если отчёты записываются после пакета
+     * @return Результат запроса вместе с данными абонента по месяцам
+     * @see ReportWriter#writeReport(Path, Subscriber, int)
+     * */
+    private static @NotNull Served serve(@NotNull ReportRequest request,
+                                         @NotNull BiFunction<String, Integer, Subscriber> lookup,
+                                         @Nullable Path directory)
+    {
+        if (!isValid(request)) {
+            return Served.failed(request, "Invalid msisdn or month: " + request.msisdn() + " " + request.month());
+        }
+        try {
+            SortedMap<Integer, Subscriber> subscribers = new TreeMap<>();
+            SortedMap<Integer, String> reports = new TreeMap<>();
+            ReportEncoder encoder = new ReportEncoder(256);
+            for (int month : months(request)) {
+                Subscriber subscriber = lookup.apply(request.msisdn(), month);
+                if (subscriber == null) continue;
+                subscribers.put(month, subscriber);
+                encoder.reset();
+                encoder.append(subscriber, month);
+                reports.put(month, encoder.toString());
+                if (directory != null) ReportWriter.writeReport(directory, subscriber, month);
+            }
+            return new Served(new ReportResult(request, Collections.unmodifiableSortedMap(reports), null),
+                    subscribers);
+        } catch (IOException | RuntimeException e) {
+            return Served.failed(request, String.valueOf(e.getMessage()));
+        }
+    }
+    /** Функция проверки запроса отчёта.
+     * @param request запрос отчёта
+     * @return true, если номер состоит из цифр, а месяц от 1 до 12 или ALL_MONTHS
+     * */
+    private static boolean isValid(@NotNull ReportRequest request) {
+        int month = request.month();
+        return Pattern.matches("[0-9]+", request.msisdn())
+                && (month == ReportRequest.ALL_MONTHS || month > 0 && month <= 12);
+    }
+    /** Функция получения месяцев, отчёты за которые нужны по запросу.
+     * @param request запрос отчёта
+     * @return Номера месяцев по возрастанию
+     * */
+    private static int @NotNull [] months(@NotNull ReportRequest request) {
+        if (request.month() != ReportRequest.ALL_MONTHS) return new int[]{request.month()};
+        int[] months = new int[12];
+        for (int month = 1; month <= 12; month++) months[month - 1] = month;
+        return months;
+    }
+    /** Функция получения результатов пакета, который не удалось выполнить.
+     * @param requests запросы отчётов
+     * @param error сообщение об ошибке
+     * @return Результаты с ошибкой в порядке запросов
+     * */
+    private static @NotNull List<ReportResult> failed(@NotNull List<ReportRequest> requests, @NotNull String error) {
+        List<ReportResult> results = new ArrayList<>(requests.size());
+        for (ReportRequest request : requests) {
+            results.add(Served.failed(request, error).result());
+        }
+        return results;
+    }
+    /** Функция создания исполнителя запросов пакета.
+     * Если среда выполнения поддерживает виртуальные потоки (JDK 21 и новее), то каждая задача получает
+     * собственный виртуальный поток, и сотни запросов ожидают ввода-вывода, не занимая потоков ОС.
+     * Иначе задачи выполняются в пуле из threads потоков. На JDK 19-20 виртуальные потоки - предварительная
+     * возможность, и без --enable-preview фабрика выбрасывает UnsupportedOperationException; тогда тоже
+     * используется пул. Любая другая ошибка фабрики выбрасывается дальше.
+     * @return Исполнитель, который нужно завершить после выполнения задач
+     * */
+    private @NotNull ExecutorService newRequestExecutor() {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invokeExact();
+            } catch (UnsupportedOperationException e) {
+                // виртуальные потоки выключены в этой среде выполнения
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+    /** Функция поиска фабрики исполнителя с виртуальным потоком на каждую задачу.
+     * @return Executors.newVirtualThreadPerTaskExecutor или null, если среда выполнения старше JDK 21
+     * */
+    private static @Nullable MethodHandle findVirtualExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+    /** Процедура вывода итога проверки CDR файлов после таблицы, если были неверные записи или нет файлов.
+     * @param printer вывод таблицы в консоль
+     * @see Printer#printValidation(ValidationSummary)
+     * */
+    private void printValidation(@NotNull Printer printer) {
+        ValidationSummary summary = getValidationSummary();
+        if (!summary.isClean()) printer.printValidation(summary);
+    }
+    /** Функция открытия записи отчётов в папку отчётов в формате сервиса.
+     * @return Запись отчётов
+     * @see FileManager#getDirectoryUDR()
+     * */
+    private @NotNull ReportWriter openWriter() throws IOException {
+        return new ReportWriter(reportFormat, Path.of(FileManager.getDirectoryUDR()), threads);
     }
-    /** Процедура заполнения пустого JSON-файла.
-     * Название файла имеет формат номер_месяц.json.
+    /** Процедура добавления отчёта в запись отчётов.
+     *  В формате FILES название файла имеет формат номер_месяц.json.
+     * @param writer запись отчётов
      * @param subscriber абонент
-     * @param path путь к пустому JSON-файлу
-     * @param gson экземпляр gson
+     * @param month номер месяца, -1 - отчёт за весь период
+     * @see ReportWriter#write(Subscriber, int)
      * @see Subscriber
      * */
-    private void fillJSON(Subscriber subscriber, String path, @NotNull Gson gson) throws  RuntimeException{
-        try (Writer writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8)
-        )) {
-            gson.toJson(subscriber, writer);
+    private void createJSON(@NotNull ReportWriter writer, @NotNull Subscriber subscriber, @NotNull Integer month)
+            throws IOException
+    {
+        writer.write(subscriber, month);
+    }
+    /** Функция параллельного чтения CDR файлов всех месяцев.
+     *  Каждый месяц обрабатывается отдельной задачей, которая копит данные в собственную структуру.
+     *  @param task задача обработки месяца, возвращающая частичный результат
+     *  @return Частичные результаты в порядке месяцев
+     *  @see UDRGenerationService#runTasks(List)
+     *  */
+    private <T> @NotNull List<T> readMonths(@NotNull IntFunction<T> task) throws RuntimeException {
+        List<Callable<T>> tasks = new ArrayList<>(12);
+        for (int month = 1; month <= 12; month++) {
+            int numOfMonth = month;
+            tasks.add(() -> task.apply(numOfMonth));
         }
-        catch (IOException e) {
-            System.out.println(e.getMessage());
-            throw new RuntimeException(e);
+        return runTasks(tasks);
+    }
+    /** Функция параллельного чтения CDR файлов всех месяцев по частям.
+     *  Большие файлы делятся на диапазоны не меньше MIN_CHUNK_SIZE байт, но не больше,
+     *  чем потоков, и каждый диапазон обрабатывается отдельной задачей.
+     *  Текстовые файлы делятся по байтам, двоичные - по блокам.
+     *  @param task задача обработки части файла, возвращающая частичный результат
+     *  @return Частичные результаты
+     *  @see UDRGenerationService#MIN_CHUNK_SIZE
+     *  @see CDRReader#split(long, int)
+     *  */
+    private <T> @NotNull List<T> readChunks(@NotNull ChunkTask<T> task) throws RuntimeException {
+        List<Callable<T>> tasks = new ArrayList<>(12);
+        for (int month = 1; month <= 12; month++) {
+            addChunks(tasks, month, threads, task);
         }
+        return runTasks(tasks);
     }
-    /** Процедура чтения и обработки файла построчно.
-     *  @param numOfFile порядковый номер CDR файла
-     *  @see FileManager#getPathCDR(Integer)
-     *  @see UDRGenerationService#readFragment(String)
+    /** Процедура добавления задач чтения частей CDR файла за месяц.
+     *  Файл делится на диапазоны не меньше MIN_CHUNK_SIZE байт, но не больше maxParts.
+     *  @param tasks список задач, в который добавляются задачи
+     *  @param month номер месяца
+     *  @param maxParts максимальное количество частей
+     *  @param task задача обработки части файла
+     *  @see CDRReader#split(long, int)
      *  */
-    private void readFile(int numOfFile) throws RuntimeException {
-        String path = FileManager.getPathCDR(numOfFile);
-        FileReader fr = null;
-
+    private <T> void addChunks(@NotNull List<Callable<T>> tasks, int month, long maxParts,
+                               @NotNull ChunkTask<T> task) throws RuntimeException
+    {
+        File file = new File(FileManager.getPathCDR(month, inputFormat));
+        if (!file.exists() && quarantine.missing(month)) return;
+        long size = file.length();
+        long units = inputFormat == CDRFileFormat.BINARY ? blockCount(file.toPath()) : size;
+        int parts = (int) Math.max(1, Math.min(Math.min(maxParts, units), size / MIN_CHUNK_SIZE));
+        long[] bounds = CDRReader.split(units, parts);
+        for (int i = 0; i < parts; i++) {
+            long from = bounds[i];
+            long to = i == parts - 1 ? Long.MAX_VALUE : bounds[i + 1];
+            tasks.add(() -> task.apply(month, from, to));
+        }
+    }
+    /** Функция выполнения задач чтения в пуле потоков.
+     *  Если задан один поток, то задачи выполняются последовательно в текущем потоке.
+     *  @param tasks задачи чтения
+     *  @return Результаты задач в порядке задач
+     *  @see UDRGenerationService#threads
+     *  */
+    private <T> @NotNull List<T> runTasks(@NotNull List<Callable<T>> tasks) throws RuntimeException {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (threads == 1) {
+            try {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
         try {
-            fr = new FileReader(path);
-        } catch (FileNotFoundException e) {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    /** Функция получения количества блоков двоичного CDR файла.
+     *  @param path путь к CDR файлу
+     *  @return Количество блоков
+     *  @see BinaryCDRReader#blockCount(FileChannel)
+     *  */
+    private long blockCount(@NotNull Path path) throws RuntimeException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return BinaryCDRReader.blockCount(channel);
+        } catch (IOException e) {
             System.out.println(e.getMessage());
+            throw new RuntimeException();
         }
-
-        try (BufferedReader br = new BufferedReader(fr)) {
-            for(String line; (line = br.readLine()) != null; ) {
-                readFragment(line);
+    }
+    /** Процедура чтения и обработки диапазона CDR файла.
+     *  Файл отображается в память, записи разбираются прямо из байтов.
+     *  Неверные записи передаются карантину сервиса, а отсутствующий файл в мягком режиме считается пустым.
+     *  Количество записей, байтов и время чтения диапазона учитываются в метриках.
+     *  @param numOfFile порядковый номер CDR файла
+     *  @param from начало диапазона в байтах или в блоках для двоичного файла
+     *  @param to конец диапазона, Long.MAX_VALUE - до конца файла
+     *  @param handler обработчик записей файла
+     *  @see FileManager#getPathCDR(Integer, CDRFileFormat)
+     *  @see CDRReader#read(FileChannel, long, long, CDRRecordHandler, boolean, Quarantine, int)
+     *  @see BinaryCDRReader#read(FileChannel, long, long, Services.CDRFormat.BinaryRecordHandler)
+     *  @see Quarantine
+     *  */
+    private void readFile(int numOfFile, long from, long to, @NotNull CDRRecordHandler handler)
+            throws RuntimeException
+    {
+        Path path = Path.of(FileManager.getPathCDR(numOfFile, inputFormat));
+        Quarantine current = quarantine;
+        long start = System.nanoTime();
+        long[] records = {0};
+        CDRRecordHandler counting = (type, msisdn, callDuration) -> {
+            records[0]++;
+            handler.accept(type, msisdn, callDuration);
+        };
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (inputFormat == CDRFileFormat.BINARY) {
+                BinaryCDRReader.read(channel, from, to, (type, msisdn, startOfCall, callDuration) -> {
+                    CDRError error = current.check(type, startOfCall, callDuration);
+                    if (error == null) {
+                        counting.accept(type, msisdn, callDuration);
+                    } else {
+                        current.reject(error, numOfFile, -1, String.format("%02d,%s,%d,%d", type,
+                                MsisdnCodec.decode(msisdn), startOfCall, startOfCall + callDuration));
+                    }
+                });
+                READ_BYTES.add(records[0] * BinaryCDRReader.RECORD_SIZE);
+            } else {
+                long end = CDRReader.read(channel, from, to, counting, false, current, numOfFile);
+                READ_BYTES.add(end - Math.min(from, end));
             }
+            current.accept(records[0]);
+            PARSED_RECORDS.add(records[0]);
+            PARSE_CHUNK.recordSince(start);
+        } catch (NoSuchFileException e) {
+            if (current.missing(numOfFile)) return;
+            System.out.println(e.getMessage());
+            throw new RuntimeException();
         } catch (IOException | IllegalArgumentException e) {
             System.out.println(e.getMessage());
             throw new RuntimeException();
         }
     }
-    /** Процедура обработки строки файла
-     * @param line строка файла
-     * @see UDRGenerationService#addSubscriber(String, String, Integer)
-     * */
-    private void readFragment(@NotNull String line) throws IllegalArgumentException {
-        String[] data = line.replace("\n", "").split(",");
-        String type = data[0];
-        String msisdn = data[1];
-        String timeStart = data[2];
-        String timeEnd = data[3];
-
-        int callDuration = Integer.parseInt(timeEnd) - Integer.parseInt(timeStart);
-        if (callDuration < 0) throw new IllegalArgumentException("Call time period is invalid");
-
-        addSubscriber(msisdn, type, callDuration);
-    }
-    /** Процедура добавления абонента в список.
-     *  @param msisdn номер мобильного абонента
-     *  @param type тип звонка
-     *  @param callDuration продолжительность звонка
-     *  @see UDRGenerationService#addTimeToSub(Subscriber, String, Integer)
+    /** Функция чтения строк, дописанных в CDR файл после заданной позиции.
+     *  Недописанная последняя строка не обрабатывается. Отсутствующий файл считается пустым.
+     *  @param numOfFile порядковый номер CDR файла
+     *  @param from позиция после последней обработанной строки
+     *  @param handler обработчик записей файла
+     *  @return Позиция после последней обработанной строки
+     *  @see CDRReader#read(FileChannel, long, long, CDRRecordHandler, boolean)
      *  */
-    private void addSubscriber(String msisdn, String type, Integer callDuration) {
-        if (subscribers.get(msisdn) != null) {
-            Subscriber subscriber = subscribers.get(msisdn);
-            addTimeToSub(subscriber, type, callDuration);
-        } else {
-            Subscriber subscriber = new Subscriber(msisdn);
-            addTimeToSub(subscriber, type, callDuration);
-            subscribers.put(msisdn, subscriber);
+    private long readAppended(int numOfFile, long from, @NotNull CDRRecordHandler handler) throws RuntimeException {
+        Path path = Path.of(FileManager.getPathCDR(numOfFile, inputFormat));
+        if (from == 0 && !Files.exists(path)) return 0;
+        Quarantine current = quarantine;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] records = {0};
+            long end = CDRReader.read(channel, from, Long.MAX_VALUE, (type, msisdn, callDuration) -> {
+                records[0]++;
+                handler.accept(type, msisdn, callDuration);
+            }, true, current, numOfFile);
+            current.accept(records[0]);
+            READ_BYTES.add(end - from);
+            PARSED_RECORDS.add(records[0]);
+            return end;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            throw new RuntimeException();
         }
     }
-    /** Процедура увеличения итогового времени звонков абонента
-     * @param subscriber абонент
-     * @param type тип звонка
-     * @param callDuration продолжительность звонка
-     * @see Subscriber
-     * @see Call*/
-    private void addTimeToSub(Subscriber subscriber, String type, @NotNull Integer callDuration)
-            throws IllegalArgumentException
-    {
-        if (Integer.parseInt(type) == 1) {
-            subscriber.getOutcomingCall().addTime(callDuration);
-        } else if (Integer.parseInt(type) == 2) {
-            subscriber.getIncomingCall().addTime(callDuration);
-        } else throw new IllegalArgumentException("Call type is invalid");
+
+    /** Результат запроса пакета вместе с данными абонента по месяцам для записи и вывода в консоль. */
+    private record Served(@NotNull ReportResult result, @NotNull SortedMap<Integer, Subscriber> subscribers) {
+        private static @NotNull Served failed(@NotNull ReportRequest request, @NotNull String error) {
+            return new Served(new ReportResult(request, Collections.emptySortedMap(), error), Collections.emptySortedMap());
+        }
     }
 
+    /** Задача обработки диапазона байтов CDR файла за месяц. */
+    @FunctionalInterface
+    private interface ChunkTask<T> {
+        T apply(int month, long from, long to);
+    }
 }
@@ -0,0 +1,35 @@
+package Services.UDRGeneration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/** Итог проверки записей CDR файлов.
+ * @param accepted количество принятых записей
+ * @param rejected количество неверных записей по причинам, только причины с записями
+ * @param missingMonths номера месяцев, CDR файлов которых нет
+ * @param quarantine файл карантина или null, если неверных записей не было
+ * @author Никита Дюков
+ * @version 1.0
+ * @see Quarantine#summary()
+ * */
+public record ValidationSummary(long accepted, @NotNull Map<CDRError, Long> rejected,
+                                @NotNull List<Integer> missingMonths, @Nullable Path quarantine) {
+    /** Функция получения количества неверных записей.
+     * @return Количество неверных записей по всем причинам
+     * */
+    public long totalRejected() {
+        long total = 0;
+        for (long count : rejected.values()) total += count;
+        return total;
+    }
+    /** Функция проверки, что все записи приняты и все файлы на месте.
+     * @return true, если проблем не было
+     * */
+    public boolean isClean() {
+        return rejected.isEmpty() && missingMonths.isEmpty();
+    }
+}
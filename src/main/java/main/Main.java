@@ -1,15 +1,54 @@
 package main;
 
 import Services.CDRGenerationService.CDRGenerationService;
+import Services.Metrics.Metrics;
+import Services.Metrics.MetricsReporter;
+import Services.UDRGeneration.CDRValidation;
+import Services.UDRGeneration.IngestPipeline;
+import Services.UDRGeneration.ReportServer;
+import Services.UDRGeneration.TableView;
 import Services.UDRGeneration.UDRGenerationService;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 
 public class Main {
     public static void main(String[] args){
+        MetricsReporter reporter = startMetrics();
+        try {
+            run(args);
+        } finally {
+            if (reporter != null) reporter.close();
+        }
+    }
+    /** Функция запуска периодического вывода метрик, если задано свойство metrics.interval в секундах.
+     * Если задано свойство metrics.json, то метрики записываются в этот файл в формате JSON, иначе - в консоль.
+     * @return Вывод метрик или null
+     * @see Metrics
+     * */
+    private static MetricsReporter startMetrics() {
+        Long interval = Long.getLong("metrics.interval");
+        if (interval == null || interval <= 0) return null;
+        String json = System.getProperty("metrics.json");
+        return Metrics.global().startReporter(interval * 1000, json == null ? null : Path.of(json));
+    }
+
+    private static void run(String[] args) {
+        if (args.length == 1 && args[0].equals("watch")) {
+            watch();
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("serve")) {
+            serve(args.length > 1 ? args[1] : "8080");
+            return;
+        }
         CDRGenerationService cdrGenerationService = new CDRGenerationService();
         cdrGenerationService.generate();
-        UDRGenerationService udrGenerationService = new UDRGenerationService();
+        UDRGenerationService udrGenerationService = createUDRService();
         try {
+            String table = System.getProperty("table");
+            if (table != null) udrGenerationService.setTableView(TableView.parse(table));
             if (args.length == 0) {
                 udrGenerationService.generateReport();
             } else if (args.length == 1) {
@@ -17,10 +56,63 @@ public class Main {
             } else if (args.length == 2) {
                 udrGenerationService.generateReport(args[0], Integer.parseInt(args[1]));
             } else System.out.println("Too many arguments");
-        } catch (NumberFormatException e) {
+        } catch (IllegalArgumentException e) {
             System.out.println(e.getMessage());
         }
 
 
     }
+    /** Функция создания сервиса отчётов. Если задано свойство store=offheap, то индекс строится с агрегацией вне кучи,
+     * свойство budget задаёт максимальное количество абонентов в памяти при генерации всех отчётов,
+     * а свойство validation=lenient отправляет неверные записи CDR файлов в карантин вместо остановки.
+     * @return Сервис отчётов
+     * @see UDRGenerationService#setOffHeapAggregation(boolean)
+     * @see UDRGenerationService#setMemoryBudget(int)
+     * @see UDRGenerationService#setValidation(CDRValidation)
+     * */
+    private static UDRGenerationService createUDRService() {
+        UDRGenerationService service = new UDRGenerationService();
+        service.setOffHeapAggregation("offheap".equals(System.getProperty("store")));
+        service.setMemoryBudget(Math.max(0, Integer.getInteger("budget", 0)));
+        if ("lenient".equals(System.getProperty("validation"))) service.setValidation(CDRValidation.lenient());
+        return service;
+    }
+    /** Процедура запуска HTTP сервера отчётов по существующим CDR файлам до завершения процесса.
+     * @param port порт сервера
+     * @see ReportServer
+     * */
+    private static void serve(String port) {
+        try {
+            ReportServer server = new ReportServer(createUDRService(), Integer.parseInt(port));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Serving reports on port " + server.getAddress().getPort());
+            Thread.currentThread().join();
+        } catch (IOException | NumberFormatException e) {
+            System.out.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /** Процедура непрерывной обработки CDR файлов до завершения процесса.
+     * @see IngestPipeline
+     * */
+    private static void watch() {
+        IngestPipeline pipeline = new IngestPipeline();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                pipeline.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }));
+        try {
+            pipeline.start();
+            pipeline.awaitTermination();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package Services.CDRFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCDRTest {
+
+    private record Record(int type, long msisdn, long start, long duration) {
+    }
+
+    private List<Record> readAll(Path path) throws IOException {
+        List<Record> records = new ArrayList<>();
+        BinaryCDRReader.read(path, (type, msisdn, start, duration) ->
+                records.add(new Record(type, msisdn, start, duration)));
+        return records;
+    }
+
+    @Test
+    void testWriteRead(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("cdr.cdrb");
+        List<Record> expected = new ArrayList<>();
+        try (BinaryCDRWriter writer = new BinaryCDRWriter(path, 7)) {
+            for (int i = 0; i < 100; i++) {
+                Record record = new Record(1 + i % 2, MsisdnCodec.encode(String.format("0%010d", i)),
+                        1709799601L + i * 60, 30 + i);
+                writer.write(record.type(), record.msisdn(), record.start(), record.start() + record.duration());
+                expected.add(record);
+            }
+        }
+        assertEquals(expected, readAll(path));
+        assertEquals("00000000042", MsisdnCodec.decode(readAll(path).get(42).msisdn()));
+        assertEquals(21 * 100 + 32 + 28 * 15, Files.size(path));
+    }
+
+    @Test
+    void testReadBlockRange(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("cdr.cdrb");
+        try (BinaryCDRWriter writer = new BinaryCDRWriter(path, 10)) {
+            for (int i = 0; i < 95; i++) {
+                writer.write(1, MsisdnCodec.encode("79996667755"), i, i + 1);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            assertEquals(10, BinaryCDRReader.blockCount(channel));
+            assertEquals(95, BinaryCDRReader.recordCount(channel));
+            long[] total = {0};
+            BinaryCDRReader.read(channel, 0, 4, (type, msisdn, start, duration) -> total[0]++);
+            BinaryCDRReader.read(channel, 4, Long.MAX_VALUE, (type, msisdn, start, duration) -> total[0]++);
+            assertEquals(95, total[0]);
+        }
+    }
+
+    @Test
+    void testEmptyFile(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("cdr.cdrb");
+        new BinaryCDRWriter(path).close();
+        assertTrue(readAll(path).isEmpty());
+    }
+
+    @Test
+    void testInvalidRecords(@TempDir Path directory) throws IOException {
+        try (BinaryCDRWriter writer = new BinaryCDRWriter(directory.resolve("cdr.cdrb"))) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(1, 1L << 56, 100, 99));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(1, 1L << 56, 0, 1L << 40));
+        }
+        Path text = directory.resolve("cdr.txt");
+        Files.writeString(text, "01,79996667755,1709899870,1709905806\n");
+        assertThrows(IOException.class, () -> readAll(text));
+    }
+
+    @Test
+    void testConvertRoundTrip(@TempDir Path directory) throws IOException {
+        Path text = directory.resolve(" 1_CDR.txt");
+        String content = "02,79876543221,1709798657,1709799601\n01,01234567890,1709899870,1709905806\n";
+        Files.writeString(text, content);
+        Path binaries = directory.resolve("binary");
+        Path texts = directory.resolve("text");
+        assertEquals(2, CDRConverter.convert(directory, binaries, CDRFileFormat.BINARY));
+        assertTrue(Files.exists(binaries.resolve(" 1_CDR.cdrb")));
+        assertEquals(2, CDRConverter.convert(binaries, texts, CDRFileFormat.TEXT));
+        assertEquals(content, Files.readString(texts.resolve(" 1_CDR.txt")));
+    }
+
+    @Test
+    void testFailedConversionKeepsTarget(@TempDir Path directory) throws IOException {
+        Path text = directory.resolve("cdr.txt");
+        Path binary = directory.resolve("out").resolve("cdr.cdrb");
+        Files.writeString(text, "01,79996667755,1709899870,1709905806\n");
+        assertEquals(1, CDRConverter.toBinary(text, binary));
+        byte[] converted = Files.readAllBytes(binary);
+
+        Files.writeString(text, "01,79996667755,1709899870,1709905806\n01,79996667755,1709905806,1709899870\n");
+        assertThrows(IllegalArgumentException.class, () -> CDRConverter.toBinary(text, binary));
+        assertArrayEquals(converted, Files.readAllBytes(binary));
+        try (var files = Files.list(binary.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+}
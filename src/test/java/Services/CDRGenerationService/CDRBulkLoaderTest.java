@@ -0,0 +1,75 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CDRBulkLoaderTest {
+    private Connection createDB(String name) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "sa");
+        CDRSchema.reset(connection);
+        return connection;
+    }
+
+    private List<String> createFiles() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path path = Files.createTempFile("cdr", ".txt");
+            path.toFile().deleteOnExit();
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j < 25; j++) {
+                content.append("0").append(1 + j % 2).append(",0123456789").append(j % 10)
+                        .append(",").append(1709899870 + j).append(",").append(1709899900 + j).append("\n");
+            }
+            Files.writeString(path, content);
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private List<String> readRows(Connection connection) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        ResultSet result = connection.createStatement()
+                .executeQuery("SELECT ID, TYPE, NUMBER, DIGITS, TIMEOFSTART, TIMEOFEND, DURATION FROM CDR ORDER BY ID");
+        while (result.next()) {
+            String msisdn = MsisdnCodec.decode(MsisdnCodec.pack(result.getLong(3), result.getInt(4)));
+            rows.add(result.getLong(1) + "," + result.getInt(2) + "," + msisdn + ","
+                    + result.getLong(5) + "," + result.getLong(6) + "," + result.getInt(7));
+        }
+        return rows;
+    }
+
+    @Test
+    void testLoadMatchesLoadDirect() throws SQLException, IOException {
+        List<String> paths = createFiles();
+        try (Connection prepared = createDB("loaderPrepared"); Connection direct = createDB("loaderDirect")) {
+            LoadStatistics loaded = new CDRBulkLoader(7).load(prepared, paths);
+            LoadStatistics loadedDirect = new CDRBulkLoader().loadDirect(direct, paths);
+            assertEquals(75, loaded.getRows());
+            assertEquals(75, loadedDirect.getRows());
+            List<String> rows = readRows(prepared);
+            assertEquals(rows, readRows(direct));
+            assertEquals("1,1,01234567890,1709899870,1709899900,30", rows.get(0));
+        }
+    }
+
+    @Test
+    void testLoadMissingFile() throws SQLException {
+        try (Connection connection = createDB("loaderMissing")) {
+            List<String> paths = List.of("missing" + File.separator + "file.txt");
+            assertThrows(IOException.class, () -> new CDRBulkLoader().load(connection, paths));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CDRDatabaseSinkTest {
+    private Connection createDB(String name) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "sa");
+        CDRSchema.reset(connection);
+        return connection;
+    }
+
+    private void produce(CDRDatabaseSink.Producer producer, int records, int offset) {
+        try {
+            for (int i = 0; i < records; i++) {
+                producer.add(1 + i % 2, MsisdnCodec.encode("7900000" + (offset + i)), 1709899870L + i, 1709899900L + i);
+            }
+            producer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testProducersWithSmallLag() throws SQLException, InterruptedException {
+        try (Connection connection = createDB("sinkProducers")) {
+            CDRDatabaseSink sink = new CDRDatabaseSink(connection, 7, 10);
+            CDRDatabaseSink.Producer first = sink.producer(1);
+            CDRDatabaseSink.Producer second = sink.producer(501);
+            Thread thread = new Thread(() -> produce(second, 300, 1000));
+            thread.start();
+            produce(first, 500, 0);
+            thread.join();
+            LoadStatistics statistics = sink.finish();
+            assertEquals(800, statistics.getRows());
+            assertTrue(connection.getAutoCommit());
+
+            ResultSet result = connection.createStatement()
+                    .executeQuery("SELECT COUNT(*), MIN(ID), MAX(ID) FROM CDR");
+            assertTrue(result.next());
+            assertEquals(800, result.getInt(1));
+            assertEquals(1, result.getInt(2));
+            assertEquals(800, result.getInt(3));
+            result = connection.createStatement()
+                    .executeQuery("SELECT TYPE, NUMBER, DIGITS, TIMEOFSTART, DURATION FROM CDR WHERE ID = 502");
+            assertTrue(result.next());
+            assertEquals(2, result.getInt(1));
+            assertEquals(79000001001L, result.getLong(2));
+            assertEquals(11, result.getInt(3));
+            assertEquals(1709899871L, result.getLong(4));
+            assertEquals(30, result.getInt(5));
+        }
+    }
+
+    @Test
+    void testFailureDoesNotBlockGeneration() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:sinkFailure", "sa", "sa")) {
+            CDRDatabaseSink sink = new CDRDatabaseSink(connection, 5, 5);
+            produce(sink.producer(1), 1_000, 0);
+            assertThrows(SQLException.class, sink::finish);
+            assertTrue(connection.getAutoCommit());
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package Services.CDRGenerationService;
 
-
+import Services.CDRFormat.CDRConverter;
+import Services.CDRFormat.CDRFileFormat;
 import org.junit.jupiter.api.Test;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -13,13 +18,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class CDRGenerationServiceTest {
     public void clearResources() {
-        String query_delete = "DROP TABLE IF EXISTS CDR;";
-        String query_create = "CREATE TABLE CDR(ID INT PRIMARY KEY, TYPE VARCHAR(2), " +
-                "NUMBER VARCHAR(15), TIMEOFSTART VARCHAR(255), TIMEOFEND VARCHAR(255))";
         Connection connection = ConnectionUtil.getConnection();
         try {
-            connection.createStatement().execute(query_delete);
-            connection.createStatement().execute(query_create);
+            CDRSchema.reset(connection);
             connection.close();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -82,4 +83,113 @@ class CDRGenerationServiceTest {
         assertTrue(hasNoRecords);
     }
 
+    private List<byte[]> generateToTempDir(GenerationConfig.Builder builder) throws IOException {
+        Path directory = Files.createTempDirectory("cdrs");
+        GenerationConfig config = builder
+                .recordsPerMonth(2_000)
+                .subscriberCount(1_000)
+                .monthCount(4)
+                .outputDirectory(directory.toString())
+                .loadDatabase(false)
+                .build();
+        new CDRGenerationService(config).generate();
+        List<byte[]> contents = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            Path file = Path.of(FileManager.getPath(directory.toString(), i, config.getFormat()));
+            if (config.getFormat() == CDRFileFormat.BINARY) {
+                Path text = Path.of(FileManager.getPath(directory.toString(), i));
+                CDRConverter.toText(file, text);
+                text.toFile().deleteOnExit();
+                contents.add(Files.readAllBytes(text));
+            } else {
+                contents.add(Files.readAllBytes(file));
+            }
+            file.toFile().deleteOnExit();
+        }
+        directory.toFile().deleteOnExit();
+        return contents;
+    }
+
+    @Test
+    void testGenerateReproducibleFromSeed() throws IOException {
+        List<byte[]> sequential = generateToTempDir(GenerationConfig.builder().threads(1).seed(42L));
+        List<byte[]> parallel = generateToTempDir(GenerationConfig.builder().threads(4).seed(42L));
+        for (int i = 0; i < sequential.size(); i++) {
+            assertArrayEquals(sequential.get(i), parallel.get(i));
+            assertEquals(2_000, new String(sequential.get(i)).lines().count());
+        }
+    }
+
+    private boolean isOrdered(byte[] content) {
+        long previous = Long.MIN_VALUE;
+        for (String line : new String(content).split("\n")) {
+            long start = Long.parseLong(line.split(",")[2]);
+            if (start < previous) return false;
+            previous = start;
+        }
+        return true;
+    }
+
+    @Test
+    void testGenerateOrdered() throws IOException {
+        List<byte[]> ordered = generateToTempDir(GenerationConfig.builder().seed(7L));
+        long previousMonthEnd = Long.MIN_VALUE;
+        for (byte[] content : ordered) {
+            assertTrue(isOrdered(content));
+            String[] lines = new String(content).split("\n");
+            long first = Long.parseLong(lines[0].split(",")[2]);
+            long last = Long.parseLong(lines[lines.length - 1].split(",")[2]);
+            assertTrue(first >= previousMonthEnd);
+            previousMonthEnd = last;
+        }
+        List<byte[]> unordered = generateToTempDir(GenerationConfig.builder().seed(7L).ordered(false));
+        assertFalse(isOrdered(unordered.get(0)));
+    }
+
+    @Test
+    void testGenerateBinaryMatchesText() throws IOException {
+        List<byte[]> text = generateToTempDir(GenerationConfig.builder().seed(42L));
+        List<byte[]> binary = generateToTempDir(GenerationConfig.builder().seed(42L).format(CDRFileFormat.BINARY));
+        for (int i = 0; i < text.size(); i++) {
+            assertArrayEquals(text.get(i), binary.get(i));
+        }
+    }
+
+    @Test
+    void testStreamLoadMatchesFileLoad() throws IOException, SQLException {
+        Path directory = Files.createTempDirectory("cdrs");
+        GenerationConfig config = GenerationConfig.builder()
+                .recordsPerMonth(300, 700)
+                .subscriberCount(1_000)
+                .monthCount(3)
+                .outputDirectory(directory.toString())
+                .seed(7L)
+                .loadChunkSize(50)
+                .maxLoadLag(100)
+                .build();
+        new CDRGenerationService(config).generate();
+        List<String> paths = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            paths.add(FileManager.getPath(directory.toString(), i));
+            new File(paths.get(i - 1)).deleteOnExit();
+        }
+        directory.toFile().deleteOnExit();
+
+        String query = "SELECT ID, TYPE, NUMBER, TIMEOFSTART, TIMEOFEND FROM CDR ORDER BY ID";
+        try (Connection streamed = ConnectionUtil.getConnection();
+             Connection loaded = DriverManager.getConnection("jdbc:h2:mem:streamLoad", "sa", "sa")) {
+            CDRSchema.reset(loaded);
+            long rows = new CDRBulkLoader().load(loaded, paths).getRows();
+            ResultSet expected = loaded.createStatement().executeQuery(query);
+            ResultSet actual = streamed.createStatement().executeQuery(query);
+            for (long i = 0; i < rows; i++) {
+                assertTrue(expected.next());
+                assertTrue(actual.next());
+                for (int column = 1; column <= 5; column++) {
+                    assertEquals(expected.getString(column), actual.getString(column));
+                }
+            }
+            assertFalse(actual.next());
+        }
+    }
 }
\ No newline at end of file
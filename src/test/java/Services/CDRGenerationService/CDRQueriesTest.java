@@ -0,0 +1,71 @@
+package Services.CDRGenerationService;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CDRQueriesTest {
+    private Connection createDB(String name) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "sa");
+        CDRSchema.reset(connection);
+        try (PreparedStatement stmt = connection.prepareStatement(CDRSchema.INSERT_QUERY)) {
+            String[] numbers = {"79000000001", "79000000002", "09000000001"};
+            long id = 0;
+            for (int i = 0; i < 30; i++) {
+                long start = 1_000 + i * 100L;
+                CDRSchema.bind(stmt, ++id, 1 + i % 2, MsisdnCodec.encode(numbers[i % 3]), start, start + 10 + i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return connection;
+    }
+
+    private String plan(Connection connection, String query) throws SQLException {
+        try (ResultSet result = connection.createStatement().executeQuery("EXPLAIN " + query)) {
+            assertTrue(result.next());
+            return result.getString(1);
+        }
+    }
+
+    @Test
+    void testUsage() throws SQLException {
+        try (Connection connection = createDB("queriesUsage")) {
+            CDRQueries queries = new CDRQueries(connection);
+            CallUsage usage = queries.usage("79000000001", 1_000, 1_000 + 1_000);
+            assertEquals(new CallUsage("79000000001", 4, 13 + 19, 10 + 16), usage);
+            assertEquals(58, usage.totalSeconds());
+            CallUsage leadingZero = queries.usage("09000000001", 0, Long.MAX_VALUE);
+            assertEquals(10, leadingZero.calls());
+            assertEquals(new CallUsage("9000000001", 0, 0, 0), queries.usage("9000000001", 0, Long.MAX_VALUE));
+            assertTrue(plan(connection, CDRQueries.USAGE_QUERY
+                    .replaceFirst("\\?", "79000000001").replaceFirst("\\?", "0")
+                    .replaceFirst("\\?", "100").replaceFirst("\\?", "11")).contains("CDR_NUMBER_START"));
+        }
+    }
+
+    @Test
+    void testTopTalkers() throws SQLException {
+        try (Connection connection = createDB("queriesTop")) {
+            CDRQueries queries = new CDRQueries(connection);
+            List<CallUsage> top = queries.topTalkers(0, Long.MAX_VALUE, 2);
+            assertEquals(2, top.size());
+            assertEquals("09000000001", top.get(0).msisdn());
+            assertEquals(10 * 10 + (2 + 5 + 8 + 11 + 14 + 17 + 20 + 23 + 26 + 29), top.get(0).totalSeconds());
+            assertEquals("79000000002", top.get(1).msisdn());
+            List<CallUsage> first = queries.topTalkers(1_000, 1_100, 10);
+            assertEquals(List.of(new CallUsage("79000000001", 1, 0, 10)), first);
+            assertTrue(plan(connection, CDRQueries.TOP_QUERY
+                    .replaceFirst("\\?", "1000").replaceFirst("\\?", "1100")
+                    .replaceFirst("\\?", "10")).contains("CDR_START"));
+        }
+    }
+}
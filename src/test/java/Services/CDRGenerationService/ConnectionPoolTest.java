@@ -0,0 +1,100 @@
+package Services.CDRGenerationService;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private ConnectionPool createPool(String name, int size, long timeout) {
+        return new ConnectionPool("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "sa", size, timeout, 4);
+    }
+
+    @Test
+    void testReuseConnectionAndStatements() throws SQLException {
+        try (ConnectionPool pool = createPool("pool_reuse", 2, 1000)) {
+            Connection physical;
+            PreparedStatement cached;
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement stmt = connection.prepareStatement("SELECT ?")) {
+                physical = connection.unwrap(Connection.class);
+                cached = stmt.unwrap(PreparedStatement.class);
+                stmt.setInt(1, 7);
+                try (ResultSet result = stmt.executeQuery()) {
+                    assertTrue(result.next());
+                    assertEquals(7, result.getInt(1));
+                }
+                assertEquals(1, pool.getActive());
+            }
+            assertEquals(0, pool.getActive());
+            assertEquals(1, pool.getIdle());
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement stmt = connection.prepareStatement("SELECT ?")) {
+                assertSame(physical, connection.unwrap(Connection.class));
+                assertSame(cached, stmt.unwrap(PreparedStatement.class));
+                try (PreparedStatement nested = connection.prepareStatement("SELECT ?")) {
+                    assertNotSame(cached, nested.unwrap(PreparedStatement.class));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testResetOnReturn() throws SQLException {
+        try (ConnectionPool pool = createPool("pool_reset", 1, 1000)) {
+            try (Connection connection = pool.getConnection(); Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE T(ID INT)");
+            }
+            Connection leaked;
+            try (Connection connection = pool.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO T VALUES (?)")) {
+                    stmt.setInt(1, 1);
+                    stmt.executeUpdate();
+                }
+                leaked = connection;
+            }
+            assertTrue(leaked.isClosed());
+            assertThrows(SQLException.class, leaked::createStatement);
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement();
+                 ResultSet result = stmt.executeQuery("SELECT COUNT(*) FROM T")) {
+                assertTrue(connection.getAutoCommit());
+                assertTrue(result.next());
+                assertEquals(0, result.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testReplaceBrokenConnection() throws SQLException {
+        try (ConnectionPool pool = createPool("pool_broken", 1, 1000)) {
+            Connection physical;
+            try (Connection connection = pool.getConnection()) {
+                physical = connection.unwrap(Connection.class);
+            }
+            physical.close();
+            try (Connection connection = pool.getConnection()) {
+                assertNotSame(physical, connection.unwrap(Connection.class));
+                assertFalse(connection.isClosed());
+            }
+        }
+    }
+
+    @Test
+    void testExhausted() throws SQLException {
+        try (ConnectionPool pool = createPool("pool_exhausted", 1, 50)) {
+            Connection leaked = pool.getConnection();
+            assertThrows(SQLException.class, pool::getConnection);
+            leaked.close();
+            try (Connection connection = pool.getConnection()) {
+                assertNotNull(connection);
+            }
+        }
+    }
+}
@@ -2,18 +2,20 @@ package Services.CDRGenerationService;
 
 import org.junit.jupiter.api.Test;
 
-import java.nio.file.FileSystems;
-import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.SQLException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ConnectionUtilTest {
 
     @Test
-    void testGetConnection() {
-        Connection connection = ConnectionUtil.getConnection();
-        System.out.println(connection.toString());
-        assertNotNull(connection);
+    void testGetConnection() throws SQLException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            System.out.println(connection.toString());
+            assertNotNull(connection);
+        }
+        assertSame(ConnectionUtil.getPool(), ConnectionUtil.getPool());
+        assertEquals(0, ConnectionUtil.getPool().getActive());
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package Services.CDRGenerationService;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSISDNPoolTest {
+    private static final List<String> NUMBERS = List.of("01234567890", "12345678901", "23456789012",
+            "34567890123", "45678901234", "56789012345", "67890123456", "78901234567");
+
+    private Map<String, Integer> count(MSISDNPool pool, int amount) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String msisdn : pool.sample(amount, new SplittableRandom(42))) {
+            counts.merge(msisdn, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    void testLoadFromDatabase() {
+        MSISDNPool pool = new MSISDNPool();
+        assertTrue(pool.size() > 0);
+        assertNotNull(pool.next(new SplittableRandom(1)));
+    }
+
+    @Test
+    void testUniform() {
+        Map<String, Integer> counts = count(new MSISDNPool(NUMBERS, MSISDNDistribution.uniform()), 80_000);
+        assertEquals(NUMBERS.size(), counts.size());
+        for (int value : counts.values()) {
+            assertTrue(Math.abs(value - 10_000) < 1_000);
+        }
+    }
+
+    @Test
+    void testZipfSkew() {
+        Map<String, Integer> counts = count(new MSISDNPool(NUMBERS, MSISDNDistribution.zipf(1.2)), 80_000);
+        int first = counts.get(NUMBERS.get(0));
+        int last = counts.get(NUMBERS.get(NUMBERS.size() - 1));
+        assertTrue(first > 4 * last);
+        assertTrue(first > 20_000);
+    }
+}
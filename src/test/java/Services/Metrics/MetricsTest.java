@@ -0,0 +1,92 @@
+package Services.Metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testCounterFromThreads() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        Counter counter = metrics.counter("test.records");
+        assertSame(counter, metrics.counter("test.records"));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) counter.increment();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        counter.add(5);
+        assertEquals(40_005, counter.get());
+        assertEquals(Map.of("test.records", 40_005L), metrics.getCounters());
+    }
+
+    @Test
+    void testHistogram() {
+        Histogram histogram = new Metrics().histogram("test.latency");
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 100; i++) histogram.record(i * 1000L);
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(5050_000.0 / 101, histogram.getMean(), 1e-6);
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 50_000 && p50 < 2 * 50_000, "p50 = " + p50);
+        assertEquals(100_000, histogram.getPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    @Test
+    void testDumpAndJmx(@TempDir Path directory) throws Exception {
+        Metrics metrics = Metrics.global();
+        metrics.counter("test.dump").add(3);
+        metrics.histogram("test.dump.latency").record(2_000_000);
+
+        String text = metrics.toText(Map.of("test.dump", 1.5));
+        assertTrue(text.contains("test.dump 3 (2/s)"), text);
+        assertTrue(text.contains("test.dump.latency count=1"), text);
+        assertTrue(text.contains("jvm.heap.used_bytes"), text);
+
+        Path json = directory.resolve("metrics.json");
+        try (MetricsReporter reporter = metrics.startReporter(60_000, json)) {
+            assertNotNull(reporter);
+        }
+        JsonObject root = new Gson().fromJson(Files.readString(json), JsonObject.class);
+        assertEquals(3, root.getAsJsonObject("counters").get("test.dump").getAsLong());
+        assertEquals(2.0, root.getAsJsonObject("histograms").getAsJsonObject("test.dump.latency")
+                .get("max_ms").getAsDouble(), 1e-9);
+        assertTrue(root.getAsJsonObject("jvm").has("uptime_ms"));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        assertNotNull(server.getAttribute(name, "Counters"));
+        assertTrue(((String) server.getAttribute(name, "Json")).contains("test.dump"));
+    }
+
+    @Test
+    void testReporterToConsole() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.counter("test.console").increment();
+        MetricsReporter reporter = metrics.startReporter(10, null);
+        reporter.close();
+        assertThrows(IllegalArgumentException.class, () -> metrics.startReporter(0, null));
+    }
+}
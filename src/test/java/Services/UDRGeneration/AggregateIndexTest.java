@@ -0,0 +1,97 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateIndexTest {
+
+    private List<Path> createSources(Path directory) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            sources.add(Files.writeString(directory.resolve(month + ".txt"), "month " + month));
+        }
+        return sources;
+    }
+
+    private List<SubscriberTable> createMonths() {
+        List<SubscriberTable> months = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            SubscriberTable table = new SubscriberTable(16);
+            table.add(MsisdnCodec.encode("79996667755"), 1, 100L * month);
+            if (month % 2 == 0) table.add(MsisdnCodec.encode("01234567890"), 2, 7);
+            for (int i = 0; i < 100; i++) table.add(MsisdnCodec.encode(String.valueOf(71000000000L + i)), 2, i);
+            months.add(table);
+        }
+        return months;
+    }
+
+    @Test
+    void testBuildAndGet(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        Path path = directory.resolve("index").resolve("aggregate.idx");
+        AggregateIndex index = AggregateIndex.build(path, sources, AggregateIndex.fingerprint(sources),
+                CDRValidation.strict(), createMonths());
+        assertEquals(12 * 101 + 6, index.size());
+
+        Subscriber subscriber = index.get("79996667755", 5);
+        assertNotNull(subscriber);
+        assertEquals(500, subscriber.getOutcomingCall().getTotalSeconds());
+        assertEquals(0, subscriber.getIncomingCall().getTotalSeconds());
+
+        assertEquals(7, index.get("01234567890", 4).getIncomingCall().getTotalSeconds());
+        assertNull(index.get("01234567890", 5));
+        assertNull(index.get("1234567890", 4));
+        assertNull(index.get("70000000000", 1));
+        assertEquals(42, index.get("71000000042", 12).getIncomingCall().getTotalSeconds());
+
+        AggregateIndex reopened = AggregateIndex.open(path, sources, CDRValidation.strict());
+        assertNotNull(reopened);
+        assertEquals(500, reopened.get("79996667755", 5).getOutcomingCall().getTotalSeconds());
+    }
+
+    @Test
+    void testInvalidatedBySourceChange(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        Path path = directory.resolve("aggregate.idx");
+        AggregateIndex index = AggregateIndex.build(path, sources, AggregateIndex.fingerprint(sources),
+                CDRValidation.strict(), createMonths());
+        assertTrue(index.isValid(CDRValidation.strict()));
+
+        Files.writeString(sources.get(3), "changed month");
+        assertFalse(index.isValid(CDRValidation.strict()));
+        assertNull(AggregateIndex.open(path, sources, CDRValidation.strict()));
+    }
+
+    @Test
+    void testInvalidatedByValidationChange(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        Path path = directory.resolve("aggregate.idx");
+        CDRValidation period = CDRValidation.builder().period(1_000, 2_000).build();
+        AggregateIndex index = AggregateIndex.build(path, sources, AggregateIndex.fingerprint(sources),
+                period, createMonths());
+        assertTrue(index.isValid(CDRValidation.builder().period(1_000, 2_000).build()));
+        assertFalse(index.isValid(CDRValidation.strict()));
+        assertFalse(index.isValid(CDRValidation.builder().period(1_000, 3_000).build()));
+        assertNotNull(AggregateIndex.open(path, sources, period));
+        assertNull(AggregateIndex.open(path, sources, CDRValidation.strict()));
+        assertNull(AggregateIndex.open(path, sources, CDRValidation.lenient()));
+    }
+
+    @Test
+    void testCorruptIndex(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        Path path = directory.resolve("aggregate.idx");
+        Files.writeString(path, "not an index");
+        assertNull(AggregateIndex.open(path, sources, CDRValidation.strict()));
+        assertNull(AggregateIndex.open(directory.resolve("missing.idx"), sources, CDRValidation.strict()));
+    }
+}
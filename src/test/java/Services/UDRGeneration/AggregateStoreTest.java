@@ -0,0 +1,116 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateStoreTest {
+
+    private List<Path> createSources(Path directory) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            sources.add(Files.writeString(directory.resolve(month + ".txt"), "month " + month));
+        }
+        return sources;
+    }
+
+    @Test
+    void testGrowAndBuildIndex(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        long[] fingerprint = AggregateIndex.fingerprint(sources);
+        List<SubscriberTable> months = new ArrayList<>();
+        Path storePath = directory.resolve("aggregate.store");
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, CDRValidation.strict(), 16)) {
+            for (int month = 1; month <= 12; month++) {
+                SubscriberTable table = new SubscriberTable(16);
+                for (int i = 0; i < 3_000; i += month) {
+                    table.add(MsisdnCodec.encode(String.valueOf(79000000000L + i)), 1 + i % 2, i + month);
+                }
+                if (month == 3) table.add(MsisdnCodec.encode("01234567890"), 2, 7);
+                store.merge(table, month);
+                store.add(MsisdnCodec.encode("79000000000"), month, 5, 0);
+                months.add(table);
+            }
+            assertEquals(3_001, store.size());
+            long slot = store.find(MsisdnCodec.encode("79000000010"));
+            assertTrue(store.hasCalls(slot, 5));
+            assertFalse(store.hasCalls(slot, 3));
+            assertEquals(15, store.outgoingAt(slot, 5));
+            assertEquals(-1, store.find(MsisdnCodec.encode("1234567890")));
+
+            AggregateIndex fromStore = AggregateIndex.build(directory.resolve("store.idx"), sources, fingerprint,
+                    CDRValidation.strict(), store);
+            for (SubscriberTable table : months) {
+                table.add(MsisdnCodec.encode("79000000000"), 2, 5);
+            }
+            AggregateIndex fromTables = AggregateIndex.build(directory.resolve("tables.idx"), sources, fingerprint,
+                    CDRValidation.strict(), months);
+            assertEquals(fromTables.size(), fromStore.size());
+            assertArrayEquals(Files.readAllBytes(directory.resolve("tables.idx")),
+                    Files.readAllBytes(directory.resolve("store.idx")));
+            assertEquals(7, fromStore.get("01234567890", 3).getIncomingCall().getTotalSeconds());
+        }
+    }
+
+    @Test
+    void testResumeFromCheckpoint(@TempDir Path directory) throws IOException {
+        List<Path> sources = createSources(directory);
+        long[] fingerprint = AggregateIndex.fingerprint(sources);
+        Path storePath = directory.resolve("aggregate.store");
+        long key = MsisdnCodec.encode("79996667755");
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, CDRValidation.strict(), 16)) {
+            store.add(key, 1, 10, 20);
+            store.complete(1);
+            store.add(key, 2, 30, 40);
+            store.add(MsisdnCodec.encode("79990000000"), 2, 1, 1);
+        }
+
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, CDRValidation.strict(), 16)) {
+            assertTrue(store.isComplete(1));
+            assertFalse(store.isComplete(2));
+            assertEquals(2, store.size());
+            store.clearMonth(2);
+            long slot = store.find(key);
+            assertEquals(10, store.incomingAt(slot, 1));
+            assertEquals(20, store.outgoingAt(slot, 1));
+            assertFalse(store.hasCalls(slot, 2));
+            assertEquals(0, store.incomingAt(slot, 2));
+            assertArrayEquals(new long[]{key}, store.sortedKeys());
+        }
+
+        Files.writeString(sources.get(0), "changed month");
+        try (AggregateStore store = AggregateStore.open(storePath, AggregateIndex.fingerprint(sources),
+                CDRValidation.strict(), 16)) {
+            assertFalse(store.isComplete(1));
+            assertEquals(0, store.size());
+        }
+        AggregateStore.delete(storePath);
+        assertFalse(Files.exists(storePath));
+    }
+
+    @Test
+    void testCheckpointDroppedForOtherValidation(@TempDir Path directory) throws IOException {
+        long[] fingerprint = AggregateIndex.fingerprint(createSources(directory));
+        Path storePath = directory.resolve("aggregate.store");
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, CDRValidation.lenient(), 16)) {
+            store.add(MsisdnCodec.encode("79996667755"), 1, 10, 20);
+            store.complete(1);
+        }
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, CDRValidation.lenient(), 16)) {
+            assertTrue(store.isComplete(1));
+        }
+        CDRValidation period = CDRValidation.builder().period(0, 1_000).build();
+        try (AggregateStore store = AggregateStore.open(storePath, fingerprint, period, 16)) {
+            assertFalse(store.isComplete(1));
+            assertEquals(0, store.size());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CDRReaderTest {
+    private Path createCDR(String content) throws IOException {
+        Path path = Files.createTempFile("cdr", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, content, StandardCharsets.US_ASCII);
+        return path;
+    }
+
+    @Test
+    void testRead() throws IOException {
+        Path path = createCDR("02,79876543221, 1709798657, 1709799601\n01,01234567890,1709899870,1709905806");
+        List<String> records = new ArrayList<>();
+        CDRReader.read(path, (type, msisdn, callDuration) ->
+                records.add(type + "," + MsisdnCodec.decode(msisdn) + "," + callDuration));
+        assertEquals(List.of("2,79876543221,944", "1,01234567890,5936"), records);
+    }
+
+    @Test
+    void testReadSplitRanges() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("01,7999666").append(1000 + i).append(",1709899870,").append(1709899870 + i).append('\n');
+        }
+        Path path = createCDR(content.toString());
+        long[] total = new long[2];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = CDRReader.split(channel.size(), 7);
+            for (int i = 0; i < 7; i++) {
+                CDRReader.read(channel, bounds[i], bounds[i + 1], (type, msisdn, callDuration) -> {
+                    total[0]++;
+                    total[1] += callDuration;
+                });
+            }
+        }
+        assertEquals(1000, total[0]);
+        assertEquals(999L * 1000 / 2, total[1]);
+    }
+
+    @Test
+    void testNegativeDuration() throws IOException {
+        Path path = createCDR("01,79996667755,1709905806,1709899870\n");
+        assertThrows(IllegalArgumentException.class, () -> CDRReader.read(path, (type, msisdn, callDuration) -> { }));
+    }
+
+    @Test
+    void testMalformedLine() throws IOException {
+        Path path = createCDR("01,7999666775x,1709899870,1709905806\n");
+        assertThrows(NumberFormatException.class, () -> CDRReader.read(path, (type, msisdn, callDuration) -> { }));
+        Path missing = createCDR("01,79996667755,1709899870\n");
+        assertThrows(IllegalArgumentException.class, () -> CDRReader.read(missing, (type, msisdn, callDuration) -> { }));
+    }
+
+    @Test
+    void testLenientQuarantine(@TempDir Path directory) throws IOException {
+        String good = "01,79996667755,1709899870,1709905806\n";
+        String content = good
+                + "01,79996667755,1709899870\n"
+                + "01,79996667755,1709899870,1709905806,5\n"
+                + "01,7999666775x,1709899870,1709905806\n"
+                + "01,79996667755,1709905806,1709899870\r\n"
+                + "03,79996667755,1709899870,1709905806\n"
+                + "4294967297,79996667755,1709899870,1709905806\n"
+                + "02,79996667755,1609899870,1609905806\n"
+                + "\n"
+                + good;
+        Path path = createCDR(content);
+        Path file = directory.resolve("quarantine.tsv");
+        CDRValidation validation = CDRValidation.builder()
+                .mode(CDRValidation.Mode.LENIENT)
+                .period(1700000000, 1800000000)
+                .build();
+        long[] total = new long[2];
+        try (Quarantine quarantine = new Quarantine(validation, file);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CDRReader.read(channel, 0, Long.MAX_VALUE, (type, msisdn, callDuration) -> {
+                total[0]++;
+                total[1] += callDuration;
+            }, false, quarantine, 5);
+            quarantine.accept(total[0]);
+            ValidationSummary summary = quarantine.summary();
+            assertEquals(2, summary.accepted());
+            assertEquals(7, summary.totalRejected());
+            assertEquals(2, summary.rejected().get(CDRError.FIELD_COUNT));
+            assertEquals(1, summary.rejected().get(CDRError.NON_NUMERIC));
+            assertEquals(1, summary.rejected().get(CDRError.NEGATIVE_DURATION));
+            assertEquals(2, summary.rejected().get(CDRError.UNKNOWN_TYPE));
+            assertEquals(1, summary.rejected().get(CDRError.OUT_OF_PERIOD));
+            assertEquals(file, summary.quarantine());
+        }
+        assertEquals(2, total[0]);
+        assertEquals(2 * 5936, total[1]);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(7, lines.size());
+        assertEquals("5\t" + good.length() + "\tFIELD_COUNT\t01,79996667755,1709899870", lines.get(0));
+        assertTrue(lines.get(3).endsWith("\tNEGATIVE_DURATION\t01,79996667755,1709905806,1709899870"));
+        assertTrue(lines.get(5).endsWith("\tUNKNOWN_TYPE\t4294967297,79996667755,1709899870,1709905806"));
+        assertTrue(lines.get(6).contains("\tOUT_OF_PERIOD\t"));
+    }
+
+    @Test
+    void testCompleteLinesOnly() throws IOException {
+        String complete = "01,79996667755,1709899870,1709905806\n";
+        Path path = createCDR(complete + "02,7999666");
+        List<String> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long pos = CDRReader.read(channel, 0, Long.MAX_VALUE, (type, msisdn, callDuration) ->
+                    records.add(MsisdnCodec.decode(msisdn)), true);
+            assertEquals(complete.length(), pos);
+            assertEquals(List.of("79996667755"), records);
+            assertEquals(pos, CDRReader.read(channel, pos, Long.MAX_VALUE, (type, msisdn, callDuration) ->
+                    records.add(MsisdnCodec.decode(msisdn)), true));
+        }
+        Files.writeString(path, "7755,1709899870,1709899900\n", StandardOpenOption.APPEND);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            assertEquals(channel.size(), CDRReader.read(channel, complete.length(), Long.MAX_VALUE,
+                    (type, msisdn, callDuration) -> records.add(MsisdnCodec.decode(msisdn)), true));
+        }
+        assertEquals(List.of("79996667755", "79996667755"), records);
+    }
+}
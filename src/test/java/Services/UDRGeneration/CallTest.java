@@ -0,0 +1,39 @@
+package Services.UDRGeneration;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallTest {
+
+    @Test
+    void testAddTime() {
+        Call call = new Call();
+        call.addTime(3599);
+        call.addTime(2);
+        assertEquals(3601, call.getTotalSeconds());
+        assertEquals("01:00:01", call.getTotalTime());
+    }
+
+    @Test
+    void testFormatPastDayAndIntRange() {
+        assertEquals("100:00:00", Call.format(100L * 3600));
+        Call call = new Call();
+        call.addTime(Integer.MAX_VALUE);
+        call.addTime(Integer.MAX_VALUE);
+        assertEquals(2L * Integer.MAX_VALUE, call.getTotalSeconds());
+        assertEquals("1193046:28:14", call.getTotalTime());
+    }
+
+    @Test
+    void testJsonFormat() {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Call.class, new CallAdapter()).create();
+        Call call = new Call();
+        call.addTime(5432);
+        String json = gson.toJson(call);
+        assertEquals("{\"totalTime\":\"01:30:32\"}", json);
+        assertEquals(5432, gson.fromJson(json, Call.class).getTotalSeconds());
+    }
+}
@@ -0,0 +1,67 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalStateTest {
+
+    @Test
+    void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        Path source = Files.writeString(directory.resolve("1.txt"), "01,79996667755,1709899870,1709905806\n");
+        Path missing = directory.resolve("2.txt");
+        Path path = directory.resolve("state").resolve("incremental.state");
+        IncrementalState state = new IncrementalState(2, 4);
+        for (int i = 0; i < 100; i++) state.getTotals().add(MsisdnCodec.encode(String.valueOf(71000000000L + i)), 2, i);
+        state.getTotals().add(MsisdnCodec.encode("79996667755"), 1, 5936);
+        state.setOffset(0, source, Files.size(source));
+        state.save(path);
+
+        IncrementalState loaded = IncrementalState.load(path, 2, 4);
+        assertEquals(Files.size(source), loaded.getOffset(0));
+        assertEquals(0, loaded.getOffset(1));
+        assertEquals(101, loaded.getTotals().size());
+        int slot = loaded.getTotals().find(MsisdnCodec.encode("79996667755"));
+        assertEquals(5936, loaded.getTotals().outgoingAt(slot));
+        slot = loaded.getTotals().find(MsisdnCodec.encode("71000000099"));
+        assertEquals(99, loaded.getTotals().incomingAt(slot));
+        assertTrue(loaded.matches(List.of(source, missing)));
+    }
+
+    @Test
+    void testMatches(@TempDir Path directory) throws IOException {
+        Path source = Files.writeString(directory.resolve("1.txt"), "01,79996667755,1709899870,1709905806\n");
+        IncrementalState state = new IncrementalState(1, 4);
+        state.setOffset(0, source, Files.size(source));
+        assertTrue(state.matches(List.of(source)));
+
+        Files.writeString(source, "02,79996667755,1709899870,1709905806\n", StandardOpenOption.APPEND);
+        assertTrue(state.matches(List.of(source)));
+
+        Files.writeString(source, "02,79996667755,1709899870,1709905806\n02,79996667755,1709899870,1709905806\n");
+        assertFalse(state.matches(List.of(source)));
+
+        Files.writeString(source, "01,7999666\n");
+        assertFalse(state.matches(List.of(source)));
+
+        Files.delete(source);
+        assertFalse(state.matches(List.of(source)));
+    }
+
+    @Test
+    void testLoadCorrupted(@TempDir Path directory) throws IOException {
+        Path path = Files.writeString(directory.resolve("incremental.state"), "not a state");
+        IncrementalState state = IncrementalState.load(path, 12, 4);
+        assertEquals(0, state.getTotals().size());
+        assertEquals(0, state.getOffset(11));
+        assertEquals(0, IncrementalState.load(directory.resolve("missing.state"), 12, 4).getTotals().size());
+    }
+}
@@ -0,0 +1,117 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.CDRFileFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Pipeline did not process the files in time");
+            Thread.sleep(20);
+        }
+    }
+
+    private String report(Path reports, String msisdn) {
+        try {
+            return Files.readString(reports.resolve(FileManager.getNameUDR(msisdn, -1)));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    @Test
+    void testIngest(@TempDir Path directory) throws IOException, InterruptedException {
+        Path cdrs = Files.createDirectories(directory.resolve("CDRs"));
+        Path reports = directory.resolve("reports");
+        Path state = directory.resolve("index").resolve("incremental.state");
+        Path january = cdrs.resolve(CDRFileFormat.TEXT.getFileName(1));
+        Path march = cdrs.resolve(CDRFileFormat.TEXT.getFileName(3));
+        Files.writeString(january, "01,79996667755,1709899870,1709899930\n");
+
+        IngestPipeline pipeline = new IngestPipeline(cdrs, state, reports, 2, 2, 0, CDRValidation.lenient(), null);
+        try {
+            pipeline.start();
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:01:00\""));
+
+            Files.writeString(march, "02,79996667755,1709899870,1709899900\n01,0123");
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:00:30\""));
+            assertEquals("", report(reports, "01234567890"));
+
+            Files.writeString(march, "4567890,1709899870,1709899872\n", StandardOpenOption.APPEND);
+            await(() -> report(reports, "01234567890").contains("\"totalTime\":\"00:00:02\""));
+            assertEquals(3, pipeline.getRecords());
+        } finally {
+            pipeline.close();
+        }
+        IncrementalState saved = IncrementalState.load(state, 12, 16);
+        assertEquals(Files.size(january), saved.getOffset(0));
+        assertEquals(Files.size(march), saved.getOffset(2));
+        assertEquals(2, saved.getTotals().size());
+
+        Files.delete(january);
+        Files.writeString(january, "02,79996667755,1709899870,1709899880\n");
+        pipeline = new IngestPipeline(cdrs, state, reports, 2, 2, 0, CDRValidation.lenient(), null);
+        try {
+            pipeline.start();
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:00:40\""));
+
+            Files.delete(march);
+            Files.writeString(march, "01,79996667755,1709899870,1709899875\n");
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:00:05\""));
+            assertTrue(report(reports, "79996667755").contains("\"totalTime\":\"00:00:10\""));
+        } finally {
+            pipeline.close();
+        }
+        assertEquals(Files.size(january), IncrementalState.load(state, 12, 16).getOffset(0));
+    }
+
+    @Test
+    void testBadRecordIsQuarantined(@TempDir Path directory) throws IOException, InterruptedException {
+        Path cdrs = Files.createDirectories(directory.resolve("CDRs"));
+        Path reports = directory.resolve("reports");
+        Path state = directory.resolve("index").resolve("incremental.state");
+        Path quarantine = directory.resolve("quarantine").resolve("quarantine_txt.tsv");
+        Path february = cdrs.resolve(CDRFileFormat.TEXT.getFileName(2));
+        Files.writeString(february, "01,79996667755,1709899870,1709899930\n");
+
+        IngestPipeline pipeline = new IngestPipeline(cdrs, state, reports, 2, 2, 0, CDRValidation.lenient(), quarantine);
+        try {
+            pipeline.start();
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:01:00\""));
+
+            Files.writeString(february, "01,79996667755\n01,79996667755,1709899870,1709899900\n", StandardOpenOption.APPEND);
+            await(() -> report(reports, "79996667755").contains("\"totalTime\":\"00:01:30\""));
+            ValidationSummary summary = pipeline.getValidationSummary();
+            assertEquals(1, summary.totalRejected());
+            assertEquals(1, summary.rejected().get(CDRError.FIELD_COUNT));
+            assertEquals(2, summary.accepted());
+        } finally {
+            pipeline.close();
+        }
+        assertEquals(Files.size(february), IncrementalState.load(state, 12, 16).getOffset(1));
+        assertEquals(List.of("2\t37\tFIELD_COUNT\t01,79996667755"), Files.readAllLines(quarantine));
+
+        Files.writeString(february, "02,79996667755,1709899870,1709899880\n", StandardOpenOption.APPEND);
+        IngestPipeline restarted = new IngestPipeline(cdrs, state, reports, 2, 2, 0, CDRValidation.lenient(), quarantine);
+        try {
+            restarted.start();
+            await(() -> restarted.getRecords() == 1);
+        } finally {
+            restarted.close();
+        }
+        assertEquals(0, restarted.getValidationSummary().totalRejected());
+        assertEquals(1, Files.readAllLines(quarantine).size());
+    }
+}
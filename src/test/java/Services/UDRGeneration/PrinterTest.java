@@ -0,0 +1,135 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrinterTest {
+
+    private String render(Consumer<Printer> action) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Printer printer = new Printer(new PrintStream(bytes, false, StandardCharsets.UTF_8))) {
+            action.accept(printer);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private Subscriber subscriber(String msisdn, long incoming, long outgoing) {
+        Subscriber subscriber = new Subscriber(msisdn);
+        subscriber.getIncomingCall().addTime(incoming);
+        subscriber.getOutcomingCall().addTime(outgoing);
+        return subscriber;
+    }
+
+    private SubscriberTable table(int subscribers) {
+        SubscriberTable table = new SubscriberTable(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            long msisdn = MsisdnCodec.encode(String.valueOf(79000000000L + i));
+            table.add(msisdn, 2, (i * 37L) % subscribers);
+            table.add(msisdn, 1, 1);
+        }
+        return table;
+    }
+
+    @Test
+    void testMatchesFormat() {
+        Subscriber subscriber = subscriber("79996667755", 3725, 360_000);
+        String[] data = subscriber.toString().split(",");
+        String expected = String.format("| %-12s | %-14s | %-15s |%n", data[0], data[1], data[2])
+                + String.format("+--------------+----------------+-----------------+%n")
+                + String.format("| %-5s | %-12s | %-14s | %-15s |%n", 11, data[0], data[1], data[2])
+                + String.format("+-------+--------------+----------------+-----------------+%n")
+                + String.format("| %-55s |%n", "No calls were made")
+                + String.format("+---------------------------------------------------------+%n");
+        assertEquals(expected, render(printer -> {
+            printer.printSubscriberTotal(subscriber);
+            printer.printSubscriberPerMonth(subscriber, 11);
+            printer.printNoCalls();
+        }));
+        assertEquals(render(printer -> printer.printSubscriberTotal(subscriber)),
+                render(printer -> printer.printSubscriberTotal(MsisdnCodec.encode("79996667755"), 3725, 360_000)));
+        assertTrue(render(printer -> printer.printSubscriberTotal(MsisdnCodec.encode("01234"), 0, 0))
+                .startsWith("| 01234        | 00:00:00"));
+    }
+
+    @Test
+    void testSpilledTotalsMatchTable(@TempDir Path directory) throws IOException {
+        SubscriberTable table = table(1000);
+        try (SpillingAggregator aggregator = new SpillingAggregator(directory.resolve("spill"), 100, 4)) {
+            aggregator.add(table);
+            aggregator.finish();
+            int size = 0;
+            for (int partition = 0; partition < aggregator.partitions(); partition++) {
+                size += aggregator.reduce(partition);
+            }
+            for (TableView view : List.of(TableView.top(3), TableView.page(TableView.Order.MSISDN, 2, 10),
+                    TableView.sorted(TableView.Order.MSISDN), TableView.sorted(TableView.Order.TOTAL_TIME))) {
+                int rows = size;
+                assertEquals(render(printer -> printer.printTotals(table, view)), render(printer -> {
+                    try (SpillingAggregator.Cursor cursor = aggregator.openAll()) {
+                        printer.printTotals(cursor, rows, view);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+    }
+
+    @Test
+    void testTotalsViews() {
+        SubscriberTable table = table(1000);
+        String all = render(printer -> printer.printTotals(table, TableView.all()));
+        assertEquals(3 + 2 * 1000, all.split(System.lineSeparator()).length);
+
+        String[] top = render(printer -> printer.printTotals(table, TableView.top(3))).split(System.lineSeparator());
+        assertEquals(3 + 2 * 3 + 2, top.length);
+        assertTrue(top[3].contains("00:16:39"));
+        assertTrue(top[5].contains("00:16:38"));
+        assertTrue(top[7].contains("00:16:37"));
+        assertTrue(top[9].startsWith("| Rows 1-3 of 1000"));
+
+        String[] page = render(printer -> printer.printTotals(table, TableView.page(TableView.Order.MSISDN, 2, 10)))
+                .split(System.lineSeparator());
+        assertEquals(3 + 2 * 10 + 2, page.length);
+        assertTrue(page[3].startsWith("| 79000000010 "));
+        assertTrue(page[21].startsWith("| 79000000019 "));
+        assertTrue(page[23].startsWith("| Rows 11-20 of 1000"));
+
+        String[] sorted = render(printer -> printer.printTotals(table, TableView.sorted(TableView.Order.MSISDN)))
+                .split(System.lineSeparator());
+        for (int row = 1; row < 1000; row++) {
+            assertTrue(sorted[3 + 2 * (row - 1)].compareTo(sorted[3 + 2 * row]) < 0);
+        }
+
+        String[] none = render(printer -> printer.printTotals(table, TableView.top(0))).split(System.lineSeparator());
+        assertEquals(5, none.length);
+        assertTrue(none[3].startsWith("| Rows 0 of 1000"));
+    }
+
+    @Test
+    void testParseView() {
+        assertSame(TableView.all(), TableView.parse("all"));
+        assertEquals(TableView.Order.MSISDN, TableView.parse("sorted").getOrder());
+        TableView top = TableView.parse("top:20");
+        assertEquals(TableView.Order.TOTAL_TIME, top.getOrder());
+        assertEquals(20, top.getLimit());
+        TableView page = TableView.parse("page:3:50");
+        assertEquals(100, page.getOffset());
+        assertEquals(50, page.getLimit());
+        assertThrows(IllegalArgumentException.class, () -> TableView.parse("top"));
+        assertThrows(IllegalArgumentException.class, () -> TableView.parse("page:0:10"));
+        assertThrows(IllegalArgumentException.class, () -> TableView.parse("first:10"));
+    }
+}
@@ -0,0 +1,99 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import Services.Metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServerTest {
+
+    private AggregateIndex createIndex(Path directory) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        List<SubscriberTable> months = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            sources.add(Files.writeString(directory.resolve(month + ".txt"), "month " + month));
+            SubscriberTable table = new SubscriberTable(16);
+            table.add(MsisdnCodec.encode("79996667755"), 1, 3600L * month);
+            if (month == 3) table.add(MsisdnCodec.encode("71234567890"), 2, 61);
+            months.add(table);
+        }
+        return AggregateIndex.build(directory.resolve("aggregate.idx"), sources,
+                AggregateIndex.fingerprint(sources), CDRValidation.strict(), months);
+    }
+
+    private HttpResponse<String> get(HttpClient client, ReportServer server, String path, String etag)
+            throws IOException, InterruptedException
+    {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:"
+                + server.getAddress().getPort() + path));
+        if (etag != null) request.header("If-None-Match", etag);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testReports(@TempDir Path directory) throws Exception {
+        AggregateIndex index = createIndex(directory);
+        HttpClient client = HttpClient.newHttpClient();
+        try (ReportServer server = new ReportServer(() -> index, new InetSocketAddress("localhost", 0), 16, 2)) {
+            server.start();
+
+            HttpResponse<String> month = get(client, server, "/udr/71234567890/3", null);
+            assertEquals(200, month.statusCode());
+            assertEquals("{\"msisdn\":\"71234567890\",\"month\":3,\"incomingCall\":{\"totalTime\":\"00:01:01\"},"
+                    + "\"outcomingCall\":{\"totalTime\":\"00:00:00\"}}", month.body());
+            assertEquals("application/json", month.headers().firstValue("Content-Type").orElse(null));
+
+            HttpResponse<String> all = get(client, server, "/udr/79996667755", null);
+            assertEquals(200, all.statusCode());
+            assertTrue(all.body().startsWith("[{\"msisdn\":\"79996667755\",\"month\":1,"));
+            assertTrue(all.body().endsWith("\"outcomingCall\":{\"totalTime\":\"12:00:00\"}}]"));
+
+            assertEquals(404, get(client, server, "/udr/71234567890/4", null).statusCode());
+            assertEquals(404, get(client, server, "/udr/70000000000", null).statusCode());
+            assertEquals(400, get(client, server, "/udr/71234567890/13", null).statusCode());
+            assertEquals(400, get(client, server, "/udr/71234567890/0", null).statusCode());
+            assertEquals(400, get(client, server, "/udr/71234567890/00", null).statusCode());
+            assertEquals(404, get(client, server, "/udr/abc", null).statusCode());
+        }
+    }
+
+    @Test
+    void testETagAndCache(@TempDir Path directory) throws Exception {
+        AggregateIndex index = createIndex(directory);
+        HttpClient client = HttpClient.newHttpClient();
+        long hits = Metrics.global().getCounters().getOrDefault("udr.http.cache.hits", 0L);
+        try (ReportServer server = new ReportServer(() -> index, new InetSocketAddress("localhost", 0), 16, 2)) {
+            server.start();
+
+            HttpResponse<String> first = get(client, server, "/udr/79996667755/5", null);
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<String> second = get(client, server, "/udr/79996667755/5", null);
+            assertEquals(first.body(), second.body());
+            assertEquals(etag, second.headers().firstValue("ETag").orElseThrow());
+
+            HttpResponse<String> revalidated = get(client, server, "/udr/79996667755/5", etag);
+            assertEquals(304, revalidated.statusCode());
+            assertTrue(revalidated.body().isEmpty());
+            assertEquals(200, get(client, server, "/udr/79996667755/5", "\"other\"").statusCode());
+
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(URI.create("http://localhost:"
+                    + server.getAddress().getPort() + "/udr/79996667755/5"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, post.statusCode());
+        }
+        assertTrue(Metrics.global().getCounters().get("udr.http.cache.hits") - hits >= 3);
+    }
+}
@@ -0,0 +1,114 @@
+package Services.UDRGeneration;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportWriterTest {
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(Call.class, new CallAdapter()).create();
+
+    private Subscriber subscriber(String msisdn, long incoming, long outcoming) {
+        Subscriber subscriber = new Subscriber(msisdn);
+        subscriber.getIncomingCall().addTime(incoming);
+        subscriber.getOutcomingCall().addTime(outcoming);
+        return subscriber;
+    }
+
+    private void writeAll(ReportFormat format, Path directory, int count) throws IOException {
+        try (ReportWriter writer = new ReportWriter(format, directory, 3)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(subscriber(String.valueOf(70_000_000_000L + i * 7919L), i, 2L * i), -1);
+            }
+        }
+    }
+
+    @Test
+    void testEncoderMatchesGson() {
+        Subscriber subscriber = subscriber("01234567890", 5432, 100L * 3600 + 59);
+        ReportEncoder encoder = new ReportEncoder(16);
+        encoder.append(subscriber, -1);
+        assertEquals(gson.toJson(subscriber), encoder.toString());
+    }
+
+    @Test
+    void testEncoderMonth() {
+        ReportEncoder encoder = new ReportEncoder(16);
+        encoder.append(subscriber("71234567890", 61, 0), 5);
+        JsonObject json = JsonParser.parseString(encoder.toString()).getAsJsonObject();
+        assertEquals("71234567890", json.get("msisdn").getAsString());
+        assertEquals(5, json.get("month").getAsInt());
+        assertEquals("00:01:01", json.getAsJsonObject("incomingCall").get("totalTime").getAsString());
+        assertEquals("00:00:00", json.getAsJsonObject("outcomingCall").get("totalTime").getAsString());
+    }
+
+    @Test
+    void testFlushBetweenBatches(@TempDir Path directory) throws IOException {
+        try (ReportWriter writer = new ReportWriter(ReportFormat.FILES, directory, 3)) {
+            for (int batch = 1; batch <= 3; batch++) {
+                for (int i = 0; i < 200; i++) {
+                    writer.write(subscriber(String.valueOf(70_000_000_000L + i), batch, 0), -1);
+                }
+                writer.flush();
+                try (var files = Files.list(directory)) {
+                    assertEquals(200, files.count());
+                }
+                Subscriber read = gson.fromJson(Files.readString(directory.resolve("70000000199.json")), Subscriber.class);
+                assertEquals(batch, read.getIncomingCall().getTotalSeconds());
+            }
+        }
+        Path shards = Files.createDirectories(directory.resolve("shards"));
+        try (ReportWriter writer = new ReportWriter(ReportFormat.NDJSON, shards, 2)) {
+            writer.write(subscriber("79996667755", 1, 2), -1);
+            writer.flush();
+            assertEquals(1, Files.readAllLines(shards.resolve("reports.ndjson")).size());
+        }
+    }
+
+    @Test
+    void testWriteFiles(@TempDir Path directory) throws IOException {
+        writeAll(ReportFormat.FILES, directory, 500);
+        try (var files = Files.list(directory)) {
+            assertEquals(500, files.count());
+        }
+        Subscriber read = gson.fromJson(Files.readString(directory.resolve("70000007919.json")), Subscriber.class);
+        assertEquals(1, read.getIncomingCall().getTotalSeconds());
+        assertEquals(2, read.getOutcomingCall().getTotalSeconds());
+    }
+
+    @Test
+    void testWriteNdjson(@TempDir Path directory) throws IOException {
+        writeAll(ReportFormat.NDJSON, directory, 5000);
+        List<String> lines = Files.readAllLines(directory.resolve("reports.ndjson"));
+        assertEquals(5000, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Subscriber read = gson.fromJson(lines.get(i), Subscriber.class);
+            assertEquals(String.valueOf(70_000_000_000L + i * 7919L), read.getMsisdn());
+        }
+    }
+
+    @Test
+    void testWriteSharded(@TempDir Path directory) throws IOException {
+        writeAll(ReportFormat.SHARDED, directory, 5000);
+        int total = 0;
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String prefix = file.getFileName().toString().replace("reports_", "").replace(".ndjson", "");
+                for (String line : Files.readAllLines(file)) {
+                    assertTrue(gson.fromJson(line, Subscriber.class).getMsisdn().startsWith(prefix));
+                    total++;
+                }
+            }
+        }
+        assertEquals(5000, total);
+    }
+}
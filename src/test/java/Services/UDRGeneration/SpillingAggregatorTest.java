@@ -0,0 +1,89 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingAggregatorTest {
+
+    @Test
+    void testSpilledTotalsMatchInMemoryTotals(@TempDir Path directory) throws IOException {
+        SubscriberTable expected = new SubscriberTable(16);
+        Path spill = directory.resolve("spill");
+        int partitions = 4;
+        int spills = SpillingAggregator.MAX_FAN_IN + 10;
+        try (SpillingAggregator aggregator = new SpillingAggregator(spill, 100, partitions)) {
+            for (int round = 0; round < spills; round++) {
+                SubscriberTable partial = new SubscriberTable(16);
+                for (int i = 0; i < 150; i++) {
+                    long key = MsisdnCodec.encode(String.valueOf(79000000000L + (round * 37L + i) % 1000));
+                    partial.add(key, 1 + i % 2, round + i);
+                    expected.add(key, 1 + i % 2, round + i);
+                }
+                partial.add(MsisdnCodec.encode("0012"), 2, 1);
+                expected.add(MsisdnCodec.encode("0012"), 2, 1);
+                aggregator.add(partial);
+            }
+            assertTrue(aggregator.isSpilled());
+            aggregator.finish();
+
+            int size = 0;
+            for (int partition = 0; partition < partitions; partition++) {
+                int count = aggregator.reduce(partition);
+                int rows = 0;
+                long previous = Long.MIN_VALUE;
+                try (SpillingAggregator.Cursor cursor = aggregator.open(partition)) {
+                    while (cursor.next()) {
+                        assertTrue(cursor.key() > previous);
+                        assertEquals(partition, SpillingAggregator.partitionOf(cursor.key(), partitions));
+                        int slot = expected.find(cursor.key());
+                        assertEquals(expected.incomingAt(slot), cursor.incoming());
+                        assertEquals(expected.outgoingAt(slot), cursor.outgoing());
+                        previous = cursor.key();
+                        rows++;
+                    }
+                }
+                assertEquals(count, rows);
+                size += count;
+            }
+            assertEquals(expected.size(), size);
+
+            int rows = 0;
+            long previous = Long.MIN_VALUE;
+            try (SpillingAggregator.Cursor cursor = aggregator.openAll()) {
+                while (cursor.next()) {
+                    assertTrue(cursor.key() > previous);
+                    previous = cursor.key();
+                    rows++;
+                }
+            }
+            assertEquals(expected.size(), rows);
+        }
+        assertFalse(Files.exists(spill));
+    }
+
+    @Test
+    void testWithinBudgetKeepsTableInMemory(@TempDir Path directory) throws IOException {
+        Path spill = directory.resolve("spill");
+        try (SpillingAggregator aggregator = new SpillingAggregator(spill, 100, 4)) {
+            for (int round = 0; round < 3; round++) {
+                SubscriberTable partial = new SubscriberTable(16);
+                for (int i = 0; i < 100; i++) {
+                    partial.add(MsisdnCodec.encode(String.valueOf(79000000000L + i)), 1, 1);
+                }
+                aggregator.add(partial);
+            }
+            assertFalse(aggregator.isSpilled());
+            SubscriberTable table = aggregator.getTable();
+            assertEquals(100, table.size());
+            assertEquals(3, table.outgoingAt(table.find(MsisdnCodec.encode("79000000042"))));
+            assertFalse(Files.exists(spill));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Services.UDRGeneration;
+
+import Services.CDRFormat.MsisdnCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriberTableTest {
+
+    @Test
+    void testAddAndGrow() {
+        SubscriberTable table = new SubscriberTable(4);
+        for (int i = 0; i < 10_000; i++) {
+            long msisdn = MsisdnCodec.encode(String.format("7999%07d", i));
+            table.add(msisdn, 1, i);
+            table.add(msisdn, 2, 1);
+        }
+        assertEquals(10_000, table.size());
+        int slot = table.find(MsisdnCodec.encode("79990001234"));
+        assertEquals(1234, table.outgoingAt(slot));
+        assertEquals(1, table.incomingAt(slot));
+        assertEquals(-1, table.find(MsisdnCodec.encode("89990001234")));
+    }
+
+    @Test
+    void testMerge() {
+        SubscriberTable first = new SubscriberTable(16);
+        SubscriberTable second = new SubscriberTable(16);
+        long shared = MsisdnCodec.encode("01234567890");
+        long other = MsisdnCodec.encode("12345678901");
+        first.add(shared, 1, 100);
+        second.add(shared, 1, 50);
+        second.add(other, 2, 7);
+        first.merge(second);
+        assertEquals(2, first.size());
+        assertEquals(150, first.outgoingAt(first.find(shared)));
+        Subscriber subscriber = first.toSubscriber(first.find(other));
+        assertEquals("12345678901", subscriber.getMsisdn());
+        assertEquals(7, subscriber.getIncomingCall().getTotalSeconds());
+    }
+
+    @Test
+    void testPerMonth() {
+        SubscriberTable table = new SubscriberTable(16, true);
+        long msisdn = MsisdnCodec.encode("01234567890");
+        table.add(msisdn, 3, 2, 60);
+        table.add(msisdn, 5, 1, 0);
+        int slot = table.find(msisdn);
+        assertTrue(table.hasCalls(slot, 3));
+        assertTrue(table.hasCalls(slot, 5));
+        assertFalse(table.hasCalls(slot, 4));
+        assertEquals(60, table.incomingAt(slot, 3));
+        assertEquals(60, table.incomingAt(slot));
+        assertThrows(IllegalArgumentException.class, () -> table.add(msisdn, 1, 3, 10));
+    }
+
+    @Test
+    void testClear() {
+        SubscriberTable table = new SubscriberTable(4);
+        long msisdn = MsisdnCodec.encode("79991234567");
+        for (int i = 0; i < 100; i++) {
+            table.add(MsisdnCodec.encode(String.valueOf(79000000000L + i)), 2, 5);
+        }
+        table.add(msisdn, 1, 7);
+        int capacity = table.capacity();
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(capacity, table.capacity());
+        assertEquals(-1, table.find(msisdn));
+        table.add(msisdn, 1, 3);
+        assertEquals(3, table.outgoingAt(table.find(msisdn)));
+        assertEquals(0, table.incomingAt(table.find(msisdn)));
+    }
+}
@@ -1,11 +1,20 @@
 package Services.UDRGeneration;
 
+import Services.CDRFormat.CDRConverter;
+import Services.CDRFormat.CDRFileFormat;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,4 +93,343 @@ class UDRGenerationServiceTest {
         assertTrue(hasContent && hasFiles);
 
     }
+
+    @Test
+    void testGenerateReports() {
+        clearResources();
+        UDRGenerationService service = new UDRGenerationService();
+        service.generateReports(List.of("11234567891", "12345678901"));
+        File folderReports = new File("src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "reports" + File.separator);
+
+        File[] files = folderReports.listFiles();
+        boolean hasFiles = files != null && files.length > 0;
+        boolean onlyRequested = true;
+
+        if(files != null) {
+            for(File f: files) {
+                onlyRequested = onlyRequested && (f.getName().startsWith("11234567891_")
+                        || f.getName().startsWith("12345678901_"));
+            }
+        }
+
+        assertTrue(hasFiles && onlyRequested);
+    }
+
+    private Map<String, String> readReports() throws IOException {
+        File folderReports = new File("src" + File.separator + "main" + File.separator
+                + "resources" + File.separator + "reports" + File.separator);
+        Map<String, String> reports = new HashMap<>();
+        File[] files = folderReports.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                reports.put(f.getName(), Files.readString(f.toPath()));
+            }
+        }
+        return reports;
+    }
+
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        clearResources();
+        new UDRGenerationService(1).generateReport();
+        Map<String, String> sequential = readReports();
+
+        clearResources();
+        new UDRGenerationService(4).generateReport();
+        Map<String, String> parallel = readReports();
+
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void testBinaryInputMatchesText() throws IOException {
+        Path folderCDRs = Path.of("src", "main", "resources", "CDRs");
+        CDRConverter.convert(folderCDRs, folderCDRs, CDRFileFormat.BINARY);
+        try {
+            clearResources();
+            new UDRGenerationService(2).generateReport();
+            Map<String, String> text = readReports();
+
+            clearResources();
+            new UDRGenerationService(2, ReportFormat.FILES, CDRFileFormat.BINARY).generateReport();
+            Map<String, String> binary = readReports();
+
+            assertFalse(text.isEmpty());
+            assertEquals(text, binary);
+        } finally {
+            for (int month = 1; month <= 12; month++) {
+                Files.deleteIfExists(Path.of(FileManager.getPathCDR(month, CDRFileFormat.BINARY)));
+            }
+        }
+    }
+
+    @Test
+    void testIndexMatchesTotal() throws IOException {
+        Files.deleteIfExists(Path.of(FileManager.getPathIndex(CDRFileFormat.TEXT)));
+        clearResources();
+        UDRGenerationService service = new UDRGenerationService();
+        service.generateReport();
+        Gson gson = new GsonBuilder().registerTypeAdapter(Call.class, new CallAdapter()).create();
+        Map<String, Subscriber> totals = new HashMap<>();
+        for (Map.Entry<String, String> report : readReports().entrySet()) {
+            totals.put(report.getKey().replace(".json", ""), gson.fromJson(report.getValue(), Subscriber.class));
+        }
+        assertFalse(totals.isEmpty());
+
+        clearResources();
+        service.generateReports(totals.keySet());
+        assertTrue(Files.exists(Path.of(FileManager.getPathIndex(CDRFileFormat.TEXT))));
+        Map<String, String> fromNewIndex = readReports();
+
+        clearResources();
+        new UDRGenerationService().generateReports(totals.keySet());
+        assertEquals(fromNewIndex, readReports());
+
+        Map<String, long[]> sums = new HashMap<>();
+        for (Map.Entry<String, String> report : fromNewIndex.entrySet()) {
+            Subscriber subscriber = gson.fromJson(report.getValue(), Subscriber.class);
+            long[] sum = sums.computeIfAbsent(subscriber.getMsisdn(), key -> new long[2]);
+            sum[0] += subscriber.getIncomingCall().getTotalSeconds();
+            sum[1] += subscriber.getOutcomingCall().getTotalSeconds();
+        }
+        for (Subscriber total : totals.values()) {
+            long[] sum = sums.get(total.getMsisdn());
+            assertEquals(total.getIncomingCall().getTotalSeconds(), sum[0]);
+            assertEquals(total.getOutcomingCall().getTotalSeconds(), sum[1]);
+        }
+    }
+
+    @Test
+    void testOffHeapIndexMatchesHeapIndex() throws IOException {
+        clearResources();
+        UDRGenerationService service = new UDRGenerationService(2);
+        service.generateReport();
+        List<String> msisdns = new ArrayList<>();
+        for (String name : readReports().keySet()) {
+            msisdns.add(name.replace(".json", ""));
+        }
+        assertFalse(msisdns.isEmpty());
+
+        Files.deleteIfExists(Path.of(FileManager.getPathIndex(CDRFileFormat.TEXT)));
+        clearResources();
+        service.generateReports(msisdns);
+        Map<String, String> expected = readReports();
+
+        Files.deleteIfExists(Path.of(FileManager.getPathIndex(CDRFileFormat.TEXT)));
+        clearResources();
+        UDRGenerationService offHeap = new UDRGenerationService(2);
+        offHeap.setOffHeapAggregation(true);
+        offHeap.generateReports(msisdns);
+        assertEquals(expected, readReports());
+        assertTrue(Files.exists(Path.of(FileManager.getPathIndex(CDRFileFormat.TEXT))));
+        assertFalse(Files.exists(Path.of(FileManager.getPathStore(CDRFileFormat.TEXT))));
+    }
+
+    @Test
+    void testBoundedMemoryReportMatchesInMemoryReport() throws IOException {
+        clearResources();
+        new UDRGenerationService(2).generateReport();
+        Map<String, String> expected = readReports();
+        assertTrue(expected.size() > 3);
+
+        clearResources();
+        UDRGenerationService bounded = new UDRGenerationService(2);
+        bounded.setMemoryBudget(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(output, true));
+        try {
+            bounded.generateReport();
+        } finally {
+            System.setOut(console);
+        }
+        assertEquals(expected, readReports());
+        assertEquals(expected.size(), output.toString().lines().filter(line -> line.matches("\\| \\d.*")).count());
+        File[] spills = new File(FileManager.getDirectorySpill()).listFiles();
+        assertTrue(spills == null || spills.length == 0);
+    }
+
+    @Test
+    void testLenientValidationQuarantinesBadRecords() throws IOException {
+        clearResources();
+        new UDRGenerationService(2).generateReport();
+        Map<String, String> expected = readReports();
+        assertFalse(expected.isEmpty());
+
+        Path corrupted = Path.of(FileManager.getPathCDR(5));
+        Path missing = Path.of(FileManager.getPathCDR(7));
+        byte[] original = Files.readAllBytes(corrupted);
+        byte[] removed = Files.readAllBytes(missing);
+        Path quarantine = Path.of(FileManager.getPathQuarantine(CDRFileFormat.TEXT));
+        try {
+            Files.writeString(corrupted, "\n01,7999666775x,1709899870,1709905806\n03,79996667755,1,2\n",
+                    StandardOpenOption.APPEND);
+            clearResources();
+            new UDRGenerationService(2).generateReport();
+            assertTrue(readReports().isEmpty());
+
+            UDRGenerationService lenient = new UDRGenerationService(2);
+            lenient.setValidation(CDRValidation.lenient());
+            lenient.generateReport();
+            assertEquals(expected, readReports());
+            ValidationSummary summary = lenient.getValidationSummary();
+            assertEquals(2, summary.totalRejected());
+            assertEquals(1, summary.rejected().get(CDRError.NON_NUMERIC));
+            assertEquals(1, summary.rejected().get(CDRError.UNKNOWN_TYPE));
+            assertEquals(quarantine, summary.quarantine());
+            assertEquals(2, Files.readAllLines(quarantine).size());
+
+            Files.delete(missing);
+            clearResources();
+            lenient.setValidation(CDRValidation.lenient());
+            lenient.generateReport();
+            assertFalse(readReports().isEmpty());
+            assertEquals(List.of(7), lenient.getValidationSummary().missingMonths());
+        } finally {
+            Files.write(corrupted, original);
+            Files.write(missing, removed);
+            Files.deleteIfExists(quarantine);
+        }
+    }
+
+    @Test
+    void testValidationChangeIsNotAnsweredFromStaleIndex() throws IOException {
+        clearResources();
+        UDRGenerationService service = new UDRGenerationService(2);
+        service.generateReport();
+        String msisdn = readReports().keySet().iterator().next().replace(".json", "");
+        AggregateIndex index = service.obtainIndex();
+        assertNotNull(index);
+        int month = 1;
+        while (index.get(msisdn, month) == null) month++;
+
+        clearResources();
+        service.generateReport(msisdn, month);
+        assertEquals(1, readReports().size());
+
+        Path quarantine = Path.of(FileManager.getPathQuarantine(CDRFileFormat.TEXT));
+        try {
+            clearResources();
+            service.setValidation(CDRValidation.builder().period(0, 1).build());
+            service.generateReport(msisdn, month);
+            assertTrue(readReports().isEmpty());
+
+            service.setValidation(CDRValidation.builder().mode(CDRValidation.Mode.LENIENT).period(0, 1).build());
+            service.generateReport(msisdn, month);
+            assertTrue(readReports().isEmpty());
+            assertTrue(service.getValidationSummary().rejected().get(CDRError.OUT_OF_PERIOD) > 0);
+
+            service.setValidation(CDRValidation.strict());
+            service.generateReport(msisdn, month);
+            assertEquals(1, readReports().size());
+        } finally {
+            Files.deleteIfExists(quarantine);
+        }
+    }
+
+    @Test
+    void testGenerateBatchMatchesGenerateReports() throws IOException {
+        clearResources();
+        UDRGenerationService service = new UDRGenerationService(2);
+        service.generateReport();
+        List<String> msisdns = new ArrayList<>();
+        for (String name : readReports().keySet()) {
+            msisdns.add(name.replace(".json", ""));
+        }
+        assertFalse(msisdns.isEmpty());
+
+        clearResources();
+        service.generateReports(msisdns);
+        Map<String, String> expected = readReports();
+
+        List<ReportRequest> requests = new ArrayList<>();
+        for (int i = 0; i < msisdns.size(); i++) {
+            requests.add(ReportRequest.of(msisdns.get(i)));
+            requests.add(ReportRequest.of(msisdns.get(i), i % 12 + 1));
+        }
+        requests.add(ReportRequest.of("abc"));
+        requests.add(ReportRequest.of(msisdns.get(0), 13));
+        clearResources();
+        List<ReportResult> results = service.generateBatch(requests);
+        assertEquals(expected, readReports());
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ReportResult result = results.get(i);
+            assertEquals(requests.get(i), result.request());
+            if (i >= 2 * msisdns.size()) {
+                assertFalse(result.isSuccessful());
+                continue;
+            }
+            assertTrue(result.isSuccessful());
+            for (Map.Entry<Integer, String> report : result.reports().entrySet()) {
+                String file = expected.get(result.request().msisdn() + "_" + report.getKey() + ".json");
+                assertNotNull(file);
+                assertTrue(report.getValue().contains("\"month\":" + report.getKey()));
+            }
+        }
+        assertEquals(12, results.get(0).reports().size() + countNoCalls(expected, msisdns.get(0)));
+    }
+
+    private int countNoCalls(Map<String, String> reports, String msisdn) {
+        int months = 0;
+        for (int month = 1; month <= 12; month++) {
+            if (!reports.containsKey(msisdn + "_" + month + ".json")) months++;
+        }
+        return months;
+    }
+
+    @Test
+    void testIncrementalUpdate() throws IOException {
+        Path state = Path.of(FileManager.getPathState(CDRFileFormat.TEXT));
+        Path december = Path.of(FileManager.getPathCDR(12));
+        byte[] original = Files.readAllBytes(december);
+        Files.deleteIfExists(state);
+        try {
+            UDRGenerationService service = new UDRGenerationService(2);
+            clearResources();
+            service.generateReport();
+            Map<String, String> full = readReports();
+
+            clearResources();
+            service.updateReports();
+            assertEquals(full, readReports());
+
+            clearResources();
+            service.updateReports();
+            assertTrue(readReports().isEmpty());
+
+            Files.writeString(december, "02,45678901234,1656656291,1656656391\n01,7999666",
+                    StandardOpenOption.APPEND);
+            clearResources();
+            service.updateReports();
+            assertEquals(List.of("45678901234.json"), List.copyOf(readReports().keySet()));
+
+            Files.writeString(december, "7755,1656656291,1656656301\n", StandardOpenOption.APPEND);
+            clearResources();
+            service.updateReports();
+            Map<String, String> updated = readReports();
+            assertEquals(List.of("79996667755.json"), List.copyOf(updated.keySet()));
+
+            clearResources();
+            service.updateReports();
+            assertTrue(readReports().isEmpty());
+
+            clearResources();
+            service.generateReport();
+            Map<String, String> rebuilt = readReports();
+            assertEquals(updated.get("79996667755.json"), rebuilt.get("79996667755.json"));
+            assertNotEquals(full.get("45678901234.json"), rebuilt.get("45678901234.json"));
+
+            Files.write(december, original);
+            clearResources();
+            service.updateReports();
+            assertEquals(full, readReports());
+        } finally {
+            Files.write(december, original);
+            Files.deleteIfExists(state);
+        }
+    }
 }
\ No newline at end of file